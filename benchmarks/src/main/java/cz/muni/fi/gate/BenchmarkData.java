@@ -0,0 +1,117 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      BenchmarkData.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.openrdf.rio.RDFFormat;
+
+
+
+/**
+ * Class BenchmarkData generates subgraphs of the benchmarks and loads them to an in-memory store.
+ * Data are generated by OntologyGenerator from a fixed seed, so every run of a benchmark measures the same data.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+final class BenchmarkData {
+
+
+    static final String REPOSITORY_ID = "gate-benchmark";
+
+    static final String BASE_URI = "http://example.org/example/local";
+
+    /**
+     * String QUERY selects assertions of one of 20 properties of generated individuals
+     */
+    static final String QUERY = "SELECT ?s ?p ?o WHERE {?s <http://example.org/lubm/property1> ?o .}";
+
+
+
+    private BenchmarkData() {
+    }
+
+    static String subgraphId(int subgraph) {
+        return "http://example.org#subgraph" + subgraph;
+    }
+
+    static List<String> subgraphIds(int subgraphs) {
+        List<String> subgraphIds = new ArrayList<>();
+        for (int i = 0; i < subgraphs; i++) {
+            subgraphIds.add(subgraphId(i));
+        }
+        return subgraphIds;
+    }
+
+    /**
+     * Generates LUBM-style subgraphs with about the given number of triples in total
+     * by OntologyGenerator with its default schema.
+     */
+    static Model[] createSubgraphs(int triples, int subgraphs) throws IOException {
+        OntologyGenerator generator = new OntologyGenerator();
+        generator.setSubgraphs(subgraphs);
+        generator.setIndividuals(Math.max(triples / (2 + generator.getAssertions()), 1));
+        Model[] models = new Model[subgraphs];
+        for (int i = 0; i < subgraphs; i++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            generator.write(i, output, RDFFormat.NTRIPLES);
+            models[i] = ModelFactory.createDefaultModel();
+            models[i].read(new ByteArrayInputStream(output.toByteArray()), BASE_URI, "N-TRIPLE");
+        }
+        return models;
+    }
+
+    /**
+     * Returns one model of all subgraphs.
+     */
+    static Model union(Model[] subgraphs) {
+        Model union = ModelFactory.createDefaultModel();
+        for (Model subgraph : subgraphs) {
+            union.add(subgraph);
+        }
+        return union;
+    }
+
+    /**
+     * Serialises the model in the given Jena language, e.g. RDF/XML or N-TRIPLE.
+     */
+    static byte[] write(Model model, String lang) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        model.write(output, lang);
+        return output.toByteArray();
+    }
+
+    /**
+     * Creates an in-memory store with REPOSITORY_ID holding the subgraphs.
+     */
+    static MemoryBackend createBackend(Model[] subgraphs) throws Exception {
+        MemoryBackend backend = new MemoryBackend();
+        backend.createRepository(REPOSITORY_ID);
+        for (int i = 0; i < subgraphs.length; i++) {
+            backend.loadOntology(REPOSITORY_ID, subgraphId(i), BASE_URI,
+                                 new ByteArrayInputStream(write(subgraphs[i], "N-TRIPLE")), RDFFormat.NTRIPLES);
+        }
+        return backend;
+    }
+
+    /**
+     * Returns a query without timeout and limits, as the bean evaluates it with default QueryOptions
+     * of an unlimited configuration.
+     */
+    static RunningQuery unlimited() {
+        return new RunningQuery("benchmark", REPOSITORY_ID, QueryOptions.NO_TIMEOUT, QueryOptions.NO_LIMIT, 0, QueryOptions.NO_MAX_ROWS);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ExportBenchmark.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openrdf.OpenRDFException;
+import org.openrdf.rio.RDFFormat;
+
+
+
+/**
+ * Class ExportBenchmark measures serialisation of one subgraph: RDF/XML string of exportSubgraph
+ * written by Jena as the bean writes it, compared with RDF/XML and N-Triples streamed by
+ * StorageBackend.export.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ExportBenchmark {
+
+
+    @Param({"10000", "100000"})
+    public int triples;
+
+    private Model subgraph;
+
+    private MemoryBackend backend;
+
+    private List<String> subgraphIds;
+
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Model[] models = BenchmarkData.createSubgraphs(triples, 1);
+        subgraph = models[0];
+        backend = BenchmarkData.createBackend(models);
+        subgraphIds = Arrays.asList(BenchmarkData.subgraphId(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        backend.shutDown();
+    }
+
+    @Benchmark
+    public int exportSubgraph() {
+        return GateNosqlBean.writeModel(subgraph).length();
+    }
+
+    @Benchmark
+    public int exportRdfXml() throws OpenRDFException {
+        return export(RDFFormat.RDFXML);
+    }
+
+    @Benchmark
+    public int exportNTriples() throws OpenRDFException {
+        return export(RDFFormat.NTRIPLES);
+    }
+
+
+
+    private int export(RDFFormat format) throws OpenRDFException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        backend.export(BenchmarkData.REPOSITORY_ID, subgraphIds, output, format);
+        return output.size();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      LoadBenchmark.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openrdf.OpenRDFException;
+import org.openrdf.rio.RDFFormat;
+
+
+
+/**
+ * Class LoadBenchmark measures loading of an ontology file: parsing by Jena into a model
+ * as loadOntologyFromFile reads it, compared with parsing by Sesame into the in-memory
+ * store by StorageBackend.loadOntology.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class LoadBenchmark {
+
+
+    @Param({"10000", "100000"})
+    public int triples;
+
+    @Param({"RDFXML", "NTRIPLES"})
+    public String format;
+
+    private File file;
+
+    private MemoryBackend backend;
+
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Model subgraph = BenchmarkData.createSubgraphs(triples, 1)[0];
+        file = File.createTempFile("gate-benchmark", ".rdf");
+        file.deleteOnExit();
+        try (OutputStream output = new FileOutputStream(file)) {
+            output.write(BenchmarkData.write(subgraph, getLang()));
+        }
+        backend = new MemoryBackend();
+        backend.createRepository(BenchmarkData.REPOSITORY_ID);
+    }
+
+    @TearDown(Level.Invocation)
+    public void clear() throws OpenRDFException {
+        backend.deleteSubgraph(BenchmarkData.REPOSITORY_ID, BenchmarkData.subgraphId(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        backend.shutDown();
+        file.delete();
+    }
+
+    @Benchmark
+    public long loadOntologyFromFile() throws IOException {
+        Model model = ModelFactory.createDefaultModel();
+        try (InputStream input = new FileInputStream(file)) {
+            model.read(input, BenchmarkData.BASE_URI, getLang());
+        }
+        return model.size();
+    }
+
+    @Benchmark
+    public void loadOntology() throws OpenRDFException, IOException {
+        try (InputStream input = new FileInputStream(file)) {
+            backend.loadOntology(BenchmarkData.REPOSITORY_ID, BenchmarkData.subgraphId(0), BenchmarkData.BASE_URI,
+                                 input, "RDFXML".equals(format) ? RDFFormat.RDFXML : RDFFormat.NTRIPLES);
+        }
+    }
+
+
+
+    private String getLang() {
+        return "RDFXML".equals(format) ? "RDF/XML" : "N-TRIPLE";
+    }
+}
@@ -0,0 +1,160 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OffHeapGraphBenchmark.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+
+/**
+ * Class OffHeapGraphBenchmark compares lookups and queries of a subgraph cached on the heap
+ * as a Jena model with the same subgraph cached by OffHeapGraph (see SubgraphCache).
+ * Run with -prof gc to compare allocation and garbage collection as well.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class OffHeapGraphBenchmark {
+
+
+    private static final String QUERY = "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/p1> ?x . ?x ?p ?o .} LIMIT 1000";
+
+    private static final int PEOPLE = 100000;
+
+    private static final int PREDICATES = 16;
+
+    @Param({"100000", "1000000"})
+    public int triples;
+
+    private Model heap;
+
+    private Model offHeap;
+
+    private Node[] subjects;
+
+    private Node[] objects;
+
+    private Random random;
+
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random data = new Random(42);
+        heap = ModelFactory.createDefaultModel();
+        Graph graph = heap.getGraph();
+        for (int i = 0; i < triples; i++) {
+            graph.add(Triple.create(person(data.nextInt(PEOPLE)),
+                                    Node.createURI("http://example.org/ontology/p" + data.nextInt(PREDICATES)),
+                                    person(data.nextInt(PEOPLE))));
+        }
+        offHeap = ModelFactory.createModelForGraph(OffHeapGraph.copyOf(graph));
+        subjects = new Node[1024];
+        objects = new Node[1024];
+        for (int i = 0; i < subjects.length; i++) {
+            subjects[i] = person(data.nextInt(PEOPLE));
+            objects[i] = person(data.nextInt(PEOPLE));
+        }
+        random = new Random(7);
+    }
+
+    @Benchmark
+    public int findBySubjectHeap() {
+        return count(heap.getGraph(), subjects[random.nextInt(subjects.length)], Node.ANY);
+    }
+
+    @Benchmark
+    public int findBySubjectOffHeap() {
+        return count(offHeap.getGraph(), subjects[random.nextInt(subjects.length)], Node.ANY);
+    }
+
+    @Benchmark
+    public int findByObjectHeap() {
+        return count(heap.getGraph(), Node.ANY, objects[random.nextInt(objects.length)]);
+    }
+
+    @Benchmark
+    public int findByObjectOffHeap() {
+        return count(offHeap.getGraph(), Node.ANY, objects[random.nextInt(objects.length)]);
+    }
+
+    @Benchmark
+    public int queryHeap() {
+        return select(heap);
+    }
+
+    @Benchmark
+    public int queryOffHeap() {
+        return select(offHeap);
+    }
+
+
+
+    private static Node person(int id) {
+        return Node.createURI("http://example.org/people/person" + id);
+    }
+
+    private static int count(Graph graph, Node subject, Node object) {
+        int count = 0;
+        ExtendedIterator<Triple> found = graph.find(subject, Node.ANY, object);
+        try {
+            while (found.hasNext()) {
+                found.next();
+                count++;
+            }
+        } finally {
+            found.close();
+        }
+        return count;
+    }
+
+    private static int select(Model model) {
+        QueryExecution qe = QueryExecutionFactory.create(QUERY, model);
+        try {
+            ResultSet results = qe.execSelect();
+            int count = 0;
+            while (results.hasNext()) {
+                results.next();
+                count++;
+            }
+            return count;
+        } finally {
+            qe.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      QueryBenchmark.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openrdf.OpenRDFException;
+
+
+
+/**
+ * Class QueryBenchmark measures the query path of the bean without AllegroGraph:
+ * <ul>
+ * <li>materialise* - rows of one result read as strings (queryModel), as RDFNodes (queryModelL)
+ * and as RDFNodeTable (querySubgraphsTable) by the code of GateNosqlBean,</li>
+ * <li>queryUnion, queryPerSubgraph - one query over the union of subgraphs compared with
+ * a query of every subgraph merged like queryInferencedSubgraphs merges its parts.</li>
+ * </ul>
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class QueryBenchmark {
+
+
+    @Param({"10000", "100000"})
+    public int triples;
+
+    @Param({"4", "16"})
+    public int subgraphs;
+
+    private Model union;
+
+    private MemoryBackend backend;
+
+    private List<String> subgraphIds;
+
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Model[] models = BenchmarkData.createSubgraphs(triples, subgraphs);
+        union = BenchmarkData.union(models);
+        backend = BenchmarkData.createBackend(models);
+        subgraphIds = BenchmarkData.subgraphIds(subgraphs);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        backend.shutDown();
+    }
+
+    @Benchmark
+    public int materialiseStrings() throws OpenRDFException {
+        QueryExecution qe = QueryExecutionFactory.create(BenchmarkData.QUERY, union);
+        try {
+            return GateNosqlBean.readStrings(qe.execSelect(), BenchmarkData.unlimited()).size();
+        } finally {
+            qe.close();
+        }
+    }
+
+    @Benchmark
+    public int materialiseNodes() throws OpenRDFException {
+        QueryExecution qe = QueryExecutionFactory.create(BenchmarkData.QUERY, union);
+        try {
+            return GateNosqlBean.readNodes(qe.execSelect(), BenchmarkData.unlimited()).size();
+        } finally {
+            qe.close();
+        }
+    }
+
+    @Benchmark
+    public int materialiseTable() throws OpenRDFException {
+        QueryExecution qe = QueryExecutionFactory.create(BenchmarkData.QUERY, union);
+        try {
+            return GateNosqlBean.readTable(qe.execSelect(), BenchmarkData.unlimited()).size();
+        } finally {
+            qe.close();
+        }
+    }
+
+    @Benchmark
+    public int queryUnion() throws OpenRDFException {
+        return backend.query(BenchmarkData.REPOSITORY_ID, subgraphIds, BenchmarkData.QUERY).size();
+    }
+
+    @Benchmark
+    public int queryPerSubgraph() throws OpenRDFException {
+        LinkedHashSet<String> merged = new LinkedHashSet<>();
+        for (String subgraphId : subgraphIds) {
+            RDFNodeTable table = backend.query(BenchmarkData.REPOSITORY_ID, Arrays.asList(subgraphId), BenchmarkData.QUERY);
+            for (int row = 0; row < table.size(); row++) {
+                merged.add(table.getRow(row).toString());
+            }
+        }
+        return merged.size();
+    }
+}
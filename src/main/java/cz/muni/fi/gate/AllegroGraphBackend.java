@@ -0,0 +1,139 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      AllegroGraphBackend.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.franz.agraph.repository.AGCatalog;
+import com.franz.agraph.repository.AGRepositoryConnection;
+import com.franz.agraph.repository.AGServer;
+import java.util.ArrayList;
+import java.util.List;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.RepositoryException;
+
+
+
+/**
+ * Class AllegroGraphBackend stores repositories in the catalog of AllegroGraph server
+ * given by configuration/database.properties or by the constructor.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class AllegroGraphBackend extends SesameBackend {
+
+
+    private final AGServer server;
+
+    private final AGCatalog catalog;
+
+
+
+    public AllegroGraphBackend() throws RepositoryException {
+        this(GateNosqlConfiguration.getProperty("server_url"), GateNosqlConfiguration.getProperty("catalog_id"));
+    }
+
+    /**
+     * Creates the backend of the given server and catalog, username and password are given
+     * by configuration/database.properties.
+     * @param serverUrl String
+     * @param catalogId String
+     * @throws RepositoryException if the catalog can not be opened
+     */
+    public AllegroGraphBackend(String serverUrl, String catalogId) throws RepositoryException {
+        server = new AGServer(serverUrl,
+                              GateNosqlConfiguration.getProperty("username"),
+                              GateNosqlConfiguration.getProperty("password"));
+        catalog = server.getCatalog(catalogId);
+    }
+
+    @Override
+    public ArrayList<String> getAllRepositories() throws RepositoryException {
+        try {
+            return new ArrayList<>(catalog.listRepositories());
+        } catch (OpenRDFException ex) {
+            throw new RepositoryException(ex);
+        }
+    }
+
+    @Override
+    public void createRepository(String repositoryId) throws RepositoryException {
+        if (hasRepository(repositoryId)) {
+            throw new RepositoryException("Repository: "+repositoryId+" already exists.");
+        }
+        catalog.createRepository(repositoryId).initialize();
+    }
+
+    @Override
+    public void deleteRepository(String repositoryId) throws RepositoryException {
+        if (!hasRepository(repositoryId)) {
+            throw new RepositoryException("Repository: "+repositoryId+" does not exist.");
+        }
+        catalog.deleteRepository(repositoryId);
+    }
+
+    @Override
+    public ArrayList<String> getIndexes(String repositoryId) throws RepositoryException {
+        AGRepositoryConnection connection = (AGRepositoryConnection) openConnection(repositoryId);
+        try {
+            return new ArrayList<>(connection.listIndices());
+        } catch (OpenRDFException ex) {
+            throw new RepositoryException(ex);
+        } finally {
+            closeConnection(connection);
+        }
+    }
+
+    @Override
+    public void addIndexes(String repositoryId, List<String> indexes) throws RepositoryException {
+        AGRepositoryConnection connection = (AGRepositoryConnection) openConnection(repositoryId);
+        try {
+            for (String index : indexes) {
+                connection.addIndex(index);
+            }
+        } finally {
+            closeConnection(connection);
+        }
+    }
+
+    @Override
+    public void dropIndexes(String repositoryId, List<String> indexes) throws RepositoryException {
+        AGRepositoryConnection connection = (AGRepositoryConnection) openConnection(repositoryId);
+        try {
+            for (String index : indexes) {
+                connection.dropIndex(index);
+            }
+        } finally {
+            closeConnection(connection);
+        }
+    }
+
+    @Override
+    public void shutDown() {
+        server.close();
+    }
+
+    @Override
+    protected AGRepositoryConnection getConnection(String repositoryId) throws RepositoryException {
+        if (!hasRepository(repositoryId)) {
+            throw new RepositoryException("Repository: "+repositoryId+" does not exist.");
+        }
+        return catalog.openRepository(repositoryId).getConnection();
+    }
+
+
+
+    private boolean hasRepository(String repositoryId) throws RepositoryException {
+        try {
+            return catalog.hasRepository(repositoryId);
+        } catch (OpenRDFException ex) {
+            throw new RepositoryException(ex);
+        }
+    }
+}
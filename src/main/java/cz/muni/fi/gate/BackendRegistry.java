@@ -0,0 +1,128 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      BackendRegistry.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import org.openrdf.repository.RepositoryException;
+
+
+
+/**
+ * Class BackendRegistry keeps the storage backend given by backend property
+ * (see configuration/database.properties and StorageBackends) for all instances of GateNosqlBean.
+ * With backend = allegrograph there is no backend, GateNosqlBean works with the AllegroGraph server
+ * by CatalogRegistry and Jena models of AllegroGraph. Otherwise repositories, subgraphs, loads,
+ * queries without reasoning, exports and indexes are handled by the backend, which has just
+ * the catalog catalog_id, and methods which need AllegroGraph (reasoning, ASK, COUNT, CONSTRUCT
+ * and batch queries, hierarchies, the near-cache and maintenance of indexes) fail.
+ * Connections of the backend are counted by ConnectionMetrics of OperationMonitor.
+ * Shards of the sharded backend are called in parallel by asynchronous invocations of BatchExecutor.
+ * A backend which can not be created fails the deployment.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class BackendRegistry {
+
+
+    /**
+     * String name of the backend given by backend property
+     */
+    private final String name;
+
+    /**
+     * StorageBackend backend, null for allegrograph
+     */
+    private volatile StorageBackend backend;
+
+    /**
+     * OperationMonitor operationMonitor counts connections of the backend together with connections of GateNosqlBean
+     */
+    @EJB
+    private OperationMonitor operationMonitor;
+
+    /**
+     * BatchExecutor batchExecutor runs requests of the sharded backend to its shards on threads of the container
+     */
+    @EJB
+    private BatchExecutor batchExecutor;
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(BackendRegistry.class.getName());
+
+
+
+    /**
+     * Creates the registry of the backend given by backend property.
+     */
+    public BackendRegistry() {
+        this(GateNosqlConfiguration.getProperty("backend", "allegrograph"), null);
+    }
+
+    BackendRegistry(String name, OperationMonitor operationMonitor) {
+        this.name = name;
+        this.operationMonitor = operationMonitor;
+    }
+
+    @PostConstruct
+    void initialize() {
+        if (name.equals("allegrograph")) {
+            return;
+        }
+        try {
+            StorageBackend created = StorageBackends.create(name);
+            created.setConnections(operationMonitor.getConnections());
+            if (created instanceof ShardedBackend) {
+                ((ShardedBackend) created).setExecutor(batchExecutor);
+            }
+            backend = created;
+            LOGGER.log(Level.INFO, "Storage backend: {0} is used.", name);
+        } catch (RepositoryException ex) {
+            throw new IllegalStateException("Backend: " + name + " can not be created.", ex);
+        }
+    }
+
+    @PreDestroy
+    void shutDown() {
+        if (backend != null) {
+            backend.shutDown();
+            backend = null;
+        }
+    }
+
+    /**
+     * Returns the name of the backend given by backend property.
+     * @return name of the backend
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the storage backend.
+     * @return backend or null if GateNosqlBean works with AllegroGraph directly
+     */
+    public StorageBackend getBackend() {
+        return backend;
+    }
+}
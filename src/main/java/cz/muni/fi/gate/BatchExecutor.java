@@ -0,0 +1,64 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      BatchExecutor.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.Stateless;
+
+
+
+/**
+ * Class BatchExecutor evaluates workers of parallel batches and requests of ShardedBackend
+ * to its shards. Workers run as asynchronous invocations on threads of the container,
+ * so the beans they call are invoked with a container context. A batch starts at most
+ * batch_parallelism workers (see configuration/database.properties).
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Stateless
+public class BatchExecutor {
+
+
+    /**
+     * int DEFAULT_PARALLELISM is a number of workers if batch_parallelism is not set
+     */
+    private static final int DEFAULT_PARALLELISM = 4;
+
+
+
+    /**
+     * Returns the number of workers evaluating a batch.
+     * @param queries int number of queries of the batch
+     * @param parallel boolean true if the queries are evaluated in parallel
+     * @return number of workers, 1 if the batch is evaluated by the calling thread
+     */
+    public static int getWorkers(int queries, boolean parallel) {
+        if (!parallel) {
+            return 1;
+        }
+        int parallelism = (int) Math.max(GateNosqlConfiguration.getLong("batch_parallelism", DEFAULT_PARALLELISM), 1);
+        return Math.max(Math.min(parallelism, queries), 1);
+    }
+
+    /**
+     * Evaluates the task asynchronously.
+     * @param task Callable<T>
+     * @return future of the result, the exception of the task is its cause
+     * @throws Exception thrown by the task
+     */
+    @Asynchronous
+    public <T> Future<T> submit(Callable<T> task) throws Exception {
+        return new AsyncResult<>(task.call());
+    }
+}
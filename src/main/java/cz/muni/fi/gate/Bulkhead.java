@@ -0,0 +1,175 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      Bulkhead.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+
+/**
+ * Class Bulkhead limits concurrent calls of one OperationClass. A call over the limit waits
+ * in a bounded queue in order of arrival, it fails at once if the queue is full and
+ * it fails after the longest wait if it is not admitted by then.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public final class Bulkhead implements BulkheadMBean {
+
+
+    private final int limit;
+
+    private final int queueLimit;
+
+    private final long maxWaitMillis;
+
+    /**
+     * Semaphore permits are free places of calls, it is fair, so queued calls are admitted in order of arrival
+     */
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicLong admitted = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong timedOut = new AtomicLong();
+
+
+
+    /**
+     * Creates the bulkhead.
+     * @param limit int maximal number of concurrent calls
+     * @param queueLimit int maximal number of waiting calls, 0 fails calls over the limit at once
+     * @param maxWaitMillis long longest wait of a call in milliseconds
+     */
+    public Bulkhead(int limit, int queueLimit, long maxWaitMillis) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Argument limit has to be positive.");
+        }
+        if (queueLimit < 0) {
+            throw new IllegalArgumentException("Argument queueLimit can not be negative.");
+        }
+        if (maxWaitMillis < 0) {
+            throw new IllegalArgumentException("Argument maxWaitMillis can not be negative.");
+        }
+        this.limit = limit;
+        this.queueLimit = queueLimit;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(limit, true);
+    }
+
+    /**
+     * Admits a call, waiting in the queue if the limit is reached. An admitted call has to be released.
+     * @return true if the call is admitted, false if the queue is full, the wait timed out or the thread was interrupted
+     */
+    public boolean acquire() {
+        return acquire(1);
+    }
+
+    /**
+     * Admits a call occupying the given number of places, e.g. a batch evaluated by several workers,
+     * waiting in the queue if the limit is reached. A call never occupies more places than the limit.
+     * An admitted call has to be released by the same number of places.
+     * @param places int number of places of the call
+     * @return true if the call is admitted, false if the queue is full, the wait timed out or the thread was interrupted
+     */
+    public boolean acquire(int places) {
+        if (places < 1) {
+            throw new IllegalArgumentException("Argument places has to be positive.");
+        }
+        int permitCount = Math.min(places, limit);
+        try {
+            // Unlike tryAcquire(), a timed try does not overtake queued calls
+            if (permits.tryAcquire(permitCount, 0, TimeUnit.MILLISECONDS)) {
+                admitted.incrementAndGet();
+                return true;
+            }
+            if (queued.incrementAndGet() > queueLimit) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                return false;
+            }
+            try {
+                if (permits.tryAcquire(permitCount, maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                    admitted.incrementAndGet();
+                    return true;
+                }
+            } finally {
+                queued.decrementAndGet();
+            }
+            timedOut.incrementAndGet();
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Releases an admitted call.
+     */
+    public void release() {
+        release(1);
+    }
+
+    /**
+     * Releases an admitted call occupying the given number of places.
+     * @param places int number of places given to acquire(int)
+     */
+    public void release(int places) {
+        permits.release(Math.min(places, limit));
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public int getQueueLimit() {
+        return queueLimit;
+    }
+
+    @Override
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    @Override
+    public int getActive() {
+        return limit - permits.availablePermits();
+    }
+
+    @Override
+    public int getQueued() {
+        return queued.get();
+    }
+
+    @Override
+    public long getAdmitted() {
+        return admitted.get();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      BulkheadInterceptor.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.InvocationContext;
+
+
+
+/**
+ * Class BulkheadInterceptor admits every business method of GateNosqlBean by the Bulkhead
+ * of its OperationClass. A call which is not admitted is not executed and, like other failures
+ * of the bean, it returns null, false or -1. A parallel batch occupies a place for every worker.
+ * The interceptor runs on an instance the container has already taken from the pool, so a call
+ * never waits here for admission (Bulkheads have no queue), it would pin the instance while waiting.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class BulkheadInterceptor {
+
+
+    @EJB
+    private Bulkheads bulkheads;
+
+    /**
+     * Map<OperationClass, Bulkhead> limited is taken from bulkheads once, so that calls
+     * of the bean do not go through the container to the singleton
+     */
+    private Map<OperationClass, Bulkhead> limited = Collections.emptyMap();
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(BulkheadInterceptor.class.getName());
+
+
+
+    @PostConstruct
+    void initialize(InvocationContext context) throws Exception {
+        limited = bulkheads.getBulkheads();
+        context.proceed();
+    }
+
+    @AroundInvoke
+    public Object admit(InvocationContext context) throws Exception {
+        if (limited.isEmpty()) {
+            return context.proceed();
+        }
+        Method method = context.getMethod();
+        OperationClass operationClass = OperationClass.of(method, context.getParameters());
+        Bulkhead bulkhead = operationClass == null ? null : limited.get(operationClass);
+        if (bulkhead == null) {
+            return context.proceed();
+        }
+        int places = getPlaces(method, context.getParameters());
+        if (!bulkhead.acquire(places)) {
+            LOGGER.log(Level.FINE, "Call of: {0} was not admitted by bulkhead: {1}.", new Object[]{method.getName(), operationClass.getKey()});
+            return getFailure(method);
+        }
+        try {
+            return context.proceed();
+        } finally {
+            bulkhead.release(places);
+        }
+    }
+
+
+
+    /**
+     * Returns the number of places of the call in its bulkhead, the number of workers for queryBatch
+     * and 1 for other methods.
+     */
+    static int getPlaces(Method method, Object[] parameters) {
+        if (!method.getName().equals("queryBatch") || parameters == null) {
+            return 1;
+        }
+        int queries = 0;
+        boolean parallel = false;
+        for (Object parameter : parameters) {
+            if (parameter instanceof List) {
+                queries = ((List<?>) parameter).size();
+            }
+            else if (parameter instanceof Boolean) {
+                parallel = (Boolean) parameter;
+            }
+        }
+        return BatchExecutor.getWorkers(queries, parallel);
+    }
+
+    /**
+     * Returns the result of the method reporting its failure.
+     */
+    static Object getFailure(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (type == long.class) {
+            return Long.valueOf(-1);
+        }
+        return null;
+    }
+}
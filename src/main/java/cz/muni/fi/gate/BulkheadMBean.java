@@ -0,0 +1,71 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      BulkheadMBean.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+
+
+/**
+ * Interface BulkheadMBean exposes the bulkhead of one OperationClass over JMX
+ * as cz.muni.fi.gate:type=Bulkhead,name=&lt;class&gt;.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public interface BulkheadMBean {
+
+
+    /**
+     * Returns the maximal number of concurrent calls.
+     * @return limit of calls
+     */
+    int getLimit();
+
+    /**
+     * Returns the maximal number of calls waiting for admission.
+     * @return limit of the queue
+     */
+    int getQueueLimit();
+
+    /**
+     * Returns the longest wait of a call for admission.
+     * @return wait in milliseconds
+     */
+    long getMaxWaitMillis();
+
+    /**
+     * Returns the number of calls being executed now.
+     * @return number of active calls
+     */
+    int getActive();
+
+    /**
+     * Returns the number of calls waiting for admission now.
+     * @return depth of the queue
+     */
+    int getQueued();
+
+    /**
+     * Returns the number of admitted calls.
+     * @return number of admitted calls
+     */
+    long getAdmitted();
+
+    /**
+     * Returns the number of calls failed at once because the queue was full.
+     * @return number of rejected calls
+     */
+    long getRejected();
+
+    /**
+     * Returns the number of calls failed because they were not admitted within the longest wait.
+     * @return number of timed out calls
+     */
+    long getTimedOut();
+}
@@ -0,0 +1,157 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      Bulkheads.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+
+/**
+ * Class Bulkheads keeps a Bulkhead of every OperationClass configured by a property
+ * bulkhead.&lt;class&gt; = &lt;limit&gt; (see configuration/database.properties),
+ * e.g. bulkhead.inferenced_query = 6. Calls of classes without the property are not limited.
+ * Bulkheads do not queue calls: BulkheadInterceptor admits a call when the container has already
+ * given it an instance of GateNosqlBean, so a waiting call would hold a pooled instance without
+ * doing any work. A call over the limit fails at once.
+ * Bulkheads are registered in the platform MBean server as cz.muni.fi.gate:type=Bulkhead,name=&lt;class&gt;.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class Bulkheads {
+
+
+    /**
+     * Map<OperationClass, Bulkhead> bulkheads maps classes to their bulkheads, it is not modified after startup
+     */
+    private volatile Map<OperationClass, Bulkhead> bulkheads = Collections.emptyMap();
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(Bulkheads.class.getName());
+
+
+
+    @PostConstruct
+    void initialize() {
+        Map<OperationClass, Bulkhead> created = new EnumMap<>(OperationClass.class);
+        for (OperationClass operationClass : OperationClass.values()) {
+            String spec = GateNosqlConfiguration.getProperty("bulkhead." + operationClass.getKey(), "");
+            if (spec.isEmpty()) {
+                continue;
+            }
+            try {
+                created.put(operationClass, parse(spec));
+            } catch (IllegalArgumentException ex) {
+                LOGGER.log(Level.WARNING, "Property: bulkhead." + operationClass.getKey() + " is not valid, calls are not limited.", ex);
+            }
+        }
+        register(created);
+    }
+
+    @PreDestroy
+    void shutDown() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (OperationClass operationClass : bulkheads.keySet()) {
+            try {
+                ObjectName objectName = getObjectName(operationClass);
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (JMException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            }
+        }
+        bulkheads = Collections.emptyMap();
+    }
+
+    /**
+     * Returns bulkheads of all limited classes.
+     * @return unmodifiable map of classes to their bulkheads
+     */
+    public Map<OperationClass, Bulkhead> getBulkheads() {
+        return bulkheads;
+    }
+
+    /**
+     * Returns the bulkhead of the given class.
+     * @param operationClass OperationClass
+     * @return bulkhead or null if calls of the class are not limited
+     */
+    public Bulkhead getBulkhead(OperationClass operationClass) {
+        return bulkheads.get(operationClass);
+    }
+
+
+
+    /**
+     * Registers the given bulkheads, bulkheads left by a previous deployment are replaced.
+     */
+    void register(Map<OperationClass, Bulkhead> created) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<OperationClass, Bulkhead> entry : created.entrySet()) {
+            try {
+                ObjectName objectName = getObjectName(entry.getKey());
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+                server.registerMBean(entry.getValue(), objectName);
+            } catch (JMException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            }
+        }
+        bulkheads = Collections.unmodifiableMap(new EnumMap<>(created));
+    }
+
+    /**
+     * Parses the specification &lt;limit&gt; of a bulkhead. The former specification
+     * &lt;limit&gt; &lt;queue&gt; &lt;wait&gt; is accepted, but the queue and the wait are ignored.
+     * @throws IllegalArgumentException if the specification is not valid
+     */
+    static Bulkhead parse(String spec) {
+        String[] values = spec.trim().split("\\s+");
+        if (values.length != 1 && values.length != 3) {
+            throw new IllegalArgumentException("Bulkhead: " + spec + " is not <limit>.");
+        }
+        int limit = Integer.parseInt(values[0]);
+        if (values.length == 3) {
+            int queueLimit = Integer.parseInt(values[1]);
+            if (queueLimit < 0 || Long.parseLong(values[2]) < 0) {
+                throw new IllegalArgumentException("Bulkhead: " + spec + " has a negative queue or wait.");
+            }
+            if (queueLimit > 0) {
+                LOGGER.log(Level.WARNING, "Bulkhead: {0} has a queue, it is ignored, calls over the limit fail at once.", spec);
+            }
+        }
+        return new Bulkhead(limit, 0, 0);
+    }
+
+    static ObjectName getObjectName(OperationClass operationClass) throws JMException {
+        return new ObjectName(OperationMonitor.DOMAIN + ":type=Bulkhead,name=" + operationClass.getKey());
+    }
+}
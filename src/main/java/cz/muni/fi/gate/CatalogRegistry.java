@@ -0,0 +1,154 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      CatalogRegistry.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.franz.agraph.repository.AGCatalog;
+import com.franz.agraph.repository.AGRepository;
+import com.franz.agraph.repository.AGServer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import org.openrdf.repository.RepositoryException;
+
+
+
+/**
+ * Class CatalogRegistry keeps opened catalogs and repositories of the AllegroGraph server
+ * given by server_url for all instances of GateNosqlBean. Opening a catalog lists catalogs
+ * of the server and opening a repository tests its existence, so both cost a request to the server.
+ * The registry makes them once per catalog and repository, and all instances share one
+ * AGServer and its HTTP connections regardless of the catalog they work with.
+ * Handles of a repository have to be removed when the repository is deleted.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class CatalogRegistry {
+
+
+    private final AGServer server;
+
+    /**
+     * String defaultCatalogId is the catalog given by catalog_id
+     */
+    private final String defaultCatalogId;
+
+    /**
+     * ConcurrentMap<String, AGCatalog> catalogs maps ids to opened catalogs
+     */
+    private final ConcurrentMap<String, AGCatalog> catalogs = new ConcurrentHashMap<>();
+
+    /**
+     * ConcurrentMap<String, AGRepository> repositories maps catalog and repository to opened repositories
+     */
+    private final ConcurrentMap<String, AGRepository> repositories = new ConcurrentHashMap<>();
+
+
+
+    /**
+     * Creates the registry of the server given by server_url, username and password properties.
+     */
+    public CatalogRegistry() {
+        this(QueryConnectionManager.createServer(GateNosqlConfiguration.getProperty("server_url"),
+                                              GateNosqlConfiguration.getProperty("username"),
+                                              GateNosqlConfiguration.getProperty("password")),
+             GateNosqlConfiguration.getProperty("catalog_id"));
+    }
+
+    CatalogRegistry(AGServer server, String defaultCatalogId) {
+        this.server = server;
+        this.defaultCatalogId = defaultCatalogId;
+    }
+
+    /**
+     * Returns the server shared by all catalogs.
+     * @return server
+     */
+    public AGServer getServer() {
+        return server;
+    }
+
+    /**
+     * Returns the catalog given by catalog_id property.
+     * @return id of the catalog
+     */
+    public String getDefaultCatalogId() {
+        return defaultCatalogId;
+    }
+
+    /**
+     * Returns the given catalog, it is opened on the first use.
+     * @param catalogId String
+     * @return catalog
+     * @throws RepositoryException if the catalog does not exist or the server can not be reached
+     */
+    public AGCatalog getCatalog(String catalogId) throws RepositoryException {
+        AGCatalog catalog = catalogs.get(catalogId);
+        if (catalog == null) {
+            catalog = server.getCatalog(catalogId);
+            if (catalog == null) {
+                throw new RepositoryException("Catalog: "+catalogId+" does not exist.");
+            }
+            AGCatalog previous = catalogs.putIfAbsent(catalogId, catalog);
+            if (previous != null) {
+                catalog = previous;
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Returns the given repository, it is opened on the first use.
+     * @param catalogId String
+     * @param repositoryId String
+     * @return repository
+     * @throws RepositoryException if the repository does not exist or the server can not be reached
+     */
+    public AGRepository getRepository(String catalogId, String repositoryId) throws RepositoryException {
+        String key = key(catalogId, repositoryId);
+        AGRepository repository = repositories.get(key);
+        if (repository == null) {
+            repository = getCatalog(catalogId).openRepository(repositoryId);
+            AGRepository previous = repositories.putIfAbsent(key, repository);
+            if (previous != null) {
+                repository = previous;
+            }
+        }
+        return repository;
+    }
+
+    /**
+     * Keeps the newly created repository.
+     * @param catalogId String
+     * @param repository AGRepository
+     */
+    public void putRepository(String catalogId, AGRepository repository) {
+        repositories.put(key(catalogId, repository.getRepositoryID()), repository);
+    }
+
+    /**
+     * Forgets the deleted repository.
+     * @param catalogId String
+     * @param repositoryId String
+     */
+    public void removeRepository(String catalogId, String repositoryId) {
+        repositories.remove(key(catalogId, repositoryId));
+    }
+
+
+
+    private static String key(String catalogId, String repositoryId) {
+        return catalogId + '\n' + repositoryId;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ConnectionMetrics.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+
+/**
+ * Class ConnectionMetrics counts connections opened and closed by GateNosqlBean and its StorageBackend, so that
+ * connections which are never closed can be detected, e.g. by a load test.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public final class ConnectionMetrics implements ConnectionMetricsMBean {
+
+
+    private final AtomicLong opened = new AtomicLong();
+
+    private final AtomicLong closed = new AtomicLong();
+
+
+
+    /**
+     * Counts an opened connection.
+     */
+    public void opened() {
+        opened.incrementAndGet();
+    }
+
+    /**
+     * Counts a closed connection.
+     */
+    public void closed() {
+        closed.incrementAndGet();
+    }
+
+    @Override
+    public long getOpened() {
+        return opened.get();
+    }
+
+    @Override
+    public long getClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public long getOpen() {
+        return opened.get() - closed.get();
+    }
+}
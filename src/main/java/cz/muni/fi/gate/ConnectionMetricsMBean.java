@@ -0,0 +1,41 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ConnectionMetricsMBean.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+
+
+/**
+ * Interface ConnectionMetricsMBean exposes connections of GateNosqlBean to AllegroGraph over JMX
+ * as cz.muni.fi.gate:type=Connections. Open connections of an idle bean are leaked connections.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public interface ConnectionMetricsMBean {
+
+
+    /**
+     * Returns the number of opened connections.
+     * @return number of connections
+     */
+    long getOpened();
+
+    /**
+     * Returns the number of closed connections.
+     * @return number of connections
+     */
+    long getClosed();
+
+    /**
+     * Returns the number of connections which are open now.
+     * @return number of connections
+     */
+    long getOpen();
+}
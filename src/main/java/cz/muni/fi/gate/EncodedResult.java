@@ -0,0 +1,256 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      EncodedResult.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+
+
+/**
+ * Class EncodedResult is a compact form of the result of a query for remote clients.
+ * Every distinct term (IRI, blank node or literal) is stored once in a dictionary and rows
+ * [subject, predicate, object] refer to the dictionary by ids written as variable-length
+ * integers. The whole content can be compressed by Deflate.
+ * Terms are written in the same form as in results of GateNosqlRemote.querySubgraphs,
+ * so getResults returns exactly the same rows.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class EncodedResult implements Externalizable {
+
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * int COLUMNS is a number of terms in a row
+     */
+    static final int COLUMNS = 3;
+
+    /**
+     * boolean compressed is true if the content is compressed during serialisation
+     */
+    private boolean compressed;
+
+    /**
+     * ArrayList<String> terms is the dictionary, the id of a term is its index
+     */
+    private ArrayList<String> terms = new ArrayList<>();
+
+    /**
+     * int[] ids of terms of all rows, row i is at [COLUMNS * i, COLUMNS * i + COLUMNS)
+     */
+    private int[] ids = new int[COLUMNS * 16];
+
+    private int rowCount;
+
+    /**
+     * HashMap<String, Integer> termIds maps terms to ids while the result is built
+     */
+    private transient HashMap<String, Integer> termIds = new HashMap<>();
+
+
+
+    /**
+     * Creates an empty result, it is used by deserialisation.
+     */
+    public EncodedResult() {
+    }
+
+    public EncodedResult(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Appends one row of the result.
+     * @param subject RDFNode
+     * @param predicate RDFNode
+     * @param object RDFNode
+     */
+    void addRow(RDFNode subject, RDFNode predicate, RDFNode object) {
+        if (ids.length < COLUMNS * (rowCount + 1)) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        int offset = COLUMNS * rowCount;
+        ids[offset] = getId(String.valueOf(subject));
+        ids[offset + 1] = getId(String.valueOf(predicate));
+        ids[offset + 2] = getId(String.valueOf(object));
+        rowCount++;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the distinct terms of the result.
+     * @return dictionary
+     */
+    public ArrayList<String> getTerms() {
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Returns the term of the given row.
+     * @param row int
+     * @param column int 0 for subject, 1 for predicate, 2 for object
+     * @return term
+     */
+    public String getTerm(int row, int column) {
+        if (row < 0 || row >= rowCount || column < 0 || column >= COLUMNS) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", column: " + column);
+        }
+        return terms.get(ids[COLUMNS * row + column]);
+    }
+
+    /**
+     * Returns rows in the format of GateNosqlRemote.querySubgraphs.
+     * @return rows
+     */
+    public ArrayList<String> getResults() {
+        ArrayList<String> result = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            int offset = COLUMNS * row;
+            result.add("{" + terms.get(ids[offset]) + " " + terms.get(ids[offset + 1]) + " " + terms.get(ids[offset + 2]) + "}");
+        }
+        return result;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeBoolean(compressed);
+        if (compressed) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (DataOutputStream data = new DataOutputStream(new DeflaterOutputStream(buffer))) {
+                writeContent(data);
+            }
+            out.writeInt(buffer.size());
+            out.write(buffer.toByteArray());
+        } else {
+            writeContent(out);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        compressed = in.readBoolean();
+        if (compressed) {
+            byte[] buffer = new byte[in.readInt()];
+            in.readFully(buffer);
+            try (DataInputStream data = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(buffer)))) {
+                readContent(data);
+            }
+        } else {
+            readContent(in);
+        }
+        termIds = null;
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedResult{rows=" + rowCount + ", terms=" + terms.size() + ", compressed=" + compressed + "}";
+    }
+
+
+
+    private int getId(String term) {
+        if (termIds == null) {
+            // Deserialised result is appended
+            termIds = new HashMap<>();
+            for (int id = 0; id < terms.size(); id++) {
+                termIds.put(terms.get(id), id);
+            }
+        }
+        Integer id = termIds.get(term);
+        if (id == null) {
+            id = terms.size();
+            terms.add(term);
+            termIds.put(term, id);
+        }
+        return id;
+    }
+
+    private void writeContent(DataOutput out) throws IOException {
+        writeVarint(out, terms.size());
+        for (String term : terms) {
+            byte[] bytes = term.getBytes(UTF8);
+            writeVarint(out, bytes.length);
+            out.write(bytes);
+        }
+        writeVarint(out, rowCount);
+        for (int i = 0; i < COLUMNS * rowCount; i++) {
+            writeVarint(out, ids[i]);
+        }
+    }
+
+    private void readContent(DataInput in) throws IOException {
+        int termCount = readVarint(in);
+        terms = new ArrayList<>(termCount);
+        for (int id = 0; id < termCount; id++) {
+            byte[] bytes = new byte[readVarint(in)];
+            in.readFully(bytes);
+            terms.add(new String(bytes, UTF8));
+        }
+        rowCount = readVarint(in);
+        ids = new int[Math.max(COLUMNS * rowCount, COLUMNS)];
+        for (int i = 0; i < COLUMNS * rowCount; i++) {
+            int id = readVarint(in);
+            if (id >= termCount) {
+                throw new IOException("Id: " + id + " is not in the dictionary.");
+            }
+            ids[i] = id;
+        }
+    }
+
+    /**
+     * Writes non-negative value by 7 bits per byte, the highest bit marks a following byte.
+     */
+    static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer.");
+    }
+}
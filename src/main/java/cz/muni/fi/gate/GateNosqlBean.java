@@ -21,25 +21,59 @@ import com.franz.agraph.jena.AGReasoner;
 import com.franz.agraph.repository.AGCatalog;
 import com.franz.agraph.repository.AGRepository;
 import com.franz.agraph.repository.AGRepositoryConnection;
-import com.franz.agraph.repository.AGServer;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryException;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
-import com.hp.hpl.jena.rdf.model.InfModel;
+import com.hp.hpl.jena.query.Syntax;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
 import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.sparql.util.FmtUtils;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
+import javax.interceptor.Interceptors;
 import org.openrdf.OpenRDFException;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQuery;
+import org.openrdf.query.TupleQueryResult;
 import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.RepositoryResult;
+import org.openrdf.rio.RDFFormat;
 
 
 
@@ -47,24 +81,131 @@ import org.openrdf.repository.RepositoryException;
  * Class GateNosqlBean implements two interfaces GateNosqlLocal and GateNosqlRemote.
  * The methods are used for managing ontologies, managing AllegroGraph database structure
  * and for querying AllegroGraph database.
+ * Calls of the methods are recorded by OperationMetricsInterceptor.
+ * Calls are admitted by BulkheadInterceptor, which limits concurrent calls of each OperationClass.
+ * Loads and deletions of a subgraph hold its exclusive lock of SubgraphLocks and fail if the lock
+ * is not acquired in time. Queries and exports take no locks: a load commits in one transaction,
+ * so they see the subgraph before or after it, and a slow query never blocks loads of its subgraphs.
+ * If backend is not allegrograph, repositories, subgraphs, loads, SELECT queries without reasoning,
+ * exports and indexes go to the StorageBackend of BackendRegistry and the other methods fail.
  * 
  * @author Jakub Mareček (404364)
  */
 
 
 @Stateless
+@Interceptors({OperationMetricsInterceptor.class, BulkheadInterceptor.class})
 public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
 
     
     /**
-     * AGServer server is a client-side server object that accesses the AllegroGraph
+     * CatalogRegistry catalogRegistry keeps opened catalogs and repositories of the AllegroGraph server
      */
-    private AGServer server;
+    @EJB
+    private CatalogRegistry catalogRegistry;
     
     /**
-     * AGCatalog catalog represents an access to the data hierarchy
+     * HierarchyCache hierarchyCache keeps class and property hierarchies of subgraphs in memory
      */
-    private AGCatalog catalog;
+    @EJB
+    private HierarchyCache hierarchyCache;
+    
+    /**
+     * RunningQueries runningQueries registers queries being evaluated for timeouts and cancellation
+     */
+    @EJB
+    private RunningQueries runningQueries;
+    
+    /**
+     * IndexAdvisor indexAdvisor records shapes of queried triple patterns
+     */
+    @EJB
+    private IndexAdvisor indexAdvisor;
+    
+    /**
+     * IndexMaintenance indexMaintenance schedules optimisation of written repositories
+     */
+    @EJB
+    private IndexMaintenance indexMaintenance;
+    
+    /**
+     * BatchExecutor batchExecutor evaluates workers of parallel batches
+     */
+    @EJB
+    private BatchExecutor batchExecutor;
+    
+    /**
+     * SubgraphCache subgraphCache keeps small or pinned subgraphs as in-memory models
+     */
+    @EJB
+    private SubgraphCache subgraphCache;
+    
+    /**
+     * ReplicaRouter replicaRouter routes reads to read replicas
+     */
+    @EJB
+    private ReplicaRouter replicaRouter;
+    
+    /**
+     * SlowQueryLog slowQueryLog writes queries exceeding slow_query_threshold with times of their phases
+     */
+    @EJB
+    private SlowQueryLog slowQueryLog;
+    
+    /**
+     * OperationMonitor operationMonitor counts opened and closed connections
+     */
+    @EJB
+    private OperationMonitor operationMonitor;
+    
+    /**
+     * SubgraphLocks subgraphLocks serialises writes of a subgraph
+     */
+    @EJB
+    private SubgraphLocks subgraphLocks;
+    
+    /**
+     * BackendRegistry backendRegistry keeps the storage backend if backend is not allegrograph
+     */
+    @EJB
+    private BackendRegistry backendRegistry;
+    
+    /**
+     * Charset NTRIPLES_CHARSET is the encoding of results of CONSTRUCT queries
+     */
+    private static final Charset NTRIPLES_CHARSET = Charset.forName("UTF-8");
+    
+    /**
+     * String PROBE_QUERY measures speed of indexes before and after their optimisation, it is evaluated
+     * with PROBE_VARIABLES bound like the patterns observed by IndexAdvisor (see probeIndexes)
+     */
+    private static final String PROBE_QUERY = "SELECT ?s ?p ?o ?g WHERE {GRAPH ?g {?s ?p ?o .}} LIMIT 1000";
+    
+    /**
+     * String PROBE_SAMPLE_QUERY gives the triples whose values are bound in lookups of PROBE_QUERY
+     */
+    private static final String PROBE_SAMPLE_QUERY = "SELECT ?s ?p ?o ?g WHERE {GRAPH ?g {?s ?p ?o .}} LIMIT 16";
+    
+    /**
+     * String[] PROBE_VARIABLES are variables of PROBE_QUERY in the order of IndexAdvisor.SUBJECT,
+     * PREDICATE, OBJECT and GRAPH
+     */
+    private static final String[] PROBE_VARIABLES = {"s", "p", "o", "g"};
+    
+    /**
+     * int PROBE_LOOKUPS is the number of lookups of PROBE_QUERY divided among the observed patterns
+     */
+    private static final int PROBE_LOOKUPS = 64;
+    
+    /**
+     * String ALL_TRIPLES_QUERY, TYPE_TRIPLES_QUERY and SUBCLASS_TRIPLES_QUERY copy subgraphs
+     * with their entailments into a local model, see getScopedReasoningModel
+     */
+    private static final String ALL_TRIPLES_QUERY = "CONSTRUCT {?s ?p ?o .} WHERE {?s ?p ?o .}";
+    
+    private static final String TYPE_TRIPLES_QUERY = "CONSTRUCT {?s <" + RDF.type.getURI() + "> ?c .} WHERE {?s <" + RDF.type.getURI() + "> ?c .}";
+    
+    private static final String SUBCLASS_TRIPLES_QUERY = "CONSTRUCT {?a <" + RDFS.subClassOf.getURI() + "> ?b .} WHERE {?a <" + RDFS.subClassOf.getURI() + "> ?b .}";
         
     /**
      * Logger LOGGER provides logging
@@ -76,9 +217,14 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
     @Override
     public ArrayList<String> getAllCatalogs() {
         ArrayList<String> allCatalogs = null;
-        server = getServer();
         try {
-            allCatalogs = new ArrayList<>(server.listCatalogs());
+            if (backendRegistry.getBackend() != null) {
+                allCatalogs = new ArrayList<>();
+                allCatalogs.add(catalogRegistry.getDefaultCatalogId());
+            }
+            else {
+                allCatalogs = new ArrayList<>(catalogRegistry.getServer().listCatalogs());
+            }
         } catch (AGHttpException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
         } finally {
@@ -88,10 +234,24 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
     
     @Override
     public ArrayList<String> getAllRepositories() {
+        return getAllRepositories(catalogRegistry.getDefaultCatalogId());
+    }
+    
+    @Override
+    public ArrayList<String> getAllRepositories(String catalogId) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        
         ArrayList<String> allRepositories = null;
         try {
-            catalog = getCatalog();
-            allRepositories = new ArrayList<>(catalog.listRepositories());
+            if (backendRegistry.getBackend() != null) {
+                allRepositories = getBackend(catalogId).getAllRepositories();
+            }
+            else {
+                AGCatalog catalog = catalogRegistry.getCatalog(catalogId);
+                allRepositories = new ArrayList<>(catalog.listRepositories());
+            }
         } catch (OpenRDFException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
         } finally {
@@ -101,25 +261,62 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
     
     @Override
     public boolean createRepository(String repositoryId) {
+        return createRepository(repositoryId, RepositoryProfile.DEFAULT);
+    }
+    
+    @Override
+    public boolean createRepository(String repositoryId, RepositoryProfile profile) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        
+        return createRepository(catalogRegistry.getDefaultCatalogId(), repositoryId, profile);
+    }
+    
+    @Override
+    public boolean createRepository(String catalogId, String repositoryId) {
+        return createRepository(catalogId, repositoryId, RepositoryProfile.DEFAULT);
+    }
+    
+    @Override
+    public boolean createRepository(String catalogId, String repositoryId, RepositoryProfile profile) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
         
         boolean result = false;
         try {
-            catalog = getCatalog();
+            // The backend gives indexes of a new repository (native_indexes), bulk mode of the profile is a feature of AllegroGraph
+            if (backendRegistry.getBackend() != null) {
+                getBackend(catalogId).createRepository(repositoryId);
+                result = true;
+            }
             // Repository does not exist
-            if (!getAllRepositories().contains(repositoryId)) {
+            else if (!getAllRepositories(catalogId).contains(repositoryId)) {
                 // Creation
+                AGCatalog catalog = catalogRegistry.getCatalog(catalogId);
                 AGRepository newRepository = catalog.createRepository(repositoryId);
                 newRepository.initialize();
-                craeateDefaultIncices(newRepository);
+                applyIndexes(newRepository, profile.getIndexes());
+                if (profile == RepositoryProfile.BULK_LOAD) {
+                    newRepository.setBulkMode(true);
+                }
+                catalogRegistry.putRepository(catalogId, newRepository);
                 result = true;
             }
             else {
                 throw new RepositoryException("Repository: "+repositoryId+" elready exists.");
             }
-        } catch (RepositoryException ex) {
+        } catch (OpenRDFException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
         } finally {
             return result;
@@ -132,12 +329,28 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
         
+        return deleteRepository(catalogRegistry.getDefaultCatalogId(), repositoryId);
+    }
+    
+    @Override
+    public boolean deleteRepository(String catalogId, String repositoryId) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        
         boolean result = false;
         try {
-            catalog = getCatalog();
+            if (backendRegistry.getBackend() != null) {
+                getBackend(catalogId).deleteRepository(repositoryId);
+                result = true;
+            }
             // Repository does exist
-            if (getAllRepositories().contains(repositoryId)) {
+            else if (getAllRepositories(catalogId).contains(repositoryId)) {
                 // Erasure
+                AGCatalog catalog = catalogRegistry.getCatalog(catalogId);
                 catalog.deleteRepository(repositoryId);
                 result = true;   
             }
@@ -147,6 +360,12 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
         } catch (RepositoryException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
         } finally {
+            catalogRegistry.removeRepository(catalogId, repositoryId);
+            replicaRouter.removeRepository(catalogId, repositoryId);
+            hierarchyCache.invalidateRepository(repositoryKey(catalogId, repositoryId));
+            subgraphCache.invalidateRepository(repositoryKey(catalogId, repositoryId));
+            indexAdvisor.reset(repositoryKey(catalogId, repositoryId));
+            indexMaintenance.reset(repositoryKey(catalogId, repositoryId));
             return result;
         }
     }
@@ -157,10 +376,26 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
         
+        return getCurrentIndexes(catalogRegistry.getDefaultCatalogId(), repositoryId);
+    }
+    
+    @Override
+    public ArrayList<String> getCurrentIndexes(String catalogId, String repositoryId) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        
+        if (backendRegistry.getBackend() != null) {
+            return getBackendIndexes(catalogId, repositoryId);
+        }
+        
         ArrayList<String> indices = null;
         AGRepositoryConnection connection = null;
         try {
-            connection = getConnection(repositoryId);
+            connection = getConnection(catalogId, repositoryId);
             connection.setAutoCommit(false);
             indices = new ArrayList<>(connection.listIndices());
         } catch(OpenRDFException ex) {
@@ -186,10 +421,29 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             throw new IllegalArgumentException("Argument indexes can not be null.");
         }
         
+        return addIndexes(catalogRegistry.getDefaultCatalogId(), repositoryId, indexes);
+    }
+    
+    @Override
+    public boolean addIndexes(String catalogId, String repositoryId, ArrayList<String> indexes) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (indexes == null) {
+            throw new IllegalArgumentException("Argument indexes can not be null.");
+        }
+        
+        if (backendRegistry.getBackend() != null) {
+            return changeBackendIndexes(catalogId, repositoryId, indexes, true);
+        }
+        
         boolean result = false;
         AGRepositoryConnection connection = null;
         try {
-            connection = getConnection(repositoryId);
+            connection = getConnection(catalogId, repositoryId);
             connection.setAutoCommit(false);
             for (String index : indexes) {
                 connection.addIndex(index);
@@ -220,10 +474,29 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             throw new IllegalArgumentException("Argument indices can not be null.");
         }
         
+        return dropIndexes(catalogRegistry.getDefaultCatalogId(), repositoryId, indexes);
+    }
+    
+    @Override
+    public boolean dropIndexes(String catalogId, String repositoryId, ArrayList<String> indexes) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (indexes == null) {
+            throw new IllegalArgumentException("Argument indices can not be null.");
+        }
+        
+        if (backendRegistry.getBackend() != null) {
+            return changeBackendIndexes(catalogId, repositoryId, indexes, false);
+        }
+        
         boolean result = false;
         AGRepositoryConnection connection = null;
         try {
-            connection = getConnection(repositoryId);
+            connection = getConnection(catalogId, repositoryId);
             connection.setAutoCommit(false);
             for (String index : indexes) {
                 connection.dropIndex(index);
@@ -245,16 +518,162 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
         }
     }
     
+    @Override
+    public boolean finishBulkLoad(String repositoryId) {
+        return finishBulkLoad(repositoryId, RepositoryProfile.DEFAULT);
+    }
+    
+    @Override
+    public boolean finishBulkLoad(String repositoryId, RepositoryProfile profile) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (profile == null || profile == RepositoryProfile.BULK_LOAD) {
+            throw new IllegalArgumentException("Argument profile has to be a profile of a loaded repository.");
+        }
+        
+        return finishBulkLoad(catalogRegistry.getDefaultCatalogId(), repositoryId, profile);
+    }
+    
+    @Override
+    public boolean finishBulkLoad(String catalogId, String repositoryId, RepositoryProfile profile) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (profile == null || profile == RepositoryProfile.BULK_LOAD) {
+            throw new IllegalArgumentException("Argument profile has to be a profile of a loaded repository.");
+        }
+        
+        // Bulk mode is a feature of AllegroGraph, other backends have no bulk load to finish
+        if (backendRegistry.getBackend() != null) {
+            LOGGER.log(Level.WARNING, "Method needs backend allegrograph, backend: {0} is used.", backendRegistry.getName());
+            return false;
+        }
+        boolean result = false;
+        try {
+            AGRepository repository = catalogRegistry.getRepository(catalogId, repositoryId);
+            if (repository == null) {
+                throw new RepositoryException("Repository: "+repositoryId+" does not exist.");
+            }
+            repository.setBulkMode(false);
+            // Secondary indexes are built from the loaded data in one pass
+            applyIndexes(repository, profile.getIndexes());
+            result = true;
+        } catch (OpenRDFException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            return result;
+        }
+    }
+    
+    @Override
+    public IndexOptimization optimizeIndexes(String repositoryId, int level) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (level < 0) {
+            throw new IllegalArgumentException("Argument level can not be negative.");
+        }
+        
+        IndexOptimization result = null;
+        AGRepositoryConnection connection = null;
+        try {
+            connection = getConnection(repositoryId);
+            if (connection == null) {
+                return result;
+            }
+            Date started = new Date();
+            // Both probes look up the same triples with the same patterns
+            int[] probeShapes = indexAdvisor.getProbeShapes(repositoryId, PROBE_LOOKUPS);
+            List<BindingSet> probeSample = sampleTriples(connection);
+            long probeBefore = probeIndexes(connection, probeShapes, probeSample);
+            long start = System.nanoTime();
+            connection.optimizeIndices(true, level);
+            long duration = (System.nanoTime() - start) / 1000000L;
+            long probeAfter = probeIndexes(connection, probeShapes, probeSample);
+            result = new IndexOptimization(repositoryId, level, started, duration, probeBefore, probeAfter);
+            indexMaintenance.record(result);
+        } catch (OpenRDFException | RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            closeConnection(connection);
+            return result;
+        }
+    }
+    
+    @Override
+    public ArrayList<IndexOptimization> getIndexOptimizations(String repositoryId) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        return indexMaintenance.getHistory(repositoryId);
+    }
+    
+    @Override
+    public IndexAdvice adviseIndexes(String repositoryId) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        
+        return adviseIndexes(repositoryId, false);
+    }
+    
+    @Override
+    public IndexAdvice adviseIndexes(String repositoryId, boolean apply) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        
+        ArrayList<String> currentIndexes = getCurrentIndexes(repositoryId);
+        if (currentIndexes == null) {
+            return null;
+        }
+        LinkedHashMap<String, Long> patternCounts = indexAdvisor.getPatternCounts(repositoryId);
+        // Without any observed query the current indexes are kept
+        ArrayList<String> recommendedIndexes = patternCounts.isEmpty() ? currentIndexes
+                                                : IndexAdvisor.recommend(patternCounts.keySet());
+        IndexAdvice advice = new IndexAdvice(repositoryId, patternCounts, recommendedIndexes, currentIndexes);
+        if (apply) {
+            // New indexes are built before the old ones are dropped, so the queries stay covered
+            if (!advice.getIndexesToAdd().isEmpty() && !addIndexes(repositoryId, advice.getIndexesToAdd())) {
+                return null;
+            }
+            if (!advice.getIndexesToDrop().isEmpty() && !dropIndexes(repositoryId, advice.getIndexesToDrop())) {
+                return null;
+            }
+        }
+        return advice;
+    }
+    
     @Override
     public ArrayList<String> getAllSubgraphs(String repositoryId) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
         
+        return getAllSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId);
+    }
+    
+    @Override
+    public ArrayList<String> getAllSubgraphs(String catalogId, String repositoryId) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        
+        if (backendRegistry.getBackend() != null) {
+            return getBackendSubgraphs(catalogId, repositoryId);
+        }
+        
         ArrayList<String> allSubgraphs = new ArrayList();
         AGRepositoryConnection connection = null;
         try {
-            connection = getConnection(repositoryId);
+            connection = getConnection(catalogId, repositoryId);
             connection.setAutoCommit(false);
             List<org.openrdf.model.Resource> allResources = connection.getContextIDs().asList();
             for (org.openrdf.model.Resource r : allResources) {
@@ -289,12 +708,41 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             throw new IllegalArgumentException("Argument filePath can not be null.");
         }
         
+        return loadOntologyFromFile(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphId, baseUri, filePath);
+    }
+    
+    @Override
+    public boolean loadOntologyFromFile(String catalogId, String repositoryId, String subgraphId, String baseUri, String filePath) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (baseUri == null) {
+            throw new IllegalArgumentException("Argument baseUri can not be null.");
+        }
+        if (filePath == null) {
+            throw new IllegalArgumentException("Argument filePath can not be null.");
+        }
+        
+        if (backendRegistry.getBackend() != null) {
+            return loadBackendOntology(catalogId, repositoryId, subgraphId, baseUri, filePath, null);
+        }
+        
+        SubgraphLocks.Hold hold = subgraphLocks.lockExclusive(repositoryKey(catalogId, repositoryId), subgraphId);
+        if (hold == null) {
+            return false;
+        }
         boolean result = false;
         AGRepositoryConnection connection = null;
         try {
-            connection = getConnection(repositoryId);
+            connection = getConnection(catalogId, repositoryId);
             connection.setAutoCommit(false);
-            List<String> allSubgraphs = getAllSubgraphs(repositoryId);
+            List<String> allSubgraphs = getAllSubgraphs(catalogId, repositoryId);
             AGModel model = null;
             // Subgaph does not exist yet
             if (!allSubgraphs.contains(subgraphId)) {
@@ -318,6 +766,8 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
             } finally {
+                recordWrite(catalogId, repositoryId, subgraphId);
+                subgraphLocks.release(hold);
                 return result;
             }
         }
@@ -339,12 +789,41 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             throw new IllegalArgumentException("Argument url can not be null.");
         }
         
+        return loadOntologyFromWeb(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphId, baseUri, url);
+    }
+    
+    @Override
+    public boolean loadOntologyFromWeb(String catalogId, String repositoryId, String subgraphId, String baseUri, String url) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (baseUri == null) {
+            throw new IllegalArgumentException("Argument baseUri can not be null.");
+        }
+        if (url == null) {
+            throw new IllegalArgumentException("Argument url can not be null.");
+        }
+        
+        if (backendRegistry.getBackend() != null) {
+            return loadBackendOntology(catalogId, repositoryId, subgraphId, baseUri, null, url);
+        }
+        
+        SubgraphLocks.Hold hold = subgraphLocks.lockExclusive(repositoryKey(catalogId, repositoryId), subgraphId);
+        if (hold == null) {
+            return false;
+        }
         boolean result = false;
         AGRepositoryConnection connection = null;
         try {
-            connection = getConnection(repositoryId);
+            connection = getConnection(catalogId, repositoryId);
             connection.setAutoCommit(false);
-            List<String> allSubgraphs = getAllSubgraphs(repositoryId);
+            List<String> allSubgraphs = getAllSubgraphs(catalogId, repositoryId);
             AGModel model = null;
             // Subgaph does not exist yet
             if (!allSubgraphs.contains(subgraphId)) {
@@ -368,6 +847,8 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
             } finally {
+                recordWrite(catalogId, repositoryId, subgraphId);
+                subgraphLocks.release(hold);
                 return result;
             }
         }
@@ -382,65 +863,106 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             throw new IllegalArgumentException("Argument subgraphId can not be null.");
         }
         
-        boolean result = false;
+        return deleteSubgraph(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphId);
+    }
+    
+    @Override
+    public boolean deleteSubgraph(String catalogId, String repositoryId, String subgraphId) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        
+        SubgraphLocks.Hold hold = subgraphLocks.lockExclusive(repositoryKey(catalogId, repositoryId), subgraphId);
+        if (hold == null) {
+            return false;
+        }
+        boolean result = false;
         AGRepositoryConnection connection = null;
         try {
-            connection = getConnection(repositoryId);
-            connection.setAutoCommit(false);
-            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
-            model.removeAll();
-            connection.commit();
+            if (backendRegistry.getBackend() != null) {
+                getBackend(catalogId).deleteSubgraph(repositoryId, subgraphId);
+            }
+            else {
+                connection = getConnection(catalogId, repositoryId);
+                connection.setAutoCommit(false);
+                AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
+                model.removeAll();
+                connection.commit();
+            }
             result = true;
         } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
         } finally {
             try {
-                connection.setAutoCommit(true);
-                connection.rollback();
-                closeConnection(connection);
+                // The backend branch opens no connection
+                if (connection != null) {
+                    connection.setAutoCommit(true);
+                    connection.rollback();
+                    closeConnection(connection);
+                }
             } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
             } finally {
+                recordWrite(catalogId, repositoryId, subgraphId);
+                subgraphLocks.release(hold);
                 return result;
             }
         }
     }
     
     @Override
-    public ArrayList<String> querySubgraph(String repositoryId, String subgraphId, String query) {
+    public boolean moveSubgraph(String repositoryId, String subgraphId, int shard) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
         if (subgraphId == null) {
             throw new IllegalArgumentException("Argument subgraphId can not be null.");
         }
-        if (query == null) {
-            throw new IllegalArgumentException("Argument query can not be null.");
+        if (shard < 0) {
+            throw new IllegalArgumentException("Argument shard can not be negative.");
         }
         
-        ArrayList<String> result = null;
-        AGRepositoryConnection connection = null;
+        ShardedBackend sharded = getShardedBackend();
+        if (sharded == null) {
+            return false;
+        }
+        return moveShardedSubgraph(sharded, repositoryId, subgraphId, shard);
+    }
+    
+    @Override
+    public long rebalanceShards(String repositoryId) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        
+        ShardedBackend sharded = getShardedBackend();
+        if (sharded == null) {
+            return -1;
+        }
+        long result = 0;
         try {
-            connection = getConnection(repositoryId);
-            connection.setAutoCommit(false);
-            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
-            result = queryModel(model, query);
+            for (String subgraphId : sharded.getMisplacedSubgraphs(repositoryId)) {
+                if (!moveShardedSubgraph(sharded, repositoryId, subgraphId, sharded.getHomeShard(subgraphId))) {
+                    throw new RepositoryException("Subgraph: "+subgraphId+" can not be moved to its home shard.");
+                }
+                result++;
+            }
         } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
+            LOGGER.log(Level.SEVERE, null, ex);
+            result = -1;
         } finally {
-            try {
-                connection.setAutoCommit(true);
-                closeConnection(connection);
-            } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } finally {
-                return result;
-            }
+            return result;
         }
     }
     
     @Override
-    public ArrayList<String> queryInferencedSubgraph(String repositoryId, String subgraphId, String query) {
+    public ArrayList<String> querySubgraph(String repositoryId, String subgraphId, String query) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
@@ -451,125 +973,121 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
         
-        ArrayList<String> result = null;
-        AGRepositoryConnection connection = null;
-        try {
-            connection = getConnection(repositoryId);
-            connection.setAutoCommit(false);
-            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
-            AGReasoner reasoner = new AGReasoner();
-            InfModel infmodel = new AGInfModel(reasoner, model);
-            result = queryModel((AGModel) infmodel, query);
-        } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-        } finally {
-            try {
-                connection.setAutoCommit(true);
-                closeConnection(connection);
-            } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } finally {
-                return result;
-            }
-        }
+        return querySubgraph(repositoryId, subgraphId, query, new QueryOptions());
     }
     
     @Override
-    public ArrayList<String> querySubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query) {
+    public ArrayList<String> querySubgraph(String repositoryId, String subgraphId, String query, QueryOptions options) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
-        if (subgraphIds == null) {
+        if (subgraphId == null) {
             throw new IllegalArgumentException("Argument subgraphId can not be null.");
         }
         if (query == null) {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
-        
-        ArrayList<String> result = null;
-        AGRepositoryConnection connection = null;
-        try {
-            connection = getConnection(repositoryId);
-            connection.setAutoCommit(false);
-            AGModel model =  getUnitedSubgraphsModel(connection, subgraphIds);
-            result = queryModel(model, query);
-        } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-        } finally {
-            try {
-                connection.setAutoCommit(true);
-                closeConnection(connection);
-            } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } finally {
-                return result;
-            }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
         }
+        
+        return querySubgraph(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphId, query, options);
     }
     
     @Override
-    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query) {
+    public ArrayList<String> querySubgraph(String catalogId, String repositoryId, String subgraphId, String query, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
-        if (subgraphIds == null) {
+        if (subgraphId == null) {
             throw new IllegalArgumentException("Argument subgraphId can not be null.");
         }
         if (query == null) {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        if (backendRegistry.getBackend() != null) {
+            return queryBackend(catalogId, repositoryId, Collections.singletonList(subgraphId), query, options, new QueryTrace("querySubgraph"));
+        }
+        
+        QueryTrace trace = new QueryTrace("querySubgraph");
+        Model cached = subgraphCache.get(repositoryKey(catalogId, repositoryId), subgraphId);
+        if (cached != null) {
+            trace.mark(QueryTrace.Phase.LOOKUP);
+            return queryCachedSubgraph(repositoryKey(catalogId, repositoryId), cached, query, options, trace);
+        }
         
         ArrayList<String> result = null;
         AGRepositoryConnection connection = null;
+        RunningQuery running = null;
         try {
-            connection = getConnection(repositoryId);
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
             connection.setAutoCommit(false);
-            AGModel model =  getUnitedSubgraphsModel(connection, subgraphIds);
-            AGReasoner reasoner = new AGReasoner();
-            InfModel infmodel = new AGInfModel(reasoner, model);
-            result = queryModel((AGModel) infmodel, query);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
+            trace.mark(QueryTrace.Phase.LOOKUP);
+            // A replica may lag behind the primary, so only primary reads fill SubgraphCache
+            cached = replicaRouter.isReplica(connection) ? null : cacheSubgraph(repositoryKey(catalogId, repositoryId), subgraphId, model);
+            result = cached == null ? queryModel(model, query, running) : queryLocalModel(cached, query, running);
         } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
         } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), 1, null, query, result == null ? -1 : result.size(), trace);
             try {
                 connection.setAutoCommit(true);
                 closeConnection(connection);
             } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
             } finally {
-                return result;
+                return RunningQuery.getResult(running, result);
             }
         }
     }
     
     @Override
-    public ArrayList<String> queryAllSubgraphs(String repositoryId, String query) {
+    public ArrayList<String> queryInferencedSubgraph(String repositoryId, String subgraphId, String query) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
         if (query == null) {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
         
-        ArrayList<String> subgraphIds = getAllSubgraphs(repositoryId);
-        return querySubgraphs(repositoryId, subgraphIds, query);
+        return queryInferencedSubgraph(repositoryId, subgraphId, query, ReasoningProfile.RDFS_PLUS_PLUS);
     }
     
     @Override
-    public ArrayList<String> queryAllInferencedSubgraphs(String repositoryId, String query) {
+    public ArrayList<String> queryInferencedSubgraph(String repositoryId, String subgraphId, String query, ReasoningProfile profile) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
         if (query == null) {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
         
-        ArrayList<String> subgraphIds = getAllSubgraphs(repositoryId);
-        return queryInferencedSubgraphs(repositoryId, subgraphIds, query);
+        return queryInferencedSubgraph(repositoryId, subgraphId, query, profile, new QueryOptions());
     }
     
     @Override
-    public ArrayList<RDFNode> querySubgraphL(String repositoryId, String subgraphId, String query) {
+    public ArrayList<String> queryInferencedSubgraph(String repositoryId, String subgraphId, String query, ReasoningProfile profile, QueryOptions options) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
@@ -579,30 +1097,21 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
         if (query == null) {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
-        
-        ArrayList<RDFNode> result = null;
-        AGRepositoryConnection connection = null;
-        try {
-            connection = getConnection(repositoryId);
-            connection.setAutoCommit(false);
-            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
-            result = queryModelL(model, query);
-        } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-        } finally {
-            try {
-                connection.setAutoCommit(true);
-                closeConnection(connection);
-            } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } finally {
-                return result;
-            }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
         }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryInferencedSubgraph(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphId, query, profile, options);
     }
-
+    
     @Override
-    public ArrayList<RDFNode> queryInferencedSubgraphL(String repositoryId, String subgraphId, String query) {
+    public ArrayList<String> queryInferencedSubgraph(String catalogId, String repositoryId, String subgraphId, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
@@ -612,32 +1121,44 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
         if (query == null) {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
         
-        ArrayList<RDFNode> result = null;
+        QueryTrace trace = new QueryTrace("queryInferencedSubgraph");
+        ArrayList<String> result = null;
         AGRepositoryConnection connection = null;
+        RunningQuery running = null;
         try {
-            connection = getConnection(repositoryId);
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
             connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
             AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
-            AGReasoner reasoner = new AGReasoner();
-            InfModel infmodel = new AGInfModel(reasoner, model);
-            result = queryModelL((AGModel) infmodel, query);
+            trace.mark(QueryTrace.Phase.LOOKUP);
+            result = queryModel(getReasoningModel(model, profile), profile.prepareQuery(query), running);
         } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
         } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), 1, profile, query, result == null ? -1 : result.size(), trace);
             try {
                 connection.setAutoCommit(true);
                 closeConnection(connection);
             } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
             } finally {
-                return result;
+                return RunningQuery.getResult(running, result);
             }
         }
     }
     
     @Override
-    public ArrayList<RDFNode> querySubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query) {
+    public ArrayList<String> querySubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
@@ -648,29 +1169,32 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
         
-        ArrayList<RDFNode> result = null;
-        AGRepositoryConnection connection = null;
-        try {
-            connection = getConnection(repositoryId);
-            connection.setAutoCommit(false);
-            AGModel model =  getUnitedSubgraphsModel(connection, subgraphIds);
-            result = queryModelL(model, query);
-        } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-        } finally {
-            try {
-                connection.setAutoCommit(true);
-                closeConnection(connection);
-            } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } finally {
-                return result;
-            }
+        return querySubgraphs(repositoryId, subgraphIds, query, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<String> querySubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
         }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return querySubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphIds, query, options);
     }
     
     @Override
-    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query) {
+    public ArrayList<String> querySubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
@@ -680,214 +1204,2024 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
         if (query == null) {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
         
-        ArrayList<RDFNode> result = null;
+        return querySubgraphs(catalogId, repositoryId, subgraphIds, query, options, new QueryTrace("querySubgraphs"));
+    }
+    
+    private ArrayList<String> querySubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, QueryOptions options, QueryTrace trace) {
+        if (backendRegistry.getBackend() != null) {
+            return queryBackend(catalogId, repositoryId, subgraphIds, query, options, trace);
+        }
+        ArrayList<String> result = null;
         AGRepositoryConnection connection = null;
+        RunningQuery running = null;
         try {
-            connection = getConnection(repositoryId);
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
             connection.setAutoCommit(false);
-            AGModel model = getUnitedSubgraphsModel(connection, subgraphIds);
-            AGReasoner reasoner = new AGReasoner();
-            InfModel infmodel = new AGInfModel(reasoner, model);
-            result = queryModelL((AGModel) infmodel, query);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            AGModel model =  getUnitedSubgraphsModel(connection, subgraphIds);
+            trace.mark(QueryTrace.Phase.UNION);
+            result = queryModel(model, query, running);
         } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
         } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), null, query, result == null ? -1 : result.size(), trace);
             try {
                 connection.setAutoCommit(true);
                 closeConnection(connection);
             } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
             } finally {
-                return result;
+                return RunningQuery.getResult(running, result);
             }
-        } 
+        }
     }
     
     @Override
-    public ArrayList<RDFNode> queryAllSubgraphsL(String repositoryId, String query) {
+    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
         if (query == null) {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
         
-        ArrayList<String> subgraphIds = getAllSubgraphs(repositoryId);
-        return querySubgraphsL(repositoryId, subgraphIds, query);   
+        return queryInferencedSubgraphs(repositoryId, subgraphIds, query, ReasoningProfile.RDFS_PLUS_PLUS);
     }
     
     @Override
-    public ArrayList<RDFNode> queryAllInferencedSubgraphsL(String repositoryId, String query) {
+    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
         if (query == null) {
             throw new IllegalArgumentException("Argument query can not be null.");
         }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
         
-        ArrayList<String> subgraphIds = getAllSubgraphs(repositoryId);
-        return queryInferencedSubgraphsL(repositoryId, subgraphIds, query);
+        return queryInferencedSubgraphs(repositoryId, subgraphIds, query, profile, new QueryOptions());
     }
     
     @Override
-    public String exportSubgraph(String repositoryId, String subgraphId) {
+    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
-        if (subgraphId == null) {
+        if (subgraphIds == null) {
             throw new IllegalArgumentException("Argument subgraphId can not be null.");
         }
-
-        StringBuilder result = new StringBuilder("");
-        OutputStream output = new ByteArrayOutputStream();
-        AGRepositoryConnection connection = null;
-        try {
-            connection = getConnection(repositoryId);
-            connection.setAutoCommit(false);
-            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
-            model.write(output);
-            result.append(output);
-            output.close();
-        } catch (IOException | RepositoryException ex) {
-            LOGGER.log(Level.SEVERE, null, ex);
-        } finally {
-            try {
-                connection.setAutoCommit(true);
-                closeConnection(connection);
-            } catch (RepositoryException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            } finally {
-                return result.toString();
-            }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
         }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryInferencedSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphIds, query, profile, options);
     }
     
     @Override
-    public String exportSubgraphs(String repositoryId, ArrayList<String> subgraphIds) {
+    public ArrayList<String> queryInferencedSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
         if (subgraphIds == null) {
-            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
         }
         
-        StringBuilder result = new StringBuilder("");
-        OutputStream output = new ByteArrayOutputStream();
-        AGRepositoryConnection connection = getConnection(repositoryId);
+        return queryInferencedSubgraphs(catalogId, repositoryId, subgraphIds, query, profile, options, new QueryTrace("queryInferencedSubgraphs"));
+    }
+    
+    private ArrayList<String> queryInferencedSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options, QueryTrace trace) {
+        if (backendRegistry.getBackend() != null && profile == ReasoningProfile.NONE) {
+            return queryBackend(catalogId, repositoryId, subgraphIds, query, options, trace);
+        }
+        ArrayList<String> result = null;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
         try {
-            connection = getConnection(repositoryId);
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
             connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
             AGModel model =  getUnitedSubgraphsModel(connection, subgraphIds);
-            model.write(output);
-            model.write(output);
-            result.append(output);
-            output.close();
-        } catch (IOException | RepositoryException ex) {
-            LOGGER.log(Level.SEVERE, null, ex);
+            trace.mark(QueryTrace.Phase.UNION);
+            result = queryModel(getReasoningModel(model, profile), profile.prepareQuery(query), running);
+        } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
         } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), profile, query, result == null ? -1 : result.size(), trace);
             try {
                 connection.setAutoCommit(true);
                 closeConnection(connection);
             } catch (RepositoryException ex) {
                 LOGGER.log(Level.SEVERE, null, ex);
             } finally {
-                return result.toString();
+                return RunningQuery.getResult(running, result);
             }
         }
     }
     
     @Override
-    public String exportAllSubgraphs(String repositoryId) {
+    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile) {
         if (repositoryId == null) {
             throw new IllegalArgumentException("Argument repositoryId can not be null.");
         }
-
-        ArrayList<String> subgraphIds = getAllSubgraphs(repositoryId);
-        return exportSubgraphs(repositoryId, subgraphIds);
-    }
-    
-    
+        if (inferencedSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument inferencedSubgraphIds can not be null.");
+        }
+        if (rawSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument rawSubgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        
+        return queryInferencedSubgraphs(repositoryId, inferencedSubgraphIds, rawSubgraphIds, query, profile, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (inferencedSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument inferencedSubgraphIds can not be null.");
+        }
+        if (rawSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument rawSubgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryInferencedSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId, inferencedSubgraphIds, rawSubgraphIds, query, profile, options);
+    }
+    
+    @Override
+    public ArrayList<String> queryInferencedSubgraphs(String catalogId, String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (inferencedSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument inferencedSubgraphIds can not be null.");
+        }
+        if (rawSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument rawSubgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        if (rawSubgraphIds.isEmpty()) {
+            return inferencedSubgraphIds.isEmpty() ? new ArrayList<String>() : queryInferencedSubgraphs(catalogId, repositoryId, inferencedSubgraphIds, query, profile, options);
+        }
+        ArrayList<String> subgraphIds = new ArrayList<>(inferencedSubgraphIds);
+        subgraphIds.addAll(rawSubgraphIds);
+        if (inferencedSubgraphIds.isEmpty() || profile == ReasoningProfile.NONE) {
+            return querySubgraphs(catalogId, repositoryId, subgraphIds, query, options);
+        }
+        
+        QueryTrace trace = new QueryTrace("queryInferencedSubgraphs");
+        ArrayList<String> result = null;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            Model model = getScopedReasoningModel(connection, inferencedSubgraphIds, rawSubgraphIds, profile, running);
+            trace.mark(QueryTrace.Phase.UNION);
+            result = queryLocalModel(model, query, running);
+        } catch (RepositoryException | RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), profile, query, result == null ? -1 : result.size(), trace);
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return RunningQuery.getResult(running, result);
+            }
+        }
+    }
+    
+    @Override
+    public ArrayList<String> queryAllSubgraphs(String repositoryId, String query) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        
+        return queryAllSubgraphs(repositoryId, query, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<String> queryAllSubgraphs(String repositoryId, String query, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryAllSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId, query, options);
+    }
+    
+    @Override
+    public ArrayList<String> queryAllSubgraphs(String catalogId, String repositoryId, String query, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        QueryTrace trace = new QueryTrace("queryAllSubgraphs");
+        ArrayList<String> subgraphIds = getAllSubgraphs(catalogId, repositoryId);
+        if (subgraphIds == null) {
+            return null;
+        }
+        trace.mark(QueryTrace.Phase.LOOKUP);
+        return querySubgraphs(catalogId, repositoryId, subgraphIds, query, options, trace);
+    }
+    
+    @Override
+    public ArrayList<String> queryAllInferencedSubgraphs(String repositoryId, String query) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        
+        return queryAllInferencedSubgraphs(repositoryId, query, ReasoningProfile.RDFS_PLUS_PLUS);
+    }
+    
+    @Override
+    public ArrayList<String> queryAllInferencedSubgraphs(String repositoryId, String query, ReasoningProfile profile) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        
+        return queryAllInferencedSubgraphs(repositoryId, query, profile, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<String> queryAllInferencedSubgraphs(String repositoryId, String query, ReasoningProfile profile, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryAllInferencedSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId, query, profile, options);
+    }
+    
+    @Override
+    public ArrayList<String> queryAllInferencedSubgraphs(String catalogId, String repositoryId, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        QueryTrace trace = new QueryTrace("queryAllInferencedSubgraphs");
+        ArrayList<String> subgraphIds = getAllSubgraphs(catalogId, repositoryId);
+        if (subgraphIds == null) {
+            return null;
+        }
+        trace.mark(QueryTrace.Phase.LOOKUP);
+        return queryInferencedSubgraphs(catalogId, repositoryId, subgraphIds, query, profile, options, trace);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> querySubgraphL(String repositoryId, String subgraphId, String query) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        
+        return querySubgraphL(repositoryId, subgraphId, query, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<RDFNode> querySubgraphL(String repositoryId, String subgraphId, String query, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return querySubgraphL(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphId, query, options);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> querySubgraphL(String catalogId, String repositoryId, String subgraphId, String query, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        if (backendRegistry.getBackend() != null) {
+            return queryBackendL(catalogId, repositoryId, Collections.singletonList(subgraphId), query, options, new QueryTrace("querySubgraphL"));
+        }
+        
+        QueryTrace trace = new QueryTrace("querySubgraphL");
+        Model cached = subgraphCache.get(repositoryKey(catalogId, repositoryId), subgraphId);
+        if (cached != null) {
+            trace.mark(QueryTrace.Phase.LOOKUP);
+            return queryCachedSubgraphL(repositoryKey(catalogId, repositoryId), cached, query, options, trace);
+        }
+        
+        ArrayList<RDFNode> result = null;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
+            trace.mark(QueryTrace.Phase.LOOKUP);
+            // A replica may lag behind the primary, so only primary reads fill SubgraphCache
+            cached = replicaRouter.isReplica(connection) ? null : cacheSubgraph(repositoryKey(catalogId, repositoryId), subgraphId, model);
+            result = cached == null ? queryModelL(model, query, running) : queryLocalModelL(cached, query, running);
+        } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), 1, null, query, result == null ? -1 : result.size() / 3, trace);
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return RunningQuery.getResult(running, result);
+            }
+        }
+    }
+
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphL(String repositoryId, String subgraphId, String query) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        
+        return queryInferencedSubgraphL(repositoryId, subgraphId, query, ReasoningProfile.RDFS_PLUS_PLUS);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphL(String repositoryId, String subgraphId, String query, ReasoningProfile profile) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        
+        return queryInferencedSubgraphL(repositoryId, subgraphId, query, profile, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphL(String repositoryId, String subgraphId, String query, ReasoningProfile profile, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryInferencedSubgraphL(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphId, query, profile, options);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphL(String catalogId, String repositoryId, String subgraphId, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        QueryTrace trace = new QueryTrace("queryInferencedSubgraphL");
+        ArrayList<RDFNode> result = null;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
+            trace.mark(QueryTrace.Phase.LOOKUP);
+            result = queryModelL(getReasoningModel(model, profile), profile.prepareQuery(query), running);
+        } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), 1, profile, query, result == null ? -1 : result.size() / 3, trace);
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return RunningQuery.getResult(running, result);
+            }
+        }
+    }
+    
+    @Override
+    public ArrayList<RDFNode> querySubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        
+        return querySubgraphsL(repositoryId, subgraphIds, query, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<RDFNode> querySubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return querySubgraphsL(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphIds, query, options);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> querySubgraphsL(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return querySubgraphsL(catalogId, repositoryId, subgraphIds, query, options, new QueryTrace("querySubgraphsL"));
+    }
+    
+    private ArrayList<RDFNode> querySubgraphsL(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, QueryOptions options, QueryTrace trace) {
+        if (backendRegistry.getBackend() != null) {
+            return queryBackendL(catalogId, repositoryId, subgraphIds, query, options, trace);
+        }
+        ArrayList<RDFNode> result = null;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            AGModel model =  getUnitedSubgraphsModel(connection, subgraphIds);
+            trace.mark(QueryTrace.Phase.UNION);
+            result = queryModelL(model, query, running);
+        } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), null, query, result == null ? -1 : result.size() / 3, trace);
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return RunningQuery.getResult(running, result);
+            }
+        }
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        
+        return queryInferencedSubgraphsL(repositoryId, subgraphIds, query, ReasoningProfile.RDFS_PLUS_PLUS);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        
+        return queryInferencedSubgraphsL(repositoryId, subgraphIds, query, profile, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryInferencedSubgraphsL(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphIds, query, profile, options);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryInferencedSubgraphsL(catalogId, repositoryId, subgraphIds, query, profile, options, new QueryTrace("queryInferencedSubgraphsL"));
+    }
+    
+    private ArrayList<RDFNode> queryInferencedSubgraphsL(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options, QueryTrace trace) {
+        if (backendRegistry.getBackend() != null && profile == ReasoningProfile.NONE) {
+            return queryBackendL(catalogId, repositoryId, subgraphIds, query, options, trace);
+        }
+        ArrayList<RDFNode> result = null;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            AGModel model = getUnitedSubgraphsModel(connection, subgraphIds);
+            trace.mark(QueryTrace.Phase.UNION);
+            result = queryModelL(getReasoningModel(model, profile), profile.prepareQuery(query), running);
+        } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), profile, query, result == null ? -1 : result.size() / 3, trace);
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return RunningQuery.getResult(running, result);
+            }
+        } 
+    }
+    
+    @Override
+    public RDFNodeTable querySubgraphsTable(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return querySubgraphsTable(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphIds, query, profile, options);
+    }
+    
+    @Override
+    public RDFNodeTable querySubgraphsTable(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        QueryTrace trace = new QueryTrace("querySubgraphsTable");
+        if (backendRegistry.getBackend() != null && profile == ReasoningProfile.NONE) {
+            return queryBackendTable(catalogId, repositoryId, subgraphIds, query, options, trace);
+        }
+        RDFNodeTable result = null;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            AGModel model = getUnitedSubgraphsModel(connection, subgraphIds);
+            trace.mark(QueryTrace.Phase.UNION);
+            result = queryModelTable(getReasoningModel(model, profile), profile.prepareQuery(query), running);
+        } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), profile, query, result == null ? -1 : result.size(), trace);
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return RunningQuery.getResult(running, result);
+            }
+        }
+    }
+    
+    @Override
+    public EncodedResult querySubgraphsEncoded(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options, boolean compressed) {
+        ArrayList<RDFNode> nodes = queryInferencedSubgraphsL(repositoryId, subgraphIds, query, profile, options);
+        if (nodes == null) {
+            return null;
+        }
+        EncodedResult result = new EncodedResult(compressed);
+        for (int i = 0; i + 2 < nodes.size(); i += EncodedResult.COLUMNS) {
+            result.addRow(nodes.get(i), nodes.get(i + 1), nodes.get(i + 2));
+        }
+        return result;
+    }
+    
+    @Override
+    public Boolean askSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return askSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphIds, query, profile, options);
+    }
+    
+    @Override
+    public Boolean askSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        QueryTrace trace = new QueryTrace("askSubgraphs");
+        Boolean result = null;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            AGModel model = getUnitedSubgraphsModel(connection, subgraphIds);
+            trace.mark(QueryTrace.Phase.UNION);
+            result = askModel(getReasoningModel(model, profile), profile.prepareQuery(query), running);
+        } catch (RepositoryException | RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), profile, query, result == null ? -1 : 1, trace);
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return result;
+            }
+        }
+    }
+    
+    @Override
+    public long countSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return countSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphIds, query, profile, options);
+    }
+    
+    @Override
+    public long countSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        QueryTrace trace = new QueryTrace("countSubgraphs");
+        long result = -1;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            AGModel model = getUnitedSubgraphsModel(connection, subgraphIds);
+            trace.mark(QueryTrace.Phase.UNION);
+            result = countModel(getReasoningModel(model, profile), profile.prepareQuery(query), running);
+        } catch (RepositoryException | RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), profile, query, result < 0 ? -1 : 1, trace);
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return result;
+            }
+        }
+    }
+    
+    @Override
+    public String constructSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        return constructSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphIds, query, profile, options);
+    }
+    
+    @Override
+    public String constructSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (!constructSubgraphs(catalogId, repositoryId, subgraphIds, query, profile, options, output)) {
+            return null;
+        }
+        return new String(output.toByteArray(), NTRIPLES_CHARSET);
+    }
+    
+    @Override
+    public boolean constructSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options, OutputStream output) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        if (output == null) {
+            throw new IllegalArgumentException("Argument output can not be null.");
+        }
+        
+        return constructSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphIds, query, profile, options, output);
+    }
+    
+    @Override
+    public boolean constructSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options, OutputStream output) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        if (output == null) {
+            throw new IllegalArgumentException("Argument output can not be null.");
+        }
+        
+        QueryTrace trace = new QueryTrace("constructSubgraphs");
+        long result = -1;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            AGModel model = getUnitedSubgraphsModel(connection, subgraphIds);
+            trace.mark(QueryTrace.Phase.UNION);
+            result = constructModel(getReasoningModel(model, profile), profile.prepareQuery(query), running, output);
+        } catch (IOException | RepositoryException | RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), profile, query, result, trace);
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return RunningQuery.getResult(running, result >= 0);
+            }
+        }
+    }
+    
+    @Override
+    public ArrayList<ArrayList<String>> queryBatch(String repositoryId, ArrayList<QuerySpec> specs) {
+        return queryBatch(repositoryId, specs, false);
+    }
+    
+    @Override
+    public ArrayList<ArrayList<String>> queryBatch(String repositoryId, ArrayList<QuerySpec> specs, boolean parallel) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (specs == null) {
+            throw new IllegalArgumentException("Argument specs can not be null.");
+        }
+        for (QuerySpec spec : specs) {
+            if (spec == null || spec.getSubgraphIds() == null || spec.getQuery() == null || spec.getProfile() == null) {
+                throw new IllegalArgumentException("Argument specs can not contain null.");
+            }
+        }
+        
+        return queryBatch(catalogRegistry.getDefaultCatalogId(), repositoryId, specs, parallel);
+    }
+    
+    @Override
+    public ArrayList<ArrayList<String>> queryBatch(String catalogId, String repositoryId, ArrayList<QuerySpec> specs, boolean parallel) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (specs == null) {
+            throw new IllegalArgumentException("Argument specs can not be null.");
+        }
+        for (QuerySpec spec : specs) {
+            if (spec == null || spec.getSubgraphIds() == null || spec.getQuery() == null || spec.getProfile() == null) {
+                throw new IllegalArgumentException("Argument specs can not contain null.");
+            }
+        }
+        
+        // Subgraphs of all queries are locked once by the batch, its workers do not lock them again
+        Set<String> subgraphIds = new HashSet<>();
+        for (QuerySpec spec : specs) {
+            subgraphIds.addAll(spec.getSubgraphIds());
+        }
+        ArrayList<ArrayList<String>> result = null;
+        try {
+            int workers = BatchExecutor.getWorkers(specs.size(), parallel);
+            if (workers <= 1) {
+                result = new BatchQuery(catalogId, repositoryId, specs, 0, 1).call();
+            }
+            else {
+                List<Future<ArrayList<ArrayList<String>>>> futures = new ArrayList<>(workers);
+                for (int i = 0; i < workers; i++) {
+                    futures.add(batchExecutor.submit(new BatchQuery(catalogId, repositoryId, specs, i, workers)));
+                }
+                // Worker i evaluates queries i, i + workers, ...
+                ArrayList<ArrayList<ArrayList<String>>> parts = new ArrayList<>(workers);
+                for (Future<ArrayList<ArrayList<String>>> future : futures) {
+                    parts.add(future.get());
+                }
+                result = new ArrayList<>(specs.size());
+                for (int i = 0; i < specs.size(); i++) {
+                    result.add(parts.get(i % workers).get(i / workers));
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            result = null;
+        } catch (Exception ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+            result = null;
+        } finally {
+            return result;
+        }
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (inferencedSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument inferencedSubgraphIds can not be null.");
+        }
+        if (rawSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument rawSubgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        
+        return queryInferencedSubgraphsL(repositoryId, inferencedSubgraphIds, rawSubgraphIds, query, profile, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (inferencedSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument inferencedSubgraphIds can not be null.");
+        }
+        if (rawSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument rawSubgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryInferencedSubgraphsL(catalogRegistry.getDefaultCatalogId(), repositoryId, inferencedSubgraphIds, rawSubgraphIds, query, profile, options);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String catalogId, String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (inferencedSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument inferencedSubgraphIds can not be null.");
+        }
+        if (rawSubgraphIds == null) {
+            throw new IllegalArgumentException("Argument rawSubgraphIds can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        if (rawSubgraphIds.isEmpty()) {
+            return inferencedSubgraphIds.isEmpty() ? new ArrayList<RDFNode>() : queryInferencedSubgraphsL(catalogId, repositoryId, inferencedSubgraphIds, query, profile, options);
+        }
+        ArrayList<String> subgraphIds = new ArrayList<>(inferencedSubgraphIds);
+        subgraphIds.addAll(rawSubgraphIds);
+        if (inferencedSubgraphIds.isEmpty() || profile == ReasoningProfile.NONE) {
+            return querySubgraphsL(catalogId, repositoryId, subgraphIds, query, options);
+        }
+        
+        QueryTrace trace = new QueryTrace("queryInferencedSubgraphsL");
+        ArrayList<RDFNode> result = null;
+        AGRepositoryConnection connection = null;
+        RunningQuery running = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            connection.setAutoCommit(false);
+            trace.mark(QueryTrace.Phase.CONNECTION);
+            Model model = getScopedReasoningModel(connection, inferencedSubgraphIds, rawSubgraphIds, profile, running);
+            trace.mark(QueryTrace.Phase.UNION);
+            result = queryLocalModelL(model, query, running);
+        } catch (RepositoryException | RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), profile, query, result == null ? -1 : result.size() / 3, trace);
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return RunningQuery.getResult(running, result);
+            }
+        }
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryAllSubgraphsL(String repositoryId, String query) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        
+        return queryAllSubgraphsL(repositoryId, query, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryAllSubgraphsL(String repositoryId, String query, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryAllSubgraphsL(catalogRegistry.getDefaultCatalogId(), repositoryId, query, options);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryAllSubgraphsL(String catalogId, String repositoryId, String query, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        QueryTrace trace = new QueryTrace("queryAllSubgraphsL");
+        ArrayList<String> subgraphIds = getAllSubgraphs(catalogId, repositoryId);
+        if (subgraphIds == null) {
+            return null;
+        }
+        trace.mark(QueryTrace.Phase.LOOKUP);
+        return querySubgraphsL(catalogId, repositoryId, subgraphIds, query, options, trace);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryAllInferencedSubgraphsL(String repositoryId, String query) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        
+        return queryAllInferencedSubgraphsL(repositoryId, query, ReasoningProfile.RDFS_PLUS_PLUS);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryAllInferencedSubgraphsL(String repositoryId, String query, ReasoningProfile profile) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        
+        return queryAllInferencedSubgraphsL(repositoryId, query, profile, new QueryOptions());
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryAllInferencedSubgraphsL(String repositoryId, String query, ReasoningProfile profile, QueryOptions options) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        return queryAllInferencedSubgraphsL(catalogRegistry.getDefaultCatalogId(), repositoryId, query, profile, options);
+    }
+    
+    @Override
+    public ArrayList<RDFNode> queryAllInferencedSubgraphsL(String catalogId, String repositoryId, String query, ReasoningProfile profile, QueryOptions options) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("Argument query can not be null.");
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Argument profile can not be null.");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Argument options can not be null.");
+        }
+        
+        QueryTrace trace = new QueryTrace("queryAllInferencedSubgraphsL");
+        ArrayList<String> subgraphIds = getAllSubgraphs(catalogId, repositoryId);
+        if (subgraphIds == null) {
+            return null;
+        }
+        trace.mark(QueryTrace.Phase.LOOKUP);
+        return queryInferencedSubgraphsL(catalogId, repositoryId, subgraphIds, query, profile, options, trace);
+    }
+    
+    @Override
+    public String exportSubgraph(String repositoryId, String subgraphId) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        
+        return exportSubgraph(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphId);
+    }
+    
+    @Override
+    public String exportSubgraph(String catalogId, String repositoryId, String subgraphId) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+
+        if (backendRegistry.getBackend() != null) {
+            return exportBackendSubgraphs(catalogId, repositoryId, Collections.singletonList(subgraphId));
+        }
+        
+        StringBuilder result = new StringBuilder("");
+        AGRepositoryConnection connection = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            connection.setAutoCommit(false);
+            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
+            result.append(writeModel(model));
+        } catch (RepositoryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return result.toString();
+            }
+        }
+    }
+    
+    @Override
+    public String exportSubgraphs(String repositoryId, ArrayList<String> subgraphIds) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+        
+        return exportSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphIds);
+    }
+    
+    @Override
+    public String exportSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+        
+        if (backendRegistry.getBackend() != null) {
+            return exportBackendSubgraphs(catalogId, repositoryId, subgraphIds);
+        }
+        
+        StringBuilder result = new StringBuilder("");
+        AGRepositoryConnection connection = null;
+        try {
+            connection = getReadConnection(catalogId, repositoryId);
+            connection.setAutoCommit(false);
+            AGModel model =  getUnitedSubgraphsModel(connection, subgraphIds);
+            result.append(writeModel(model));
+        } catch (RepositoryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return result.toString();
+            }
+        }
+    }
+    
+    @Override
+    public String exportAllSubgraphs(String repositoryId) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        
+        return exportAllSubgraphs(catalogRegistry.getDefaultCatalogId(), repositoryId);
+    }
+    
+    @Override
+    public String exportAllSubgraphs(String catalogId, String repositoryId) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+
+        ArrayList<String> subgraphIds = getAllSubgraphs(catalogId, repositoryId);
+        return exportSubgraphs(catalogId, repositoryId, subgraphIds);
+    }
+    
+    @Override
+    public boolean cancelQuery(String queryId) {
+        if (queryId == null) {
+            throw new IllegalArgumentException("Argument queryId can not be null.");
+        }
+        
+        return runningQueries.cancel(queryId);
+    }
+    
+    @Override
+    public boolean pinSubgraph(String repositoryId, String subgraphId) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        
+        return pinSubgraph(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphId);
+    }
+    
+    @Override
+    public boolean pinSubgraph(String catalogId, String repositoryId, String subgraphId) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        
+        if (!subgraphCache.isEnabled()) {
+            return false;
+        }
+        subgraphCache.pin(repositoryKey(catalogId, repositoryId), subgraphId);
+        if (subgraphCache.get(repositoryKey(catalogId, repositoryId), subgraphId) != null) {
+            return true;
+        }
+        // The copy is taken under the shared lock, so no load or deletion of the subgraph runs meanwhile
+        SubgraphLocks.Hold hold = subgraphLocks.lockShared(repositoryKey(catalogId, repositoryId), subgraphId);
+        if (hold == null) {
+            return false;
+        }
+        boolean result = false;
+        AGRepositoryConnection connection = null;
+        try {
+            connection = getConnection(catalogId, repositoryId);
+            connection.setAutoCommit(false);
+            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
+            result = cacheSubgraph(repositoryKey(catalogId, repositoryId), subgraphId, model) != null;
+        } catch (RepositoryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            try {
+                if (connection != null) {
+                    connection.setAutoCommit(true);
+                    closeConnection(connection);
+                }
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                subgraphLocks.release(hold);
+                return result;
+            }
+        }
+    }
+    
+    @Override
+    public boolean unpinSubgraph(String repositoryId, String subgraphId) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        
+        return unpinSubgraph(catalogRegistry.getDefaultCatalogId(), repositoryId, subgraphId);
+    }
+    
+    @Override
+    public boolean unpinSubgraph(String catalogId, String repositoryId, String subgraphId) {
+        if (catalogId == null) {
+            throw new IllegalArgumentException("Argument catalogId can not be null.");
+        }
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        
+        return subgraphCache.unpin(repositoryKey(catalogId, repositoryId), subgraphId);
+    }
+    
+    @Override
+    public ArrayList<String> getSuperClasses(String repositoryId, String subgraphId, String classUri) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (classUri == null) {
+            throw new IllegalArgumentException("Argument classUri can not be null.");
+        }
+        
+        HierarchyCache.Hierarchies hierarchies = getHierarchies(repositoryId, subgraphId);
+        return hierarchies == null ? null : hierarchies.getClasses().getSuperTerms(classUri);
+    }
+    
+    @Override
+    public ArrayList<String> getSubClasses(String repositoryId, String subgraphId, String classUri) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (classUri == null) {
+            throw new IllegalArgumentException("Argument classUri can not be null.");
+        }
+        
+        HierarchyCache.Hierarchies hierarchies = getHierarchies(repositoryId, subgraphId);
+        return hierarchies == null ? null : hierarchies.getClasses().getSubTerms(classUri);
+    }
+    
+    @Override
+    public boolean isSubClassOf(String repositoryId, String subgraphId, String subClassUri, String superClassUri) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (subClassUri == null) {
+            throw new IllegalArgumentException("Argument subClassUri can not be null.");
+        }
+        if (superClassUri == null) {
+            throw new IllegalArgumentException("Argument superClassUri can not be null.");
+        }
+        
+        HierarchyCache.Hierarchies hierarchies = getHierarchies(repositoryId, subgraphId);
+        return hierarchies != null && hierarchies.getClasses().isSubTermOf(subClassUri, superClassUri);
+    }
+    
+    @Override
+    public ArrayList<String> getSuperProperties(String repositoryId, String subgraphId, String propertyUri) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (propertyUri == null) {
+            throw new IllegalArgumentException("Argument propertyUri can not be null.");
+        }
+        
+        HierarchyCache.Hierarchies hierarchies = getHierarchies(repositoryId, subgraphId);
+        return hierarchies == null ? null : hierarchies.getProperties().getSuperTerms(propertyUri);
+    }
+    
+    @Override
+    public ArrayList<String> getSubProperties(String repositoryId, String subgraphId, String propertyUri) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphId == null) {
+            throw new IllegalArgumentException("Argument subgraphId can not be null.");
+        }
+        if (propertyUri == null) {
+            throw new IllegalArgumentException("Argument propertyUri can not be null.");
+        }
+        
+        HierarchyCache.Hierarchies hierarchies = getHierarchies(repositoryId, subgraphId);
+        return hierarchies == null ? null : hierarchies.getProperties().getSubTerms(propertyUri);
+    }
+    
+    
+    
+    /**
+     * Returns the storage backend of backendRegistry, which has just the catalog catalog_id.
+     * @throws RepositoryException if the catalog is not catalog_id
+     */
+    private StorageBackend getBackend(String catalogId) throws RepositoryException {
+        if (!catalogId.equals(catalogRegistry.getDefaultCatalogId())) {
+            throw new RepositoryException("Catalog: "+catalogId+" does not exist in backend: "+backendRegistry.getName()+".");
+        }
+        return backendRegistry.getBackend();
+    }
+    
+    private ShardedBackend getShardedBackend() {
+        StorageBackend backend = backendRegistry.getBackend();
+        if (!(backend instanceof ShardedBackend)) {
+            LOGGER.log(Level.WARNING, "Method needs backend sharded, backend: {0} is used.", backendRegistry.getName());
+            return null;
+        }
+        return (ShardedBackend) backend;
+    }
+    
+    /**
+     * Moves the subgraph while its exclusive lock is held, so loads and deletions of the subgraph
+     * wait for the move while queries read it from its previous shard.
+     */
+    private boolean moveShardedSubgraph(ShardedBackend sharded, String repositoryId, String subgraphId, int shard) {
+        SubgraphLocks.Hold hold = subgraphLocks.lockExclusive(repositoryKey(catalogRegistry.getDefaultCatalogId(), repositoryId), subgraphId);
+        if (hold == null) {
+            return false;
+        }
+        boolean result = false;
+        try {
+            if (!sharded.getAllSubgraphs(repositoryId).contains(subgraphId)) {
+                throw new RepositoryException("Subgraph: "+subgraphId+" does not exist.");
+            }
+            sharded.moveSubgraph(repositoryId, subgraphId, shard);
+            result = true;
+        } catch (OpenRDFException | IOException | IllegalArgumentException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            subgraphLocks.release(hold);
+            return result;
+        }
+    }
+    
+    private ArrayList<String> getBackendIndexes(String catalogId, String repositoryId) {
+        ArrayList<String> indices = null;
+        try {
+            indices = getBackend(catalogId).getIndexes(repositoryId);
+        } catch (RepositoryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            return indices;
+        }
+    }
+    
+    private boolean changeBackendIndexes(String catalogId, String repositoryId, ArrayList<String> indexes, boolean add) {
+        boolean result = false;
+        try {
+            if (add) {
+                getBackend(catalogId).addIndexes(repositoryId, indexes);
+            }
+            else {
+                getBackend(catalogId).dropIndexes(repositoryId, indexes);
+            }
+            result = true;
+        } catch (RepositoryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            return result;
+        }
+    }
+    
+    private ArrayList<String> getBackendSubgraphs(String catalogId, String repositoryId) {
+        ArrayList<String> allSubgraphs = new ArrayList<>();
+        try {
+            allSubgraphs = getBackend(catalogId).getAllSubgraphs(repositoryId);
+        } catch (RepositoryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            return allSubgraphs;
+        }
+    }
+    
+    /**
+     * Loads RDF/XML from the file or from the url into the subgraph of the storage backend.
+     */
+    private boolean loadBackendOntology(String catalogId, String repositoryId, String subgraphId, String baseUri, String filePath, String url) {
+        SubgraphLocks.Hold hold = subgraphLocks.lockExclusive(repositoryKey(catalogId, repositoryId), subgraphId);
+        if (hold == null) {
+            return false;
+        }
+        boolean result = false;
+        InputStream input = null;
+        try {
+            StorageBackend backend = getBackend(catalogId);
+            input = filePath != null ? new FileInputStream(filePath) : new URL(url).openStream();
+            backend.loadOntology(repositoryId, subgraphId, baseUri, input, RDFFormat.RDFXML);
+            result = true;
+        } catch (OpenRDFException | IOException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            try {
+                if (input != null) {
+                    input.close();
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                recordWrite(catalogId, repositoryId, subgraphId);
+                subgraphLocks.release(hold);
+                return result;
+            }
+        }
+    }
+    
+    /**
+     * Evaluates the SELECT query on the union of subgraphs by the storage backend, with the same
+     * locks, options, running queries and slow query log as queries of AllegroGraph.
+     */
+    private RDFNodeTable queryBackendTable(String catalogId, String repositoryId, List<String> subgraphIds, String query, QueryOptions options, QueryTrace trace) {
+        RDFNodeTable result = null;
+        RunningQuery running = null;
+        try {
+            StorageBackend backend = getBackend(catalogId);
+            running = runningQueries.start(repositoryKey(catalogId, repositoryId), options);
+            running.setTrace(trace);
+            RDFNodeTable table = backend.query(repositoryId, subgraphIds, running.prepareBackendQuery(query));
+            running.mark(QueryTrace.Phase.EXECUTION);
+            for (int i = 0; i < table.size(); i++) {
+                running.checkRow();
+            }
+            running.mark(QueryTrace.Phase.MATERIALISATION);
+            result = table;
+        } catch (OpenRDFException | QueryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryKey(catalogId, repositoryId), subgraphIds.size(), null, query, result == null ? -1 : result.size(), trace);
+            return RunningQuery.getResult(running, result);
+        }
+    }
+    
+    private ArrayList<String> queryBackend(String catalogId, String repositoryId, List<String> subgraphIds, String query, QueryOptions options, QueryTrace trace) {
+        RDFNodeTable table = queryBackendTable(catalogId, repositoryId, subgraphIds, query, options, trace);
+        if (table == null) {
+            return null;
+        }
+        ArrayList<String> result = new ArrayList<>(table.size());
+        for (int i = 0; i < table.size(); i++) {
+            result.add(table.getRow(i).toString());
+        }
+        return result;
+    }
+    
+    private ArrayList<RDFNode> queryBackendL(String catalogId, String repositoryId, List<String> subgraphIds, String query, QueryOptions options, QueryTrace trace) {
+        RDFNodeTable table = queryBackendTable(catalogId, repositoryId, subgraphIds, query, options, trace);
+        return table == null ? null : new ArrayList<>(table.asList());
+    }
+    
+    /**
+     * Writes the union of subgraphs of the storage backend in RDF/XML like writeModel.
+     */
+    private String exportBackendSubgraphs(String catalogId, String repositoryId, List<String> subgraphIds) {
+        String result = "";
+        try {
+            StorageBackend backend = getBackend(catalogId);
+            if (!backend.getAllSubgraphs(repositoryId).containsAll(subgraphIds)) {
+                throw new RepositoryException("Subgraphs: "+subgraphIds+" do not exist.");
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            backend.export(repositoryId, subgraphIds, output, RDFFormat.RDFXML);
+            result = output.toString("UTF-8");
+        } catch (OpenRDFException | IOException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            return result;
+        }
+    }
+    
+    
     
     private AGRepositoryConnection getConnection(String repositoryId) {
+        return getConnection(catalogRegistry.getDefaultCatalogId(), repositoryId);
+    }
+    
+    private AGRepositoryConnection getConnection(String catalogId, String repositoryId) {
         AGRepositoryConnection connection = null;
+        if (backendRegistry.getBackend() != null) {
+            LOGGER.log(Level.WARNING, "Method needs backend allegrograph, backend: {0} is used.", backendRegistry.getName());
+            return connection;
+        }
         try {
-           AGRepository repository = getRepository(repositoryId);
+           AGRepository repository = catalogRegistry.getRepository(catalogId, repositoryId);
            connection = repository.getConnection();
+           operationMonitor.getConnections().opened();
            } catch (RepositoryException ex) {
                LOGGER.log(Level.SEVERE, null, ex);
         }
         return connection;
     }
     
+    /**
+     * Opens a connection of a read, on a replica if ReplicaRouter has any. If the replica
+     * can not be read, the primary server is used.
+     */
+    private AGRepositoryConnection getReadConnection(String repositoryId) {
+        return getReadConnection(catalogRegistry.getDefaultCatalogId(), repositoryId);
+    }
+    
+    private AGRepositoryConnection getReadConnection(String catalogId, String repositoryId) {
+        if (replicaRouter.hasReplicas() && backendRegistry.getBackend() == null) {
+            try {
+                AGRepositoryConnection connection = replicaRouter.getReadConnection(catalogId, repositoryId);
+                operationMonitor.getConnections().opened();
+                return connection;
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.WARNING, null, ex);
+            }
+        }
+        return getConnection(catalogId, repositoryId);
+    }
+    
     private void closeConnection(AGRepositoryConnection connection) {
+        if (connection == null) {
+            return;
+        }
+        operationMonitor.getConnections().closed();
         try {
             connection.close();
         } catch (RepositoryException ex) {
             LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            replicaRouter.release(connection);
         }
     }
     
-    private AGServer getServer() {
-        if (server == null) {
-            try {
-                Properties proporites = new Properties();
-                proporites.load(new FileInputStream("configuration/database.properties"));
-                server = new AGServer(proporites.getProperty("server_url"),
-                                      proporites.getProperty("username"),
-                                      proporites.getProperty("password"));
-            } catch (FileNotFoundException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-            }  catch (IOException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
+    /**
+     * Returns the key of the repository in caches, repositories of other catalogs than catalog_id
+     * are prefixed by their catalog like in AllegroGraph specifications of repositories.
+     */
+    private String repositoryKey(String catalogId, String repositoryId) {
+        return catalogId.equals(catalogRegistry.getDefaultCatalogId()) ? repositoryId : catalogId+":"+repositoryId;
+    }
+    
+    /**
+     * Drops cached copies of the written subgraph. Index maintenance is scheduled
+     * for repositories of catalog_id only.
+     */
+    private void recordWrite(String catalogId, String repositoryId, String subgraphId) {
+        hierarchyCache.invalidate(repositoryKey(catalogId, repositoryId), subgraphId);
+        subgraphCache.invalidate(repositoryKey(catalogId, repositoryId), subgraphId);
+        // Indexes of other backends are not optimised
+        if (catalogId.equals(catalogRegistry.getDefaultCatalogId()) && backendRegistry.getBackend() == null) {
+            indexMaintenance.recordWrite(repositoryId);
+        }
+    }
+
+    /**
+     * Sets indexes of the repository to the given ones over one connection.
+     * Missing indexes are added before the others are dropped, so the repository
+     * is never left without an index.
+     */
+    private void applyIndexes(AGRepository repository, ArrayList<String> indexes) throws OpenRDFException {
+        AGRepositoryConnection connection = repository.getConnection();
+        operationMonitor.getConnections().opened();
+        try {
+            List<String> currentIndexes = connection.listIndices();
+            for (String index : indexes) {
+                if (!currentIndexes.contains(index)) {
+                    connection.addIndex(index);
+                }
+            }
+            for (String index : currentIndexes) {
+                if (!indexes.contains(index)) {
+                    connection.dropIndex(index);
+                }
             }
+        } finally {
+            closeConnection(connection);
         }
-        return server;
     }
     
-    private AGCatalog getCatalog() {
-        if (catalog == null) {
-            server = getServer();
+    /**
+     * Returns time in milliseconds of lookups of PROBE_QUERY. The i-th lookup binds the positions
+     * of the i-th shape (see IndexAdvisor.getProbeShapes) to values of a sampled triple,
+     * so the probe uses the indexes the workload of the repository uses.
+     */
+    private long probeIndexes(AGRepositoryConnection connection, int[] shapes, List<BindingSet> sample) throws OpenRDFException {
+        long start = System.nanoTime();
+        for (int i = 0; i < shapes.length && !sample.isEmpty(); i++) {
+            BindingSet triple = sample.get(i % sample.size());
+            TupleQuery lookup = connection.prepareTupleQuery(QueryLanguage.SPARQL, PROBE_QUERY);
+            for (int position = 0; position < PROBE_VARIABLES.length; position++) {
+                if ((shapes[i] & (1 << position)) != 0) {
+                    lookup.setBinding(PROBE_VARIABLES[position], triple.getValue(PROBE_VARIABLES[position]));
+                }
+            }
+            TupleQueryResult probe = lookup.evaluate();
             try {
-                Properties proporites = new Properties();
-                proporites.load(new FileInputStream("configuration/database.properties"));
-                catalog = server.getCatalog(proporites.getProperty("catalog_id"));
-            } catch (IOException | AGHttpException ex) {
-               LOGGER.log(Level.SEVERE, null, ex);
+                while (probe.hasNext()) {
+                    probe.next();
+                }
+            } finally {
+                probe.close();
             }
         }
-        return catalog;
+        return (System.nanoTime() - start) / 1000000L;
     }
     
-    private AGRepository getRepository(String repositoryId) {
-        AGRepository repository = null;
+    private List<BindingSet> sampleTriples(AGRepositoryConnection connection) throws OpenRDFException {
+        List<BindingSet> sample = new ArrayList<>();
+        TupleQueryResult triples = connection.prepareTupleQuery(QueryLanguage.SPARQL, PROBE_SAMPLE_QUERY).evaluate();
         try {
-            catalog = getCatalog();
-            repository = catalog.openRepository(repositoryId);
-        } catch (RepositoryException ex) {
-            LOGGER.log(Level.SEVERE, null, ex);
+            while (triples.hasNext()) {
+                sample.add(triples.next());
+            }
         } finally {
-            return repository;
-        }
-    }
-
-    private void craeateDefaultIncices(AGRepository repositoryId) {
-        try {
-            for (String index : repositoryId.getConnection().listIndices()) {
-                if (index.equals("i")){
-                    continue;
-                }
-                repositoryId.getConnection().dropIndex(index);
-            }
-            repositoryId.getConnection().addIndex("gspoi");
-            repositoryId.getConnection().addIndex("gsopi");
-            repositoryId.getConnection().addIndex("gpsoi");
-            repositoryId.getConnection().addIndex("gposi");
-            repositoryId.getConnection().addIndex("gopsi");
-            repositoryId.getConnection().addIndex("gospi");
-        } catch (OpenRDFException ex) {
-            LOGGER.log(Level.SEVERE, null, ex);
+            triples.close();
         }
+        return sample;
     }
     
     private AGModel createSubgraphModel(AGRepositoryConnection connection, String subgraphId) {
@@ -898,9 +3232,9 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
     }
     
     private AGModel getSubgraphModel(AGRepositoryConnection connection, String repositoryId, String subgraphId) throws RepositoryException {
-        List<String> allSubgraphs = getAllSubgraphs(repositoryId);
+        // Subgraphs are listed on the given connection, which may be a connection of a replica
         AGModel model = null;
-        if (allSubgraphs.contains(subgraphId)) {
+        if (hasSubgraph(connection, subgraphId)) {
             AGGraphMaker maker = new AGGraphMaker(connection);
             AGGraph graph = maker.openGraph(subgraphId);
             model = new AGModel(graph);
@@ -911,6 +3245,20 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
         return model;        
     }
     
+    private boolean hasSubgraph(AGRepositoryConnection connection, String subgraphId) throws RepositoryException {
+        RepositoryResult<org.openrdf.model.Resource> contexts = connection.getContextIDs();
+        try {
+            while (contexts.hasNext()) {
+                if (contexts.next().toString().equals(subgraphId)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            contexts.close();
+        }
+    }
+    
     private AGGraph getGraph(AGRepositoryConnection connection, String subgraphId) {
         AGGraphMaker maker = new AGGraphMaker(connection);
         AGGraph graph = maker.openGraph(subgraphId);
@@ -928,12 +3276,346 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
         return model;
     }
     
-    private ArrayList<String> queryModel(AGModel model, String query) {
-        ArrayList<String> result =  new ArrayList<>();
-        com.franz.agraph.jena.AGQuery spargl = AGQueryFactory.create(query);
+    /**
+     * Copies the subgraph to SubgraphCache if it is pinned or small enough.
+     * @return cached model or null if the subgraph is not cached
+     */
+    private Model cacheSubgraph(String repositoryId, String subgraphId, AGModel model) {
+        if (!subgraphCache.isCandidate(repositoryId, subgraphId)) {
+            return null;
+        }
+        long version = subgraphCache.getVersion();
+        if (!subgraphCache.accepts(repositoryId, subgraphId, model.size())) {
+            return null;
+        }
+        Model copy = subgraphCache.copyOf(model);
+        return subgraphCache.put(repositoryId, subgraphId, copy, version) ? copy : null;
+    }
+    
+    private ArrayList<String> queryCachedSubgraph(String repositoryId, Model model, String query, QueryOptions options, QueryTrace trace) {
+        ArrayList<String> result = null;
+        RunningQuery running = null;
+        try {
+            running = runningQueries.start(repositoryId, options);
+            running.setTrace(trace);
+            result = queryLocalModel(model, query, running);
+        } catch (RepositoryException | QueryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryId, 1, null, query, result == null ? -1 : result.size(), trace);
+        }
+        return RunningQuery.getResult(running, result);
+    }
+    
+    private ArrayList<RDFNode> queryCachedSubgraphL(String repositoryId, Model model, String query, QueryOptions options, QueryTrace trace) {
+        ArrayList<RDFNode> result = null;
+        RunningQuery running = null;
+        try {
+            running = runningQueries.start(repositoryId, options);
+            running.setTrace(trace);
+            result = queryLocalModelL(model, query, running);
+        } catch (RepositoryException | QueryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            runningQueries.finish(running);
+            slowQueryLog.record(repositoryId, 1, null, query, result == null ? -1 : result.size() / 3, trace);
+        }
+        return RunningQuery.getResult(running, result);
+    }
+    
+    private HierarchyCache.Hierarchies getHierarchies(String repositoryId, String subgraphId) {
+        HierarchyCache.Hierarchies hierarchies = hierarchyCache.get(repositoryId, subgraphId);
+        if (hierarchies != null) {
+            return hierarchies;
+        }
+        long version = hierarchyCache.getVersion();
+        // Hierarchy edges are simple pattern lookups, which the near-cache answers without AllegroGraph
+        Model cached = subgraphCache.get(repositoryId, subgraphId);
+        if (cached != null) {
+            hierarchies = buildHierarchies(cached);
+            hierarchyCache.put(repositoryId, subgraphId, hierarchies, version);
+            return hierarchies;
+        }
+        AGRepositoryConnection connection = null;
+        try {
+            connection = getConnection(repositoryId);
+            connection.setAutoCommit(false);
+            AGModel model =  getSubgraphModel(connection, repositoryId, subgraphId);
+            hierarchies = buildHierarchies(model);
+            hierarchyCache.put(repositoryId, subgraphId, hierarchies, version);
+        } catch (RepositoryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+                closeConnection(connection);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            } finally {
+                return hierarchies;
+            }
+        }
+    }
+    
+    private HierarchyCache.Hierarchies buildHierarchies(Model model) {
+        HierarchyIndex.Builder classes = new HierarchyIndex.Builder();
+        HierarchyIndex.Builder properties = new HierarchyIndex.Builder();
+        addHierarchyEdges(model, RDFS.subClassOf, classes, false);
+        addHierarchyEdges(model, OWL.equivalentClass, classes, true);
+        addHierarchyEdges(model, RDFS.subPropertyOf, properties, false);
+        addHierarchyEdges(model, OWL.equivalentProperty, properties, true);
+        return new HierarchyCache.Hierarchies(classes.build(), properties.build());
+    }
+    
+    private void addHierarchyEdges(Model model, Property predicate, HierarchyIndex.Builder builder, boolean equivalence) {
+        StmtIterator statements = model.listStatements(null, predicate, (RDFNode) null);
+        try {
+            while (statements.hasNext()) {
+                Statement statement = statements.next();
+                // Anonymous classes (restrictions, unions...) are not part of the named hierarchy
+                if (!statement.getSubject().isURIResource() || !statement.getObject().isURIResource()) {
+                    continue;
+                }
+                String subject = statement.getSubject().getURI();
+                String object = statement.getObject().asResource().getURI();
+                if (equivalence) {
+                    builder.addEquivalence(subject, object);
+                }
+                else {
+                    builder.addSubsumption(subject, object);
+                }
+            }
+        } finally {
+            statements.close();
+        }
+    }
+    
+    private AGModel getReasoningModel(AGModel model, ReasoningProfile profile) {
+        AGReasoner reasoner = profile.getReasoner();
+        if (reasoner == null) {
+            return model;
+        }
+        return new AGInfModel(reasoner, model);
+    }
+    
+    /**
+     * Copies the raw subgraphs and the inferenced subgraphs with entailments of the profile
+     * into a local model, so one query matches patterns across both groups while the reasoning
+     * sees the inferenced subgraphs only. The whole model is held in memory during the query,
+     * so the copy is bounded by maxRows of the query and a larger copy fails at once with
+     * ResultTooLargeException. AllegroGraph applies reasoning to the whole dataset of a query,
+     * so the server can not evaluate the two groups in one query.
+     */
+    private Model getScopedReasoningModel(AGRepositoryConnection connection, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, ReasoningProfile profile, RunningQuery running) throws RepositoryException {
+        Model scoped = ModelFactory.createDefaultModel();
+        AGModel inferenced = getReasoningModel(getUnitedSubgraphsModel(connection, inferencedSubgraphIds), profile);
+        constructModel(inferenced, ALL_TRIPLES_QUERY, running, scoped);
+        if (profile == ReasoningProfile.RDFS_SUBCLASS) {
+            // RDFS_SUBCLASS has no reasoner, its entailments are the results of the rewritten patterns
+            constructModel(inferenced, profile.prepareQuery(TYPE_TRIPLES_QUERY), running, scoped);
+            constructModel(inferenced, profile.prepareQuery(SUBCLASS_TRIPLES_QUERY), running, scoped);
+        }
+        constructModel(getUnitedSubgraphsModel(connection, rawSubgraphIds), ALL_TRIPLES_QUERY, running, scoped);
+        return scoped;
+    }
+    
+    private void constructModel(AGModel model, String query, RunningQuery running, Model target) throws RepositoryException {
+        com.franz.agraph.jena.AGQuery spargl = AGQueryFactory.create(running.prepareQuery(query));
+        int limit = running.getCopyLimit(target.size());
+        if (limit != QueryOptions.NO_LIMIT) {
+            spargl.setLimit(limit);
+        }
+        AGQueryExecution qe = AGQueryExecutionFactory.create(spargl, model);
+        running.startExecution(qe);
+        try {
+            qe.execConstruct(target);
+            running.checkActive();
+            running.checkCopied(target.size());
+        } catch (RuntimeException ex) {
+            // An aborted execution fails with a connection error, the cancellation is reported instead
+            running.checkActive();
+            throw ex;
+        } finally {
+            running.finishExecution(qe);
+        }
+    }
+    
+    private ArrayList<String> queryModel(AGModel model, String query, RunningQuery running) throws RepositoryException {
+        indexAdvisor.record(running.getRepositoryId(), query);
+        com.franz.agraph.jena.AGQuery spargl = AGQueryFactory.create(running.prepareQuery(query));
+        running.prepareExecution(spargl);
+        AGQueryExecution qe = AGQueryExecutionFactory.create(spargl, model);
+        running.startExecution(qe);
+        try {
+            ResultSet results = qe.execSelect();
+            running.mark(QueryTrace.Phase.EXECUTION);
+            ArrayList<String> result = readStrings(results, running);
+            running.mark(QueryTrace.Phase.MATERIALISATION);
+            return result;
+        } catch (RuntimeException ex) {
+            running.checkActive();
+            throw ex;
+        } finally {
+            running.finishExecution(qe);
+        }
+    }
+
+    private RDFNodeTable queryModelTable(AGModel model, String query, RunningQuery running) throws RepositoryException {
+        indexAdvisor.record(running.getRepositoryId(), query);
+        com.franz.agraph.jena.AGQuery spargl = AGQueryFactory.create(running.prepareQuery(query));
+        running.prepareExecution(spargl);
+        AGQueryExecution qe = AGQueryExecutionFactory.create(spargl, model);
+        running.startExecution(qe);
+        try {
+            ResultSet results = qe.execSelect();
+            running.mark(QueryTrace.Phase.EXECUTION);
+            RDFNodeTable result = readTable(results, running);
+            running.mark(QueryTrace.Phase.MATERIALISATION);
+            return result;
+        } catch (RuntimeException ex) {
+            running.checkActive();
+            throw ex;
+        } finally {
+            running.finishExecution(qe);
+        }
+    }
+    
+    private boolean askModel(AGModel model, String query, RunningQuery running) throws RepositoryException {
+        indexAdvisor.record(running.getRepositoryId(), query);
+        com.franz.agraph.jena.AGQuery spargl = AGQueryFactory.create(running.prepareQuery(query));
+        AGQueryExecution qe = AGQueryExecutionFactory.create(spargl, model);
+        running.startExecution(qe);
+        try {
+            boolean result = qe.execAsk();
+            running.mark(QueryTrace.Phase.EXECUTION);
+            running.checkActive();
+            return result;
+        } catch (RuntimeException ex) {
+            running.checkActive();
+            throw ex;
+        } finally {
+            running.finishExecution(qe);
+        }
+    }
+    
+    private long countModel(AGModel model, String query, RunningQuery running) throws RepositoryException {
+        indexAdvisor.record(running.getRepositoryId(), query);
+        // Rows are counted by the server, limit and maxRows of the query do not apply
+        com.franz.agraph.jena.AGQuery spargl = AGQueryFactory.create(running.prepareQuery(query));
+        AGQueryExecution qe = AGQueryExecutionFactory.create(spargl, model);
+        running.startExecution(qe);
+        try {
+            long result = qe.countSelect();
+            running.mark(QueryTrace.Phase.EXECUTION);
+            running.checkActive();
+            return result;
+        } catch (RuntimeException ex) {
+            running.checkActive();
+            throw ex;
+        } finally {
+            running.finishExecution(qe);
+        }
+    }
+    
+    /**
+     * Writes triples constructed by the query to the output in N-Triples.
+     * @return number of written triples
+     */
+    private long constructModel(AGModel model, String query, RunningQuery running, OutputStream output) throws IOException, RepositoryException {
+        indexAdvisor.record(running.getRepositoryId(), query);
+        com.franz.agraph.jena.AGQuery spargl = AGQueryFactory.create(running.prepareQuery(query));
+        running.prepareExecution(spargl);
+        AGQueryExecution qe = AGQueryExecutionFactory.create(spargl, model);
+        running.startExecution(qe);
+        Model constructed;
+        try {
+            // execConstructTriples() of AllegroGraph 4.12.2 returns null, the result is read into a model,
+            // the server returns at most maxRows + 1 triples
+            constructed = qe.execConstruct();
+        } catch (RuntimeException ex) {
+            running.checkActive();
+            throw ex;
+        } finally {
+            running.finishExecution(qe);
+        }
+        running.mark(QueryTrace.Phase.EXECUTION);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, NTRIPLES_CHARSET));
+        long written = 0;
+        Iterator<Triple> triples = constructed.getGraph().find(Triple.ANY);
+        while (triples.hasNext()) {
+            running.checkRow();
+            writer.write(FmtUtils.stringForTriple(triples.next(), null));
+            writer.write(" .\n");
+            written++;
+        }
+        writer.flush();
+        running.mark(QueryTrace.Phase.MATERIALISATION);
+        return written;
+    }
+    
+    private ArrayList<RDFNode> queryModelL(AGModel model, String query, RunningQuery running) throws RepositoryException {
+        indexAdvisor.record(running.getRepositoryId(), query);
+        com.franz.agraph.jena.AGQuery spargl = AGQueryFactory.create(running.prepareQuery(query));
+        running.prepareExecution(spargl);
         AGQueryExecution qe = AGQueryExecutionFactory.create(spargl, model);
-        ResultSet results = qe.execSelect();
+        running.startExecution(qe);
+        try {
+            ResultSet results = qe.execSelect();
+            running.mark(QueryTrace.Phase.EXECUTION);
+            ArrayList<RDFNode> result = readNodes(results, running);
+            running.mark(QueryTrace.Phase.MATERIALISATION);
+            return result;
+        } catch (RuntimeException ex) {
+            running.checkActive();
+            throw ex;
+        } finally {
+            running.finishExecution(qe);
+        }
+    }
+    
+    /**
+     * Evaluates the query on a model of SubgraphCache by ARQ inside the JVM. Shapes of its
+     * patterns are not recorded by IndexAdvisor, because indexes of AllegroGraph are not used.
+     */
+    private ArrayList<String> queryLocalModel(Model model, String query, RunningQuery running) throws RepositoryException {
+        Query sparql = QueryFactory.create(query, Syntax.syntaxSPARQL_11);
+        running.prepareExecution(sparql);
+        QueryExecution qe = QueryExecutionFactory.create(sparql, model);
+        try {
+            ResultSet results = qe.execSelect();
+            running.mark(QueryTrace.Phase.EXECUTION);
+            ArrayList<String> result = readStrings(results, running);
+            running.mark(QueryTrace.Phase.MATERIALISATION);
+            return result;
+        } finally {
+            qe.close();
+        }
+    }
+    
+    private ArrayList<RDFNode> queryLocalModelL(Model model, String query, RunningQuery running) throws RepositoryException {
+        Query sparql = QueryFactory.create(query, Syntax.syntaxSPARQL_11);
+        running.prepareExecution(sparql);
+        QueryExecution qe = QueryExecutionFactory.create(sparql, model);
+        try {
+            ResultSet results = qe.execSelect();
+            running.mark(QueryTrace.Phase.EXECUTION);
+            ArrayList<RDFNode> result = readNodes(results, running);
+            running.mark(QueryTrace.Phase.MATERIALISATION);
+            return result;
+        } finally {
+            qe.close();
+        }
+    }
+    
+    /**
+     * Reads rows (s, p, o) of the result as strings "{s p o}". Results of AllegroGraph
+     * and of SubgraphCache are read by the same code, which is measured by the benchmarks.
+     */
+    static ArrayList<String> readStrings(ResultSet results, RunningQuery running) throws RepositoryException {
+        ArrayList<String> result =  new ArrayList<>();
         while (results.hasNext()) {
+            running.checkRow();
             QuerySolution ontology = results.next();
             RDFNode s = ontology.get("s");
             RDFNode p = ontology.get("p");
@@ -942,13 +3624,14 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
         }
         return result;
     }
-
-    private ArrayList<RDFNode> queryModelL(AGModel model, String query) {
+    
+    /**
+     * Reads rows (s, p, o) of the result as three consecutive nodes.
+     */
+    static ArrayList<RDFNode> readNodes(ResultSet results, RunningQuery running) throws RepositoryException {
         ArrayList<RDFNode> result =  new ArrayList<>();
-        com.franz.agraph.jena.AGQuery spargl = AGQueryFactory.create(query);
-        AGQueryExecution qe = AGQueryExecutionFactory.create(spargl, model);
-        ResultSet results = qe.execSelect();
         while (results.hasNext()) {
+            running.checkRow();
             QuerySolution ontology = results.next();
             result.add(ontology.get("s"));
             result.add(ontology.get("p"));
@@ -956,4 +3639,103 @@ public class GateNosqlBean implements GateNosqlLocal, GateNosqlRemote {
         }
         return result;
     }
+    
+    /**
+     * Reads rows (s, p, o) of the result to a table.
+     */
+    static RDFNodeTable readTable(ResultSet results, RunningQuery running) throws RepositoryException {
+        RDFNodeTable result = new RDFNodeTable();
+        while (results.hasNext()) {
+            running.checkRow();
+            QuerySolution ontology = results.next();
+            result.addRow(ontology.get("s"), ontology.get("p"), ontology.get("o"));
+        }
+        result.trimToSize();
+        return result;
+    }
+    
+    /**
+     * Serialises the model in RDF/XML as export* methods return it.
+     */
+    static String writeModel(Model model) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        model.write(output);
+        return output.toString();
+    }
+    
+    
+    
+    /**
+     * Class BatchQuery evaluates one query of a batch on the connection shared by the batch.
+     * A failed query has null result, other queries of the batch are not affected.
+     */
+    private final class BatchQuery implements Callable<ArrayList<ArrayList<String>>> {
+        
+        private final String catalogId;
+        
+        private final String repositoryId;
+        
+        private final ArrayList<QuerySpec> specs;
+        
+        private final int first;
+        
+        private final int step;
+        
+        private BatchQuery(String catalogId, String repositoryId, ArrayList<QuerySpec> specs, int first, int step) {
+            this.catalogId = catalogId;
+            this.repositoryId = repositoryId;
+            this.specs = specs;
+            this.first = first;
+            this.step = step;
+        }
+        
+        /**
+         * Evaluates queries first, first + step, ... of the batch over an own connection.
+         * @return results of the queries (null for a failed query)
+         * @throws RepositoryException if the connection fails
+         */
+        @Override
+        public ArrayList<ArrayList<String>> call() throws RepositoryException {
+            ArrayList<ArrayList<String>> results = new ArrayList<>();
+            AGRepositoryConnection connection = null;
+            try {
+                // Connection stays in auto-commit mode without a session
+                connection = getReadConnection(catalogId, repositoryId);
+                if (connection == null) {
+                    throw new RepositoryException("Repository: " + repositoryId + " can not be opened.");
+                }
+                // Subgraphs are listed once for all queries of the worker
+                Set<String> allSubgraphs = new HashSet<>();
+                for (org.openrdf.model.Resource r : connection.getContextIDs().asList()) {
+                    allSubgraphs.add(r.toString());
+                }
+                for (int i = first; i < specs.size(); i += step) {
+                    results.add(query(connection, allSubgraphs, specs.get(i)));
+                }
+            } finally {
+                closeConnection(connection);
+            }
+            return results;
+        }
+        
+        private ArrayList<String> query(AGRepositoryConnection connection, Set<String> allSubgraphs, QuerySpec spec) {
+            RunningQuery running = null;
+            try {
+                running = runningQueries.start(repositoryKey(catalogId, repositoryId), new QueryOptions());
+                for (String subgraphId : spec.getSubgraphIds()) {
+                    if (!allSubgraphs.contains(subgraphId)) {
+                        throw new RepositoryException("Subgraph: "+subgraphId+ " in repository: "+repositoryId+" does not exist.");
+                    }
+                }
+                ReasoningProfile profile = spec.getProfile();
+                AGModel model = getUnitedSubgraphsModel(connection, spec.getSubgraphIds());
+                return queryModel(getReasoningModel(model, profile), profile.prepareQuery(spec.getQuery()), running);
+            } catch (RepositoryException | RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+                return null;
+            } finally {
+                runningQueries.finish(running);
+            }
+        }
+    }
 }
@@ -0,0 +1,116 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      GateNosqlConfiguration.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Class GateNosqlConfiguration provides properties stored in configuration/database.properties file.
+ * The file is read once, missing properties are replaced by the given default values.
+ * A property is overridden by the system property of the same key prefixed by gate.,
+ * e.g. -Dgate.backend=memory.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+final class GateNosqlConfiguration {
+
+
+    /**
+     * String CONFIGURATION_FILE is a path to the configuration file
+     */
+    static final String CONFIGURATION_FILE = "configuration/database.properties";
+
+    /**
+     * String SYSTEM_PREFIX prefixes keys of system properties overriding the file
+     */
+    static final String SYSTEM_PREFIX = "gate.";
+
+    /**
+     * Properties properties holds loaded configuration
+     */
+    private static volatile Properties properties;
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(GateNosqlConfiguration.class.getName());
+
+
+
+    private GateNosqlConfiguration() {
+    }
+
+    /**
+     * Returns value of the given property.
+     * @param key String
+     * @return value or null if the property is not set
+     */
+    static String getProperty(String key) {
+        return lookup(key);
+    }
+
+    /**
+     * Returns value of the given property.
+     * @param key String
+     * @param defaultValue String
+     * @return value or defaultValue if the property is not set
+     */
+    static String getProperty(String key, String defaultValue) {
+        String value = lookup(key);
+        return (value != null ? value : defaultValue).trim();
+    }
+
+    /**
+     * Returns value of the given numeric property.
+     * @param key String
+     * @param defaultValue long
+     * @return value or defaultValue if the property is not set or it is not a number
+     */
+    static long getLong(String key, long defaultValue) {
+        String value = lookup(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            LOGGER.log(Level.WARNING, "Property: " + key + " is not a number, using " + defaultValue + ".", ex);
+            return defaultValue;
+        }
+    }
+
+
+
+    private static String lookup(String key) {
+        String value = System.getProperty(SYSTEM_PREFIX + key);
+        return value != null ? value : getProperties().getProperty(key);
+    }
+
+    private static Properties getProperties() {
+        if (properties == null) {
+            Properties loaded = new Properties();
+            try (InputStream input = new FileInputStream(CONFIGURATION_FILE)) {
+                loaded.load(input);
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            }
+            properties = loaded;
+        }
+        return properties;
+    }
+}
@@ -9,6 +9,7 @@
 package cz.muni.fi.gate;
 
 import com.hp.hpl.jena.rdf.model.RDFNode;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import javax.ejb.Local;
 
@@ -35,8 +36,22 @@ public interface GateNosqlLocal extends GateNosqlRemote {
      * @param subgraphId String
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<RDFNode> querySubgraphL(String repositoryId, String subgraphId, String query);
+    public ArrayList<RDFNode> querySubgraphL(String repositoryId, String subgraphId, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraph in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> querySubgraphL(String repositoryId, String subgraphId, String query, QueryOptions options) throws ResultTooLargeException;
     
     /**
      * Queries the given subgraph with reasoning in the given repository.
@@ -45,8 +60,35 @@ public interface GateNosqlLocal extends GateNosqlRemote {
      * @param subgraphId String
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryInferencedSubgraphL(String repositoryId, String subgraphId, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraph with reasoning of the given profile in the given repository.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryInferencedSubgraphL(String repositoryId, String subgraphId, String query, ReasoningProfile profile) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraph with reasoning of the given profile in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<RDFNode> queryInferencedSubgraphL(String repositoryId, String subgraphId, String query);
+    public ArrayList<RDFNode> queryInferencedSubgraphL(String repositoryId, String subgraphId, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
 
  
     /**
@@ -56,8 +98,22 @@ public interface GateNosqlLocal extends GateNosqlRemote {
      * @param subgraphIds ArrayList<String>
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> querySubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<RDFNode> querySubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query);
+    public ArrayList<RDFNode> querySubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query, QueryOptions options) throws ResultTooLargeException;
     
     /**
      * Queries the given subgraphs with reasoning in the given repository.
@@ -66,8 +122,73 @@ public interface GateNosqlLocal extends GateNosqlRemote {
      * @param subgraphIds ArrayList<String>
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query);
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs with reasoning of the given profile in the given repository.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs with reasoning of the given profile in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs in the given repository, reasoning of the given profile is
+     * used just for inferencedSubgraphIds while rawSubgraphIds are queried without reasoning.
+     * The query is evaluated once over both groups, so its patterns can be matched across them.
+     * If both groups are given, the raw subgraphs and the entailments of the inferenced subgraphs
+     * are copied into memory of the server and the query is evaluated there; at most maxRows
+     * triples (query_max_rows by default) are copied.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param inferencedSubgraphIds ArrayList<String>
+     * @param rawSubgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs in the given repository, reasoning of the given profile is
+     * used just for inferencedSubgraphIds while rawSubgraphIds are queried without reasoning.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The query is evaluated once over both groups, so its patterns can be matched across them.
+     * If both groups are given, the raw subgraphs and the entailments of the inferenced subgraphs
+     * are copied into memory of the server and the query is evaluated there; at most maxRows
+     * triples (query_max_rows by default) are copied.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param inferencedSubgraphIds ArrayList<String>
+     * @param rawSubgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
     
     /**
      * Queries all subgraphs in the given repository.
@@ -75,8 +196,21 @@ public interface GateNosqlLocal extends GateNosqlRemote {
      * @param repositoryId String
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<RDFNode> queryAllSubgraphsL(String repositoryId, String query);
+    public ArrayList<RDFNode> queryAllSubgraphsL(String repositoryId, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries all subgraphs in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryAllSubgraphsL(String repositoryId, String query, QueryOptions options) throws ResultTooLargeException;
     
     /**
      * Queries all subgraphs with reasoning in the given repository.
@@ -84,6 +218,184 @@ public interface GateNosqlLocal extends GateNosqlRemote {
      * @param repositoryId String
      * @param query String
      * @return all queried OWL data 
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryAllInferencedSubgraphsL(String repositoryId, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries all subgraphs with reasoning of the given profile in the given repository.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryAllInferencedSubgraphsL(String repositoryId, String query, ReasoningProfile profile) throws ResultTooLargeException;
+    
+    /**
+     * Queries all subgraphs with reasoning of the given profile in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param repositoryId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryAllInferencedSubgraphsL(String repositoryId, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs with reasoning of the given profile (NONE for no reasoning)
+     * in the given repository. The method returns queried OWL data as a table of rows
+     * (subject, predicate, object) where every distinct RDFNode is held once.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data or null if the query fails
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public RDFNodeTable querySubgraphsTable(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Evaluates the CONSTRUCT query on the given subgraphs with reasoning of the given profile
+     * (NONE for no reasoning) in the given repository. Constructed triples are written
+     * to the output in N-Triples (UTF-8). The output is not closed.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String CONSTRUCT query
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @param output OutputStream
+     * @return true if all triples are written or false otherwise
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public boolean constructSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options, OutputStream output) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs in the given repository of the given catalog.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> querySubgraphsL(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs with reasoning of the given profile in the given repository
+     * of the given catalog. The method returns queried OWL data as a list of RDFNodes.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs in the given repository of the given catalog, reasoning of the given
+     * profile is used just for inferencedSubgraphIds while rawSubgraphIds are queried without reasoning. The method returns queried OWL data as a list of RDFNodes.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param inferencedSubgraphIds ArrayList<String>
+     * @param rawSubgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     *         or the copied subgraphs have more triples than the maximum
+     */
+    public ArrayList<RDFNode> queryInferencedSubgraphsL(String catalogId, String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraph in the given repository of the given catalog.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> querySubgraphL(String catalogId, String repositoryId, String subgraphId, String query, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraph with reasoning of the given profile in the given repository
+     * of the given catalog. The method returns queried OWL data as a list of RDFNodes.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryInferencedSubgraphL(String catalogId, String repositoryId, String subgraphId, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries all subgraphs in the given repository of the given catalog.
+     * The method returns queried OWL data as a list of RDFNodes.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryAllSubgraphsL(String catalogId, String repositoryId, String query, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries all subgraphs with reasoning of the given profile in the given repository
+     * of the given catalog. The method returns queried OWL data as a list of RDFNodes.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<RDFNode> queryAllInferencedSubgraphsL(String catalogId, String repositoryId, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs with reasoning of the given profile (NONE for no reasoning)
+     * in the given repository of the given catalog, see querySubgraphsTable.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data or null if the query fails
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public RDFNodeTable querySubgraphsTable(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Evaluates the CONSTRUCT query on the given subgraphs with reasoning of the given profile
+     * in the given repository of the given catalog, see constructSubgraphs.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String CONSTRUCT query
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @param output OutputStream
+     * @return true if all triples are written or false otherwise
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<RDFNode> queryAllInferencedSubgraphsL(String repositoryId, String query);
+    public boolean constructSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options, OutputStream output) throws ResultTooLargeException;
 }
@@ -27,7 +27,7 @@ public interface GateNosqlRemote {
     
     
     
-   /**
+    /**
     * Returns all catalogs.
     * @return all catalogs
     */
@@ -48,6 +48,16 @@ public interface GateNosqlRemote {
      */
     public boolean createRepository(String repositoryId);
     
+    /**
+     * Creates a new repository with the given unique name and indexes of the given profile
+     * (see RepositoryProfile). A repository created with BULK_LOAD profile has only primary
+     * index and it is in bulk mode until finishBulkLoad is called.
+     * @param repositoryId String
+     * @param profile RepositoryProfile
+     * @return true if the creation succeeds or false otherwise
+     */
+    public boolean createRepository(String repositoryId, RepositoryProfile profile);
+    
     /**
      * Erases the given repository.
      * All subgraphs created in the repository are erased too.
@@ -83,6 +93,61 @@ public interface GateNosqlRemote {
      */
     public boolean dropIndexes(String repositoryId, ArrayList<String> indexes);
     
+    /**
+     * Finishes bulk loading of the given repository. Bulk mode is turned off and default indexes
+     * for subgraph hierarchy are built from the loaded data.
+     * @param repositoryId String
+     * @return true if the indexes are built or false otherwise
+     */
+    public boolean finishBulkLoad(String repositoryId);
+    
+    /**
+     * Finishes bulk loading of the given repository. Bulk mode is turned off and indexes
+     * of the given profile are built from the loaded data. Bulk mode is a feature of AllegroGraph,
+     * the method fails if another backend is configured (see backend in configuration/database.properties).
+     * @param repositoryId String
+     * @param profile RepositoryProfile of the loaded repository, BULK_LOAD is not allowed
+     * @return true if the indexes are built or false otherwise
+     */
+    public boolean finishBulkLoad(String repositoryId, RepositoryProfile profile);
+    
+    /**
+     * Optimises indexes of the given repository and waits until the optimisation is finished.
+     * Repositories written by loadOntologyFromFile, loadOntologyFromWeb and deleteSubgraph are optimised
+     * automatically in the off-peak window (see index_optimization_hour in configuration/database.properties).
+     * @param repositoryId String
+     * @param level int level of the optimisation of AllegroGraph, higher levels merge indexes more thoroughly
+     * @return report of the optimisation or null if the optimisation fails
+     */
+    public IndexOptimization optimizeIndexes(String repositoryId, int level);
+    
+    /**
+     * Returns reports of the last optimisations of indexes of the given repository, the oldest first.
+     * @param repositoryId String
+     * @return reports of optimisations
+     */
+    public ArrayList<IndexOptimization> getIndexOptimizations(String repositoryId);
+    
+    /**
+     * Returns index advice for the given repository. The advice is based on shapes of triple
+     * patterns (bound and unbound subject, predicate, object and subgraph) of queries evaluated
+     * in the repository since it was created or the bean started. It recommends the minimal
+     * set of indexes covering all the shapes.
+     * @param repositoryId String
+     * @return index advice or null if the current indexes can not be read
+     */
+    public IndexAdvice adviseIndexes(String repositoryId);
+    
+    /**
+     * Returns index advice for the given repository, see adviseIndexes(String).
+     * If apply is true, recommended indexes are added and the other indexes are dropped
+     * (by addIndexes and dropIndexes).
+     * @param repositoryId String
+     * @param apply boolean
+     * @return index advice or null if the advice can not be made or applied
+     */
+    public IndexAdvice adviseIndexes(String repositoryId, boolean apply);
+    
     /**
      * Returns all existing subgraphs in the given repository.
      * @param repositoryId
@@ -127,6 +192,25 @@ public interface GateNosqlRemote {
      */
     public boolean deleteSubgraph(String repositoryId, String subgraphId);
     
+    /**
+     * Moves the given subgraph of the repository to the given shard of the sharded backend
+     * (backend = sharded in configuration/database.properties). Loads and deletions of the subgraph
+     * wait until the move is finished, queries read the subgraph from its previous shard meanwhile.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param shard int index of the target shard (shard.0, shard.1, ...)
+     * @return true if the subgraph is moved or false otherwise
+     */
+    public boolean moveSubgraph(String repositoryId, String subgraphId, int shard);
+    
+    /**
+     * Moves every subgraph of the repository stored outside of its home shard of the sharded
+     * backend to its home shard (see moveSubgraph), e.g. after shards or shard_placement_file changed.
+     * @param repositoryId String
+     * @return number of moved subgraphs or -1 if the rebalance fails
+     */
+    public long rebalanceShards(String repositoryId);
+    
     /**
      * Queries the given subgraph in the given repository.
      * The method returns queried OWL data as a list of strings.
@@ -134,8 +218,22 @@ public interface GateNosqlRemote {
      * @param subgraphId String
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<String> querySubgraph(String repositoryId, String subgraphId, String query);
+    public ArrayList<String> querySubgraph(String repositoryId, String subgraphId, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraph in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> querySubgraph(String repositoryId, String subgraphId, String query, QueryOptions options) throws ResultTooLargeException;
     
     /**
      * Queries the given subgraph with reasoning in the given repository.
@@ -144,8 +242,35 @@ public interface GateNosqlRemote {
      * @param subgraphId String
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryInferencedSubgraph(String repositoryId, String subgraphId, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraph with reasoning of the given profile in the given repository.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<String> queryInferencedSubgraph(String repositoryId, String subgraphId, String query);
+    public ArrayList<String> queryInferencedSubgraph(String repositoryId, String subgraphId, String query, ReasoningProfile profile) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraph with reasoning of the given profile in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryInferencedSubgraph(String repositoryId, String subgraphId, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
     
     /**
      * Queries the given subgraphs in the given repository.
@@ -154,8 +279,22 @@ public interface GateNosqlRemote {
      * @param subgraphIds ArrayList<String>
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<String> querySubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query);
+    public ArrayList<String> querySubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> querySubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, QueryOptions options) throws ResultTooLargeException;
     
     /**
      * Queries the given subgraphs with reasoning in the given repository.
@@ -164,8 +303,147 @@ public interface GateNosqlRemote {
      * @param subgraphIds ArrayList<String>
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs with reasoning of the given profile in the given repository.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs with reasoning of the given profile in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs with reasoning of the given profile (NONE for no reasoning)
+     * in the given repository. The method returns queried OWL data in the compact form,
+     * EncodedResult.getResults returns the same rows as queryInferencedSubgraphs.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @param compressed boolean true if the result is compressed for transfer
+     * @return all queried OWL data or null if the query fails
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public EncodedResult querySubgraphsEncoded(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options, boolean compressed) throws ResultTooLargeException;
+    
+    /**
+     * Evaluates the ASK query on the given subgraphs with reasoning of the given profile
+     * (NONE for no reasoning) in the given repository.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String ASK query
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return answer of the query or null if the query fails
+     */
+    public Boolean askSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options);
+    
+    /**
+     * Counts results of the SELECT query on the given subgraphs with reasoning of the given profile
+     * (NONE for no reasoning) in the given repository. The results are counted by the server,
+     * limit, offset and maxRows of the options are not applied.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String SELECT query
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return number of results or -1 if the query fails
+     */
+    public long countSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options);
+    
+    /**
+     * Evaluates the CONSTRUCT query on the given subgraphs with reasoning of the given profile
+     * (NONE for no reasoning) in the given repository.
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String CONSTRUCT query
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return constructed triples in N-Triples or null if the query fails
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public String constructSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Evaluates all queries of the batch in the given repository over one connection.
+     * The queries are evaluated one after another, subgraphs of all queries are locked for the whole batch.
+     * @param repositoryId String
+     * @param specs ArrayList<QuerySpec>
+     * @return results of the queries in the order of specs (null for a failed query) or null if the batch fails
+     */
+    public ArrayList<ArrayList<String>> queryBatch(String repositoryId, ArrayList<QuerySpec> specs);
+    
+    /**
+     * Evaluates all queries of the batch in the given repository. Subgraphs of all queries are locked
+     * for the whole batch. A parallel batch is split among at most batch_parallelism workers,
+     * every worker has its own connection.
+     * @param repositoryId String
+     * @param specs ArrayList<QuerySpec>
+     * @param parallel boolean true if the queries are evaluated in parallel (see batch_parallelism
+     * in configuration/database.properties)
+     * @return results of the queries in the order of specs (null for a failed query) or null if the batch fails
+     */
+    public ArrayList<ArrayList<String>> queryBatch(String repositoryId, ArrayList<QuerySpec> specs, boolean parallel);
+    
+    /**
+     * Queries the given subgraphs in the given repository, reasoning of the given profile is
+     * used just for inferencedSubgraphIds while rawSubgraphIds are queried without reasoning.
+     * The query is evaluated once over both groups, so its patterns can be matched across them.
+     * If both groups are given, the raw subgraphs and the entailments of the inferenced subgraphs
+     * are copied into memory of the server and the query is evaluated there; at most maxRows
+     * triples (query_max_rows by default) are copied.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param inferencedSubgraphIds ArrayList<String>
+     * @param rawSubgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> subgraphIds, String query);
+    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs in the given repository, reasoning of the given profile is
+     * used just for inferencedSubgraphIds while rawSubgraphIds are queried without reasoning.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The query is evaluated once over both groups, so its patterns can be matched across them.
+     * If both groups are given, the raw subgraphs and the entailments of the inferenced subgraphs
+     * are copied into memory of the server and the query is evaluated there; at most maxRows
+     * triples (query_max_rows by default) are copied.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param inferencedSubgraphIds ArrayList<String>
+     * @param rawSubgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryInferencedSubgraphs(String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
     
     /**
      * Queries all subgraphs in the given repository.
@@ -173,8 +451,21 @@ public interface GateNosqlRemote {
      * @param repositoryId String
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<String> queryAllSubgraphs(String repositoryId, String query);
+    public ArrayList<String> queryAllSubgraphs(String repositoryId, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries all subgraphs in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryAllSubgraphs(String repositoryId, String query, QueryOptions options) throws ResultTooLargeException;
     
     /**
      * Queries all subgraphs with reasoning in the given repository.
@@ -182,8 +473,33 @@ public interface GateNosqlRemote {
      * @param repositoryId String
      * @param query String
      * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryAllInferencedSubgraphs(String repositoryId, String query) throws ResultTooLargeException;
+    
+    /**
+     * Queries all subgraphs with reasoning of the given profile in the given repository.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
      */
-    public ArrayList<String> queryAllInferencedSubgraphs(String repositoryId, String query);
+    public ArrayList<String> queryAllInferencedSubgraphs(String repositoryId, String query, ReasoningProfile profile) throws ResultTooLargeException;
+    
+    /**
+     * Queries all subgraphs with reasoning of the given profile in the given repository.
+     * The query is limited by the timeout of the options and it can be cancelled by its queryId.
+     * The method returns queried OWL data as a list of strings.
+     * @param repositoryId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryAllInferencedSubgraphs(String repositoryId, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
     
     /**
      * Returns ontology that is stored in the given subgraph in the given repository as a string.
@@ -207,4 +523,389 @@ public interface GateNosqlRemote {
      * @return ontologies
      */
     public String exportAllSubgraphs(String repositoryId);
+    
+    /**
+     * Cancels the running query with the given queryId (see QueryOptions).
+     * The connection of the query is closed, so the server stops its evaluation.
+     * @param queryId String
+     * @return true if the query was running or false otherwise
+     */
+    public boolean cancelQuery(String queryId);
+    
+    /**
+     * Pins the given subgraph to the near-cache of the bean (see subgraph_cache_memory
+     * in configuration/database.properties). Queries of querySubgraph and querySubgraphL
+     * on a cached subgraph are evaluated inside the bean without AllegroGraph.
+     * The cached copy is dropped whenever the subgraph is written and it is loaded again
+     * by the next query. A pinned subgraph is never evicted.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return true if the subgraph is cached or false if the cache is disabled, the subgraph
+     * does not exist or it does not fit into the memory of the cache
+     */
+    public boolean pinSubgraph(String repositoryId, String subgraphId);
+    
+    /**
+     * Unpins the given subgraph, its cached copy may be evicted from now on.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return true if the subgraph was pinned or false otherwise
+     */
+    public boolean unpinSubgraph(String repositoryId, String subgraphId);
+    
+    /**
+     * Returns all (transitive) superclasses of the given class in the given subgraph.
+     * The rdfs:subClassOf and owl:equivalentClass closure of the subgraph is loaded once
+     * and then kept in memory until the subgraph is written.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param classUri String
+     * @return superclasses or null if the hierarchy can not be loaded
+     */
+    public ArrayList<String> getSuperClasses(String repositoryId, String subgraphId, String classUri);
+    
+    /**
+     * Returns all (transitive) subclasses of the given class in the given subgraph.
+     * The hierarchy is answered from memory, see getSuperClasses.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param classUri String
+     * @return subclasses or null if the hierarchy can not be loaded
+     */
+    public ArrayList<String> getSubClasses(String repositoryId, String subgraphId, String classUri);
+    
+    /**
+     * Tests if one class is a (transitive) subclass of another class in the given subgraph.
+     * Every class is a subclass of itself. The hierarchy is answered from memory, see getSuperClasses.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param subClassUri String
+     * @param superClassUri String
+     * @return true if subClassUri is a subclass of superClassUri or false otherwise
+     */
+    public boolean isSubClassOf(String repositoryId, String subgraphId, String subClassUri, String superClassUri);
+    
+    /**
+     * Returns all (transitive) superproperties of the given property in the given subgraph.
+     * The rdfs:subPropertyOf and owl:equivalentProperty closure is answered from memory.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param propertyUri String
+     * @return superproperties or null if the hierarchy can not be loaded
+     */
+    public ArrayList<String> getSuperProperties(String repositoryId, String subgraphId, String propertyUri);
+    
+    /**
+     * Returns all (transitive) subproperties of the given property in the given subgraph.
+     * The hierarchy is answered from memory, see getSuperProperties.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param propertyUri String
+     * @return subproperties or null if the hierarchy can not be loaded
+     */
+    public ArrayList<String> getSubProperties(String repositoryId, String subgraphId, String propertyUri);
+    
+    /**
+     * Returns all already created repositories in the given catalog.
+     * Methods taking catalogId work with the given catalog instead of catalog_id
+     * (see configuration/database.properties). Catalogs and repositories are opened
+     * once and shared by all instances of the bean (see CatalogRegistry).
+     * @param catalogId String
+     * @return all repositories
+     */
+    public ArrayList<String> getAllRepositories(String catalogId);
+    
+    /**
+     * Creates a new repository with the given unique name in the given catalog, see createRepository(String).
+     * @param catalogId String
+     * @param repositoryId String
+     * @return true if the creation succeeds or false otherwise
+     */
+    public boolean createRepository(String catalogId, String repositoryId);
+    
+    /**
+     * Creates a new repository with the given unique name and indexes of the given profile
+     * in the given catalog, see createRepository(String, RepositoryProfile).
+     * @param catalogId String
+     * @param repositoryId String
+     * @param profile RepositoryProfile
+     * @return true if the creation succeeds or false otherwise
+     */
+    public boolean createRepository(String catalogId, String repositoryId, RepositoryProfile profile);
+    
+    /**
+     * Finishes bulk loading of the given repository in the given catalog, see finishBulkLoad(String, RepositoryProfile).
+     * @param catalogId String
+     * @param repositoryId String
+     * @param profile RepositoryProfile of the loaded repository, BULK_LOAD is not allowed
+     * @return true if the indexes are built or false otherwise
+     */
+    public boolean finishBulkLoad(String catalogId, String repositoryId, RepositoryProfile profile);
+    
+    /**
+     * Erases the given repository in the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @return true if the erasure succeeds or false otherwise
+     */
+    public boolean deleteRepository(String catalogId, String repositoryId);
+    
+    /**
+     * Returns the list of current indexes of the given repository of the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @return list of indexes
+     */
+    public ArrayList<String> getCurrentIndexes(String catalogId, String repositoryId);
+    
+    /**
+     * Adds indexes to the given repository of the given catalog, see addIndexes(String, ArrayList).
+     * @param catalogId String
+     * @param repositoryId String
+     * @param indexes ArrayList<String>
+     * @return true if the addition succeeds or false otherwise
+     */
+    public boolean addIndexes(String catalogId, String repositoryId, ArrayList<String> indexes);
+    
+    /**
+     * Drops indexes of the given repository of the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param indexes ArrayList<String>
+     * @return true if the erasure succeeds or false otherwise
+     */
+    public boolean dropIndexes(String catalogId, String repositoryId, ArrayList<String> indexes);
+    
+    /**
+     * Returns all existing subgraphs in the given repository of the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @return all subgraphs
+     */
+    public ArrayList<String> getAllSubgraphs(String catalogId, String repositoryId);
+    
+    /**
+     * Loads ontology from the given file to the given subgraph in the given repository
+     * of the given catalog, see loadOntologyFromFile(String, String, String, String).
+     * Index maintenance is scheduled for repositories of catalog_id only.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param baseUri String
+     * @param filePath String
+     * @return true if the loading succeeds or false otherwise
+     */
+    public boolean loadOntologyFromFile(String catalogId, String repositoryId, String subgraphId, String baseUri, String filePath);
+    
+    /**
+     * Loads ontology from the given URL to the given subgraph in the given repository
+     * of the given catalog, see loadOntologyFromWeb(String, String, String, String).
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param baseUri String
+     * @param url String
+     * @return true if the loading succeeds or false otherwise
+     */
+    public boolean loadOntologyFromWeb(String catalogId, String repositoryId, String subgraphId, String baseUri, String url);
+    
+    /**
+     * Erases the given subgraph in the repository of the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return true if the erasure succeeds or false otherwise
+     */
+    public boolean deleteSubgraph(String catalogId, String repositoryId, String subgraphId);
+    
+    /**
+     * Queries the given subgraph in the given repository of the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> querySubgraph(String catalogId, String repositoryId, String subgraphId, String query, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraph with reasoning of the given profile in the given repository
+     * of the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryInferencedSubgraph(String catalogId, String repositoryId, String subgraphId, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs in the given repository of the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> querySubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs with reasoning of the given profile in the given repository
+     * of the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryInferencedSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries the given subgraphs in the given repository of the given catalog, reasoning of the given
+     * profile is used just for inferencedSubgraphIds while rawSubgraphIds are queried without reasoning.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param inferencedSubgraphIds ArrayList<String>
+     * @param rawSubgraphIds ArrayList<String>
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     *         or the copied subgraphs have more triples than the maximum
+     */
+    public ArrayList<String> queryInferencedSubgraphs(String catalogId, String repositoryId, ArrayList<String> inferencedSubgraphIds, ArrayList<String> rawSubgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries all subgraphs in the given repository of the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param query String
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryAllSubgraphs(String catalogId, String repositoryId, String query, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Queries all subgraphs with reasoning of the given profile in the given repository
+     * of the given catalog.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param query String
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return all queried OWL data
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public ArrayList<String> queryAllInferencedSubgraphs(String catalogId, String repositoryId, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Evaluates all queries of the batch in the given repository of the given catalog,
+     * see queryBatch(String, ArrayList, boolean).
+     * @param catalogId String
+     * @param repositoryId String
+     * @param specs ArrayList<QuerySpec>
+     * @param parallel boolean true if the queries are evaluated in parallel
+     * @return results of the queries in the order of specs (null for a failed query) or null if the batch fails
+     */
+    public ArrayList<ArrayList<String>> queryBatch(String catalogId, String repositoryId, ArrayList<QuerySpec> specs, boolean parallel);
+    
+    /**
+     * Evaluates the ASK query on the given subgraphs with reasoning of the given profile
+     * in the given repository of the given catalog, see askSubgraphs.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String ASK query
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return answer of the query or null if the query fails
+     */
+    public Boolean askSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options);
+    
+    /**
+     * Counts results of the SELECT query on the given subgraphs with reasoning of the given profile
+     * in the given repository of the given catalog, see countSubgraphs.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String SELECT query
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return number of results or -1 if the query fails
+     */
+    public long countSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options);
+    
+    /**
+     * Evaluates the CONSTRUCT query on the given subgraphs with reasoning of the given profile
+     * in the given repository of the given catalog, see constructSubgraphs.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @param query String CONSTRUCT query
+     * @param profile ReasoningProfile
+     * @param options QueryOptions
+     * @return constructed triples in N-Triples or null if the query fails
+     * @throws ResultTooLargeException if the query returns more rows than its maximum
+     */
+    public String constructSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds, String query, ReasoningProfile profile, QueryOptions options) throws ResultTooLargeException;
+    
+    /**
+     * Returns ontology that is stored in the given subgraph in the given repository
+     * of the given catalog as a string.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return ontology
+     */
+    public String exportSubgraph(String catalogId, String repositoryId, String subgraphId);
+    
+    /**
+     * Returns ontologies stored in the given subgraphs in the given repository
+     * of the given catalog as a string.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphIds ArrayList<String>
+     * @return ontologies
+     */
+    public String exportSubgraphs(String catalogId, String repositoryId, ArrayList<String> subgraphIds);
+    
+    /**
+     * Returns ontologies stored in all subgraphs in the given repository of the given catalog as a string.
+     * @param catalogId String
+     * @param repositoryId String
+     * @return ontologies
+     */
+    public String exportAllSubgraphs(String catalogId, String repositoryId);
+    
+    /**
+     * Pins the given subgraph of the given repository of the given catalog to the near-cache
+     * of the bean, see pinSubgraph(String, String). The subgraph is copied under its shared lock.
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return true if the subgraph is cached or false if the cache is disabled, the subgraph
+     * does not exist, it is being written or it does not fit into the memory of the cache
+     */
+    public boolean pinSubgraph(String catalogId, String repositoryId, String subgraphId);
+    
+    /**
+     * Unpins the given subgraph of the given repository of the given catalog, see unpinSubgraph(String, String).
+     * @param catalogId String
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return true if the subgraph was pinned or false otherwise
+     */
+    public boolean unpinSubgraph(String catalogId, String repositoryId, String subgraphId);
 }
@@ -0,0 +1,136 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      HierarchyCache.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+
+
+
+/**
+ * Class HierarchyCache keeps class and property hierarchies of subgraphs in memory.
+ * It is shared by all GateNosqlBean instances. An entry is dropped whenever its subgraph
+ * (or the whole repository) is written, so the next hierarchy question loads it again.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class HierarchyCache {
+
+
+    /**
+     * ConcurrentMap<String, Hierarchies> entries maps repository and subgraph to its hierarchies
+     */
+    private final ConcurrentMap<String, Hierarchies> entries = new ConcurrentHashMap<>();
+
+    /**
+     * AtomicLong version is increased on every invalidation. A hierarchy loaded while
+     * the version changed might be stale and is not cached.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+
+
+    /**
+     * Returns cached hierarchies of the given subgraph.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return hierarchies or null if they are not cached
+     */
+    public Hierarchies get(String repositoryId, String subgraphId) {
+        return entries.get(key(repositoryId, subgraphId));
+    }
+
+    /**
+     * Returns current version, which has to be read before loading hierarchies.
+     * @return current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Caches hierarchies of the given subgraph unless any invalidation happened since
+     * the given version was read.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param hierarchies Hierarchies
+     * @param loadedVersion long
+     */
+    public void put(String repositoryId, String subgraphId, Hierarchies hierarchies, long loadedVersion) {
+        String key = key(repositoryId, subgraphId);
+        entries.put(key, hierarchies);
+        if (version.get() != loadedVersion) {
+            entries.remove(key, hierarchies);
+        }
+    }
+
+    /**
+     * Drops hierarchies of the given subgraph.
+     * @param repositoryId String
+     * @param subgraphId String
+     */
+    public void invalidate(String repositoryId, String subgraphId) {
+        version.incrementAndGet();
+        entries.remove(key(repositoryId, subgraphId));
+    }
+
+    /**
+     * Drops hierarchies of all subgraphs in the given repository.
+     * @param repositoryId String
+     */
+    public void invalidateRepository(String repositoryId) {
+        version.incrementAndGet();
+        String prefix = key(repositoryId, "");
+        for (Iterator<String> it = entries.keySet().iterator(); it.hasNext();) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+
+
+    private static String key(String repositoryId, String subgraphId) {
+        return repositoryId + '\n' + subgraphId;
+    }
+
+
+
+    /**
+     * Class Hierarchies holds class and property hierarchy of one subgraph.
+     */
+    public static final class Hierarchies {
+
+        private final HierarchyIndex classes;
+
+        private final HierarchyIndex properties;
+
+        Hierarchies(HierarchyIndex classes, HierarchyIndex properties) {
+            this.classes = classes;
+            this.properties = properties;
+        }
+
+        HierarchyIndex getClasses() {
+            return classes;
+        }
+
+        HierarchyIndex getProperties() {
+            return properties;
+        }
+    }
+}
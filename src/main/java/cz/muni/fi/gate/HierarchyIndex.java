@@ -0,0 +1,259 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      HierarchyIndex.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+
+/**
+ * Class HierarchyIndex holds the transitive closure of one hierarchy (classes
+ * or properties) of a subgraph. Every URI is encoded to an int and both directions
+ * of the closure are stored as compressed adjacency arrays (offsets and sorted targets),
+ * so lookups do not allocate any objects apart from the returned list.
+ * Instances are immutable and are created by HierarchyIndex.Builder.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+final class HierarchyIndex {
+
+
+    /**
+     * String[] terms maps an int identifier back to its URI
+     */
+    private final String[] terms;
+
+    /**
+     * Map<String, Integer> ids maps an URI to its int identifier
+     */
+    private final Map<String, Integer> ids;
+
+    /**
+     * int[] superOffsets and int[] superTargets store all (transitive) ancestors of each term
+     */
+    private final int[] superOffsets;
+    private final int[] superTargets;
+
+    /**
+     * int[] subOffsets and int[] subTargets store all (transitive) descendants of each term
+     */
+    private final int[] subOffsets;
+    private final int[] subTargets;
+
+
+
+    private HierarchyIndex(String[] terms, Map<String, Integer> ids, int[] superOffsets, int[] superTargets,
+                           int[] subOffsets, int[] subTargets) {
+        this.terms = terms;
+        this.ids = ids;
+        this.superOffsets = superOffsets;
+        this.superTargets = superTargets;
+        this.subOffsets = subOffsets;
+        this.subTargets = subTargets;
+    }
+
+    /**
+     * Returns all ancestors of the given term. The term itself is not included.
+     * @param term String
+     * @return ancestors, empty if the term is unknown
+     */
+    public ArrayList<String> getSuperTerms(String term) {
+        return collect(term, superOffsets, superTargets);
+    }
+
+    /**
+     * Returns all descendants of the given term. The term itself is not included.
+     * @param term String
+     * @return descendants, empty if the term is unknown
+     */
+    public ArrayList<String> getSubTerms(String term) {
+        return collect(term, subOffsets, subTargets);
+    }
+
+    /**
+     * Tests if subTerm is (transitively) subsumed by superTerm.
+     * Every term is subsumed by itself.
+     * @param subTerm String
+     * @param superTerm String
+     * @return true if subTerm is subsumed by superTerm
+     */
+    public boolean isSubTermOf(String subTerm, String superTerm) {
+        if (subTerm.equals(superTerm)) {
+            return true;
+        }
+        Integer sub = ids.get(subTerm);
+        Integer sup = ids.get(superTerm);
+        if (sub == null || sup == null) {
+            return false;
+        }
+        return Arrays.binarySearch(superTargets, superOffsets[sub], superOffsets[sub + 1], sup) >= 0;
+    }
+
+    /**
+     * Returns number of distinct terms in the hierarchy.
+     * @return number of terms
+     */
+    public int size() {
+        return terms.length;
+    }
+
+
+
+    private ArrayList<String> collect(String term, int[] offsets, int[] targets) {
+        Integer id = ids.get(term);
+        if (id == null) {
+            return new ArrayList<>();
+        }
+        ArrayList<String> result = new ArrayList<>(offsets[id + 1] - offsets[id]);
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+            result.add(terms[targets[i]]);
+        }
+        return result;
+    }
+
+
+
+    /**
+     * Class Builder collects direct subsumption edges and computes the closure.
+     */
+    static final class Builder {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        private final ArrayList<String> terms = new ArrayList<>();
+
+        private int[] edgeSubs = new int[64];
+
+        private int[] edgeSupers = new int[64];
+
+        private int edges = 0;
+
+
+
+        /**
+         * Adds direct edge "subTerm is subsumed by superTerm".
+         * @param subTerm String
+         * @param superTerm String
+         * @return this builder
+         */
+        Builder addSubsumption(String subTerm, String superTerm) {
+            int sub = encode(subTerm);
+            int sup = encode(superTerm);
+            if (sub != sup) {
+                if (edges == edgeSubs.length) {
+                    edgeSubs = Arrays.copyOf(edgeSubs, edges * 2);
+                    edgeSupers = Arrays.copyOf(edgeSupers, edges * 2);
+                }
+                edgeSubs[edges] = sub;
+                edgeSupers[edges] = sup;
+                edges++;
+            }
+            return this;
+        }
+
+        /**
+         * Adds equivalence of both terms, i.e. subsumption in both directions.
+         * @param term String
+         * @param equivalentTerm String
+         * @return this builder
+         */
+        Builder addEquivalence(String term, String equivalentTerm) {
+            addSubsumption(term, equivalentTerm);
+            return addSubsumption(equivalentTerm, term);
+        }
+
+        HierarchyIndex build() {
+            int n = terms.size();
+            int[] directOffsets = new int[n + 1];
+            int[] directTargets = toAdjacency(edgeSubs, edgeSupers, edges, n, directOffsets);
+
+            // Transitive closure by breadth-first search from every term
+            int[] superOffsets = new int[n + 1];
+            int[] superTargets = new int[Math.max(edges, 16)];
+            int[] queue = new int[n];
+            int[] visitedBy = new int[n];
+            Arrays.fill(visitedBy, -1);
+            int total = 0;
+            for (int start = 0; start < n; start++) {
+                superOffsets[start] = total;
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = start;
+                visitedBy[start] = start;
+                while (head < tail) {
+                    int current = queue[head++];
+                    for (int i = directOffsets[current]; i < directOffsets[current + 1]; i++) {
+                        int next = directTargets[i];
+                        if (visitedBy[next] != start) {
+                            visitedBy[next] = start;
+                            queue[tail++] = next;
+                        }
+                    }
+                }
+                if (total + tail - 1 > superTargets.length) {
+                    superTargets = Arrays.copyOf(superTargets, Math.max(superTargets.length * 2, total + tail));
+                }
+                System.arraycopy(queue, 1, superTargets, total, tail - 1);
+                Arrays.sort(superTargets, total, total + tail - 1);
+                total += tail - 1;
+            }
+            superOffsets[n] = total;
+            superTargets = Arrays.copyOf(superTargets, total);
+
+            // Descendants are the inverted closure
+            int[] closureSubs = new int[total];
+            for (int id = 0; id < n; id++) {
+                Arrays.fill(closureSubs, superOffsets[id], superOffsets[id + 1], id);
+            }
+            int[] subOffsets = new int[n + 1];
+            int[] subTargets = toAdjacency(superTargets, closureSubs, total, n, subOffsets);
+
+            return new HierarchyIndex(terms.toArray(new String[n]), ids, superOffsets, superTargets,
+                                      subOffsets, subTargets);
+        }
+
+
+
+        private int encode(String term) {
+            Integer id = ids.get(term);
+            if (id == null) {
+                id = terms.size();
+                ids.put(term, id);
+                terms.add(term);
+            }
+            return id;
+        }
+
+        /**
+         * Groups edges (from[i], to[i]) by their source into offsets and returns sorted targets.
+         */
+        private static int[] toAdjacency(int[] from, int[] to, int count, int n, int[] offsets) {
+            for (int i = 0; i < count; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int id = 0; id < n; id++) {
+                offsets[id + 1] += offsets[id];
+            }
+            int[] fill = Arrays.copyOf(offsets, n);
+            int[] targets = new int[count];
+            for (int i = 0; i < count; i++) {
+                targets[fill[from[i]]++] = to[i];
+            }
+            for (int id = 0; id < n; id++) {
+                Arrays.sort(targets, offsets[id], offsets[id + 1]);
+            }
+            return targets;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      IndexAdvice.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+
+
+/**
+ * Class IndexAdvice is a report of IndexAdvisor for one repository.
+ * Patterns are written as four characters in order s, p, o, g where a bound position
+ * is its letter and an unbound position is '?' (e.g. "?p?g" means a pattern with bound
+ * predicate in a known subgraph).
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class IndexAdvice implements Serializable {
+
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * String repositoryId of the advised repository
+     */
+    private final String repositoryId;
+
+    /**
+     * LinkedHashMap<String, Long> patternCounts maps observed patterns to number of their occurrences
+     */
+    private final LinkedHashMap<String, Long> patternCounts;
+
+    /**
+     * ArrayList<String> recommendedIndexes is the minimal set of indexes covering all observed patterns
+     */
+    private final ArrayList<String> recommendedIndexes;
+
+    /**
+     * ArrayList<String> currentIndexes are indexes of the repository when the advice was made
+     */
+    private final ArrayList<String> currentIndexes;
+
+    private final ArrayList<String> indexesToAdd;
+
+    private final ArrayList<String> indexesToDrop;
+
+
+
+    public IndexAdvice(String repositoryId, LinkedHashMap<String, Long> patternCounts, ArrayList<String> recommendedIndexes,
+                       ArrayList<String> currentIndexes) {
+        this.repositoryId = repositoryId;
+        this.patternCounts = patternCounts;
+        this.recommendedIndexes = recommendedIndexes;
+        this.currentIndexes = currentIndexes;
+        this.indexesToAdd = new ArrayList<>(recommendedIndexes);
+        this.indexesToAdd.removeAll(currentIndexes);
+        this.indexesToDrop = new ArrayList<>(currentIndexes);
+        this.indexesToDrop.removeAll(recommendedIndexes);
+    }
+
+    public String getRepositoryId() {
+        return repositoryId;
+    }
+
+    public LinkedHashMap<String, Long> getPatternCounts() {
+        return patternCounts;
+    }
+
+    public ArrayList<String> getRecommendedIndexes() {
+        return recommendedIndexes;
+    }
+
+    public ArrayList<String> getCurrentIndexes() {
+        return currentIndexes;
+    }
+
+    public ArrayList<String> getIndexesToAdd() {
+        return indexesToAdd;
+    }
+
+    public ArrayList<String> getIndexesToDrop() {
+        return indexesToDrop;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexAdvice{repositoryId=" + repositoryId + ", patternCounts=" + patternCounts
+                + ", recommendedIndexes=" + recommendedIndexes + ", indexesToAdd=" + indexesToAdd
+                + ", indexesToDrop=" + indexesToDrop + "}";
+    }
+}
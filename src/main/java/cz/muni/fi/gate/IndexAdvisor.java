@@ -0,0 +1,318 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      IndexAdvisor.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryException;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.Syntax;
+import com.hp.hpl.jena.sparql.core.TriplePath;
+import com.hp.hpl.jena.sparql.syntax.ElementPathBlock;
+import com.hp.hpl.jena.sparql.syntax.ElementVisitorBase;
+import com.hp.hpl.jena.sparql.syntax.ElementWalker;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+
+
+
+/**
+ * Class IndexAdvisor records shapes of triple patterns (which of subject, predicate, object
+ * and graph are bound) of queries evaluated in each repository and recommends the minimal
+ * set of AllegroGraph indexes covering them.
+ * An index serves a pattern if the bound positions form a prefix of the index, so all prefixes
+ * of one index form a chain of nested sets. The minimal covering set of indexes is therefore
+ * the minimal chain cover of the observed shapes, which is computed by bipartite matching.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class IndexAdvisor {
+
+
+    static final int SUBJECT = 1;
+
+    static final int PREDICATE = 2;
+
+    static final int OBJECT = 4;
+
+    static final int GRAPH = 8;
+
+    /**
+     * int SHAPES is a number of distinct shapes
+     */
+    static final int SHAPES = 16;
+
+    /**
+     * int SHAPE_CACHE_SIZE is a maximal number of queries with remembered shapes
+     */
+    private static final int SHAPE_CACHE_SIZE = 1024;
+
+    /**
+     * ConcurrentMap<String, AtomicLongArray> counts maps repository to counts of each shape
+     */
+    private final ConcurrentMap<String, AtomicLongArray> counts = new ConcurrentHashMap<>();
+
+    /**
+     * ConcurrentMap<String, int[]> shapes remembers shapes of recently seen queries, so the
+     * query is not parsed again
+     */
+    private final ConcurrentMap<String, int[]> shapes = new ConcurrentHashMap<>();
+
+
+
+    /**
+     * Records shapes of triple patterns of the query evaluated in the given repository.
+     * Every query is evaluated on explicit subgraphs, so the graph is always bound.
+     * @param repositoryId String
+     * @param query String
+     */
+    public void record(String repositoryId, String query) {
+        int[] queryShapes = shapes.get(query);
+        if (queryShapes == null) {
+            queryShapes = parseShapes(query);
+            if (shapes.size() >= SHAPE_CACHE_SIZE) {
+                shapes.clear();
+            }
+            shapes.put(query, queryShapes);
+        }
+        AtomicLongArray repositoryCounts = counts.get(repositoryId);
+        if (repositoryCounts == null) {
+            counts.putIfAbsent(repositoryId, new AtomicLongArray(SHAPES));
+            repositoryCounts = counts.get(repositoryId);
+        }
+        for (int shape : queryShapes) {
+            repositoryCounts.incrementAndGet(shape | GRAPH);
+        }
+    }
+
+    /**
+     * Returns counts of observed shapes in the given repository.
+     * @param repositoryId String
+     * @return shapes (see IndexAdvice) and their counts
+     */
+    public LinkedHashMap<String, Long> getPatternCounts(String repositoryId) {
+        LinkedHashMap<String, Long> result = new LinkedHashMap<>();
+        AtomicLongArray repositoryCounts = counts.get(repositoryId);
+        if (repositoryCounts != null) {
+            for (int shape = 0; shape < SHAPES; shape++) {
+                if (repositoryCounts.get(shape) > 0) {
+                    result.put(toPattern(shape), repositoryCounts.get(shape));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns shapes of lookups which probe indexes of the given repository like its workload does.
+     * Every observed shape gets lookups in proportion to its count, at least one. A repository
+     * without observed queries is probed by lookups of whole subgraphs (shape ???g).
+     * @param repositoryId String
+     * @param lookups int number of lookups to divide among the shapes
+     * @return shapes of the lookups, each as a combination of SUBJECT, PREDICATE, OBJECT and GRAPH
+     */
+    public int[] getProbeShapes(String repositoryId, int lookups) {
+        long[] shapeCounts = new long[SHAPES];
+        long total = 0;
+        AtomicLongArray repositoryCounts = counts.get(repositoryId);
+        if (repositoryCounts != null) {
+            for (int shape = 0; shape < SHAPES; shape++) {
+                shapeCounts[shape] = repositoryCounts.get(shape);
+                total += shapeCounts[shape];
+            }
+        }
+        List<Integer> probe = new ArrayList<>();
+        for (int shape = 0; shape < SHAPES; shape++) {
+            if (shapeCounts[shape] > 0) {
+                long shapeLookups = Math.max(1, Math.round((double) lookups * shapeCounts[shape] / total));
+                for (long i = 0; i < shapeLookups; i++) {
+                    probe.add(shape);
+                }
+            }
+        }
+        int[] result = new int[probe.isEmpty() ? lookups : probe.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = probe.isEmpty() ? GRAPH : probe.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Forgets all observed shapes of the given repository.
+     * @param repositoryId String
+     */
+    public void reset(String repositoryId) {
+        counts.remove(repositoryId);
+    }
+
+
+
+    /**
+     * Returns the minimal set of indexes whose prefixes cover all given patterns.
+     * The "i" index is always part of the result.
+     * @param patterns patterns in the format of IndexAdvice
+     * @return recommended indexes
+     */
+    static ArrayList<String> recommend(Set<String> patterns) {
+        int[] sets = new int[patterns.size()];
+        int n = 0;
+        for (String pattern : patterns) {
+            int shape = fromPattern(pattern);
+            // Fully unbound pattern is a scan which is served by any index
+            if (shape != 0) {
+                sets[n++] = shape;
+            }
+        }
+        sets = Arrays.copyOf(sets, n);
+        Arrays.sort(sets);
+
+        // Maximum matching of strict inclusions, matched pairs are consecutive members of a chain
+        int[] predecessor = new int[n];
+        int[] successor = new int[n];
+        Arrays.fill(predecessor, -1);
+        Arrays.fill(successor, -1);
+        for (int a = 0; a < n; a++) {
+            augment(a, sets, predecessor, successor, new boolean[n]);
+        }
+
+        ArrayList<String> result = new ArrayList<>();
+        for (int start = 0; start < n; start++) {
+            if (predecessor[start] != -1) {
+                continue;
+            }
+            StringBuilder index = new StringBuilder();
+            for (int member = start; member != -1; member = successor[member]) {
+                appendPositions(index, sets[member]);
+            }
+            appendPositions(index, SUBJECT | PREDICATE | OBJECT | GRAPH);
+            result.add(index.append('i').toString());
+        }
+        result.add("i");
+        return result;
+    }
+
+    static String toPattern(int shape) {
+        return new StringBuilder(4)
+                .append((shape & SUBJECT) != 0 ? 's' : '?')
+                .append((shape & PREDICATE) != 0 ? 'p' : '?')
+                .append((shape & OBJECT) != 0 ? 'o' : '?')
+                .append((shape & GRAPH) != 0 ? 'g' : '?')
+                .toString();
+    }
+
+    static int fromPattern(String pattern) {
+        int shape = 0;
+        for (char c : pattern.toCharArray()) {
+            shape |= position(c);
+        }
+        return shape;
+    }
+
+
+
+    private static boolean augment(int a, int[] sets, int[] predecessor, int[] successor, boolean[] visited) {
+        for (int b = 0; b < sets.length; b++) {
+            boolean strictSubset = (sets[a] & sets[b]) == sets[a] && sets[a] != sets[b];
+            if (strictSubset && !visited[b]) {
+                visited[b] = true;
+                if (predecessor[b] == -1 || augment(predecessor[b], sets, predecessor, successor, visited)) {
+                    predecessor[b] = a;
+                    successor[a] = b;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void appendPositions(StringBuilder index, int shape) {
+        // Graph first, the same order as default indexes of GateNosqlBean
+        for (char c : new char[]{'g', 's', 'p', 'o'}) {
+            if ((shape & position(c)) != 0 && index.indexOf(String.valueOf(c)) < 0) {
+                index.append(c);
+            }
+        }
+    }
+
+    private static int position(char c) {
+        switch (c) {
+            case 's':
+                return SUBJECT;
+            case 'p':
+                return PREDICATE;
+            case 'o':
+                return OBJECT;
+            case 'g':
+                return GRAPH;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Returns shapes of all triple patterns of the query. A variable is considered bound
+     * if it already occurred in a previous pattern of the same block, because the pattern
+     * is then evaluated as a join lookup.
+     */
+    private static int[] parseShapes(String query) {
+        final List<Integer> result = new ArrayList<>();
+        try {
+            Query parsed = QueryFactory.create(query, Syntax.syntaxSPARQL_11);
+            ElementWalker.walk(parsed.getQueryPattern(), new ElementVisitorBase() {
+                @Override
+                public void visit(ElementPathBlock block) {
+                    Set<Node> seen = new HashSet<>();
+                    for (TriplePath triple : block.getPattern()) {
+                        int shape = 0;
+                        if (isBound(triple.getSubject(), seen)) {
+                            shape |= SUBJECT;
+                        }
+                        if (triple.isTriple() && isBound(triple.getPredicate(), seen)) {
+                            shape |= PREDICATE;
+                        }
+                        if (isBound(triple.getObject(), seen)) {
+                            shape |= OBJECT;
+                        }
+                        result.add(shape);
+                        seen.add(triple.getSubject());
+                        seen.add(triple.getObject());
+                        if (triple.isTriple()) {
+                            seen.add(triple.getPredicate());
+                        }
+                    }
+                }
+            });
+        } catch (QueryException ex) {
+            // Query is not valid SPARQL, it fails during its evaluation anyway
+        }
+        int[] array = new int[result.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = result.get(i);
+        }
+        return array;
+    }
+
+    private static boolean isBound(Node node, Set<Node> seen) {
+        return node.isConcrete() || seen.contains(node);
+    }
+}
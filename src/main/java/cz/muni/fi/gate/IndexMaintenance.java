@@ -0,0 +1,179 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      IndexMaintenance.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.ScheduleExpression;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+
+
+
+/**
+ * Class IndexMaintenance optimises indexes of repositories in an off-peak window.
+ * The window starts every day at index_optimization_hour and lasts index_optimization_window
+ * minutes (see configuration/database.properties). Only repositories written since their
+ * last optimisation are optimised, one after another, until the window ends.
+ * Reports of the last optimisations are kept for each repository.
+ * Writes and reports are kept in memory only: a repository written before a restart
+ * (or redeployment) of the server is not optimised until it is written again,
+ * optimizeIndexes of GateNosqlBean optimises it at once.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class IndexMaintenance {
+
+
+    /**
+     * int DEFAULT_LEVEL is the level of optimisation if index_optimization_level is not set
+     */
+    static final int DEFAULT_LEVEL = 2;
+
+    /**
+     * long DEFAULT_WINDOW is length of the window in minutes if index_optimization_window is not set
+     */
+    private static final long DEFAULT_WINDOW = 120;
+
+    /**
+     * int HISTORY_SIZE is a number of kept reports per repository
+     */
+    private static final int HISTORY_SIZE = 16;
+
+    @Resource
+    private TimerService timerService;
+
+    /**
+     * GateNosqlLocal gateNosql performs the optimisation
+     */
+    @EJB
+    private GateNosqlLocal gateNosql;
+
+    /**
+     * ConcurrentMap<String, Long> writes maps repositories written since their last optimisation to time of the last write,
+     * it is not persisted, so writes before a restart are forgotten
+     */
+    private final ConcurrentMap<String, Long> writes = new ConcurrentHashMap<>();
+
+    /**
+     * ConcurrentMap<String, Deque<IndexOptimization>> history maps repositories to their last optimisations
+     */
+    private final ConcurrentMap<String, Deque<IndexOptimization>> history = new ConcurrentHashMap<>();
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(IndexMaintenance.class.getName());
+
+
+
+    @PostConstruct
+    void schedule() {
+        String hour = GateNosqlConfiguration.getProperty("index_optimization_hour", "");
+        if (hour.isEmpty()) {
+            LOGGER.log(Level.INFO, "Scheduled optimisation of indexes is disabled.");
+            return;
+        }
+        ScheduleExpression expression = new ScheduleExpression().hour(hour).minute(0).second(0);
+        timerService.createCalendarTimer(expression, new TimerConfig("index-optimization", false));
+    }
+
+    /**
+     * Optimises indexes of repositories written since their last optimisation.
+     * @param timer Timer
+     */
+    @Timeout
+    void optimize(Timer timer) {
+        long windowEnd = System.currentTimeMillis()
+                + GateNosqlConfiguration.getLong("index_optimization_window", DEFAULT_WINDOW) * 60000L;
+        int level = (int) GateNosqlConfiguration.getLong("index_optimization_level", DEFAULT_LEVEL);
+        for (Map.Entry<String, Long> write : new ArrayList<>(writes.entrySet())) {
+            if (System.currentTimeMillis() >= windowEnd) {
+                LOGGER.log(Level.INFO, "Optimisation window ended, " + writes.size() + " repositories postponed.");
+                return;
+            }
+            IndexOptimization optimization = gateNosql.optimizeIndexes(write.getKey(), level);
+            if (optimization != null) {
+                // Repository written during the optimisation stays scheduled
+                writes.remove(write.getKey(), write.getValue());
+            }
+        }
+    }
+
+    /**
+     * Marks the repository as written, so it is optimised in the next window.
+     * @param repositoryId String
+     */
+    public void recordWrite(String repositoryId) {
+        writes.put(repositoryId, System.currentTimeMillis());
+    }
+
+    /**
+     * Records report of a finished optimisation.
+     * @param optimization IndexOptimization
+     */
+    public void record(IndexOptimization optimization) {
+        LOGGER.log(Level.INFO, optimization.toString());
+        Deque<IndexOptimization> repositoryHistory = history.get(optimization.getRepositoryId());
+        if (repositoryHistory == null) {
+            history.putIfAbsent(optimization.getRepositoryId(), new ArrayDeque<IndexOptimization>());
+            repositoryHistory = history.get(optimization.getRepositoryId());
+        }
+        synchronized (repositoryHistory) {
+            if (repositoryHistory.size() >= HISTORY_SIZE) {
+                repositoryHistory.removeFirst();
+            }
+            repositoryHistory.addLast(optimization);
+        }
+    }
+
+    /**
+     * Returns reports of the last optimisations of the repository, the oldest first.
+     * @param repositoryId String
+     * @return reports
+     */
+    public ArrayList<IndexOptimization> getHistory(String repositoryId) {
+        Deque<IndexOptimization> repositoryHistory = history.get(repositoryId);
+        if (repositoryHistory == null) {
+            return new ArrayList<>();
+        }
+        synchronized (repositoryHistory) {
+            return new ArrayList<>(repositoryHistory);
+        }
+    }
+
+    /**
+     * Forgets writes and optimisations of the given repository.
+     * @param repositoryId String
+     */
+    public void reset(String repositoryId) {
+        writes.remove(repositoryId);
+        history.remove(repositoryId);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      IndexOptimization.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.Serializable;
+import java.util.Date;
+
+
+
+/**
+ * Class IndexOptimization is a report of one optimisation of indexes of a repository.
+ * The benefit is measured by probe lookups of sampled triples with the patterns observed
+ * by IndexAdvisor, which are evaluated just before and just after the optimisation.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class IndexOptimization implements Serializable {
+
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * String repositoryId of the optimised repository
+     */
+    private final String repositoryId;
+
+    /**
+     * int level of the optimisation
+     */
+    private final int level;
+
+    /**
+     * Date started is time when the optimisation started
+     */
+    private final Date started;
+
+    /**
+     * long duration of the optimisation in milliseconds
+     */
+    private final long duration;
+
+    /**
+     * long probeBefore is time of the probe query before the optimisation in milliseconds
+     */
+    private final long probeBefore;
+
+    /**
+     * long probeAfter is time of the probe query after the optimisation in milliseconds
+     */
+    private final long probeAfter;
+
+
+
+    public IndexOptimization(String repositoryId, int level, Date started, long duration, long probeBefore, long probeAfter) {
+        this.repositoryId = repositoryId;
+        this.level = level;
+        this.started = started;
+        this.duration = duration;
+        this.probeBefore = probeBefore;
+        this.probeAfter = probeAfter;
+    }
+
+    public String getRepositoryId() {
+        return repositoryId;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public Date getStarted() {
+        return started;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getProbeBefore() {
+        return probeBefore;
+    }
+
+    public long getProbeAfter() {
+        return probeAfter;
+    }
+
+    /**
+     * Returns time saved by the probe query in milliseconds, negative if the probe got slower.
+     * @return benefit
+     */
+    public long getBenefit() {
+        return probeBefore - probeAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexOptimization{repositoryId=" + repositoryId + ", level=" + level + ", started=" + started
+                + ", duration=" + duration + ", probeBefore=" + probeBefore + ", probeAfter=" + probeAfter + "}";
+    }
+}
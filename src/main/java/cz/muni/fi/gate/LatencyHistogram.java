@@ -0,0 +1,131 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      LatencyHistogram.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+
+/**
+ * Class LatencyHistogram counts latencies in nanoseconds in buckets of fixed relative width
+ * in the manner of HdrHistogram. Every power of two is divided into 2^SUB_BUCKET_BITS buckets,
+ * so a percentile is reported at most 1/32 above the recorded value. Latencies over
+ * 2^MAX_BITS nanoseconds (about 73 minutes) are counted in the last bucket, the maximum is exact.
+ * Recording only increments counters, it does not allocate and does not lock.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+final class LatencyHistogram {
+
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int MAX_BITS = 42;
+
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+
+    private final AtomicLong max = new AtomicLong();
+
+
+
+    /**
+     * Records the latency.
+     * @param nanos long, negative latencies are recorded as 0
+     */
+    void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(index(Math.min(value, MAX_VALUE)));
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     * @return count
+     */
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the highest recorded latency.
+     * @return latency in nanoseconds, 0 if nothing is recorded
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the latency which the given share of recorded latencies does not exceed.
+     * @param percentile double between 0 and 100
+     * @return upper bound of the bucket of the percentile in nanoseconds, at most the maximum, 0 if nothing is recorded
+     */
+    long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Argument percentile has to be between 0 and 100.");
+        }
+        long[] snapshot = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+        long seen = 0;
+        int index = 0;
+        while (index < snapshot.length - 1 && (seen += snapshot[index]) < rank) {
+            index++;
+        }
+        return Math.min(upperBound(index), max.get());
+    }
+
+    /**
+     * Forgets all recorded latencies. Latencies recorded during the reset may be kept.
+     */
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long upperBound(int index) {
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        if (shift < 0) {
+            return index;
+        }
+        return (((long) (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS + 1) << shift) - 1;
+    }
+}
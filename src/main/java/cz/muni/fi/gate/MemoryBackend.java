@@ -0,0 +1,111 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      MemoryBackend.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.sail.memory.MemoryStore;
+
+
+
+/**
+ * Class MemoryBackend keeps every repository in a Sesame MemoryStore.
+ * Repositories live as long as the backend, they are meant for tests and benchmarks
+ * which do not need AllegroGraph server.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class MemoryBackend extends SesameBackend {
+
+
+    /**
+     * ConcurrentMap<String, Repository> repositories maps ids to repositories
+     */
+    private final ConcurrentMap<String, Repository> repositories = new ConcurrentHashMap<>();
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(MemoryBackend.class.getName());
+
+
+
+    @Override
+    public ArrayList<String> getAllRepositories() {
+        return new ArrayList<>(repositories.keySet());
+    }
+
+    @Override
+    public void createRepository(String repositoryId) throws RepositoryException {
+        Repository repository = new SailRepository(new MemoryStore());
+        repository.initialize();
+        if (repositories.putIfAbsent(repositoryId, repository) != null) {
+            repository.shutDown();
+            throw new RepositoryException("Repository: "+repositoryId+" already exists.");
+        }
+    }
+
+    @Override
+    public void deleteRepository(String repositoryId) throws RepositoryException {
+        Repository repository = repositories.remove(repositoryId);
+        if (repository == null) {
+            throw new RepositoryException("Repository: "+repositoryId+" does not exist.");
+        }
+        repository.shutDown();
+    }
+
+    /**
+     * MemoryStore has no configurable indexes.
+     */
+    @Override
+    public ArrayList<String> getIndexes(String repositoryId) throws RepositoryException {
+        closeConnection(openConnection(repositoryId));
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void addIndexes(String repositoryId, List<String> indexes) throws RepositoryException {
+        throw new RepositoryException("Repository: "+repositoryId+" in memory does not support indexes.");
+    }
+
+    @Override
+    public void dropIndexes(String repositoryId, List<String> indexes) throws RepositoryException {
+        throw new RepositoryException("Repository: "+repositoryId+" in memory does not support indexes.");
+    }
+
+    @Override
+    public void shutDown() {
+        for (String repositoryId : getAllRepositories()) {
+            try {
+                deleteRepository(repositoryId);
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    @Override
+    protected RepositoryConnection getConnection(String repositoryId) throws RepositoryException {
+        Repository repository = repositories.get(repositoryId);
+        if (repository == null) {
+            throw new RepositoryException("Repository: "+repositoryId+" does not exist.");
+        }
+        return repository.getConnection();
+    }
+}
@@ -0,0 +1,327 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      NativeBackend.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.sail.nativerdf.NativeStore;
+
+
+
+/**
+ * Class NativeBackend keeps every repository in an embedded Sesame NativeStore in a subdirectory
+ * of native_data_dir (see configuration/database.properties).
+ * Indexes are given in the vocabulary of GateNosqlRemote.addIndexes and they are mapped
+ * to triple indexes of NativeStore: the subgraph (g) is the context (c) and the "i" index,
+ * which has no counterpart, is ignored. E.g. gspoi is mapped to cspo.
+ * A change of indexes reopens the store, which rebuilds its indexes.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class NativeBackend extends SesameBackend {
+
+
+    /**
+     * String TRIPLES_PROPERTIES is a file where NativeStore keeps its triple indexes
+     */
+    private static final String TRIPLES_PROPERTIES = "triples.prop";
+
+    private static final String TRIPLE_INDEXES_KEY = "triple-indexes";
+
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * File dataDir holds directories of repositories
+     */
+    private final File dataDir;
+
+    /**
+     * ArrayList<String> defaultIndexes are indexes of a new repository
+     */
+    private final ArrayList<String> defaultIndexes;
+
+    /**
+     * Map<String, SailRepository> repositories maps ids to open repositories, it is guarded by this
+     */
+    private final Map<String, SailRepository> repositories = new HashMap<>();
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(NativeBackend.class.getName());
+
+
+
+    /**
+     * Creates the backend given by native_data_dir and native_indexes properties.
+     */
+    public NativeBackend() {
+        this(new File(GateNosqlConfiguration.getProperty("native_data_dir", "data")));
+    }
+
+    /**
+     * Creates the backend in the given directory, indexes of new repositories are given by native_indexes property.
+     * @param dataDir File
+     */
+    public NativeBackend(File dataDir) {
+        this(dataDir, parseIndexes(GateNosqlConfiguration.getProperty("native_indexes", "")));
+    }
+
+    /**
+     * Creates the backend in the given directory.
+     * @param dataDir File
+     * @param defaultIndexes List<String> indexes of new repositories, empty for default indexes of subgraph hierarchy
+     */
+    public NativeBackend(File dataDir, List<String> defaultIndexes) {
+        this.dataDir = dataDir;
+        this.defaultIndexes = defaultIndexes.isEmpty() ? RepositoryProfile.DEFAULT.getIndexes() : new ArrayList<>(defaultIndexes);
+    }
+
+    @Override
+    public ArrayList<String> getAllRepositories() throws RepositoryException {
+        ArrayList<String> allRepositories = new ArrayList<>();
+        File[] directories = dataDir.listFiles();
+        if (directories != null) {
+            for (File directory : directories) {
+                if (directory.isDirectory()) {
+                    allRepositories.add(decode(directory.getName()));
+                }
+            }
+        }
+        return allRepositories;
+    }
+
+    @Override
+    public synchronized void createRepository(String repositoryId) throws RepositoryException {
+        File directory = getDirectory(repositoryId);
+        if (directory.exists()) {
+            throw new RepositoryException("Repository: "+repositoryId+" already exists.");
+        }
+        open(repositoryId, toTripleIndexes(defaultIndexes));
+    }
+
+    @Override
+    public synchronized void deleteRepository(String repositoryId) throws RepositoryException {
+        File directory = getDirectory(repositoryId);
+        if (!directory.exists()) {
+            throw new RepositoryException("Repository: "+repositoryId+" does not exist.");
+        }
+        close(repositoryId);
+        delete(directory);
+    }
+
+    @Override
+    public synchronized ArrayList<String> getIndexes(String repositoryId) throws RepositoryException {
+        getRepository(repositoryId);
+        return fromTripleIndexes(readTripleIndexes(getDirectory(repositoryId)));
+    }
+
+    @Override
+    public synchronized void addIndexes(String repositoryId, List<String> indexes) throws RepositoryException {
+        Set<String> tripleIndexes = new LinkedHashSet<>(parseTripleIndexes(getTripleIndexes(repositoryId)));
+        tripleIndexes.addAll(parseTripleIndexes(toTripleIndexes(indexes)));
+        reopen(repositoryId, join(tripleIndexes));
+    }
+
+    @Override
+    public synchronized void dropIndexes(String repositoryId, List<String> indexes) throws RepositoryException {
+        Set<String> tripleIndexes = new LinkedHashSet<>(parseTripleIndexes(getTripleIndexes(repositoryId)));
+        for (String index : parseTripleIndexes(toTripleIndexes(indexes))) {
+            if (!tripleIndexes.remove(index)) {
+                throw new RepositoryException("Index: "+index+" of repository: "+repositoryId+" does not exist.");
+            }
+        }
+        if (tripleIndexes.isEmpty()) {
+            throw new RepositoryException("Repository: "+repositoryId+" needs at least one index.");
+        }
+        reopen(repositoryId, join(tripleIndexes));
+    }
+
+    @Override
+    public synchronized void shutDown() {
+        for (String repositoryId : new ArrayList<>(repositories.keySet())) {
+            close(repositoryId);
+        }
+    }
+
+    @Override
+    protected synchronized RepositoryConnection getConnection(String repositoryId) throws RepositoryException {
+        return getRepository(repositoryId).getConnection();
+    }
+
+
+
+    /**
+     * Maps indexes in the vocabulary of GateNosqlRemote.addIndexes to triple indexes of NativeStore.
+     * @param indexes List<String>
+     * @return triple indexes separated by commas
+     * @throws RepositoryException if an index is not valid
+     */
+    static String toTripleIndexes(List<String> indexes) throws RepositoryException {
+        Set<String> tripleIndexes = new LinkedHashSet<>();
+        for (String index : indexes) {
+            if (index.equals("i")) {
+                continue;
+            }
+            String order = index.endsWith("i") ? index.substring(0, index.length() - 1) : index;
+            if (order.length() != 4 || !containsAll(order, "spog")) {
+                throw new RepositoryException("Index: "+index+" is not valid.");
+            }
+            tripleIndexes.add(order.replace('g', 'c'));
+        }
+        return join(tripleIndexes);
+    }
+
+    /**
+     * Maps triple indexes of NativeStore to the vocabulary of GateNosqlRemote.addIndexes.
+     * @param tripleIndexes String triple indexes separated by commas
+     * @return indexes
+     */
+    static ArrayList<String> fromTripleIndexes(String tripleIndexes) {
+        ArrayList<String> indexes = new ArrayList<>();
+        for (String index : parseTripleIndexes(tripleIndexes)) {
+            indexes.add(index.replace('c', 'g') + "i");
+        }
+        return indexes;
+    }
+
+
+
+    private SailRepository getRepository(String repositoryId) throws RepositoryException {
+        SailRepository repository = repositories.get(repositoryId);
+        if (repository == null) {
+            File directory = getDirectory(repositoryId);
+            if (!directory.exists()) {
+                throw new RepositoryException("Repository: "+repositoryId+" does not exist.");
+            }
+            repository = open(repositoryId, readTripleIndexes(directory));
+        }
+        return repository;
+    }
+
+    private String getTripleIndexes(String repositoryId) throws RepositoryException {
+        getRepository(repositoryId);
+        return readTripleIndexes(getDirectory(repositoryId));
+    }
+
+    private SailRepository open(String repositoryId, String tripleIndexes) throws RepositoryException {
+        SailRepository repository = new SailRepository(new NativeStore(getDirectory(repositoryId), tripleIndexes));
+        repository.initialize();
+        repositories.put(repositoryId, repository);
+        return repository;
+    }
+
+    private void reopen(String repositoryId, String tripleIndexes) throws RepositoryException {
+        close(repositoryId);
+        // NativeStore rebuilds its indexes if they differ from the stored ones
+        open(repositoryId, tripleIndexes);
+    }
+
+    private void close(String repositoryId) {
+        SailRepository repository = repositories.remove(repositoryId);
+        if (repository != null) {
+            try {
+                repository.shutDown();
+            } catch (RepositoryException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    private File getDirectory(String repositoryId) throws RepositoryException {
+        try {
+            return new File(dataDir, URLEncoder.encode(repositoryId, ENCODING));
+        } catch (UnsupportedEncodingException ex) {
+            throw new RepositoryException(ex);
+        }
+    }
+
+    private static String decode(String directoryName) throws RepositoryException {
+        try {
+            return URLDecoder.decode(directoryName, ENCODING);
+        } catch (UnsupportedEncodingException ex) {
+            throw new RepositoryException(ex);
+        }
+    }
+
+    private static String readTripleIndexes(File directory) throws RepositoryException {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(new File(directory, TRIPLES_PROPERTIES))) {
+            properties.load(input);
+        } catch (IOException ex) {
+            throw new RepositoryException(ex);
+        }
+        return properties.getProperty(TRIPLE_INDEXES_KEY);
+    }
+
+    private static void delete(File file) throws RepositoryException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete()) {
+            throw new RepositoryException("File: "+file+" can not be deleted.");
+        }
+    }
+
+    private static List<String> parseIndexes(String indexes) {
+        List<String> result = new ArrayList<>();
+        for (String index : indexes.split("[,\\s]+")) {
+            if (!index.isEmpty()) {
+                result.add(index);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> parseTripleIndexes(String tripleIndexes) {
+        return parseIndexes(tripleIndexes == null ? "" : tripleIndexes);
+    }
+
+    private static boolean containsAll(String order, String positions) {
+        for (char position : positions.toCharArray()) {
+            if (order.indexOf(position) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String join(Iterable<String> tripleIndexes) {
+        StringBuilder result = new StringBuilder();
+        for (String index : tripleIndexes) {
+            if (result.length() > 0) {
+                result.append(',');
+            }
+            result.append(index);
+        }
+        return result.toString();
+    }
+}
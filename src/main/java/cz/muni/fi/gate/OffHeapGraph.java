@@ -0,0 +1,323 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OffHeapGraph.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+import java.nio.LongBuffer;
+import java.util.NoSuchElementException;
+
+
+
+/**
+ * Class OffHeapGraph is a read-only Jena graph whose triples are stored outside of the Java heap,
+ * so even millions of cached triples do not prolong garbage collection.
+ * Terms are encoded to long identifiers by TermDictionary and the triples are stored three times
+ * as sorted records of three longs in direct buffers: in SPO, POS and OSP order. Every triple
+ * pattern is answered by a binary search of the index whose order starts with the bound positions.
+ * Instances are created by copyOf. A model over the graph (ModelFactory.createModelForGraph)
+ * is queried by ARQ like any other Jena model. The memory outside of the heap is released when
+ * the graph is garbage collected.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public final class OffHeapGraph extends GraphBase {
+
+
+    /**
+     * int SPO, POS and OSP are indexes of the orders, int[][] ORDERS gives positions (subject 0,
+     * predicate 1, object 2) stored in columns of each order
+     */
+    private static final int SPO = 0;
+
+    private static final int POS = 1;
+
+    private static final int OSP = 2;
+
+    private static final int[][] ORDERS = {{0, 1, 2}, {1, 2, 0}, {2, 0, 1}};
+
+    /**
+     * int INSERTION_SORT is the size of a range sorted by insertion sort
+     */
+    private static final int INSERTION_SORT = 16;
+
+    /**
+     * TermDictionary dictionary encodes terms
+     */
+    private final TermDictionary dictionary;
+
+    /**
+     * LongBuffer[] indexes holds the triples in each order, three longs per triple
+     */
+    private final LongBuffer[] indexes;
+
+    /**
+     * int size is a number of triples
+     */
+    private final int size;
+
+
+
+    private OffHeapGraph(TermDictionary dictionary, LongBuffer[] indexes, int size) {
+        this.dictionary = dictionary;
+        this.indexes = indexes;
+        this.size = size;
+    }
+
+    /**
+     * Copies all triples of the given graph outside of the heap.
+     * @param graph Graph
+     * @return read-only copy of the graph
+     */
+    public static OffHeapGraph copyOf(Graph graph) {
+        TermDictionary dictionary = new TermDictionary();
+        LongBuffer spo = TermDictionary.allocateLongs(3 * 1024);
+        int size = 0;
+        ExtendedIterator<Triple> triples = graph.find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+            while (triples.hasNext()) {
+                Triple triple = triples.next();
+                if (3 * (size + 1) > spo.capacity()) {
+                    spo = TermDictionary.copyOf(spo, 3 * size, spo.capacity() * 2);
+                }
+                spo.put(3 * size, dictionary.add(triple.getSubject()));
+                spo.put(3 * size + 1, dictionary.add(triple.getPredicate()));
+                spo.put(3 * size + 2, dictionary.add(triple.getObject()));
+                size++;
+            }
+        } finally {
+            triples.close();
+        }
+        dictionary.trimToSize();
+
+        LongBuffer[] indexes = new LongBuffer[ORDERS.length];
+        indexes[SPO] = TermDictionary.copyOf(spo, 3 * size, Math.max(3 * size, 1));
+        for (int order = 0; order < ORDERS.length; order++) {
+            if (order != SPO) {
+                indexes[order] = TermDictionary.allocateLongs(Math.max(3 * size, 1));
+                for (int row = 0; row < size; row++) {
+                    for (int column = 0; column < 3; column++) {
+                        indexes[order].put(3 * row + column, spo.get(3 * row + ORDERS[order][column]));
+                    }
+                }
+            }
+            sort(indexes[order], 0, size);
+        }
+        return new OffHeapGraph(dictionary, indexes, size);
+    }
+
+    /**
+     * Returns memory of the graph outside of the heap.
+     * @return bytes
+     */
+    public long getMemory() {
+        long memory = dictionary.getMemory();
+        for (LongBuffer index : indexes) {
+            memory += 8L * index.capacity();
+        }
+        return memory;
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(TripleMatch match) {
+        Node[] pattern = {match.getMatchSubject(), match.getMatchPredicate(), match.getMatchObject()};
+        long[] ids = new long[3];
+        boolean[] bound = new boolean[3];
+        for (int position = 0; position < 3; position++) {
+            bound[position] = pattern[position] != null && pattern[position].isConcrete();
+            if (bound[position]) {
+                ids[position] = dictionary.getId(pattern[position]);
+                if (ids[position] == TermDictionary.NOT_FOUND) {
+                    return NiceIterator.emptyIterator();
+                }
+            }
+        }
+
+        int order = chooseOrder(bound);
+        long[] key = new long[3];
+        int length = 0;
+        while (length < 3 && bound[ORDERS[order][length]]) {
+            key[length] = ids[ORDERS[order][length]];
+            length++;
+        }
+        int from = search(indexes[order], size, key, length, false);
+        int to = search(indexes[order], size, key, length, true);
+        return new TripleIterator(order, from, to);
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return size;
+    }
+
+
+
+    /**
+     * Returns the order whose columns start with all bound positions.
+     */
+    static int chooseOrder(boolean[] bound) {
+        if (bound[0]) {
+            // Subject and object without predicate are a prefix of OSP only
+            return bound[2] && !bound[1] ? OSP : SPO;
+        }
+        if (bound[1]) {
+            return POS;
+        }
+        return bound[2] ? OSP : SPO;
+    }
+
+    /**
+     * Returns the first row whose first length columns are greater or equal (upper is false)
+     * or greater (upper is true) than the key.
+     */
+    private static int search(LongBuffer index, int size, long[] key, int length, boolean upper) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(index, middle, key, length);
+            if (comparison < 0 || (upper && comparison == 0)) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(LongBuffer index, int row, long[] key, int length) {
+        for (int column = 0; column < length; column++) {
+            int comparison = Long.compare(index.get(3 * row + column), key[column]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private static int compare(LongBuffer index, int first, int second) {
+        for (int column = 0; column < 3; column++) {
+            int comparison = Long.compare(index.get(3 * first + column), index.get(3 * second + column));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private static void swap(LongBuffer index, int first, int second) {
+        for (int column = 0; column < 3; column++) {
+            long value = index.get(3 * first + column);
+            index.put(3 * first + column, index.get(3 * second + column));
+            index.put(3 * second + column, value);
+        }
+    }
+
+    /**
+     * Sorts rows from (inclusive) to (exclusive) in place by quicksort with median of three,
+     * the smaller part is sorted recursively so the depth of recursion is logarithmic.
+     */
+    private static void sort(LongBuffer index, int from, int to) {
+        while (to - from > INSERTION_SORT) {
+            int middle = (from + to) >>> 1;
+            if (compare(index, middle, from) < 0) {
+                swap(index, middle, from);
+            }
+            if (compare(index, to - 1, from) < 0) {
+                swap(index, to - 1, from);
+            }
+            if (compare(index, to - 1, middle) < 0) {
+                swap(index, to - 1, middle);
+            }
+            long[] pivot = {index.get(3 * middle), index.get(3 * middle + 1), index.get(3 * middle + 2)};
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (compare(index, i, pivot, 3) < 0) {
+                    i++;
+                }
+                while (compare(index, j, pivot, 3) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(index, i++, j--);
+                }
+            }
+            if (j + 1 - from < to - i) {
+                sort(index, from, j + 1);
+                from = i;
+            }
+            else {
+                sort(index, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compare(index, j, j - 1) < 0; j--) {
+                swap(index, j, j - 1);
+            }
+        }
+    }
+
+
+
+    /**
+     * Class TripleIterator decodes rows of one index range back to triples. The last decoded
+     * term of each column is reused, because consecutive rows often share their leading terms.
+     */
+    private final class TripleIterator extends NiceIterator<Triple> {
+
+        private final int order;
+
+        private final int to;
+
+        private int row;
+
+        private final long[] lastIds = {-1, -1, -1};
+
+        private final Node[] lastNodes = new Node[3];
+
+        private TripleIterator(int order, int from, int to) {
+            this.order = order;
+            this.row = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < to;
+        }
+
+        @Override
+        public Triple next() {
+            if (row >= to) {
+                throw new NoSuchElementException();
+            }
+            Node[] nodes = new Node[3];
+            for (int column = 0; column < 3; column++) {
+                long id = indexes[order].get(3 * row + column);
+                if (id != lastIds[column]) {
+                    lastIds[column] = id;
+                    lastNodes[column] = dictionary.getNode(id);
+                }
+                nodes[ORDERS[order][column]] = lastNodes[column];
+            }
+            row++;
+            return Triple.create(nodes[0], nodes[1], nodes[2]);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OperationClass.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Locale;
+
+
+
+/**
+ * Enum OperationClass divides methods of GateNosqlLocal and GateNosqlRemote into classes
+ * which are admitted by their own Bulkhead, so that e.g. a batch of inferenced queries
+ * can not occupy every bean and starve simple queries and hierarchy lookups.
+ * <ul>
+ * <li>QUERY - queries without reasoning, hierarchy lookups and read-only listings of catalogs, repositories,
+ * subgraphs and indexes.</li>
+ * <li>INFERENCED_QUERY - query*Inferenced* methods, queries with a reasoning profile other than NONE
+ * and batches with such a query.</li>
+ * <li>LOAD - loads and deletions of subgraphs and finishBulkLoad.</li>
+ * <li>EXPORT - export* methods.</li>
+ * <li>ADMIN - management of repositories, indexes, the near-cache and shards.</li>
+ * </ul>
+ * cancelQuery belongs to no class, so queries can be cancelled under any load.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public enum OperationClass {
+
+    QUERY,
+    INFERENCED_QUERY,
+    LOAD,
+    EXPORT,
+    ADMIN;
+
+
+
+    /**
+     * Returns the key of the class in configuration/database.properties and in names of MBeans.
+     * @return lower case name
+     */
+    public String getKey() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the class of the call of the method.
+     * @param method Method of GateNosqlLocal or GateNosqlRemote
+     * @param parameters Object[] arguments of the call
+     * @return class of the call or null if the call is not admitted by any bulkhead
+     */
+    public static OperationClass of(Method method, Object[] parameters) {
+        if (method == null) {
+            throw new IllegalArgumentException("Argument method can not be null.");
+        }
+
+        String name = method.getName();
+        if (name.equals("cancelQuery")) {
+            return null;
+        }
+        if (name.startsWith("query") || name.startsWith("ask") || name.startsWith("count") || name.startsWith("construct")) {
+            if (name.contains("Inferenced")) {
+                return INFERENCED_QUERY;
+            }
+            if (parameters != null) {
+                for (Object parameter : parameters) {
+                    if (parameter instanceof ReasoningProfile && parameter != ReasoningProfile.NONE) {
+                        return INFERENCED_QUERY;
+                    }
+                    // Queries of a batch are given by their QuerySpecs
+                    if (parameter instanceof Collection) {
+                        for (Object spec : (Collection<?>) parameter) {
+                            if (spec instanceof QuerySpec && ((QuerySpec) spec).getProfile() != ReasoningProfile.NONE) {
+                                return INFERENCED_QUERY;
+                            }
+                        }
+                    }
+                }
+            }
+            return QUERY;
+        }
+        if (name.startsWith("getSub") || name.startsWith("getSuper") || name.equals("isSubClassOf")) {
+            return QUERY;
+        }
+        if (name.startsWith("getAll") || name.equals("getCurrentIndexes") || name.equals("getIndexOptimizations")) {
+            return QUERY;
+        }
+        // Advice is only computed unless it is applied
+        if (name.equals("adviseIndexes") && (parameters == null || !Boolean.TRUE.equals(parameters[parameters.length - 1]))) {
+            return QUERY;
+        }
+        if (name.startsWith("loadOntology") || name.equals("deleteSubgraph") || name.equals("finishBulkLoad")) {
+            return LOAD;
+        }
+        if (name.startsWith("export")) {
+            return EXPORT;
+        }
+        return ADMIN;
+    }
+}
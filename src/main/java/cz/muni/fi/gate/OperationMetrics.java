@@ -0,0 +1,136 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OperationMetrics.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+
+/**
+ * Class OperationMetrics counts calls, failures, rows and bytes of one method of GateNosqlBean
+ * and keeps the histogram of their latencies. Recording does not allocate, so the metrics
+ * can stay on in production.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public final class OperationMetrics implements OperationMetricsMBean {
+
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final String name;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final AtomicLong rows = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the method.
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a finished call.
+     * @param nanos long latency
+     * @param failed boolean
+     * @param rowCount long returned rows
+     * @param byteCount long returned bytes
+     */
+    public void record(long nanos, boolean failed, long rowCount, long byteCount) {
+        calls.incrementAndGet();
+        if (failed) {
+            errors.incrementAndGet();
+        }
+        if (rowCount > 0) {
+            rows.addAndGet(rowCount);
+        }
+        if (byteCount > 0) {
+            bytes.addAndGet(byteCount);
+        }
+        latencies.record(nanos);
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.get();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.get();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    @Override
+    public double getRowsPerCall() {
+        long count = calls.get();
+        return count == 0 ? 0 : (double) rows.get() / count;
+    }
+
+    @Override
+    public double getBytesPerCall() {
+        long count = calls.get();
+        return count == 0 ? 0 : (double) bytes.get() / count;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latencies.getPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP95Millis() {
+        return latencies.getPercentile(95) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latencies.getPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latencies.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void reset() {
+        calls.set(0);
+        errors.set(0);
+        rows.set(0);
+        bytes.set(0);
+        latencies.reset();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OperationMetricsInterceptor.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.InvocationContext;
+
+
+
+/**
+ * Class OperationMetricsInterceptor records every business method of GateNosqlBean in its
+ * OperationMetrics. Methods of the bean log their failures and return null or false
+ * (or a negative count), so such results are counted as errors together with thrown exceptions,
+ * except false of methods answering a question (is*, ask*) and of cancelQuery.
+ * Rows are the sizes of returned lists and tables, bytes the UTF-8 size of returned strings.
+ * Bytes are estimated from a sample (SAMPLE_ROWS rows of a list and SAMPLE_CHARS characters
+ * of a string), so that recording costs the same for a row and for a million rows.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class OperationMetricsInterceptor {
+
+
+    /**
+     * int SAMPLE_ROWS is the maximal number of rows of a list whose bytes are counted
+     */
+    static final int SAMPLE_ROWS = 64;
+
+    /**
+     * int SAMPLE_CHARS is the maximal number of characters of a string whose bytes are counted
+     */
+    static final int SAMPLE_CHARS = 4096;
+
+    @EJB
+    private OperationMonitor operationMonitor;
+
+    /**
+     * Map<String, OperationMetrics> metrics is taken from operationMonitor once, so that calls
+     * of the bean do not go through the container to the singleton
+     */
+    private Map<String, OperationMetrics> metrics = Collections.emptyMap();
+
+
+
+    @PostConstruct
+    void initialize(InvocationContext context) throws Exception {
+        metrics = operationMonitor.getMetrics();
+        context.proceed();
+    }
+
+    @AroundInvoke
+    public Object record(InvocationContext context) throws Exception {
+        Method method = context.getMethod();
+        OperationMetrics operation = metrics.get(method.getName());
+        if (operation == null) {
+            return context.proceed();
+        }
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = context.proceed();
+        } catch (Throwable ex) {
+            operation.record(System.nanoTime() - start, true, 0, 0);
+            throw ex;
+        }
+        operation.record(System.nanoTime() - start, isFailure(method, result), countRows(result), countBytes(result));
+        return result;
+    }
+
+
+
+    static boolean isFailure(Method method, Object result) {
+        Class<?> type = method.getReturnType();
+        if (type == void.class) {
+            return false;
+        }
+        if (result == null) {
+            return true;
+        }
+        if (type == boolean.class) {
+            String name = method.getName();
+            return !((Boolean) result) && !name.startsWith("is") && !name.equals("cancelQuery");
+        }
+        if (type == long.class) {
+            return ((Long) result) < 0;
+        }
+        return false;
+    }
+
+    static long countRows(Object result) {
+        if (result instanceof List) {
+            return ((List<?>) result).size();
+        }
+        if (result instanceof RDFNodeTable) {
+            return ((RDFNodeTable) result).size();
+        }
+        if (result instanceof EncodedResult) {
+            return ((EncodedResult) result).getRowCount();
+        }
+        return 0;
+    }
+
+    /**
+     * Estimates the UTF-8 size of the returned string or list of strings. Rows of a longer list
+     * are sampled evenly and the sample is scaled to the whole list.
+     */
+    static long countBytes(Object result) {
+        if (result instanceof CharSequence) {
+            return estimateUtf8Length((CharSequence) result);
+        }
+        long bytes = 0;
+        if (result instanceof List && result instanceof RandomAccess) {
+            List<?> rows = (List<?>) result;
+            int size = rows.size();
+            int sampled = Math.min(size, SAMPLE_ROWS);
+            for (int i = 0; i < sampled; i++) {
+                Object row = rows.get((int) ((long) i * size / sampled));
+                if (row instanceof CharSequence) {
+                    bytes += estimateUtf8Length((CharSequence) row);
+                }
+            }
+            if (sampled < size) {
+                bytes = bytes * size / sampled;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the UTF-8 size of the text from its first SAMPLE_CHARS characters.
+     */
+    static long estimateUtf8Length(CharSequence text) {
+        int length = text.length();
+        if (length <= SAMPLE_CHARS) {
+            return utf8Length(text, length);
+        }
+        return utf8Length(text, SAMPLE_CHARS) * length / SAMPLE_CHARS;
+    }
+
+    /**
+     * Counts the UTF-8 size of the first characters of the text without encoding it.
+     */
+    static long utf8Length(CharSequence text, int end) {
+        long length = 0;
+        for (int i = 0; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            }
+            else if (c < 0x800) {
+                length += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            }
+            else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OperationMetricsMBean.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+
+
+/**
+ * Interface OperationMetricsMBean exposes metrics of one method of GateNosqlBean over JMX
+ * as cz.muni.fi.gate:type=GateNosqlBean,name=&lt;method&gt;. Overloads of a method share their metrics.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public interface OperationMetricsMBean {
+
+
+    /**
+     * Returns the number of finished calls.
+     * @return number of calls
+     */
+    long getCalls();
+
+    /**
+     * Returns the number of failed calls, i.e. calls which threw an exception or returned
+     * null, false or a negative count instead of a result.
+     * @return number of failed calls
+     */
+    long getErrors();
+
+    /**
+     * Returns the number of rows returned by all calls.
+     * @return number of rows
+     */
+    long getRows();
+
+    /**
+     * Returns the UTF-8 size of strings returned by all calls.
+     * @return number of bytes
+     */
+    long getBytes();
+
+    /**
+     * Returns the mean number of rows returned by a call.
+     * @return rows per call
+     */
+    double getRowsPerCall();
+
+    /**
+     * Returns the mean number of bytes returned by a call.
+     * @return bytes per call
+     */
+    double getBytesPerCall();
+
+    /**
+     * Returns the median latency.
+     * @return latency in milliseconds
+     */
+    double getP50Millis();
+
+    /**
+     * Returns the 95th percentile of latency.
+     * @return latency in milliseconds
+     */
+    double getP95Millis();
+
+    /**
+     * Returns the 99th percentile of latency.
+     * @return latency in milliseconds
+     */
+    double getP99Millis();
+
+    /**
+     * Returns the highest latency.
+     * @return latency in milliseconds
+     */
+    double getMaxMillis();
+
+    /**
+     * Forgets all recorded calls.
+     */
+    void reset();
+}
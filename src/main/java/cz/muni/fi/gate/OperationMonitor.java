@@ -0,0 +1,161 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OperationMonitor.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+
+/**
+ * Class OperationMonitor keeps OperationMetrics of every method of GateNosqlLocal and GateNosqlRemote
+ * and registers them in the platform MBean server. Metrics are created once at startup,
+ * so OperationMetricsInterceptor finds them without locking or allocation.
+ * Metrics are switched off by operation_metrics = false (see configuration/database.properties).
+ * ConnectionMetrics of the bean are registered as cz.muni.fi.gate:type=Connections regardless of the switch.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class OperationMonitor {
+
+
+    /**
+     * String DOMAIN is the JMX domain of the metrics
+     */
+    static final String DOMAIN = "cz.muni.fi.gate";
+
+    /**
+     * Map<String, OperationMetrics> metrics maps names of methods to their metrics, it is not modified after startup
+     */
+    private volatile Map<String, OperationMetrics> metrics = Collections.emptyMap();
+
+    private final ConnectionMetrics connections = new ConnectionMetrics();
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(OperationMonitor.class.getName());
+
+
+
+    @PostConstruct
+    void initialize() {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=Connections");
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            unregister(server, objectName);
+            server.registerMBean(connections, objectName);
+        } catch (JMException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
+        if (!Boolean.parseBoolean(GateNosqlConfiguration.getProperty("operation_metrics", "true"))) {
+            return;
+        }
+        Collection<String> names = new TreeSet<>();
+        for (Class<?> type : new Class<?>[]{GateNosqlLocal.class, GateNosqlRemote.class}) {
+            for (Method method : type.getMethods()) {
+                names.add(method.getName());
+            }
+        }
+        register(names);
+    }
+
+    @PreDestroy
+    void shutDown() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            unregister(server, new ObjectName(DOMAIN + ":type=Connections"));
+            for (String name : metrics.keySet()) {
+                unregister(server, getObjectName(name));
+            }
+        } catch (JMException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
+        metrics = Collections.emptyMap();
+    }
+
+    /**
+     * Returns counts of connections of the bean.
+     * @return connection metrics
+     */
+    public ConnectionMetrics getConnections() {
+        return connections;
+    }
+
+    /**
+     * Returns metrics of all methods.
+     * @return unmodifiable map of names of methods to their metrics, empty if metrics are switched off
+     */
+    public Map<String, OperationMetrics> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns metrics of the given method.
+     * @param name String name of the method
+     * @return metrics or null if the method is not monitored
+     */
+    public OperationMetrics getMetrics(String name) {
+        return metrics.get(name);
+    }
+
+
+
+    /**
+     * Creates metrics of the given methods and registers them, metrics left by
+     * a previous deployment are replaced.
+     */
+    void register(Collection<String> names) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Map<String, OperationMetrics> created = new TreeMap<>();
+        for (String name : names) {
+            OperationMetrics operation = new OperationMetrics(name);
+            created.put(name, operation);
+            try {
+                ObjectName objectName = getObjectName(name);
+                unregister(server, objectName);
+                server.registerMBean(operation, objectName);
+            } catch (JMException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            }
+        }
+        metrics = Collections.unmodifiableMap(created);
+    }
+
+    static ObjectName getObjectName(String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=GateNosqlBean,name=" + name);
+    }
+
+    private static void unregister(MBeanServer server, ObjectName objectName) throws JMException {
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      QueryConnectionManager.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.franz.agraph.http.AGHTTPClient;
+import com.franz.agraph.repository.AGServer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+
+
+
+/**
+ * Class QueryConnectionManager pools HTTP connections of an AllegroGraph server like the default
+ * manager of AGHTTPClient and it remembers the connection leased by every thread, so that
+ * a request waiting for the server can be aborted from another thread (see RunningQuery.cancel).
+ * AGQueryExecution.abort() of AllegroGraph 4.12.2 is not supported, closing the connection
+ * is the only way to release the waiting thread. A thread holds at most one connection
+ * at a time, so connections of all servers are kept in one map.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class QueryConnectionManager extends MultiThreadedHttpConnectionManager {
+
+
+    /**
+     * ConcurrentMap<Thread, HttpConnection> LEASED maps threads to their leased connections
+     */
+    private static final ConcurrentMap<Thread, HttpConnection> LEASED = new ConcurrentHashMap<>();
+
+
+
+    /**
+     * Creates the manager without limits of connections, like the default manager of AGHTTPClient.
+     */
+    public QueryConnectionManager() {
+        HttpConnectionManagerParams params = new HttpConnectionManagerParams();
+        params.setDefaultMaxConnectionsPerHost(Integer.MAX_VALUE);
+        params.setMaxTotalConnections(Integer.MAX_VALUE);
+        setParams(params);
+    }
+
+    /**
+     * Creates a server whose requests can be aborted.
+     * @param url String
+     * @param username String
+     * @param password String
+     * @return server
+     */
+    public static AGServer createServer(String url, String username, String password) {
+        return new AGServer(username, password, new AGHTTPClient(url, new QueryConnectionManager()));
+    }
+
+    /**
+     * Closes the connection leased by the thread, its request waiting for the server fails at once.
+     * @param thread Thread
+     * @return true if the thread held a connection
+     */
+    public static boolean abort(Thread thread) {
+        HttpConnection connection = LEASED.get(thread);
+        if (connection == null) {
+            return false;
+        }
+        connection.close();
+        return true;
+    }
+
+    @Override
+    public HttpConnection getConnectionWithTimeout(HostConfiguration hostConfiguration, long timeout)
+            throws ConnectionPoolTimeoutException {
+        HttpConnection connection = super.getConnectionWithTimeout(hostConfiguration, timeout);
+        LEASED.put(Thread.currentThread(), connection);
+        return connection;
+    }
+
+    @Override
+    public void releaseConnection(HttpConnection connection) {
+        LEASED.remove(Thread.currentThread());
+        super.releaseConnection(connection);
+    }
+}
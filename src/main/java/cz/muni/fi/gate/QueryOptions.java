@@ -0,0 +1,163 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      QueryOptions.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.Serializable;
+
+
+
+/**
+ * Class QueryOptions holds per-call settings of query methods.
+ * A query with queryId can be cancelled by GateNosqlRemote.cancelQuery while it runs.
+ * The timeout (in milliseconds) is sent to AllegroGraph server and the query
+ * is cancelled if it outlives it. DEFAULT_TIMEOUT uses query_timeout property
+ * of configuration/database.properties, NO_TIMEOUT disables the limit.
+ * Limit and offset are sent to the server together with the query, so only the requested rows
+ * are transferred. A query returning more than maxRows rows throws ResultTooLargeException; DEFAULT_MAX_ROWS uses
+ * query_max_rows property, NO_MAX_ROWS disables the check.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class QueryOptions implements Serializable {
+
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * long DEFAULT_TIMEOUT means the timeout is given by configuration
+     */
+    public static final long DEFAULT_TIMEOUT = -1;
+
+    /**
+     * long NO_TIMEOUT means the query is not limited
+     */
+    public static final long NO_TIMEOUT = 0;
+
+    /**
+     * int NO_LIMIT means all rows are returned
+     */
+    public static final int NO_LIMIT = -1;
+
+    /**
+     * int DEFAULT_MAX_ROWS means the maximum of rows is given by configuration
+     */
+    public static final int DEFAULT_MAX_ROWS = -1;
+
+    /**
+     * int NO_MAX_ROWS means the number of rows is not checked
+     */
+    public static final int NO_MAX_ROWS = 0;
+
+    /**
+     * String queryId identifies the query for cancellation, it may be null
+     */
+    private String queryId;
+
+    /**
+     * long timeout in milliseconds
+     */
+    private long timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * int limit is the maximal number of returned rows
+     */
+    private int limit = NO_LIMIT;
+
+    /**
+     * int offset is a number of skipped rows
+     */
+    private int offset;
+
+    /**
+     * int maxRows is the number of rows above which the query fails
+     */
+    private int maxRows = DEFAULT_MAX_ROWS;
+
+
+
+    public QueryOptions() {
+    }
+
+    public QueryOptions(String queryId, long timeout) {
+        this.queryId = queryId;
+        setTimeout(timeout);
+    }
+
+    public QueryOptions(int limit, int offset, int maxRows) {
+        setLimit(limit);
+        setOffset(offset);
+        setMaxRows(maxRows);
+    }
+
+    public QueryOptions(String queryId, long timeout, int limit, int offset, int maxRows) {
+        this(limit, offset, maxRows);
+        this.queryId = queryId;
+        setTimeout(timeout);
+    }
+
+    public String getQueryId() {
+        return queryId;
+    }
+
+    public void setQueryId(String queryId) {
+        this.queryId = queryId;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        if (timeout < DEFAULT_TIMEOUT) {
+            throw new IllegalArgumentException("Argument timeout can not be negative.");
+        }
+        this.timeout = timeout;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        if (limit < NO_LIMIT) {
+            throw new IllegalArgumentException("Argument limit can not be negative.");
+        }
+        this.limit = limit;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Argument offset can not be negative.");
+        }
+        this.offset = offset;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public void setMaxRows(int maxRows) {
+        if (maxRows < DEFAULT_MAX_ROWS) {
+            throw new IllegalArgumentException("Argument maxRows can not be negative.");
+        }
+        this.maxRows = maxRows;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryOptions{queryId=" + queryId + ", timeout=" + timeout + ", limit=" + limit
+                + ", offset=" + offset + ", maxRows=" + maxRows + "}";
+    }
+}
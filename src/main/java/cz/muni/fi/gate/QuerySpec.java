@@ -0,0 +1,87 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      QuerySpec.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+
+
+/**
+ * Class QuerySpec describes one query of a batch (see GateNosqlRemote.queryBatch).
+ * The query is evaluated on the union of the given subgraphs with reasoning of its profile,
+ * an inferenced query uses RDFS_PLUS_PLUS unless another profile is set.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class QuerySpec implements Serializable {
+
+
+    private static final long serialVersionUID = 1L;
+
+    private ArrayList<String> subgraphIds;
+
+    private String query;
+
+    private ReasoningProfile profile = ReasoningProfile.NONE;
+
+
+
+    public QuerySpec() {
+    }
+
+    public QuerySpec(ArrayList<String> subgraphIds, String query, boolean inferenced) {
+        this(subgraphIds, query, inferenced ? ReasoningProfile.RDFS_PLUS_PLUS : ReasoningProfile.NONE);
+    }
+
+    public QuerySpec(ArrayList<String> subgraphIds, String query, ReasoningProfile profile) {
+        this.subgraphIds = subgraphIds;
+        this.query = query;
+        this.profile = profile;
+    }
+
+    public ArrayList<String> getSubgraphIds() {
+        return subgraphIds;
+    }
+
+    public void setSubgraphIds(ArrayList<String> subgraphIds) {
+        this.subgraphIds = subgraphIds;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public boolean isInferenced() {
+        return profile != ReasoningProfile.NONE;
+    }
+
+    public void setInferenced(boolean inferenced) {
+        this.profile = inferenced ? ReasoningProfile.RDFS_PLUS_PLUS : ReasoningProfile.NONE;
+    }
+
+    public ReasoningProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(ReasoningProfile profile) {
+        this.profile = profile;
+    }
+
+    @Override
+    public String toString() {
+        return "QuerySpec{subgraphIds=" + subgraphIds + ", query=" + query + ", profile=" + profile + "}";
+    }
+}
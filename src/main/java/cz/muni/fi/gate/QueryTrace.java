@@ -0,0 +1,104 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      QueryTrace.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+
+
+/**
+ * Class QueryTrace measures phases of one query for SlowQueryLog. A phase lasts from
+ * the end of the previous phase (or the start of the query) until it is marked,
+ * so marking phases costs one System.nanoTime() each. A phase may be marked several times,
+ * its times are added.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public final class QueryTrace {
+
+
+    /**
+     * Enum Phase lists measured phases in the order of a query
+     */
+    public enum Phase {
+
+        /**
+         * Opening of a connection and of its session
+         */
+        CONNECTION,
+
+        /**
+         * Listing of subgraphs of the repository
+         */
+        LOOKUP,
+
+        /**
+         * Opening of subgraphs and of their union (and of the inference model)
+         */
+        UNION,
+
+        /**
+         * Evaluation on the server and transfer of the result
+         */
+        EXECUTION,
+
+        /**
+         * Reading of rows of the result into the returned list or table
+         */
+        MATERIALISATION
+    }
+
+    /**
+     * String method is the name of the traced method of GateNosqlBean
+     */
+    private final String method;
+
+    private final long start = System.nanoTime();
+
+    private long last = start;
+
+    private final long[] phases = new long[Phase.values().length];
+
+
+
+    QueryTrace(String method) {
+        this.method = method;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    /**
+     * Ends the given phase now.
+     * @param phase Phase
+     */
+    void mark(Phase phase) {
+        long now = System.nanoTime();
+        phases[phase.ordinal()] += now - last;
+        last = now;
+    }
+
+    /**
+     * Returns time of the given phase.
+     * @param phase Phase
+     * @return nanoseconds
+     */
+    long getNanos(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * Returns time since the start of the query.
+     * @return nanoseconds
+     */
+    long getElapsedNanos() {
+        return System.nanoTime() - start;
+    }
+}
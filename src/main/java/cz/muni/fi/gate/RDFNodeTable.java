@@ -0,0 +1,219 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      RDFNodeTable.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+
+
+/**
+ * Class RDFNodeTable is a compact result of a query for local clients.
+ * Every distinct node is stored once in a node table and the rows are kept in three parallel
+ * arrays (subjects, predicates, objects) of node ids. Rows and the list view are views
+ * of the arrays, no nodes are copied.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public final class RDFNodeTable {
+
+
+    /**
+     * int NULL_ID marks an unbound node
+     */
+    private static final int NULL_ID = -1;
+
+    /**
+     * ArrayList<RDFNode> nodes is the node table, the id of a node is its index
+     */
+    private final ArrayList<RDFNode> nodes = new ArrayList<>();
+
+    /**
+     * HashMap<RDFNode, Integer> nodeIds maps nodes to ids while the table is built
+     */
+    private HashMap<RDFNode, Integer> nodeIds = new HashMap<>();
+
+    private int[] subjects = new int[16];
+
+    private int[] predicates = new int[16];
+
+    private int[] objects = new int[16];
+
+    private int rowCount;
+
+
+
+    RDFNodeTable() {
+    }
+
+    /**
+     * Appends one row of the result.
+     * @param subject RDFNode
+     * @param predicate RDFNode
+     * @param object RDFNode
+     */
+    void addRow(RDFNode subject, RDFNode predicate, RDFNode object) {
+        if (rowCount == subjects.length) {
+            int capacity = subjects.length * 2;
+            subjects = Arrays.copyOf(subjects, capacity);
+            predicates = Arrays.copyOf(predicates, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+        }
+        subjects[rowCount] = getId(subject);
+        predicates[rowCount] = getId(predicate);
+        objects[rowCount] = getId(object);
+        rowCount++;
+    }
+
+    /**
+     * Releases memory needed only for building of the table.
+     */
+    void trimToSize() {
+        nodeIds = null;
+        nodes.trimToSize();
+        subjects = Arrays.copyOf(subjects, rowCount);
+        predicates = Arrays.copyOf(predicates, rowCount);
+        objects = Arrays.copyOf(objects, rowCount);
+    }
+
+    /**
+     * Returns number of rows.
+     * @return size
+     */
+    public int size() {
+        return rowCount;
+    }
+
+    /**
+     * Returns number of distinct nodes.
+     * @return size of the node table
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    public RDFNode getSubject(int row) {
+        return getNode(subjects[checkRow(row)]);
+    }
+
+    public RDFNode getPredicate(int row) {
+        return getNode(predicates[checkRow(row)]);
+    }
+
+    public RDFNode getObject(int row) {
+        return getNode(objects[checkRow(row)]);
+    }
+
+    /**
+     * Returns view of the given row.
+     * @param row int
+     * @return row
+     */
+    public Row getRow(int row) {
+        return new Row(checkRow(row));
+    }
+
+    /**
+     * Returns view of the table in the format of *L query methods: every three
+     * consecutive nodes form one row (subject, predicate, object).
+     * @return list view
+     */
+    public List<RDFNode> asList() {
+        return new AbstractList<RDFNode>() {
+            @Override
+            public RDFNode get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index: " + index);
+                }
+                int row = index / 3;
+                switch (index % 3) {
+                    case 0:
+                        return getNode(subjects[row]);
+                    case 1:
+                        return getNode(predicates[row]);
+                    default:
+                        return getNode(objects[row]);
+                }
+            }
+
+            @Override
+            public int size() {
+                return 3 * rowCount;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "RDFNodeTable{rows=" + rowCount + ", nodes=" + nodes.size() + "}";
+    }
+
+
+
+    private int getId(RDFNode node) {
+        if (node == null) {
+            return NULL_ID;
+        }
+        Integer id = nodeIds.get(node);
+        if (id == null) {
+            id = nodes.size();
+            nodes.add(node);
+            nodeIds.put(node, id);
+        }
+        return id;
+    }
+
+    private RDFNode getNode(int id) {
+        return id == NULL_ID ? null : nodes.get(id);
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row: " + row);
+        }
+        return row;
+    }
+
+
+
+    /**
+     * Class Row is a view of one row of the table.
+     */
+    public final class Row {
+
+        private final int row;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        public RDFNode getSubject() {
+            return getNode(subjects[row]);
+        }
+
+        public RDFNode getPredicate() {
+            return getNode(predicates[row]);
+        }
+
+        public RDFNode getObject() {
+            return getNode(objects[row]);
+        }
+
+        @Override
+        public String toString() {
+            return "{" + getSubject() + " " + getPredicate() + " " + getObject() + "}";
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ReasoningProfile.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.franz.agraph.jena.AGReasoner;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.Syntax;
+import com.hp.hpl.jena.sparql.core.TriplePath;
+import com.hp.hpl.jena.sparql.path.Path;
+import com.hp.hpl.jena.sparql.path.PathFactory;
+import com.hp.hpl.jena.sparql.syntax.ElementPathBlock;
+import com.hp.hpl.jena.sparql.syntax.ElementVisitorBase;
+import com.hp.hpl.jena.sparql.syntax.ElementWalker;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import java.util.ListIterator;
+
+
+
+/**
+ * Enum ReasoningProfile defines which entailments are used by inferenced queries.
+ * A query pays only for the entailments of its profile:
+ * <ul>
+ * <li>NONE - no reasoning, the query is evaluated on raw data,</li>
+ * <li>RDFS_SUBCLASS - just rdfs:subClassOf entailment, the query is rewritten to
+ * SPARQL 1.1 property paths (rdf:type/rdfs:subClassOf*) and evaluated without reasoner,</li>
+ * <li>RDFS_PLUS_PLUS - RDFS++ reasoning of AllegroGraph (default of inferenced queries),</li>
+ * <li>RESTRICTION - RDFS++ reasoning extended by owl:hasValue, owl:someValuesFrom
+ * and owl:allValuesFrom restrictions.</li>
+ * </ul>
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public enum ReasoningProfile {
+
+    NONE(null),
+    RDFS_SUBCLASS(null),
+    RDFS_PLUS_PLUS(AGReasoner.RDFS_PLUS_PLUS),
+    RESTRICTION(AGReasoner.RESTRICTION);
+
+
+    /**
+     * AGReasoner reasoner is a server side reasoner of the profile or null
+     */
+    private final AGReasoner reasoner;
+
+
+
+    private ReasoningProfile(AGReasoner reasoner) {
+        this.reasoner = reasoner;
+    }
+
+    /**
+     * Returns AllegroGraph reasoner of the profile.
+     * @return reasoner or null if the query is evaluated on raw data
+     */
+    AGReasoner getReasoner() {
+        return reasoner;
+    }
+
+    /**
+     * Returns the query which is sent to AllegroGraph. Only RDFS_SUBCLASS profile
+     * changes the query: rdf:type patterns become rdf:type/rdfs:subClassOf* paths
+     * and rdfs:subClassOf patterns become rdfs:subClassOf+ paths.
+     * @param query String
+     * @return query for evaluation
+     */
+    String prepareQuery(String query) {
+        if (this != RDFS_SUBCLASS) {
+            return query;
+        }
+        Query parsed = QueryFactory.create(query, Syntax.syntaxSPARQL_11);
+        ElementWalker.walk(parsed.getQueryPattern(), new ElementVisitorBase() {
+            @Override
+            public void visit(ElementPathBlock block) {
+                ListIterator<TriplePath> it = block.getPattern().getList().listIterator();
+                while (it.hasNext()) {
+                    TriplePath triple = it.next();
+                    if (!triple.isTriple()) {
+                        continue;
+                    }
+                    Node predicate = triple.getPredicate();
+                    Path subClassOf = PathFactory.pathLink(RDFS.subClassOf.asNode());
+                    if (RDF.type.asNode().equals(predicate)) {
+                        Path path = PathFactory.pathSeq(PathFactory.pathLink(predicate), PathFactory.pathZeroOrMore1(subClassOf));
+                        it.set(new TriplePath(triple.getSubject(), path, triple.getObject()));
+                    }
+                    else if (RDFS.subClassOf.asNode().equals(predicate)) {
+                        it.set(new TriplePath(triple.getSubject(), PathFactory.pathOneOrMore1(subClassOf), triple.getObject()));
+                    }
+                }
+            }
+        });
+        return parsed.serialize(Syntax.syntaxSPARQL_11);
+    }
+}
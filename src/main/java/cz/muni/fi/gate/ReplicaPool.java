@@ -0,0 +1,243 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ReplicaPool.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Class ReplicaPool routes requests to one primary server and its read replicas.
+ * Writes always go to the primary. Reads go to a healthy replica chosen by the policy
+ * of the pool, or to the primary if no replica is healthy. A replica which fails is taken
+ * out of rotation until checkHealth finds it healthy again.
+ * The pool does not depend on the type of servers, so it routes AllegroGraph servers
+ * (see ReplicaRouter) as well as local stand-in stores.
+ *
+ * @param <T> type of servers
+ * @author Jakub Mareček (404364)
+ */
+
+
+final class ReplicaPool<T> {
+
+
+    /**
+     * Enum Policy chooses a replica for a read:
+     * <ul>
+     * <li>LEAST_OUTSTANDING - the replica with the least requests in progress relative to its weight,</li>
+     * <li>WEIGHTED_ROUND_ROBIN - replicas in turn, each as often as its weight (smooth weighted round-robin).</li>
+     * </ul>
+     */
+    enum Policy {
+        LEAST_OUTSTANDING,
+        WEIGHTED_ROUND_ROBIN
+    }
+
+    /**
+     * Interface HealthCheck tests one server.
+     * @param <T> type of servers
+     */
+    interface HealthCheck<T> {
+
+        /**
+         * Tests the server.
+         * @param server T
+         * @return true if the server is healthy
+         * @throws Exception if the server can not be reached
+         */
+        boolean isHealthy(T server) throws Exception;
+    }
+
+    private final Member<T> primary;
+
+    private final List<Member<T>> replicas;
+
+    private final Policy policy;
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(ReplicaPool.class.getName());
+
+
+
+    /**
+     * Creates the pool.
+     * @param primary T server for writes
+     * @param replicas List<T> servers for reads
+     * @param weights List<Integer> weights of replicas, missing weights are 1
+     * @param policy Policy
+     */
+    ReplicaPool(T primary, List<T> replicas, List<Integer> weights, Policy policy) {
+        this.primary = new Member<>(primary, true, 1);
+        List<Member<T>> members = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            int weight = i < weights.size() ? weights.get(i) : 1;
+            if (weight < 1) {
+                throw new IllegalArgumentException("Weight of replica: " + replicas.get(i) + " has to be positive.");
+            }
+            members.add(new Member<>(replicas.get(i), false, weight));
+        }
+        this.replicas = Collections.unmodifiableList(members);
+        this.policy = policy;
+    }
+
+    /**
+     * Tests if the pool has any replicas.
+     * @return true if reads can be routed away from the primary
+     */
+    boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * Chooses a member for a request and counts the request as outstanding until release.
+     * @param read boolean true for a read, false for a write
+     * @return member
+     */
+    Member<T> acquire(boolean read) {
+        Member<T> member = read ? choose() : null;
+        if (member == null) {
+            member = primary;
+        }
+        member.outstanding.incrementAndGet();
+        return member;
+    }
+
+    /**
+     * Finishes the request acquired from the member.
+     * @param member Member<T>
+     */
+    void release(Member<T> member) {
+        member.outstanding.decrementAndGet();
+    }
+
+    /**
+     * Takes the failed replica out of rotation. The primary is never taken out.
+     * @param member Member<T>
+     */
+    void markFailed(Member<T> member) {
+        if (!member.primary && member.healthy) {
+            member.healthy = false;
+            LOGGER.log(Level.WARNING, "Replica: " + member.server + " is taken out of rotation.");
+        }
+    }
+
+    /**
+     * Tests all replicas and returns the healthy ones to rotation.
+     * @param check HealthCheck<T>
+     */
+    void checkHealth(HealthCheck<T> check) {
+        for (Member<T> replica : replicas) {
+            boolean healthy;
+            try {
+                healthy = check.isHealthy(replica.server);
+            } catch (Exception ex) {
+                healthy = false;
+            }
+            if (healthy && !replica.healthy) {
+                LOGGER.log(Level.INFO, "Replica: " + replica.server + " is back in rotation.");
+                replica.healthy = true;
+            }
+            else if (!healthy) {
+                markFailed(replica);
+            }
+        }
+    }
+
+    Member<T> getPrimary() {
+        return primary;
+    }
+
+    List<Member<T>> getReplicas() {
+        return replicas;
+    }
+
+
+
+    private synchronized Member<T> choose() {
+        Member<T> chosen = null;
+        if (policy == Policy.LEAST_OUTSTANDING) {
+            for (Member<T> replica : replicas) {
+                // outstanding / weight compared without division
+                if (replica.healthy && (chosen == null
+                        || (long) replica.outstanding.get() * chosen.weight < (long) chosen.outstanding.get() * replica.weight)) {
+                    chosen = replica;
+                }
+            }
+            return chosen;
+        }
+        int total = 0;
+        for (Member<T> replica : replicas) {
+            if (replica.healthy) {
+                replica.current += replica.weight;
+                total += replica.weight;
+                if (chosen == null || replica.current > chosen.current) {
+                    chosen = replica;
+                }
+            }
+        }
+        if (chosen != null) {
+            chosen.current -= total;
+        }
+        return chosen;
+    }
+
+
+
+    /**
+     * Class Member is one server of the pool.
+     * @param <T> type of servers
+     */
+    static final class Member<T> {
+
+        private final T server;
+
+        private final boolean primary;
+
+        private final int weight;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private volatile boolean healthy = true;
+
+        /**
+         * int current is the current weight of smooth weighted round-robin, it is guarded by the pool
+         */
+        private int current;
+
+        private Member(T server, boolean primary, int weight) {
+            this.server = server;
+            this.primary = primary;
+            this.weight = weight;
+        }
+
+        T getServer() {
+            return server;
+        }
+
+        boolean isPrimary() {
+            return primary;
+        }
+
+        boolean isHealthy() {
+            return healthy;
+        }
+
+        int getOutstanding() {
+            return outstanding.get();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ReplicaRouter.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.franz.agraph.repository.AGCatalog;
+import com.franz.agraph.repository.AGRepository;
+import com.franz.agraph.repository.AGRepositoryConnection;
+import com.franz.agraph.repository.AGServer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import org.openrdf.repository.RepositoryException;
+
+
+
+/**
+ * Class ReplicaRouter opens connections of reads (query* and export* methods of GateNosqlBean)
+ * on read replicas of the AllegroGraph server. Replicas are given by replica_urls and
+ * replica_weights, the policy by replica_policy (see configuration/database.properties).
+ * The primary server_url receives all writes and the reads if no replica is healthy.
+ * Replicas are checked every replica_health_interval seconds. Replicas are expected
+ * to be kept up to date by replication of AllegroGraph, so a read may not see the latest write.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ReplicaRouter {
+
+
+    /**
+     * long DEFAULT_HEALTH_INTERVAL is the interval of health checks in seconds if replica_health_interval is not set
+     */
+    private static final long DEFAULT_HEALTH_INTERVAL = 10;
+
+    @Resource
+    private TimerService timerService;
+
+    /**
+     * ReplicaPool<AGServer> pool holds the primary and replicas
+     */
+    private ReplicaPool<AGServer> pool;
+
+    /**
+     * ConcurrentMap<String, AGCatalog> catalogs caches catalogs of each server by its url and catalog id
+     */
+    private final ConcurrentMap<String, AGCatalog> catalogs = new ConcurrentHashMap<>();
+
+    /**
+     * ConcurrentMap<String, AGRepository> repositories caches opened repositories of each server
+     * by its url, catalog id and repository id, so a read does not open its repository again
+     */
+    private final ConcurrentMap<String, AGRepository> repositories = new ConcurrentHashMap<>();
+
+    /**
+     * ConcurrentMap<AGRepositoryConnection, ReplicaPool.Member<AGServer>> connections maps open
+     * connections of reads to their servers
+     */
+    private final ConcurrentMap<AGRepositoryConnection, ReplicaPool.Member<AGServer>> connections = new ConcurrentHashMap<>();
+
+
+
+    @PostConstruct
+    void initialize() {
+        String username = GateNosqlConfiguration.getProperty("username");
+        String password = GateNosqlConfiguration.getProperty("password");
+        List<AGServer> replicas = new ArrayList<>();
+        for (String url : split(GateNosqlConfiguration.getProperty("replica_urls", ""))) {
+            replicas.add(QueryConnectionManager.createServer(url, username, password));
+        }
+        List<Integer> weights = new ArrayList<>();
+        for (String weight : split(GateNosqlConfiguration.getProperty("replica_weights", ""))) {
+            weights.add(Integer.valueOf(weight));
+        }
+        ReplicaPool.Policy policy = ReplicaPool.Policy.valueOf(
+                GateNosqlConfiguration.getProperty("replica_policy", "least_outstanding").toUpperCase());
+        pool = new ReplicaPool<>(QueryConnectionManager.createServer(GateNosqlConfiguration.getProperty("server_url"), username, password),
+                                 replicas, weights, policy);
+        if (pool.hasReplicas()) {
+            long interval = GateNosqlConfiguration.getLong("replica_health_interval", DEFAULT_HEALTH_INTERVAL) * 1000L;
+            timerService.createIntervalTimer(interval, interval, new TimerConfig("replica-health", false));
+        }
+    }
+
+    /**
+     * Tests if reads can be routed to replicas.
+     * @return true if any replica is configured
+     */
+    public boolean hasReplicas() {
+        return pool.hasReplicas();
+    }
+
+    /**
+     * Opens a connection of a read to the given repository of the given catalog on the chosen server.
+     * The connection has to be released after it is closed.
+     * @param catalogId String
+     * @param repositoryId String
+     * @return connection
+     * @throws RepositoryException if the connection can not be opened, the chosen replica is
+     * taken out of rotation
+     */
+    public AGRepositoryConnection getReadConnection(String catalogId, String repositoryId) throws RepositoryException {
+        ReplicaPool.Member<AGServer> member = pool.acquire(true);
+        try {
+            AGRepositoryConnection connection = getRepository(member.getServer(), catalogId, repositoryId).getConnection();
+            connections.put(connection, member);
+            return connection;
+        } catch (RepositoryException | RuntimeException ex) {
+            repositories.remove(key(member.getServer(), catalogId, repositoryId));
+            pool.release(member);
+            pool.markFailed(member);
+            throw new RepositoryException("Server: " + member.getServer().getServerURL() + " can not be read.", ex);
+        }
+    }
+
+    /**
+     * Finishes the read of the given connection.
+     * @param connection AGRepositoryConnection, connections of writes and null are ignored
+     */
+    public void release(AGRepositoryConnection connection) {
+        if (connection == null) {
+            return;
+        }
+        ReplicaPool.Member<AGServer> member = connections.remove(connection);
+        if (member != null) {
+            pool.release(member);
+        }
+    }
+
+    /**
+     * Tests if the connection reads a replica, whose data may be older than data of the primary.
+     * @param connection AGRepositoryConnection, null is ignored
+     * @return true if the connection was opened on a replica
+     */
+    public boolean isReplica(AGRepositoryConnection connection) {
+        if (connection == null) {
+            return false;
+        }
+        ReplicaPool.Member<AGServer> member = connections.get(connection);
+        return member != null && !member.isPrimary();
+    }
+
+    /**
+     * Forgets opened handles of the deleted repository on all servers.
+     * @param catalogId String
+     * @param repositoryId String
+     */
+    public void removeRepository(String catalogId, String repositoryId) {
+        String suffix = '\n' + catalogId + '\n' + repositoryId;
+        for (String key : repositories.keySet()) {
+            if (key.endsWith(suffix)) {
+                repositories.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Checks health of replicas.
+     * @param timer Timer
+     */
+    @Timeout
+    void checkHealth(Timer timer) {
+        pool.checkHealth(new ReplicaPool.HealthCheck<AGServer>() {
+            @Override
+            public boolean isHealthy(AGServer server) throws Exception {
+                return server.getVersion() != null;
+            }
+        });
+    }
+
+
+
+    private AGCatalog getCatalog(AGServer server, String catalogId) throws RepositoryException {
+        String key = server.getServerURL() + '\n' + catalogId;
+        AGCatalog catalog = catalogs.get(key);
+        if (catalog == null) {
+            catalog = server.getCatalog(catalogId);
+            if (catalog == null) {
+                throw new RepositoryException("Catalog: "+catalogId+" does not exist.");
+            }
+            catalogs.putIfAbsent(key, catalog);
+        }
+        return catalog;
+    }
+
+    private AGRepository getRepository(AGServer server, String catalogId, String repositoryId) throws RepositoryException {
+        String key = key(server, catalogId, repositoryId);
+        AGRepository repository = repositories.get(key);
+        if (repository == null) {
+            repository = getCatalog(server, catalogId).openRepository(repositoryId);
+            AGRepository previous = repositories.putIfAbsent(key, repository);
+            if (previous != null) {
+                repository = previous;
+            }
+        }
+        return repository;
+    }
+
+    private static String key(AGServer server, String catalogId, String repositoryId) {
+        return server.getServerURL() + '\n' + catalogId + '\n' + repositoryId;
+    }
+
+    private static List<String> split(String values) {
+        List<String> result = new ArrayList<>();
+        for (String value : values.split("[,\\s]+")) {
+            if (!value.isEmpty()) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      RepositoryProfile.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+
+/**
+ * Enum RepositoryProfile defines index layout of a newly created repository:
+ * <ul>
+ * <li>DEFAULT - indexes for subgraph hierarchy [i, gspoi, gsopi, gpsoi, gposi, gospi, gopsi],</li>
+ * <li>READ_OPTIMISED - DEFAULT indexes extended by [spogi, posgi, ospgi] for queries over many subgraphs,</li>
+ * <li>WRITE_OPTIMISED - one index per leading position [i, gspoi, gposi, gospi],</li>
+ * <li>BULK_LOAD - just [i, gspoi] and bulk mode of AllegroGraph during initial loading. Secondary indexes
+ * are built by GateNosqlRemote.finishBulkLoad.</li>
+ * </ul>
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public enum RepositoryProfile {
+
+    DEFAULT("i", "gspoi", "gsopi", "gpsoi", "gposi", "gospi", "gopsi"),
+    READ_OPTIMISED("i", "gspoi", "gsopi", "gpsoi", "gposi", "gospi", "gopsi", "spogi", "posgi", "ospgi"),
+    WRITE_OPTIMISED("i", "gspoi", "gposi", "gospi"),
+    BULK_LOAD("i", "gspoi");
+
+
+    /**
+     * String[] indexes of the profile
+     */
+    private final String[] indexes;
+
+
+
+    private RepositoryProfile(String... indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Returns indexes of the profile.
+     * @return indexes
+     */
+    public ArrayList<String> getIndexes() {
+        return new ArrayList<>(Arrays.asList(indexes));
+    }
+}
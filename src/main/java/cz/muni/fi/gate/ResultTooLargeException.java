@@ -0,0 +1,47 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ResultTooLargeException.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import javax.ejb.ApplicationException;
+
+
+
+/**
+ * Class ResultTooLargeException is thrown by query methods of GateNosqlBean if a query
+ * returns more rows than maxRows of its QueryOptions (or query_max_rows property).
+ * Unlike other failures, which return null, it tells the client that the query itself
+ * succeeded and it has to be paged by limit and offset of QueryOptions.
+ * It is an application exception, so it reaches the client unwrapped.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@ApplicationException
+public class ResultTooLargeException extends RuntimeException {
+
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * int maxRows is the maximum which was exceeded
+     */
+    private final int maxRows;
+
+
+
+    public ResultTooLargeException(String queryId, int maxRows) {
+        super("Query: " + queryId + " returns more than " + maxRows + " rows, use limit and offset of QueryOptions.");
+        this.maxRows = maxRows;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      RunningQueries.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import org.openrdf.repository.RepositoryException;
+
+
+
+/**
+ * Class RunningQueries registers all queries which are being evaluated by GateNosqlBean instances.
+ * It cancels queries on request and periodically cancels queries which
+ * outlived their timeout (e.g. the server did not stop them).
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class RunningQueries {
+
+
+    /**
+     * long EXPIRY_GRACE is time in milliseconds given to the server to stop an expired query itself
+     */
+    private static final long EXPIRY_GRACE = 5000;
+
+    /**
+     * ConcurrentMap<String, RunningQuery> queries maps query keys to running queries
+     */
+    private final ConcurrentMap<String, RunningQuery> queries = new ConcurrentHashMap<>();
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(RunningQueries.class.getName());
+
+
+
+    /**
+     * Registers a new query. The query is identified by queryId of the options or by
+     * a generated key if it has no id.
+     * @param repositoryId String
+     * @param options QueryOptions
+     * @return running query
+     * @throws RepositoryException if a query with the same id is already running
+     */
+    public RunningQuery start(String repositoryId, QueryOptions options) throws RepositoryException {
+        long timeout = options.getTimeout();
+        if (timeout == QueryOptions.DEFAULT_TIMEOUT) {
+            timeout = Math.max(GateNosqlConfiguration.getLong("query_timeout", QueryOptions.NO_TIMEOUT), QueryOptions.NO_TIMEOUT);
+        }
+        String key = options.getQueryId() != null ? options.getQueryId() : UUID.randomUUID().toString();
+        int maxRows = options.getMaxRows();
+        if (maxRows == QueryOptions.DEFAULT_MAX_ROWS) {
+            maxRows = (int) Math.min(Math.max(GateNosqlConfiguration.getLong("query_max_rows", QueryOptions.NO_MAX_ROWS),
+                                              QueryOptions.NO_MAX_ROWS), Integer.MAX_VALUE);
+        }
+        RunningQuery query = new RunningQuery(key, repositoryId, timeout, options.getLimit(), options.getOffset(), maxRows);
+        if (queries.putIfAbsent(key, query) != null) {
+            throw new RepositoryException("Query: " + key + " is already running.");
+        }
+        return query;
+    }
+
+    /**
+     * Unregisters the finished query.
+     * @param query RunningQuery, null is ignored
+     */
+    public void finish(RunningQuery query) {
+        if (query != null) {
+            queries.remove(query.getKey(), query);
+        }
+    }
+
+    /**
+     * Cancels the query with the given id.
+     * @param queryId String
+     * @return true if the query was running
+     */
+    public boolean cancel(String queryId) {
+        RunningQuery query = queries.remove(queryId);
+        if (query == null) {
+            return false;
+        }
+        query.cancel();
+        return true;
+    }
+
+    /**
+     * Cancels queries which exceeded their timeout.
+     */
+    @Schedule(second = "*/5", minute = "*", hour = "*", persistent = false)
+    public void cancelExpired() {
+        long now = System.nanoTime();
+        for (RunningQuery query : queries.values()) {
+            if (query.isExpired(now, EXPIRY_GRACE) && queries.remove(query.getKey(), query)) {
+                LOGGER.log(Level.WARNING, "Query: {0} exceeded timeout {1} ms, it is cancelled.",
+                           new Object[]{query.getKey(), query.getTimeout()});
+                query.cancel();
+            }
+        }
+    }
+}
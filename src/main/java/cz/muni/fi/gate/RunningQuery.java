@@ -0,0 +1,343 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      RunningQuery.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.franz.agraph.jena.AGQuery;
+import com.franz.agraph.jena.AGQueryExecution;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.Syntax;
+import org.openrdf.repository.RepositoryException;
+
+
+
+/**
+ * Class RunningQuery represents one query which is being evaluated.
+ * Cancellation aborts the execution of the query on the server (see abort) and the reading
+ * of results checks the state after every row. Evaluation on the server is also bounded
+ * by the timeout sent with the query.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public final class RunningQuery {
+
+
+    /**
+     * String key identifies the query in RunningQueries
+     */
+    private final String key;
+
+    /**
+     * String repositoryId of the queried repository
+     */
+    private final String repositoryId;
+
+    /**
+     * long timeout in milliseconds, NO_TIMEOUT if the query is not limited
+     */
+    private final long timeout;
+
+    /**
+     * long deadline as System.nanoTime()
+     */
+    private final long deadline;
+
+    /**
+     * int limit and offset of the query, see QueryOptions
+     */
+    private final int limit;
+
+    private final int offset;
+
+    /**
+     * int maxRows of the query, NO_MAX_ROWS if the number of rows is not checked
+     */
+    private final int maxRows;
+
+    /**
+     * long rows is a number of rows read so far
+     */
+    private long rows;
+
+    /**
+     * QueryTrace trace measures phases of the query for SlowQueryLog, null if they are not measured
+     */
+    private QueryTrace trace;
+
+    /**
+     * boolean tooLarge is set when the result exceeds maxRows
+     */
+    private boolean tooLarge;
+
+    /**
+     * boolean cancelled is set by cancel
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * AGQueryExecution execution of the query on the server, null if the query is not being executed
+     */
+    private AGQueryExecution execution;
+
+    /**
+     * Thread thread which executes the query
+     */
+    private Thread thread;
+
+
+
+    RunningQuery(String key, String repositoryId, long timeout, int limit, int offset, int maxRows) {
+        this.key = key;
+        this.repositoryId = repositoryId;
+        this.timeout = timeout;
+        this.deadline = System.nanoTime() + timeout * 1000000L;
+        this.limit = limit;
+        this.offset = offset;
+        this.maxRows = maxRows;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    String getRepositoryId() {
+        return repositoryId;
+    }
+
+    long getTimeout() {
+        return timeout;
+    }
+
+    QueryTrace getTrace() {
+        return trace;
+    }
+
+    void setTrace(QueryTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Ends the given phase of the query if phases are measured.
+     * @param phase QueryTrace.Phase
+     */
+    void mark(QueryTrace.Phase phase) {
+        if (trace != null) {
+            trace.mark(phase);
+        }
+    }
+
+    /**
+     * Returns the query with AllegroGraph timeout option so the server stops evaluation by itself.
+     * @param query String
+     * @return query with timeout option
+     */
+    String prepareQuery(String query) {
+        if (timeout == QueryOptions.NO_TIMEOUT) {
+            return query;
+        }
+        // AllegroGraph accepts whole seconds only
+        long seconds = (timeout + 999) / 1000;
+        return "PREFIX franzOption_queryTimeout: <franz:" + seconds + ">\n" + query;
+    }
+
+    /**
+     * Sets limit and offset of the query which are evaluated by the server. If the number of rows
+     * is checked, the server returns at most maxRows + 1 rows, so the exceeding is detected
+     * without reading the whole result.
+     * @param query AGQuery
+     */
+    void prepareExecution(AGQuery query) {
+        int serverLimit = getEvaluatedLimit();
+        if (serverLimit != QueryOptions.NO_LIMIT) {
+            query.setLimit(serverLimit);
+        }
+        if (offset > 0) {
+            query.setOffset(offset);
+        }
+    }
+
+    /**
+     * Sets limit and offset of the query evaluated locally (see SubgraphCache) the same way
+     * as prepareExecution(AGQuery).
+     * @param query Query
+     */
+    void prepareExecution(Query query) {
+        int localLimit = getEvaluatedLimit();
+        if (localLimit != QueryOptions.NO_LIMIT) {
+            query.setLimit(localLimit);
+        }
+        if (offset > 0) {
+            query.setOffset(offset);
+        }
+    }
+
+    /**
+     * Returns the query for a StorageBackend, which gets the query as a string, with limit and offset
+     * set the same way as prepareExecution(Query). The deadline is checked by checkRow only.
+     * @param query String
+     * @return prepared query
+     */
+    String prepareBackendQuery(String query) {
+        Query sparql = QueryFactory.create(query, Syntax.syntaxSPARQL_11);
+        prepareExecution(sparql);
+        return sparql.serialize(Syntax.syntaxSPARQL_11);
+    }
+
+    /**
+     * Tests if the query is past its deadline by more than the given grace period.
+     * @param now long System.nanoTime()
+     * @param grace long milliseconds
+     * @return true if the query is expired
+     */
+    boolean isExpired(long now, long grace) {
+        return timeout != QueryOptions.NO_TIMEOUT && now - deadline > grace * 1000000L;
+    }
+
+    /**
+     * Throws RepositoryException if the query was cancelled or its time is up.
+     * @throws RepositoryException
+     */
+    void checkActive() throws RepositoryException {
+        if (cancelled) {
+            throw new RepositoryException("Query: " + key + " was cancelled.");
+        }
+        if (isExpired(System.nanoTime(), 0)) {
+            throw new RepositoryException("Query: " + key + " exceeded timeout " + timeout + " ms.");
+        }
+    }
+
+    /**
+     * Counts the next row of the result. Throws RepositoryException if the query was cancelled
+     * or its time is up and ResultTooLargeException if the row exceeds maxRows.
+     * @throws RepositoryException
+     */
+    void checkRow() throws RepositoryException {
+        checkActive();
+        if (maxRows != QueryOptions.NO_MAX_ROWS && ++rows > maxRows) {
+            tooLarge = true;
+            throw new ResultTooLargeException(key, maxRows);
+        }
+    }
+
+    /**
+     * Returns the limit of a query copying triples into memory of the bean when the given number of triples
+     * is already copied: at most maxRows - copied + 1, so a copy exceeding maxRows is detected without
+     * reading it whole. Copied triples are bounded by maxRows like rows of the result.
+     * @param copied long
+     * @return limit of the query, NO_LIMIT if the number of rows is not checked
+     */
+    int getCopyLimit(long copied) {
+        if (maxRows == QueryOptions.NO_MAX_ROWS || maxRows == Integer.MAX_VALUE) {
+            return QueryOptions.NO_LIMIT;
+        }
+        return (int) Math.max(maxRows - copied, 0) + 1;
+    }
+
+    /**
+     * Throws ResultTooLargeException if the number of copied triples exceeds maxRows.
+     * @param copied long
+     */
+    void checkCopied(long copied) {
+        if (maxRows != QueryOptions.NO_MAX_ROWS && copied > maxRows) {
+            tooLarge = true;
+            throw new ResultTooLargeException(key, maxRows);
+        }
+    }
+
+    /**
+     * Returns the result of the query unless the query exceeded maxRows. Query methods
+     * return their results from finally blocks, which would discard the exception thrown
+     * by checkRow, so it is thrown again here.
+     * @param query RunningQuery, null if the query did not start
+     * @param result T
+     * @return result
+     * @throws ResultTooLargeException if the query exceeded maxRows
+     */
+    static <T> T getResult(RunningQuery query, T result) {
+        if (query != null && query.tooLarge) {
+            throw new ResultTooLargeException(query.key, query.maxRows);
+        }
+        return result;
+    }
+
+    /**
+     * Registers the execution of the query by the current thread, so that cancel can abort it.
+     * Every startExecution must be followed by finishExecution in a finally block.
+     * @param execution AGQueryExecution
+     */
+    void startExecution(AGQueryExecution execution) {
+        if (timeout != QueryOptions.NO_TIMEOUT) {
+            // Ignored by AllegroGraph 4.12.2, the server is bounded by prepareQuery
+            execution.setTimeout(timeout);
+        }
+        synchronized (this) {
+            this.execution = execution;
+            this.thread = Thread.currentThread();
+        }
+        if (cancelled) {
+            abort();
+        }
+    }
+
+    /**
+     * Unregisters and closes the execution of the query.
+     * @param execution AGQueryExecution
+     */
+    void finishExecution(AGQueryExecution execution) {
+        synchronized (this) {
+            this.execution = null;
+            this.thread = null;
+        }
+        execution.close();
+    }
+
+    /**
+     * Cancels the query: the execution on the server is aborted and reading of its results stops
+     * at the next row.
+     */
+    void cancel() {
+        cancelled = true;
+        abort();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+
+
+    /**
+     * Aborts the registered execution. AGQueryExecution.abort() is not supported by AllegroGraph 4.12.2,
+     * then the HTTP connection of the executing thread is closed (see QueryConnectionManager),
+     * the server stops the query when its connection is lost.
+     */
+    private synchronized void abort() {
+        if (execution == null) {
+            return;
+        }
+        try {
+            execution.abort();
+        } catch (UnsupportedOperationException ex) {
+            QueryConnectionManager.abort(thread);
+        }
+    }
+
+    /**
+     * Returns the limit of evaluation, at most maxRows + 1 if the number of rows is checked.
+     */
+    private int getEvaluatedLimit() {
+        if (maxRows != QueryOptions.NO_MAX_ROWS && maxRows < Integer.MAX_VALUE
+                && (limit == QueryOptions.NO_LIMIT || limit > maxRows)) {
+            return maxRows + 1;
+        }
+        return limit;
+    }
+}
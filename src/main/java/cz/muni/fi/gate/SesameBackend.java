@@ -0,0 +1,263 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      SesameBackend.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.franz.agraph.jena.AGNodeFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.MalformedQueryException;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQuery;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.impl.DatasetImpl;
+import org.openrdf.query.parser.ParsedQuery;
+import org.openrdf.query.parser.ParsedTupleQuery;
+import org.openrdf.query.parser.sparql.SPARQLParser;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.RepositoryResult;
+import org.openrdf.repository.sail.SailRepositoryConnection;
+import org.openrdf.repository.sail.SailTupleQuery;
+import org.openrdf.repository.util.RDFInserter;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.RDFParserFactory;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.RDFWriterFactory;
+import org.openrdf.rio.UnsupportedRDFormatException;
+import org.openrdf.rio.binary.BinaryRDFParserFactory;
+import org.openrdf.rio.binary.BinaryRDFWriterFactory;
+import org.openrdf.rio.n3.N3ParserFactory;
+import org.openrdf.rio.n3.N3WriterFactory;
+import org.openrdf.rio.ntriples.NTriplesParserFactory;
+import org.openrdf.rio.ntriples.NTriplesWriterFactory;
+import org.openrdf.rio.rdfxml.RDFXMLParserFactory;
+import org.openrdf.rio.rdfxml.RDFXMLWriterFactory;
+import org.openrdf.rio.trig.TriGParserFactory;
+import org.openrdf.rio.trig.TriGWriterFactory;
+import org.openrdf.rio.trix.TriXParserFactory;
+import org.openrdf.rio.trix.TriXWriterFactory;
+import org.openrdf.rio.turtle.TurtleParserFactory;
+import org.openrdf.rio.turtle.TurtleWriterFactory;
+
+
+
+/**
+ * Class SesameBackend implements operations with subgraphs, loading, querying and export
+ * by Sesame repository API. Subclasses manage repositories and provide their connections.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public abstract class SesameBackend implements StorageBackend {
+
+
+    private static final RDFParserFactory[] PARSERS = {
+        new RDFXMLParserFactory(), new NTriplesParserFactory(), new TurtleParserFactory(), new N3ParserFactory(),
+        new TriGParserFactory(), new TriXParserFactory(), new BinaryRDFParserFactory()
+    };
+
+    private static final RDFWriterFactory[] WRITERS = {
+        new RDFXMLWriterFactory(), new NTriplesWriterFactory(), new TurtleWriterFactory(), new N3WriterFactory(),
+        new TriGWriterFactory(), new TriXWriterFactory(), new BinaryRDFWriterFactory()
+    };
+
+    /**
+     * ConnectionMetrics connections counts connections opened by openConnection
+     */
+    private volatile ConnectionMetrics connections = new ConnectionMetrics();
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(SesameBackend.class.getName());
+
+
+
+    /**
+     * Returns a new connection to the repository, it is closed by the caller.
+     * @param repositoryId String
+     * @return connection
+     * @throws RepositoryException if the repository does not exist
+     */
+    protected abstract RepositoryConnection getConnection(String repositoryId) throws RepositoryException;
+
+    @Override
+    public void setConnections(ConnectionMetrics connections) {
+        this.connections = connections;
+    }
+
+    @Override
+    public ArrayList<String> getAllSubgraphs(String repositoryId) throws RepositoryException {
+        ArrayList<String> allSubgraphs = new ArrayList<>();
+        RepositoryConnection connection = openConnection(repositoryId);
+        try {
+            RepositoryResult<Resource> contexts = connection.getContextIDs();
+            try {
+                while (contexts.hasNext()) {
+                    allSubgraphs.add(contexts.next().toString());
+                }
+            } finally {
+                contexts.close();
+            }
+        } finally {
+            closeConnection(connection);
+        }
+        return allSubgraphs;
+    }
+
+    @Override
+    public void loadOntology(String repositoryId, String subgraphId, String baseUri, InputStream input, RDFFormat format)
+            throws OpenRDFException, IOException {
+        RDFParser parser = createParser(format);
+        RepositoryConnection connection = openConnection(repositoryId);
+        try {
+            RDFInserter inserter = new RDFInserter(connection);
+            inserter.enforceContext(connection.getValueFactory().createURI(subgraphId));
+            parser.setRDFHandler(inserter);
+            connection.setAutoCommit(false);
+            parser.parse(input, baseUri);
+            connection.commit();
+        } finally {
+            connection.rollback();
+            closeConnection(connection);
+        }
+    }
+
+    @Override
+    public void deleteSubgraph(String repositoryId, String subgraphId) throws RepositoryException {
+        RepositoryConnection connection = openConnection(repositoryId);
+        try {
+            connection.clear(connection.getValueFactory().createURI(subgraphId));
+        } finally {
+            closeConnection(connection);
+        }
+    }
+
+    @Override
+    public RDFNodeTable query(String repositoryId, List<String> subgraphIds, String query) throws OpenRDFException {
+        RDFNodeTable result = new RDFNodeTable();
+        // Nodes are converted to Jena nodes, so they are printed the same way as nodes of AllegroGraph
+        Model nodes = ModelFactory.createDefaultModel();
+        RepositoryConnection connection = openConnection(repositoryId);
+        try {
+            TupleQuery tupleQuery = prepareTupleQuery(connection, query);
+            DatasetImpl dataset = new DatasetImpl();
+            for (URI subgraph : toURIs(connection.getValueFactory(), subgraphIds)) {
+                dataset.addDefaultGraph(subgraph);
+            }
+            tupleQuery.setDataset(dataset);
+            TupleQueryResult rows = tupleQuery.evaluate();
+            try {
+                while (rows.hasNext()) {
+                    BindingSet row = rows.next();
+                    result.addRow(toNode(nodes, row.getValue("s")), toNode(nodes, row.getValue("p")), toNode(nodes, row.getValue("o")));
+                }
+            } finally {
+                rows.close();
+            }
+        } finally {
+            closeConnection(connection);
+        }
+        result.trimToSize();
+        return result;
+    }
+
+    @Override
+    public void export(String repositoryId, List<String> subgraphIds, OutputStream output, RDFFormat format) throws OpenRDFException {
+        RepositoryConnection connection = openConnection(repositoryId);
+        try {
+            URI[] subgraphs = toURIs(connection.getValueFactory(), subgraphIds);
+            connection.exportStatements(null, null, null, false, createWriter(format, output), subgraphs);
+        } finally {
+            closeConnection(connection);
+        }
+    }
+
+
+
+    /**
+     * Returns a parser of the format. Parsers are not looked up by Rio, its registry
+     * is based on javax.imageio.spi.ServiceRegistry which newer JVMs restrict to ImageIO.
+     */
+    static RDFParser createParser(RDFFormat format) throws UnsupportedRDFormatException {
+        for (RDFParserFactory factory : PARSERS) {
+            if (factory.getRDFFormat().equals(format)) {
+                return factory.getParser();
+            }
+        }
+        throw new UnsupportedRDFormatException("Format: " + format + " is not supported.");
+    }
+
+    private static TupleQuery prepareTupleQuery(RepositoryConnection connection, String query) throws OpenRDFException {
+        if (connection instanceof SailRepositoryConnection) {
+            // Local stores parse the query themselves, it is not looked up by the registry either
+            ParsedQuery parsed = new SPARQLParser().parseQuery(query, null);
+            if (!(parsed instanceof ParsedTupleQuery)) {
+                throw new MalformedQueryException("Query: " + query + " is not a SELECT query.");
+            }
+            return new SailTupleQuery((ParsedTupleQuery) parsed, (SailRepositoryConnection) connection) {};
+        }
+        return connection.prepareTupleQuery(QueryLanguage.SPARQL, query);
+    }
+
+    static RDFWriter createWriter(RDFFormat format, OutputStream output) throws UnsupportedRDFormatException {
+        for (RDFWriterFactory factory : WRITERS) {
+            if (factory.getRDFFormat().equals(format)) {
+                return factory.getWriter(output);
+            }
+        }
+        throw new UnsupportedRDFormatException("Format: " + format + " is not supported.");
+    }
+
+    private static URI[] toURIs(ValueFactory factory, List<String> subgraphIds) {
+        URI[] subgraphs = new URI[subgraphIds.size()];
+        for (int i = 0; i < subgraphs.length; i++) {
+            subgraphs[i] = factory.createURI(subgraphIds.get(i));
+        }
+        return subgraphs;
+    }
+
+    private static RDFNode toNode(Model nodes, Value value) {
+        return value == null ? null : nodes.asRDFNode(AGNodeFactory.asNode(value));
+    }
+
+    /**
+     * Returns a new connection to the repository counted by ConnectionMetrics, it is closed by closeConnection.
+     */
+    protected RepositoryConnection openConnection(String repositoryId) throws RepositoryException {
+        RepositoryConnection connection = getConnection(repositoryId);
+        connections.opened();
+        return connection;
+    }
+
+    protected void closeConnection(RepositoryConnection connection) {
+        connections.closed();
+        try {
+            connection.close();
+        } catch (RepositoryException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
+    }
+}
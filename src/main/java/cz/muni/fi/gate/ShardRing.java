@@ -0,0 +1,86 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ShardRing.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+
+/**
+ * Class ShardRing assigns keys to shards by consistent hashing. Every shard owns
+ * VIRTUAL_NODES points of the ring and a key belongs to the shard of the first point
+ * following the hash of the key. If a shard is added, only keys of about 1/N of the ring
+ * change their shard. Hashes are computed by MD5, so the assignment does not depend on the JVM.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+final class ShardRing {
+
+
+    /**
+     * int VIRTUAL_NODES is a number of points of one shard
+     */
+    static final int VIRTUAL_NODES = 128;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * TreeMap<Long, Integer> ring maps points to shards
+     */
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+
+
+    /**
+     * Creates the ring of the given number of shards.
+     * @param shards int
+     */
+    ShardRing(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Argument shards has to be positive.");
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                ring.put(hash("shard-" + shard + "-" + node), shard);
+            }
+        }
+    }
+
+    /**
+     * Returns the shard of the given key.
+     * @param key String
+     * @return index of the shard
+     */
+    int getShard(String key) {
+        Map.Entry<Long, Integer> point = ring.ceilingEntry(hash(key));
+        return point != null ? point.getValue() : ring.firstEntry().getValue();
+    }
+
+
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(CHARSET));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException ex) {
+            // Every JVM has to provide MD5
+            throw new IllegalStateException(ex);
+        }
+    }
+}
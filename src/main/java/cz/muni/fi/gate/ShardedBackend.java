@@ -0,0 +1,584 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ShardedBackend.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryException;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.SortCondition;
+import com.hp.hpl.jena.query.Syntax;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingComparator;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Statement;
+import org.openrdf.query.MalformedQueryException;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+
+
+
+/**
+ * Class ShardedBackend spreads subgraphs of every repository over several backends (shards),
+ * e.g. AllegroGraph servers or catalogs. Every repository exists in all shards and every
+ * subgraph is stored in exactly one shard, its home shard is given by the placement map
+ * or by consistent hashing of its id (see ShardRing).
+ * A query of subgraphs of one shard goes to the shard unchanged. A query of several shards is
+ * scattered in parallel to shards holding the queried subgraphs and their rows are concatenated,
+ * so duplicates are kept like in other backends; DISTINCT and REDUCED merge them, ORDER BY
+ * (over variables s, p and o) sorts the merged rows and offset and limit apply to the merged rows.
+ * Patterns are matched within one shard, so a query joining subgraphs of different shards returns
+ * just the union of the joins of each shard, and a triple stored in subgraphs of two shards
+ * matches once in each of them.
+ * A subgraph found outside of its home shard (it was moved or the shards changed) stays
+ * where it is until rebalance moves it home. Placement of a repository is discovered
+ * by listing all shards when the repository is used for the first time.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class ShardedBackend implements StorageBackend {
+
+
+    /**
+     * List<StorageBackend> shards holds backends of the shards
+     */
+    private final List<StorageBackend> shards;
+
+    /**
+     * ShardRing ring assigns subgraphs without explicit placement
+     */
+    private final ShardRing ring;
+
+    /**
+     * Map<String, Integer> placement maps subgraph ids to their home shards
+     */
+    private final Map<String, Integer> placement;
+
+    /**
+     * ConcurrentMap<String, Integer> locations maps repository and subgraph to the shard
+     * where it is stored if it is not its home shard
+     */
+    private final ConcurrentMap<String, Integer> locations = new ConcurrentHashMap<>();
+
+    /**
+     * Set<String> discovered repositories whose subgraphs were listed
+     */
+    private final Set<String> discovered = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * BatchExecutor executor scatters requests to shards on threads of the container,
+     * null if requests are sent one after another by the calling thread
+     */
+    private volatile BatchExecutor executor;
+
+    /**
+     * List<Var> ROW_VARS are variables of rows returned by backends
+     */
+    private static final List<Var> ROW_VARS = Arrays.asList(Var.alloc("s"), Var.alloc("p"), Var.alloc("o"));
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(ShardedBackend.class.getName());
+
+
+
+    /**
+     * Creates the backend of the given shards.
+     * @param shards List<StorageBackend>
+     * @param placement Map<String, Integer> explicit home shards of subgraphs, other subgraphs are hashed
+     */
+    public ShardedBackend(List<StorageBackend> shards, Map<String, Integer> placement) {
+        for (Map.Entry<String, Integer> entry : placement.entrySet()) {
+            if (entry.getValue() < 0 || entry.getValue() >= shards.size()) {
+                throw new IllegalArgumentException("Shard: " + entry.getValue() + " of subgraph: " + entry.getKey() + " does not exist.");
+            }
+        }
+        this.shards = new ArrayList<>(shards);
+        this.ring = new ShardRing(shards.size());
+        this.placement = new HashMap<>(placement);
+    }
+
+    /**
+     * Sets the executor which sends requests to shards in parallel (see BackendRegistry).
+     * Without it requests are sent one after another.
+     * @param executor BatchExecutor
+     */
+    public void setExecutor(BatchExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the number of shards.
+     * @return number of shards
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Returns the shard where the given subgraph is stored or is going to be stored.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return index of the shard
+     * @throws RepositoryException if shards can not be listed
+     */
+    public int getShard(String repositoryId, String subgraphId) throws RepositoryException {
+        discover(repositoryId);
+        Integer location = locations.get(key(repositoryId, subgraphId));
+        return location != null ? location : getHomeShard(subgraphId);
+    }
+
+    /**
+     * Returns the home shard of the given subgraph.
+     * @param subgraphId String
+     * @return index of the shard
+     */
+    public int getHomeShard(String subgraphId) {
+        Integer home = placement.get(subgraphId);
+        return home != null ? home : ring.getShard(subgraphId);
+    }
+
+    /**
+     * Moves the subgraph to the given shard. The subgraph is copied first and deleted
+     * from its previous shard afterwards, so it stays readable during the move.
+     * It must not be written during the move, GateNosqlBean.moveSubgraph holds
+     * the exclusive lock of the subgraph (see SubgraphLocks).
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param shard int target shard
+     * @throws OpenRDFException if the subgraph can not be copied
+     * @throws IOException if the temporary copy can not be written
+     */
+    public void moveSubgraph(String repositoryId, String subgraphId, int shard) throws OpenRDFException, IOException {
+        if (shard < 0 || shard >= shards.size()) {
+            throw new IllegalArgumentException("Shard: " + shard + " does not exist.");
+        }
+        int source = getShard(repositoryId, subgraphId);
+        if (source == shard) {
+            return;
+        }
+        File copy = File.createTempFile("gate-shard", ".nt");
+        try {
+            try (OutputStream output = new FileOutputStream(copy)) {
+                shards.get(source).export(repositoryId, Arrays.asList(subgraphId), output, RDFFormat.NTRIPLES);
+            }
+            try (InputStream input = new FileInputStream(copy)) {
+                shards.get(shard).loadOntology(repositoryId, subgraphId, subgraphId, input, RDFFormat.NTRIPLES);
+            }
+            setLocation(repositoryId, subgraphId, shard);
+            shards.get(source).deleteSubgraph(repositoryId, subgraphId);
+        } finally {
+            if (!copy.delete()) {
+                LOGGER.log(Level.WARNING, "Temporary copy: " + copy + " can not be deleted.");
+            }
+        }
+    }
+
+    /**
+     * Moves every subgraph of the repository stored outside of its home shard to its home shard.
+     * @param repositoryId String
+     * @return number of moved subgraphs
+     * @throws OpenRDFException if a subgraph can not be copied
+     * @throws IOException if a temporary copy can not be written
+     */
+    public int rebalance(String repositoryId) throws OpenRDFException, IOException {
+        List<String> misplaced = getMisplacedSubgraphs(repositoryId);
+        for (String subgraphId : misplaced) {
+            moveSubgraph(repositoryId, subgraphId, getHomeShard(subgraphId));
+        }
+        return misplaced.size();
+    }
+
+    /**
+     * Returns subgraphs of the repository which are stored outside of their home shards.
+     * @param repositoryId String
+     * @return ids of misplaced subgraphs
+     * @throws RepositoryException if shards can not be listed
+     */
+    public List<String> getMisplacedSubgraphs(String repositoryId) throws RepositoryException {
+        List<String> misplaced = new ArrayList<>();
+        for (String subgraphId : getAllSubgraphs(repositoryId)) {
+            if (getShard(repositoryId, subgraphId) != getHomeShard(subgraphId)) {
+                misplaced.add(subgraphId);
+            }
+        }
+        return misplaced;
+    }
+
+    @Override
+    public ArrayList<String> getAllRepositories() throws RepositoryException {
+        LinkedHashSet<String> allRepositories = new LinkedHashSet<>();
+        for (StorageBackend shard : shards) {
+            allRepositories.addAll(shard.getAllRepositories());
+        }
+        return new ArrayList<>(allRepositories);
+    }
+
+    @Override
+    public void createRepository(String repositoryId) throws RepositoryException {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            try {
+                shards.get(shard).createRepository(repositoryId);
+            } catch (RepositoryException ex) {
+                // The repository is created in all shards or in none
+                for (int created = 0; created < shard; created++) {
+                    shards.get(created).deleteRepository(repositoryId);
+                }
+                throw ex;
+            }
+        }
+        discovered.add(repositoryId);
+    }
+
+    @Override
+    public void deleteRepository(String repositoryId) throws RepositoryException {
+        RepositoryException failure = null;
+        for (StorageBackend shard : shards) {
+            try {
+                shard.deleteRepository(repositoryId);
+            } catch (RepositoryException ex) {
+                failure = ex;
+            }
+        }
+        discovered.remove(repositoryId);
+        String prefix = key(repositoryId, "");
+        for (String location : locations.keySet()) {
+            if (location.startsWith(prefix)) {
+                locations.remove(location);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public ArrayList<String> getIndexes(String repositoryId) throws RepositoryException {
+        return shards.get(0).getIndexes(repositoryId);
+    }
+
+    @Override
+    public void addIndexes(String repositoryId, List<String> indexes) throws RepositoryException {
+        for (StorageBackend shard : shards) {
+            shard.addIndexes(repositoryId, indexes);
+        }
+    }
+
+    @Override
+    public void dropIndexes(String repositoryId, List<String> indexes) throws RepositoryException {
+        for (StorageBackend shard : shards) {
+            shard.dropIndexes(repositoryId, indexes);
+        }
+    }
+
+    @Override
+    public ArrayList<String> getAllSubgraphs(final String repositoryId) throws RepositoryException {
+        List<Callable<ArrayList<String>>> listings = new ArrayList<>();
+        for (final StorageBackend shard : shards) {
+            listings.add(new Callable<ArrayList<String>>() {
+                @Override
+                public ArrayList<String> call() throws RepositoryException {
+                    return shard.getAllSubgraphs(repositoryId);
+                }
+            });
+        }
+        List<ArrayList<String>> results = scatter(listings);
+        ArrayList<String> allSubgraphs = new ArrayList<>();
+        for (int shard = 0; shard < results.size(); shard++) {
+            for (String subgraphId : results.get(shard)) {
+                Integer previous = setLocation(repositoryId, subgraphId, shard);
+                if (previous != null && previous != shard && allSubgraphs.contains(subgraphId)) {
+                    LOGGER.log(Level.WARNING, "Subgraph: " + subgraphId + " of repository: " + repositoryId
+                            + " is stored in shards " + previous + " and " + shard + ", probably by an interrupted move.");
+                    continue;
+                }
+                allSubgraphs.add(subgraphId);
+            }
+        }
+        discovered.add(repositoryId);
+        return allSubgraphs;
+    }
+
+    @Override
+    public void loadOntology(String repositoryId, String subgraphId, String baseUri, InputStream input, RDFFormat format)
+            throws OpenRDFException, IOException {
+        shards.get(getShard(repositoryId, subgraphId)).loadOntology(repositoryId, subgraphId, baseUri, input, format);
+    }
+
+    @Override
+    public void deleteSubgraph(String repositoryId, String subgraphId) throws RepositoryException {
+        shards.get(getShard(repositoryId, subgraphId)).deleteSubgraph(repositoryId, subgraphId);
+        locations.remove(key(repositoryId, subgraphId));
+    }
+
+    @Override
+    public RDFNodeTable query(final String repositoryId, List<String> subgraphIds, String query) throws OpenRDFException {
+        Map<Integer, List<String>> groups = groupByShard(repositoryId, subgraphIds);
+        if (groups.size() <= 1) {
+            int shard = groups.isEmpty() ? 0 : groups.keySet().iterator().next();
+            return shards.get(shard).query(repositoryId, subgraphIds, query);
+        }
+        // Every shard returns its rows from the first one, order, offset and limit apply to the merged rows
+        Query sparql;
+        try {
+            sparql = QueryFactory.create(query, Syntax.syntaxSPARQL_11);
+        } catch (QueryException ex) {
+            throw new MalformedQueryException(ex.getMessage(), ex);
+        }
+        long offset = sparql.hasOffset() ? sparql.getOffset() : 0;
+        long limit = sparql.hasLimit() ? sparql.getLimit() : Query.NOLIMIT;
+        BindingComparator order = null;
+        if (sparql.hasOrderBy()) {
+            for (SortCondition condition : sparql.getOrderBy()) {
+                if (!ROW_VARS.containsAll(condition.getExpression().getVarsMentioned())) {
+                    throw new MalformedQueryException("ORDER BY of a query of subgraphs of several shards can use variables s, p and o only.");
+                }
+            }
+            order = new BindingComparator(sparql.getOrderBy());
+        }
+        sparql.setOffset(Query.NOLIMIT);
+        if (limit != Query.NOLIMIT) {
+            // The first offset + limit rows of every shard contain the first offset + limit merged rows
+            sparql.setLimit(offset + limit);
+        }
+        final String shardQuery = sparql.serialize(Syntax.syntaxSPARQL_11);
+        List<Callable<RDFNodeTable>> parts = new ArrayList<>();
+        for (final Map.Entry<Integer, List<String>> group : groups.entrySet()) {
+            parts.add(new Callable<RDFNodeTable>() {
+                @Override
+                public RDFNodeTable call() throws OpenRDFException {
+                    return shards.get(group.getKey()).query(repositoryId, group.getValue(), shardQuery);
+                }
+            });
+        }
+        List<MergedRow> merged = new ArrayList<>();
+        for (RDFNodeTable part : scatter(parts)) {
+            for (int row = 0; row < part.size(); row++) {
+                merged.add(new MergedRow(part.getSubject(row), part.getPredicate(row), part.getObject(row)));
+            }
+        }
+        if (order != null) {
+            // Rows of every shard are sorted already, the stable sort merges them
+            Collections.sort(merged, new MergedRowComparator(order));
+        }
+        boolean distinct = sparql.isDistinct() || sparql.isReduced();
+        RDFNodeTable result = new RDFNodeTable();
+        Set<List<RDFNode>> rows = new HashSet<>();
+        long skipped = 0;
+        for (MergedRow row : merged) {
+            if (limit != Query.NOLIMIT && result.size() >= limit) {
+                break;
+            }
+            if (distinct && !rows.add(row.nodes)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            result.addRow(row.nodes.get(0), row.nodes.get(1), row.nodes.get(2));
+        }
+        result.trimToSize();
+        return result;
+    }
+
+    @Override
+    public void export(String repositoryId, List<String> subgraphIds, OutputStream output, RDFFormat format) throws OpenRDFException {
+        Map<Integer, List<String>> groups = groupByShard(repositoryId, subgraphIds);
+        if (groups.size() <= 1) {
+            int shard = groups.isEmpty() ? 0 : groups.keySet().iterator().next();
+            shards.get(shard).export(repositoryId, subgraphIds, output, format);
+            return;
+        }
+        // Documents of shards can not be concatenated in general, statements are written by one writer
+        final RDFWriter writer = SesameBackend.createWriter(format, output);
+        writer.startRDF();
+        for (Map.Entry<Integer, List<String>> group : groups.entrySet()) {
+            ByteArrayOutputStream part = new ByteArrayOutputStream();
+            shards.get(group.getKey()).export(repositoryId, group.getValue(), part, RDFFormat.NTRIPLES);
+            RDFParser parser = SesameBackend.createParser(RDFFormat.NTRIPLES);
+            parser.setRDFHandler(new RDFHandlerBase() {
+                @Override
+                public void handleStatement(Statement statement) throws RDFHandlerException {
+                    writer.handleStatement(statement);
+                }
+            });
+            try {
+                parser.parse(new ByteArrayInputStream(part.toByteArray()), "");
+            } catch (IOException ex) {
+                throw new RepositoryException(ex);
+            }
+        }
+        writer.endRDF();
+    }
+
+    @Override
+    public void setConnections(ConnectionMetrics connections) {
+        for (StorageBackend shard : shards) {
+            shard.setConnections(connections);
+        }
+    }
+
+    @Override
+    public void shutDown() {
+        for (StorageBackend shard : shards) {
+            shard.shutDown();
+        }
+    }
+
+
+
+    private void discover(String repositoryId) throws RepositoryException {
+        if (!discovered.contains(repositoryId)) {
+            getAllSubgraphs(repositoryId);
+        }
+    }
+
+    /**
+     * Remembers the shard of the subgraph.
+     * @return previous shard or null if the subgraph was at its home shard
+     */
+    private Integer setLocation(String repositoryId, String subgraphId, int shard) {
+        String key = key(repositoryId, subgraphId);
+        return shard == getHomeShard(subgraphId) ? locations.remove(key) : locations.put(key, shard);
+    }
+
+    private Map<Integer, List<String>> groupByShard(String repositoryId, List<String> subgraphIds) throws RepositoryException {
+        Map<Integer, List<String>> groups = new TreeMap<>();
+        for (String subgraphId : subgraphIds) {
+            int shard = getShard(repositoryId, subgraphId);
+            List<String> group = groups.get(shard);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(shard, group);
+            }
+            group.add(subgraphId);
+        }
+        return groups;
+    }
+
+    /**
+     * Runs the tasks in parallel by the executor, or one after another without it, and returns
+     * their results in the same order.
+     * @throws RepositoryException if any task fails, its RepositoryException is rethrown as it is
+     */
+    private <T> List<T> scatter(List<Callable<T>> tasks) throws RepositoryException {
+        List<T> results = new ArrayList<>();
+        BatchExecutor current = executor;
+        try {
+            if (current == null || tasks.size() <= 1) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+                return results;
+            }
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(current.submit(task));
+            }
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RepositoryException) {
+                throw (RepositoryException) ex.getCause();
+            }
+            throw new RepositoryException(ex.getCause());
+        } catch (RepositoryException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new RepositoryException(ex);
+        }
+        return results;
+    }
+
+    private static String key(String repositoryId, String subgraphId) {
+        return repositoryId + '\n' + subgraphId;
+    }
+
+
+
+    /**
+     * Class MergedRow is a row of a shard with its binding of variables s, p and o for ORDER BY.
+     */
+    private static final class MergedRow {
+
+        private final List<RDFNode> nodes;
+
+        private final Binding binding;
+
+        MergedRow(RDFNode subject, RDFNode predicate, RDFNode object) {
+            nodes = Arrays.asList(subject, predicate, object);
+            BindingMap map = BindingFactory.create();
+            for (int i = 0; i < nodes.size(); i++) {
+                if (nodes.get(i) != null) {
+                    map.add(ROW_VARS.get(i), nodes.get(i).asNode());
+                }
+            }
+            binding = map;
+        }
+    }
+
+
+    /**
+     * Class MergedRowComparator orders merged rows by ORDER BY of the query.
+     */
+    private static final class MergedRowComparator implements Comparator<MergedRow> {
+
+        private final BindingComparator order;
+
+        MergedRowComparator(BindingComparator order) {
+            this.order = order;
+        }
+
+        @Override
+        public int compare(MergedRow first, MergedRow second) {
+            return order.compare(first.binding, second.binding);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      SlowQueryLog.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+
+
+
+/**
+ * Class SlowQueryLog writes queries of GateNosqlBean which take at least slow_query_threshold
+ * milliseconds to slow_query_file. An entry has one line of tab separated fields: time, method,
+ * repository, number of subgraphs, reasoning profile (none without inference), number of rows
+ * (-1 if the query failed), total time and times of phases of QueryTrace in milliseconds and
+ * the normalised query. Entries are written by a background thread to files rotated after
+ * slow_query_file_size megabytes, slow_query_file_count files are kept. Entries exceeding
+ * the queue of the thread are dropped and counted, so a slow disk does not slow queries down.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SlowQueryLog {
+
+
+    /**
+     * int QUEUE_CAPACITY is the number of entries waiting for the background thread
+     */
+    private static final int QUEUE_CAPACITY = 1024;
+
+    /**
+     * Pattern TOKEN matches IRIs (group 1), which are kept, string and numeric literals, which are replaced,
+     * and whitespace (group 2), which is collapsed
+     */
+    private static final Pattern TOKEN = Pattern.compile("(<[^<>\\s]*>)|(\\s+)"
+            + "|\"\"\"(?s:.*?)\"\"\"|'''(?s:.*?)'''|\"(?:[^\"\\\\]|\\\\.)*\"|'(?:[^'\\\\]|\\\\.)*'"
+            + "|(?<![\\w:?$.])[+-]?(?:\\d+\\.?\\d*|\\.\\d+)(?:[eE][+-]?\\d+)?(?![\\w:])");
+
+    /**
+     * long threshold in nanoseconds, negative if the log is disabled
+     */
+    private long threshold = -1;
+
+    private FileHandler handler;
+
+    private ThreadPoolExecutor writer;
+
+    /**
+     * AtomicLong dropped counts entries dropped because the queue was full
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(SlowQueryLog.class.getName());
+
+
+
+    @PostConstruct
+    void initialize() {
+        String value = GateNosqlConfiguration.getProperty("slow_query_threshold", "");
+        if (value.isEmpty()) {
+            return;
+        }
+        try {
+            open(Long.parseLong(value), GateNosqlConfiguration.getProperty("slow_query_file", "logs/slow-query.log"),
+                 (int) GateNosqlConfiguration.getLong("slow_query_file_size", 10), (int) GateNosqlConfiguration.getLong("slow_query_file_count", 5));
+        } catch (IOException | NumberFormatException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        handler.close();
+        threshold = -1;
+    }
+
+    /**
+     * Tests if queries are logged.
+     * @return true if slow_query_threshold is set
+     */
+    public boolean isEnabled() {
+        return threshold >= 0;
+    }
+
+    /**
+     * Returns the number of entries dropped because the background thread could not keep up.
+     * @return number of dropped entries
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Logs the finished query if it took at least the threshold.
+     * @param repositoryId String
+     * @param subgraphs int number of queried subgraphs
+     * @param profile ReasoningProfile or null if the query is not inferenced
+     * @param query String
+     * @param rows long number of rows, -1 if the query failed
+     * @param trace QueryTrace of the query, null is ignored
+     */
+    public void record(String repositoryId, int subgraphs, ReasoningProfile profile, String query, long rows, QueryTrace trace) {
+        if (threshold < 0 || trace == null) {
+            return;
+        }
+        long elapsed = trace.getElapsedNanos();
+        if (elapsed < threshold) {
+            return;
+        }
+        StringBuilder entry = new StringBuilder();
+        entry.append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date())).append('\t')
+             .append(trace.getMethod()).append('\t')
+             .append(repositoryId).append('\t')
+             .append(subgraphs).append('\t')
+             .append(profile == null ? "none" : profile.name()).append('\t')
+             .append(rows).append('\t')
+             .append(toMillis(elapsed));
+        for (QueryTrace.Phase phase : QueryTrace.Phase.values()) {
+            entry.append('\t').append(phase.name().toLowerCase(Locale.ROOT)).append('=').append(toMillis(trace.getNanos(phase)));
+        }
+        entry.append('\t').append(normalize(query));
+        final LogRecord record = new LogRecord(Level.INFO, entry.toString());
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                handler.publish(record);
+            }
+        });
+    }
+
+
+
+    /**
+     * Opens the log of queries taking at least threshold milliseconds.
+     */
+    void open(long thresholdMillis, String file, int sizeMegabytes, int count) throws IOException {
+        File parent = new File(file).getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Directory: " + parent + " can not be created.");
+        }
+        handler = new FileHandler(file, Math.max(sizeMegabytes, 1) * 1024 * 1024, Math.max(count, 1), true);
+        handler.setEncoding("UTF-8");
+        handler.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getMessage() + System.lineSeparator();
+            }
+        });
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "gate-slow-query-log");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+                dropped.incrementAndGet();
+            }
+        });
+        threshold = Math.max(thresholdMillis, 0) * 1000000L;
+    }
+
+    /**
+     * Replaces literals of the query by ? and whitespace by single spaces, so that
+     * entries of the same query shape can be grouped. IRIs and variables are kept.
+     */
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuffer normalized = new StringBuffer();
+        Matcher matcher = TOKEN.matcher(query);
+        while (matcher.find()) {
+            String replacement = matcher.group(1) != null ? matcher.group(1) : matcher.group(2) != null ? " " : "?";
+            matcher.appendReplacement(normalized, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(normalized);
+        return normalized.toString().trim();
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000000.0);
+    }
+}
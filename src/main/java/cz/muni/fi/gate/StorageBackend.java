@@ -0,0 +1,141 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      StorageBackend.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.openrdf.OpenRDFException;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.rio.RDFFormat;
+
+
+
+/**
+ * Interface StorageBackend declares operations of a store of repositories of ontologies.
+ * Every repository consists of subgraphs (named graphs) which hold loaded ontologies.
+ * Queries are evaluated on the union of the given subgraphs, the same way as queries
+ * of GateNosqlBean.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public interface StorageBackend {
+
+
+
+    /**
+     * Returns ids of all repositories.
+     * @return repositories
+     * @throws RepositoryException
+     */
+    public ArrayList<String> getAllRepositories() throws RepositoryException;
+
+    /**
+     * Creates a new empty repository.
+     * @param repositoryId String
+     * @throws RepositoryException if the repository already exists
+     */
+    public void createRepository(String repositoryId) throws RepositoryException;
+
+    /**
+     * Erases the repository with all its subgraphs.
+     * @param repositoryId String
+     * @throws RepositoryException if the repository does not exist
+     */
+    public void deleteRepository(String repositoryId) throws RepositoryException;
+
+    /**
+     * Returns indexes of the repository in the vocabulary of GateNosqlRemote.addIndexes.
+     * @param repositoryId String
+     * @return indexes
+     * @throws RepositoryException
+     */
+    public ArrayList<String> getIndexes(String repositoryId) throws RepositoryException;
+
+    /**
+     * Creates indexes of the repository, see GateNosqlRemote.addIndexes.
+     * @param repositoryId String
+     * @param indexes List<String>
+     * @throws RepositoryException if an index is not valid or the backend does not support it
+     */
+    public void addIndexes(String repositoryId, List<String> indexes) throws RepositoryException;
+
+    /**
+     * Erases indexes of the repository.
+     * @param repositoryId String
+     * @param indexes List<String>
+     * @throws RepositoryException if an index does not exist or the backend does not support it
+     */
+    public void dropIndexes(String repositoryId, List<String> indexes) throws RepositoryException;
+
+    /**
+     * Returns ids of all non-empty subgraphs of the repository.
+     * @param repositoryId String
+     * @return subgraphs
+     * @throws RepositoryException
+     */
+    public ArrayList<String> getAllSubgraphs(String repositoryId) throws RepositoryException;
+
+    /**
+     * Loads the ontology into the given subgraph of the repository.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param baseUri String
+     * @param input InputStream, it is not closed
+     * @param format RDFFormat
+     * @throws OpenRDFException if the ontology can not be parsed or stored
+     * @throws IOException if the input can not be read
+     */
+    public void loadOntology(String repositoryId, String subgraphId, String baseUri, InputStream input, RDFFormat format)
+            throws OpenRDFException, IOException;
+
+    /**
+     * Erases the given subgraph of the repository.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @throws RepositoryException
+     */
+    public void deleteSubgraph(String repositoryId, String subgraphId) throws RepositoryException;
+
+    /**
+     * Evaluates the SELECT query with variables ?s ?p ?o on the union of the given subgraphs.
+     * @param repositoryId String
+     * @param subgraphIds List<String>
+     * @param query String
+     * @return rows (subject, predicate, object)
+     * @throws OpenRDFException if the query is not valid or it can not be evaluated
+     */
+    public RDFNodeTable query(String repositoryId, List<String> subgraphIds, String query) throws OpenRDFException;
+
+    /**
+     * Writes statements of the given subgraphs to the output.
+     * @param repositoryId String
+     * @param subgraphIds List<String>
+     * @param output OutputStream, it is not closed
+     * @param format RDFFormat
+     * @throws OpenRDFException if the statements can not be read or written
+     */
+    public void export(String repositoryId, List<String> subgraphIds, OutputStream output, RDFFormat format) throws OpenRDFException;
+
+    /**
+     * Sets the metrics which count connections opened and closed by the backend, so that
+     * connections which are never closed are detected the same way as connections of GateNosqlBean.
+     * @param connections ConnectionMetrics
+     */
+    public void setConnections(ConnectionMetrics connections);
+
+    /**
+     * Releases all resources of the backend.
+     */
+    public void shutDown();
+}
@@ -0,0 +1,141 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      StorageBackends.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openrdf.repository.RepositoryException;
+
+
+
+/**
+ * Class StorageBackends creates the storage backend given by backend property
+ * of configuration/database.properties:
+ * <ul>
+ * <li>allegrograph - AllegroGraph server (default),</li>
+ * <li>native - embedded Sesame NativeStore in native_data_dir,</li>
+ * <li>memory - Sesame MemoryStore,</li>
+ * <li>sharded - subgraphs spread over backends given by shard.0, shard.1, ... (see ShardedBackend).</li>
+ * </ul>
+ * A shard is given as "allegrograph &lt;url&gt; &lt;catalog&gt;", "native &lt;dir&gt;" or "memory".
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public final class StorageBackends {
+
+
+    private StorageBackends() {
+    }
+
+    /**
+     * Creates the configured backend.
+     * @return backend
+     * @throws RepositoryException if the backend is unknown or it can not be created
+     */
+    public static StorageBackend create() throws RepositoryException {
+        return create(GateNosqlConfiguration.getProperty("backend", "allegrograph"));
+    }
+
+    /**
+     * Creates the backend of the given name.
+     * @param name String allegrograph, native, memory or sharded
+     * @return backend
+     * @throws RepositoryException if the backend is unknown or it can not be created
+     */
+    public static StorageBackend create(String name) throws RepositoryException {
+        switch (name) {
+            case "allegrograph":
+                return new AllegroGraphBackend();
+            case "native":
+                return new NativeBackend();
+            case "memory":
+                return new MemoryBackend();
+            case "sharded":
+                return createSharded();
+            default:
+                throw new RepositoryException("Backend: "+name+" is not known.");
+        }
+    }
+
+
+
+    private static ShardedBackend createSharded() throws RepositoryException {
+        List<StorageBackend> shards = new ArrayList<>();
+        try {
+            String spec;
+            while ((spec = GateNosqlConfiguration.getProperty("shard." + shards.size())) != null) {
+                shards.add(createShard(spec.trim().split("\\s+")));
+            }
+            if (shards.isEmpty()) {
+                throw new RepositoryException("No shard is configured, property shard.0 is missing.");
+            }
+            return new ShardedBackend(shards, readPlacement(GateNosqlConfiguration.getProperty("shard_placement_file", ""), shards.size()));
+        } catch (RepositoryException | RuntimeException ex) {
+            for (StorageBackend shard : shards) {
+                shard.shutDown();
+            }
+            throw ex;
+        }
+    }
+
+    private static StorageBackend createShard(String[] spec) throws RepositoryException {
+        switch (spec[0]) {
+            case "allegrograph":
+                if (spec.length != 3) {
+                    throw new RepositoryException("Shard: allegrograph needs url and catalog.");
+                }
+                return new AllegroGraphBackend(spec[1], spec[2]);
+            case "native":
+                if (spec.length != 2) {
+                    throw new RepositoryException("Shard: native needs data directory.");
+                }
+                return new NativeBackend(new File(spec[1]));
+            case "memory":
+                return new MemoryBackend();
+            default:
+                throw new RepositoryException("Shard: "+spec[0]+" is not known.");
+        }
+    }
+
+    /**
+     * Reads lines "&lt;subgraphId&gt; &lt;shard&gt;" of the placement file, # starts a comment.
+     */
+    private static Map<String, Integer> readPlacement(String path, int shards) throws RepositoryException {
+        Map<String, Integer> placement = new HashMap<>();
+        if (path.isEmpty()) {
+            return placement;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String[] fields = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+                if (fields.length == 1 && fields[0].isEmpty()) {
+                    continue;
+                }
+                if (fields.length != 2) {
+                    throw new RepositoryException("Line: "+line+" of placement file: "+path+" is not valid.");
+                }
+                placement.put(fields[0], Integer.valueOf(fields[1]));
+            }
+        } catch (IOException | NumberFormatException ex) {
+            throw new RepositoryException("Placement file: "+path+" can not be read.", ex);
+        }
+        return placement;
+    }
+}
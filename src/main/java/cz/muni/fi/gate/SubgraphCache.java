@@ -0,0 +1,352 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      SubgraphCache.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+
+
+
+/**
+ * Class SubgraphCache keeps copies of small or pinned subgraphs as in-memory Jena models,
+ * so queries on them are evaluated inside the JVM without a round trip to AllegroGraph.
+ * The cache is disabled unless subgraph_cache_memory (megabytes) is set in
+ * configuration/database.properties. Subgraphs with at most subgraph_cache_threshold triples
+ * are cached on their first query, other subgraphs only if they are pinned.
+ * Models are kept on the heap or, if subgraph_cache_storage is offheap, as OffHeapGraph
+ * outside of the heap, which keeps big cached subgraphs out of the way of garbage collection.
+ * Memory of a heap model is estimated from its triples. If the memory of all models exceeds
+ * the budget, the least recently used models which are not pinned are evicted.
+ * An entry is dropped whenever its subgraph (or the whole repository) is written,
+ * so the next query loads it again. Cached models are never written, so they can be read
+ * by many queries at once.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SubgraphCache {
+
+
+    /**
+     * long TRIPLE_OVERHEAD is the estimated memory of one triple in the model without its labels
+     */
+    static final long TRIPLE_OVERHEAD = 160;
+
+    /**
+     * long budget is the memory of all models in bytes, 0 disables the cache
+     */
+    private final long budget;
+
+    /**
+     * long threshold is the maximal number of triples of a subgraph cached without pinning
+     */
+    private final long threshold;
+
+    /**
+     * boolean offHeap is true if models are stored by OffHeapGraph
+     */
+    private final boolean offHeap;
+
+    /**
+     * LinkedHashMap<String, Entry> entries maps repository and subgraph to its model
+     * in order of access, it is guarded by this
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Set<String> pinned subgraphs are cached regardless of their size and never evicted, it is guarded by this
+     */
+    private final Set<String> pinned = new HashSet<>();
+
+    /**
+     * Set<String> oversized subgraphs are not worth caching until they are written, it is guarded by this
+     */
+    private final Set<String> oversized = new HashSet<>();
+
+    /**
+     * long used is the estimated memory of all models, it is guarded by this
+     */
+    private long used;
+
+    /**
+     * long version is increased on every invalidation, it is guarded by this. A model loaded
+     * while the version changed might be stale and is not cached.
+     */
+    private long version;
+
+
+
+    /**
+     * Creates the cache given by subgraph_cache_memory, subgraph_cache_threshold
+     * and subgraph_cache_storage properties.
+     */
+    public SubgraphCache() {
+        this(GateNosqlConfiguration.getLong("subgraph_cache_memory", 0) * 1024L * 1024L,
+             GateNosqlConfiguration.getLong("subgraph_cache_threshold", 0),
+             "offheap".equals(GateNosqlConfiguration.getProperty("subgraph_cache_storage", "heap")));
+    }
+
+    SubgraphCache(long budget, long threshold, boolean offHeap) {
+        this.budget = budget;
+        this.threshold = threshold;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Tests if the cache is enabled.
+     * @return true if the cache has a memory budget
+     */
+    public boolean isEnabled() {
+        return budget > 0;
+    }
+
+    /**
+     * Returns cached model of the given subgraph.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return model or null if the subgraph is not cached
+     */
+    public synchronized Model get(String repositoryId, String subgraphId) {
+        Entry entry = entries.get(key(repositoryId, subgraphId));
+        return entry == null ? null : entry.model;
+    }
+
+    /**
+     * Tests if the given subgraph should be loaded to the cache.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return true if the subgraph is pinned or its size is not known yet
+     */
+    public synchronized boolean isCandidate(String repositoryId, String subgraphId) {
+        String key = key(repositoryId, subgraphId);
+        return isEnabled() && (pinned.contains(key) || (threshold > 0 && !oversized.contains(key)));
+    }
+
+    /**
+     * Tests if a subgraph of the given size is cached.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param triples long number of triples of the subgraph
+     * @return true if the subgraph should be loaded
+     */
+    public synchronized boolean accepts(String repositoryId, String subgraphId, long triples) {
+        String key = key(repositoryId, subgraphId);
+        if (pinned.contains(key)) {
+            return true;
+        }
+        if (triples > threshold) {
+            oversized.add(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copies the given subgraph to a model of the configured storage.
+     * @param model Model subgraph
+     * @return copy which can be cached by put
+     */
+    public Model copyOf(Model model) {
+        if (offHeap) {
+            return ModelFactory.createModelForGraph(OffHeapGraph.copyOf(model.getGraph()));
+        }
+        Model copy = ModelFactory.createDefaultModel();
+        copy.add(model);
+        return copy;
+    }
+
+    /**
+     * Returns current version, which has to be read before loading a model.
+     * @return current version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Caches the model of the given subgraph unless any invalidation happened since the given
+     * version was read. Least recently used models which are not pinned are evicted to keep
+     * the memory within the budget. The memory of the model is estimated before the cache is locked,
+     * the estimate walks all triples and it would block lookups of other subgraphs.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @param model Model which is not written anymore
+     * @param loadedVersion long
+     * @return true if the model is cached
+     */
+    public boolean put(String repositoryId, String subgraphId, Model model, long loadedVersion) {
+        if (!isEnabled() || getVersion() != loadedVersion) {
+            return false;
+        }
+        String key = key(repositoryId, subgraphId);
+        long size = estimate(model);
+        synchronized (this) {
+            if (version != loadedVersion) {
+                return false;
+            }
+            remove(key);
+            for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext() && used + size > budget;) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (!pinned.contains(eldest.getKey())) {
+                    used -= eldest.getValue().size;
+                    it.remove();
+                }
+            }
+            if (used + size > budget) {
+                return false;
+            }
+            entries.put(key, new Entry(model, size));
+            used += size;
+            return true;
+        }
+    }
+
+    /**
+     * Pins the given subgraph, so it is cached regardless of its size and it is not evicted.
+     * @param repositoryId String
+     * @param subgraphId String
+     */
+    public synchronized void pin(String repositoryId, String subgraphId) {
+        String key = key(repositoryId, subgraphId);
+        pinned.add(key);
+        oversized.remove(key);
+    }
+
+    /**
+     * Unpins the given subgraph, its model may be evicted from now on.
+     * @param repositoryId String
+     * @param subgraphId String
+     * @return true if the subgraph was pinned
+     */
+    public synchronized boolean unpin(String repositoryId, String subgraphId) {
+        return pinned.remove(key(repositoryId, subgraphId));
+    }
+
+    /**
+     * Returns the estimated memory of all cached models.
+     * @return bytes
+     */
+    public synchronized long getUsedMemory() {
+        return used;
+    }
+
+    /**
+     * Drops the model of the given subgraph. A pinned subgraph stays pinned.
+     * @param repositoryId String
+     * @param subgraphId String
+     */
+    public synchronized void invalidate(String repositoryId, String subgraphId) {
+        version++;
+        String key = key(repositoryId, subgraphId);
+        remove(key);
+        oversized.remove(key);
+    }
+
+    /**
+     * Drops models and pins of all subgraphs in the given repository.
+     * @param repositoryId String
+     */
+    public synchronized void invalidateRepository(String repositoryId) {
+        version++;
+        String prefix = key(repositoryId, "");
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Entry> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                used -= entry.getValue().size;
+                it.remove();
+            }
+        }
+        removePrefix(pinned, prefix);
+        removePrefix(oversized, prefix);
+    }
+
+
+
+    /**
+     * Estimates memory of the model from number of triples and length of labels of their nodes.
+     * Nodes shared by many triples are counted every time, so the estimate is rather high.
+     * Memory of OffHeapGraph is known exactly.
+     */
+    static long estimate(Model model) {
+        if (model.getGraph() instanceof OffHeapGraph) {
+            return ((OffHeapGraph) model.getGraph()).getMemory();
+        }
+        long size = 0;
+        ExtendedIterator<Triple> triples = model.getGraph().find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+            while (triples.hasNext()) {
+                Triple triple = triples.next();
+                size += TRIPLE_OVERHEAD + 2L * (label(triple.getSubject()) + label(triple.getPredicate()) + label(triple.getObject()));
+            }
+        } finally {
+            triples.close();
+        }
+        return size;
+    }
+
+    private static int label(Node node) {
+        if (node.isURI()) {
+            return node.getURI().length();
+        }
+        if (node.isLiteral()) {
+            return node.getLiteralLexicalForm().length();
+        }
+        return 0;
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            used -= entry.size;
+        }
+    }
+
+    private static void removePrefix(Set<String> keys, String prefix) {
+        for (Iterator<String> it = keys.iterator(); it.hasNext();) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static String key(String repositoryId, String subgraphId) {
+        return repositoryId + '\n' + subgraphId;
+    }
+
+
+
+    /**
+     * Class Entry holds a cached model and its estimated memory.
+     */
+    private static final class Entry {
+
+        private final Model model;
+
+        private final long size;
+
+        private Entry(Model model, long size) {
+            this.model = model;
+            this.size = size;
+        }
+    }
+}
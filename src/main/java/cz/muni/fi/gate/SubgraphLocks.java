@@ -0,0 +1,283 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      SubgraphLocks.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+
+
+
+/**
+ * Class SubgraphLocks coordinates GateNosqlBean instances writing and reading the same subgraphs.
+ * Every subgraph of a repository has its own read/write lock, loads and deletions take exclusive ones,
+ * so writes of different subgraphs never wait for each other. A shared lock keeps writers of the subgraph
+ * out while it is held; queries and exports do not take it, because loads commit in one transaction
+ * and a lock held during a long query would block loads of the subgraph.
+ * Locks exist only while they are held. They are found in stripes, each stripe is a small map
+ * guarded by its own monitor which is held only for the lookup, never while a lock is awaited.
+ * Locks of several subgraphs are taken in the order of their keys, so two holders can not deadlock.
+ * A lock which is not acquired within subgraph_lock_timeout milliseconds (see configuration/database.properties)
+ * is given up and the operation fails.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SubgraphLocks {
+
+
+    /**
+     * int STRIPES is the number of stripes, a power of two
+     */
+    static final int STRIPES = 64;
+
+    /**
+     * Stripe[] stripes hold locks of subgraphs by hashes of their keys
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * long timeoutNanos is the longest wait for locks of one operation
+     */
+    private final long timeoutNanos;
+
+    /**
+     * AtomicLong timeouts counts operations which did not get their locks in time
+     */
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Logger LOGGER provides logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(SubgraphLocks.class.getName());
+
+
+
+    /**
+     * Creates locks with the timeout given by subgraph_lock_timeout property.
+     */
+    public SubgraphLocks() {
+        this(STRIPES, Math.max(GateNosqlConfiguration.getLong("subgraph_lock_timeout", 30000), 0));
+    }
+
+    SubgraphLocks(int stripes, long timeoutMillis) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Argument stripes has to be a power of two.");
+        }
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Takes the shared lock of the subgraph.
+     * @param repositoryId String key of the repository
+     * @param subgraphId String
+     * @return hold of the lock or null if the lock was not acquired in time
+     */
+    public Hold lockShared(String repositoryId, String subgraphId) {
+        return lock(repositoryId, Collections.singleton(subgraphId), false);
+    }
+
+    /**
+     * Takes shared locks of the subgraphs.
+     * @param repositoryId String key of the repository
+     * @param subgraphIds Collection<String>
+     * @return hold of the locks or null if the locks were not acquired in time
+     */
+    public Hold lockShared(String repositoryId, Collection<String> subgraphIds) {
+        return lock(repositoryId, subgraphIds, false);
+    }
+
+    /**
+     * Takes the exclusive lock of the subgraph.
+     * @param repositoryId String key of the repository
+     * @param subgraphId String
+     * @return hold of the lock or null if the lock was not acquired in time
+     */
+    public Hold lockExclusive(String repositoryId, String subgraphId) {
+        return lock(repositoryId, Collections.singleton(subgraphId), true);
+    }
+
+    /**
+     * Releases locks of the hold.
+     * @param hold Hold, null is ignored
+     */
+    public void release(Hold hold) {
+        if (hold != null) {
+            release(hold.entries, hold.entries.length, hold.exclusive);
+        }
+    }
+
+    /**
+     * Returns the number of operations which did not get their locks in time.
+     * @return number of timeouts
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * Returns the number of subgraphs whose locks are held or awaited.
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+
+
+    private Hold lock(String repositoryId, Collection<String> subgraphIds, boolean exclusive) {
+        if (repositoryId == null) {
+            throw new IllegalArgumentException("Argument repositoryId can not be null.");
+        }
+        if (subgraphIds == null) {
+            throw new IllegalArgumentException("Argument subgraphIds can not be null.");
+        }
+
+        SortedSet<String> keys = new TreeSet<>();
+        for (String subgraphId : subgraphIds) {
+            keys.add(repositoryId + '\n' + subgraphId);
+        }
+        Entry[] entries = new Entry[keys.size()];
+        int locked = 0;
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            for (String key : keys) {
+                Entry entry = acquire(key);
+                Lock lock = exclusive ? entry.lock.writeLock() : entry.lock.readLock();
+                if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    release(entry);
+                    timeouts.incrementAndGet();
+                    LOGGER.log(Level.WARNING, "Subgraph: {0} of repository: {1} was not locked within {2} ms.",
+                               new Object[]{key.substring(repositoryId.length() + 1), repositoryId, TimeUnit.NANOSECONDS.toMillis(timeoutNanos)});
+                    release(entries, locked, exclusive);
+                    return null;
+                }
+                entries[locked++] = entry;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            release(entries, locked, exclusive);
+            return null;
+        }
+        return new Hold(entries, exclusive);
+    }
+
+    private void release(Entry[] entries, int count, boolean exclusive) {
+        for (int i = count - 1; i >= 0; i--) {
+            if (exclusive) {
+                entries[i].lock.writeLock().unlock();
+            }
+            else {
+                entries[i].lock.readLock().unlock();
+            }
+            release(entries[i]);
+        }
+    }
+
+    /**
+     * Returns the lock of the key, created if nobody holds it, and counts its new holder.
+     */
+    private Entry acquire(String key) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(key);
+            if (entry == null) {
+                entry = new Entry(key);
+                stripe.entries.put(key, entry);
+            }
+            entry.holders++;
+            return entry;
+        }
+    }
+
+    /**
+     * Forgets the holder of the lock and drops the lock after its last holder.
+     */
+    private void release(Entry entry) {
+        Stripe stripe = stripe(entry.key);
+        synchronized (stripe) {
+            if (--entry.holders == 0) {
+                stripe.entries.remove(entry.key);
+            }
+        }
+    }
+
+    private Stripe stripe(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+
+
+    /**
+     * Class Hold holds locks taken by one operation.
+     */
+    public static final class Hold {
+
+        private final Entry[] entries;
+
+        private final boolean exclusive;
+
+        private Hold(Entry[] entries, boolean exclusive) {
+            this.entries = entries;
+            this.exclusive = exclusive;
+        }
+    }
+
+
+    /**
+     * Class Stripe maps keys to their locks, it is guarded by itself.
+     */
+    private static final class Stripe {
+
+        private final Map<String, Entry> entries = new HashMap<>();
+    }
+
+
+    /**
+     * Class Entry is the lock of one subgraph with the number of operations holding or awaiting it,
+     * the number is guarded by the stripe.
+     */
+    private static final class Entry {
+
+        private final String key;
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private int holders;
+
+        private Entry(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      TermDictionary.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.charset.Charset;
+
+
+
+/**
+ * Class TermDictionary encodes RDF terms to long identifiers outside of the Java heap.
+ * Encoded terms are stored one after another in a direct ByteBuffer, their offsets
+ * in a direct LongBuffer and an open addressing hash table (also a direct LongBuffer)
+ * maps a term to its identifier. Identifiers are assigned in order of addition from 0.
+ * The dictionary is filled once by add and then it is only read, so it can be read
+ * by many threads at once.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+final class TermDictionary {
+
+
+    /**
+     * long NOT_FOUND is returned for a term which is not in the dictionary
+     */
+    static final long NOT_FOUND = -1;
+
+    private static final byte URI = 0;
+
+    private static final byte BLANK = 1;
+
+    private static final byte LITERAL = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * ByteBuffer terms holds encoded terms one after another
+     */
+    private ByteBuffer terms;
+
+    /**
+     * LongBuffer offsets holds start of each term in terms, the last entry is end of the last term
+     */
+    private LongBuffer offsets;
+
+    /**
+     * LongBuffer slots is the hash table, a slot holds identifier + 1 or 0 if it is empty
+     */
+    private LongBuffer slots;
+
+    /**
+     * int size is a number of terms
+     */
+    private int size;
+
+
+
+    TermDictionary() {
+        terms = allocateBytes(INITIAL_CAPACITY * 32);
+        offsets = allocateLongs(INITIAL_CAPACITY + 1);
+        offsets.put(0, 0);
+        slots = allocateLongs(INITIAL_CAPACITY * 2);
+    }
+
+    /**
+     * Returns identifier of the given term.
+     * @param node Node concrete term
+     * @return identifier or NOT_FOUND
+     */
+    long getId(Node node) {
+        return find(encode(node));
+    }
+
+    /**
+     * Returns identifier of the given term, the term is added if it is not in the dictionary yet.
+     * @param node Node concrete term
+     * @return identifier
+     */
+    long add(Node node) {
+        byte[] encoded = encode(node);
+        long id = find(encoded);
+        if (id != NOT_FOUND) {
+            return id;
+        }
+        if (2 * (size + 1) > slots.capacity()) {
+            rehash(slots.capacity() * 2);
+        }
+        int start = (int) offsets.get(size);
+        if (start + encoded.length > terms.capacity()) {
+            terms = copyOf(terms, start, Math.max(terms.capacity() * 2, start + encoded.length));
+        }
+        if (size + 2 > offsets.capacity()) {
+            offsets = copyOf(offsets, size + 1, offsets.capacity() * 2);
+        }
+        ByteBuffer target = terms.duplicate();
+        target.position(start);
+        target.put(encoded);
+        offsets.put(size + 1, start + encoded.length);
+        insert(hash(encoded, 0, encoded.length), size);
+        return size++;
+    }
+
+    /**
+     * Returns the term of the given identifier.
+     * @param id long
+     * @return term
+     */
+    Node getNode(long id) {
+        ByteBuffer term = terms.duplicate();
+        term.position((int) offsets.get((int) id));
+        switch (term.get()) {
+            case URI:
+                return Node.createURI(readString(term));
+            case BLANK:
+                return Node.createAnon(new AnonId(readString(term)));
+            default:
+                String lexical = readString(term);
+                String language = readString(term);
+                String datatype = readString(term);
+                return Node.createLiteral(lexical, language,
+                        datatype.isEmpty() ? null : TypeMapper.getInstance().getSafeTypeByName(datatype));
+        }
+    }
+
+    /**
+     * Returns a number of terms.
+     * @return number of terms
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns memory of the dictionary outside of the heap.
+     * @return bytes
+     */
+    long getMemory() {
+        return terms.capacity() + 8L * (offsets.capacity() + slots.capacity());
+    }
+
+    /**
+     * Releases unused capacity, it is called when all terms are added.
+     */
+    void trimToSize() {
+        int end = (int) offsets.get(size);
+        terms = copyOf(terms, end, Math.max(end, 1));
+        offsets = copyOf(offsets, size + 1, size + 1);
+        // At most half of the slots is used
+        int capacity = Integer.highestOneBit(Math.max(size, 1)) * 4;
+        if (capacity < slots.capacity()) {
+            rehash(capacity);
+        }
+    }
+
+
+
+    static ByteBuffer allocateBytes(int capacity) {
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    static LongBuffer allocateLongs(int capacity) {
+        return allocateBytes(capacity * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * Returns a new direct buffer of the given capacity with the first used longs of the given buffer.
+     */
+    static LongBuffer copyOf(LongBuffer buffer, int used, int capacity) {
+        LongBuffer source = buffer.duplicate();
+        source.position(0).limit(used);
+        LongBuffer copy = allocateLongs(capacity);
+        copy.put(source);
+        copy.clear();
+        return copy;
+    }
+
+
+
+    private static ByteBuffer copyOf(ByteBuffer buffer, int used, int capacity) {
+        ByteBuffer source = buffer.duplicate();
+        source.position(0).limit(used);
+        ByteBuffer copy = allocateBytes(capacity);
+        copy.put(source);
+        copy.clear();
+        return copy;
+    }
+
+    private long find(byte[] encoded) {
+        int mask = slots.capacity() - 1;
+        for (int slot = hash(encoded, 0, encoded.length) & mask;; slot = (slot + 1) & mask) {
+            long value = slots.get(slot);
+            if (value == 0) {
+                return NOT_FOUND;
+            }
+            if (equals(value - 1, encoded)) {
+                return value - 1;
+            }
+        }
+    }
+
+    private boolean equals(long id, byte[] encoded) {
+        int start = (int) offsets.get((int) id);
+        int end = (int) offsets.get((int) id + 1);
+        if (end - start != encoded.length) {
+            return false;
+        }
+        for (int i = 0; i < encoded.length; i++) {
+            if (terms.get(start + i) != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(int hash, long id) {
+        int mask = slots.capacity() - 1;
+        int slot = hash & mask;
+        while (slots.get(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.put(slot, id + 1);
+    }
+
+    private void rehash(int capacity) {
+        slots = allocateLongs(capacity);
+        for (int id = 0; id < size; id++) {
+            int start = (int) offsets.get(id);
+            int end = (int) offsets.get(id + 1);
+            byte[] encoded = new byte[end - start];
+            ByteBuffer term = terms.duplicate();
+            term.position(start);
+            term.get(encoded);
+            insert(hash(encoded, 0, encoded.length), id);
+        }
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        // Spread low bits, the table is indexed by a mask
+        hash *= 0x9E3779B1;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static byte[] encode(Node node) {
+        ByteBuffer buffer;
+        if (node.isURI()) {
+            byte[] uri = node.getURI().getBytes(CHARSET);
+            buffer = ByteBuffer.allocate(5 + uri.length);
+            buffer.put(URI);
+            writeBytes(buffer, uri);
+        }
+        else if (node.isBlank()) {
+            byte[] label = node.getBlankNodeLabel().getBytes(CHARSET);
+            buffer = ByteBuffer.allocate(5 + label.length);
+            buffer.put(BLANK);
+            writeBytes(buffer, label);
+        }
+        else if (node.isLiteral()) {
+            byte[] lexical = node.getLiteralLexicalForm().getBytes(CHARSET);
+            byte[] language = node.getLiteralLanguage().getBytes(CHARSET);
+            String datatypeUri = node.getLiteralDatatypeURI();
+            byte[] datatype = (datatypeUri == null ? "" : datatypeUri).getBytes(CHARSET);
+            buffer = ByteBuffer.allocate(13 + lexical.length + language.length + datatype.length);
+            buffer.put(LITERAL);
+            writeBytes(buffer, lexical);
+            writeBytes(buffer, language);
+            writeBytes(buffer, datatype);
+        }
+        else {
+            throw new IllegalArgumentException("Node: " + node + " is not concrete.");
+        }
+        return buffer.array();
+    }
+
+    private static void writeBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, CHARSET);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      BackendRegistryTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class BackendRegistryTest is used for testing of the choice of the storage backend of GateNosqlBean.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class BackendRegistryTest {
+
+
+    /**
+     * We test that allegrograph creates no backend and the other backends are created by StorageBackends.
+     */
+    @Test
+    public void testBackends() throws Exception {
+        System.out.println("backends");
+        BackendRegistry registry = new BackendRegistry("allegrograph", new OperationMonitor());
+        registry.initialize();
+        assertNull(registry.getBackend());
+        registry.shutDown();
+
+        registry = new BackendRegistry("native", new OperationMonitor());
+        registry.initialize();
+        assertTrue(registry.getBackend() instanceof NativeBackend);
+        registry.shutDown();
+        assertNull(registry.getBackend());
+
+        OperationMonitor monitor = new OperationMonitor();
+        registry = new BackendRegistry("memory", monitor);
+        registry.initialize();
+        assertTrue(registry.getBackend() instanceof MemoryBackend);
+        assertEquals("memory", registry.getName());
+        registry.getBackend().createRepository("gate-test");
+        registry.getBackend().getAllSubgraphs("gate-test");
+        // Connections of the backend are counted with connections of the bean
+        assertEquals(1, monitor.getConnections().getOpened());
+        assertEquals(0, monitor.getConnections().getOpen());
+        registry.shutDown();
+    }
+
+
+    /**
+     * We test that an unknown backend fails the deployment.
+     */
+    @Test
+    public void testUnknown() {
+        System.out.println("unknown");
+        try {
+            new BackendRegistry("cassandra", new OperationMonitor()).initialize();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            // OK
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      BulkheadTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class BulkheadTest is used for testing of bulkheads of operation classes.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class BulkheadTest {
+
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+
+
+    /**
+     * We test that calls over the limit fail at once without a queue.
+     */
+    @Test
+    public void testReject() throws Exception {
+        System.out.println("reject");
+        Bulkhead bulkhead = new Bulkhead(1, 0, 10000);
+        assertTrue(bulkhead.acquire());
+        assertEquals(1, bulkhead.getActive());
+        long start = System.nanoTime();
+        assertFalse(acquireInOtherThread(bulkhead).get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, bulkhead.getRejected());
+        bulkhead.release();
+        assertEquals(0, bulkhead.getActive());
+        assertTrue(acquireInOtherThread(bulkhead).get());
+        assertEquals(2, bulkhead.getAdmitted());
+    }
+
+
+    /**
+     * We test that a queued call is admitted when a place is released, that calls over the queue
+     * are rejected and that a call waiting longer than its deadline fails.
+     */
+    @Test
+    public void testQueue() throws Exception {
+        System.out.println("queue");
+        Bulkhead bulkhead = new Bulkhead(1, 1, 10000);
+        assertTrue(bulkhead.acquire());
+        Future<Boolean> queued = acquireInOtherThread(bulkhead);
+        while (bulkhead.getQueued() == 0) {
+            Thread.sleep(1);
+        }
+        assertFalse(acquireInOtherThread(bulkhead).get());
+        assertEquals(1, bulkhead.getRejected());
+        bulkhead.release();
+        assertTrue(queued.get());
+        assertEquals(0, bulkhead.getQueued());
+        assertEquals(1, bulkhead.getActive());
+
+        Bulkhead waiting = new Bulkhead(1, 1, 50);
+        assertTrue(waiting.acquire());
+        assertFalse(acquireInOtherThread(waiting).get());
+        assertEquals(1, waiting.getTimedOut());
+        assertEquals(0, waiting.getQueued());
+    }
+
+
+    /**
+     * We test that the limit is never exceeded by concurrent calls.
+     */
+    @Test
+    public void testLimit() throws Exception {
+        System.out.println("limit");
+        final Bulkhead bulkhead = new Bulkhead(3, 100, 10000);
+        final CountDownLatch start = new CountDownLatch(1);
+        final int[] maxActive = new int[1];
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < 200; j++) {
+                        assertTrue(bulkhead.acquire());
+                        synchronized (maxActive) {
+                            maxActive[0] = Math.max(maxActive[0], bulkhead.getActive());
+                        }
+                        bulkhead.release();
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertTrue(maxActive[0] <= 3);
+        assertEquals(1600, bulkhead.getAdmitted());
+        assertEquals(0, bulkhead.getActive());
+    }
+
+
+    /**
+     * We test that a call of several places waits until all of them are free and never takes more than the limit.
+     */
+    @Test
+    public void testPlaces() throws Exception {
+        System.out.println("places");
+        final Bulkhead bulkhead = new Bulkhead(3, 1, 10000);
+        assertTrue(bulkhead.acquire());
+        Future<Boolean> batch = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return bulkhead.acquire(3);
+            }
+        });
+        while (bulkhead.getQueued() == 0) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, bulkhead.getActive());
+        bulkhead.release();
+        assertTrue(batch.get());
+        assertEquals(3, bulkhead.getActive());
+        bulkhead.release(3);
+        assertTrue(bulkhead.acquire(10));
+        assertEquals(3, bulkhead.getActive());
+        bulkhead.release(10);
+        assertEquals(0, bulkhead.getActive());
+    }
+
+
+    /**
+     * We test classes of methods and that every method has a result reporting its failure.
+     */
+    @Test
+    public void testOperationClass() throws Exception {
+        System.out.println("operationClass");
+        Method querySubgraphs = GateNosqlLocal.class.getMethod("querySubgraphs", String.class, ArrayList.class, String.class);
+        assertEquals(OperationClass.QUERY, OperationClass.of(querySubgraphs, null));
+        Method queryAllInferenced = GateNosqlLocal.class.getMethod("queryAllInferencedSubgraphs", String.class, String.class);
+        assertEquals(OperationClass.INFERENCED_QUERY, OperationClass.of(queryAllInferenced, null));
+        Method ask = GateNosqlLocal.class.getMethod("askSubgraphs", String.class, ArrayList.class, String.class,
+                                                   ReasoningProfile.class, QueryOptions.class);
+        assertEquals(OperationClass.QUERY, OperationClass.of(ask, new Object[]{"r", null, "q", ReasoningProfile.NONE, null}));
+        assertEquals(OperationClass.INFERENCED_QUERY, OperationClass.of(ask, new Object[]{"r", null, "q", ReasoningProfile.RDFS_SUBCLASS, null}));
+        assertEquals(OperationClass.QUERY, OperationClass.of(GateNosqlLocal.class.getMethod("getSuperClasses", String.class, String.class, String.class), null));
+        assertEquals(OperationClass.LOAD, OperationClass.of(GateNosqlLocal.class.getMethod("deleteSubgraph", String.class, String.class), null));
+        assertEquals(OperationClass.EXPORT, OperationClass.of(GateNosqlLocal.class.getMethod("exportAllSubgraphs", String.class), null));
+        assertEquals(OperationClass.ADMIN, OperationClass.of(GateNosqlLocal.class.getMethod("createRepository", String.class), null));
+        assertEquals(OperationClass.QUERY, OperationClass.of(GateNosqlLocal.class.getMethod("getAllSubgraphs", String.class), null));
+        assertEquals(OperationClass.QUERY, OperationClass.of(GateNosqlLocal.class.getMethod("getCurrentIndexes", String.class), null));
+        Method advise = GateNosqlLocal.class.getMethod("adviseIndexes", String.class, boolean.class);
+        assertEquals(OperationClass.QUERY, OperationClass.of(advise, new Object[]{"r", false}));
+        assertEquals(OperationClass.ADMIN, OperationClass.of(advise, new Object[]{"r", true}));
+        Method batch = GateNosqlLocal.class.getMethod("queryBatch", String.class, ArrayList.class, boolean.class);
+        ArrayList<QuerySpec> specs = new ArrayList<>();
+        specs.add(new QuerySpec(new ArrayList<String>(), "q", ReasoningProfile.NONE));
+        specs.add(new QuerySpec(new ArrayList<String>(), "q", ReasoningProfile.NONE));
+        assertEquals(OperationClass.QUERY, OperationClass.of(batch, new Object[]{"r", specs, true}));
+        assertEquals(1, BulkheadInterceptor.getPlaces(batch, new Object[]{"r", specs, false}));
+        assertEquals(2, BulkheadInterceptor.getPlaces(batch, new Object[]{"r", specs, true}));
+        specs.add(new QuerySpec(new ArrayList<String>(), "q", ReasoningProfile.RDFS_SUBCLASS));
+        assertEquals(OperationClass.INFERENCED_QUERY, OperationClass.of(batch, new Object[]{"r", specs, true}));
+        assertNull(OperationClass.of(GateNosqlLocal.class.getMethod("cancelQuery", String.class), null));
+
+        for (Class<?> type : new Class<?>[]{GateNosqlLocal.class, GateNosqlRemote.class}) {
+            for (Method method : type.getMethods()) {
+                if (OperationClass.of(method, null) == null) {
+                    continue;
+                }
+                Object failure = BulkheadInterceptor.getFailure(method);
+                assertTrue(method.getName(), failure != null || !method.getReturnType().isPrimitive());
+                assertTrue(method.getName(), OperationMetricsInterceptor.isFailure(method, failure) || method.getName().startsWith("is"));
+            }
+        }
+    }
+
+
+    /**
+     * We test parsing of bulkheads and their registration as MBeans.
+     */
+    @Test
+    public void testBulkheads() throws Exception {
+        System.out.println("bulkheads");
+        Bulkhead parsed = Bulkheads.parse(" 6 ");
+        assertEquals(6, parsed.getLimit());
+        assertEquals(0, parsed.getQueueLimit());
+        assertEquals(0, parsed.getMaxWaitMillis());
+        // Calls never wait inside the bean, the queue of the former specification is ignored
+        Bulkhead former = Bulkheads.parse(" 6  12 30000 ");
+        assertEquals(6, former.getLimit());
+        assertEquals(0, former.getQueueLimit());
+        assertEquals(0, former.getMaxWaitMillis());
+        try {
+            Bulkheads.parse("6 -1 100");
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            Bulkheads.parse("6 12");
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            Bulkheads.parse("0 12 100");
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+
+        Bulkheads bulkheads = new Bulkheads();
+        Map<OperationClass, Bulkhead> created = new EnumMap<>(OperationClass.class);
+        created.put(OperationClass.INFERENCED_QUERY, parsed);
+        bulkheads.register(created);
+        assertSame(parsed, bulkheads.getBulkhead(OperationClass.INFERENCED_QUERY));
+        assertNull(bulkheads.getBulkhead(OperationClass.QUERY));
+        assertEquals(6, ManagementFactory.getPlatformMBeanServer().getAttribute(
+                Bulkheads.getObjectName(OperationClass.INFERENCED_QUERY), "Limit"));
+        bulkheads.shutDown();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(Bulkheads.getObjectName(OperationClass.INFERENCED_QUERY)));
+        assertTrue(bulkheads.getBulkheads().isEmpty());
+    }
+
+
+
+    private Future<Boolean> acquireInOtherThread(final Bulkhead bulkhead) {
+        return executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return bulkhead.acquire();
+            }
+        });
+    }
+}
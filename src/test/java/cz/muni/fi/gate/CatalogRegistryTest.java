@@ -0,0 +1,134 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      CatalogRegistryTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.franz.agraph.http.exception.AGHttpException;
+import com.franz.agraph.repository.AGCatalog;
+import com.franz.agraph.repository.AGRepository;
+import com.franz.agraph.repository.AGServer;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.repository.RepositoryException;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class CatalogRegistryTest is used for testing of caching of opened catalogs and repositories.
+ * The server counts requests opening catalogs and repositories instead of sending them.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class CatalogRegistryTest {
+
+
+    private static final String CATALOG_ID_TEST_1 = "java-catalog";
+
+    private static final String CATALOG_ID_TEST_2 = "other-catalog";
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+    private CountingServer server;
+
+    private CatalogRegistry registry;
+
+
+
+    @Before
+    public void setUp() {
+        server = new CountingServer(Arrays.asList(CATALOG_ID_TEST_1, CATALOG_ID_TEST_2));
+        registry = new CatalogRegistry(server, CATALOG_ID_TEST_1);
+    }
+
+
+
+    /**
+     * We test that catalogs and repositories are opened once.
+     */
+    @Test
+    public void testHandles() throws Exception {
+        System.out.println("handles");
+        assertEquals(CATALOG_ID_TEST_1, registry.getDefaultCatalogId());
+        AGRepository first = registry.getRepository(CATALOG_ID_TEST_1, REPOSITORY_ID_TEST);
+        AGRepository second = registry.getRepository(CATALOG_ID_TEST_2, REPOSITORY_ID_TEST);
+        assertNotSame(first, second);
+        assertEquals(CATALOG_ID_TEST_2, second.getCatalog().getCatalogName());
+        for (int i = 0; i < 10; i++) {
+            assertSame(first, registry.getRepository(CATALOG_ID_TEST_1, REPOSITORY_ID_TEST));
+            assertSame(second, registry.getRepository(CATALOG_ID_TEST_2, REPOSITORY_ID_TEST));
+        }
+        assertEquals(2, server.catalogs);
+        assertEquals(2, server.repositories);
+    }
+
+
+    /**
+     * We test that a deleted repository is opened again and that unknown catalogs are reported.
+     */
+    @Test
+    public void testRemove() throws Exception {
+        System.out.println("remove");
+        AGRepository first = registry.getRepository(CATALOG_ID_TEST_2, REPOSITORY_ID_TEST);
+        registry.removeRepository(CATALOG_ID_TEST_2, REPOSITORY_ID_TEST);
+        assertNotSame(first, registry.getRepository(CATALOG_ID_TEST_2, REPOSITORY_ID_TEST));
+        assertEquals(1, server.catalogs);
+        assertEquals(2, server.repositories);
+
+        AGRepository created = new AGRepository(registry.getCatalog(CATALOG_ID_TEST_1), "created");
+        registry.putRepository(CATALOG_ID_TEST_1, created);
+        assertSame(created, registry.getRepository(CATALOG_ID_TEST_1, "created"));
+        assertEquals(2, server.repositories);
+
+        try {
+            registry.getCatalog("unknown");
+            fail("RepositoryException expected");
+        } catch (RepositoryException ex) {
+            // OK
+        }
+    }
+
+
+
+    /**
+     * Class CountingServer answers opening of catalogs and repositories without the server.
+     */
+    private static final class CountingServer extends AGServer {
+
+        private final List<String> known;
+
+        private int catalogs;
+
+        private int repositories;
+
+        private CountingServer(List<String> known) {
+            super("http://localhost:10035");
+            this.known = known;
+        }
+
+        @Override
+        public AGCatalog getCatalog(String catalogId) throws AGHttpException {
+            catalogs++;
+            if (!known.contains(catalogId)) {
+                return null;
+            }
+            return new AGCatalog(this, catalogId) {
+                @Override
+                public AGRepository openRepository(String repositoryId) {
+                    repositories++;
+                    return new AGRepository(this, repositoryId);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      EncodedResultTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class EncodedResultTest is used for testing of the compact form of query results.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class EncodedResultTest {
+
+
+    private static final String ONTOLOGY = "http://example.org/ontology/";
+
+
+
+    /**
+     * We test that the deserialised result has the same rows as the result of querySubgraphs
+     * and it is smaller than the list of strings.
+     */
+    @Test
+    public void testSerialization() throws Exception {
+        System.out.println("serialization");
+        for (boolean compressed : new boolean[]{false, true}) {
+            EncodedResult result = new EncodedResult(compressed);
+            ArrayList<String> expected = new ArrayList<>();
+            RDFNode fatherOf = ResourceFactory.createProperty(ONTOLOGY + "fatherOf");
+            for (int i = 0; i < 1000; i++) {
+                RDFNode father = ResourceFactory.createResource(ONTOLOGY + "person" + (i % 10));
+                RDFNode child = ResourceFactory.createPlainLiteral("child " + i + " č");
+                result.addRow(father, fatherOf, child);
+                expected.add("{" + father + " " + fatherOf + " " + child + "}");
+            }
+            assertEquals(1000, result.getRowCount());
+            assertEquals(1 + 10 + 1000, result.getTerms().size());
+
+            byte[] encoded = serialize(result);
+            EncodedResult decoded = (EncodedResult) new ObjectInputStream(new ByteArrayInputStream(encoded)).readObject();
+            assertEquals(compressed, decoded.isCompressed());
+            assertEquals(expected, decoded.getResults());
+            assertEquals(ONTOLOGY + "fatherOf", decoded.getTerm(999, 1));
+            assertTrue(encoded.length < serialize(expected).length);
+        }
+    }
+
+
+    /**
+     * We test that variable-length integers are read back.
+     */
+    @Test
+    public void testVarint() throws Exception {
+        System.out.println("varint");
+        int[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE};
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(buffer);
+        for (int value : values) {
+            EncodedResult.writeVarint(out, value);
+        }
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        for (int value : values) {
+            assertEquals(value, EncodedResult.readVarint(in));
+        }
+    }
+
+
+
+    private static byte[] serialize(Object object) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(object);
+        }
+        return buffer.toByteArray();
+    }
+}
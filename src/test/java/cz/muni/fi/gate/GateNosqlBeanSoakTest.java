@@ -0,0 +1,139 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      GateNosqlBeanSoakTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.ejb.embeddable.EJBContainer;
+import javax.management.ObjectName;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openrdf.rio.RDFFormat;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class GateNosqlBeanSoakTest drives concurrent loads, queries, inferenced queries and exports
+ * through the embedded EJB container against the storage backend given by soak.backend (memory),
+ * allegrograph uses the AllegroGraph server of configuration/database.properties.
+ * It runs only if soak.duration (in seconds) is given, e.g. mvn test -Dtest=GateNosqlBeanSoakTest -Dsoak.duration=600.
+ * The number of clients is given by soak.clients (8) and the mix by soak.mix
+ * (load=1,query=6,inferenced_query=2,export=1 with allegrograph, load=1,query=8,export=1 with other
+ * backends, which do not reason). Subgraphs are generated by OntologyGenerator.
+ * The run fails if any operation fails or a connection of the bean or of the backend is left open.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class GateNosqlBeanSoakTest {
+
+
+    private static final String REPOSITORY_ID_TEST = "gate-soak";
+
+    private static final String BASE_IRI_TEST = "http://example.org/example/local";
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s <http://example.org/lubm/property1> ?o .}";
+
+    private static final int SUBGRAPHS = 4;
+
+    private static String backend;
+
+    private static EJBContainer container;
+
+    private static GateNosqlRemote remoteService;
+
+    private static OntologyGenerator generator;
+
+    private static ArrayList<String> subgraphIds;
+
+    private static File loadedFile;
+
+
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Assume.assumeTrue(System.getProperty("soak.duration") != null);
+        backend = System.getProperty("soak.backend", "memory");
+        System.setProperty(GateNosqlConfiguration.SYSTEM_PREFIX + "backend", backend);
+        container = EJBContainer.createEJBContainer();
+        remoteService = (GateNosqlRemote) container.getContext().lookup("java:global/classes/GateNosqlBean!cz.muni.fi.gate.GateNosqlRemote");
+        assertTrue(remoteService.createRepository(REPOSITORY_ID_TEST));
+
+        generator = new OntologyGenerator();
+        generator.setIndividuals(SUBGRAPHS * 1000);
+        generator.setSubgraphs(SUBGRAPHS);
+        subgraphIds = new ArrayList<>();
+        for (File file : generator.writeFiles(new File("target/soak"), RDFFormat.RDFXML)) {
+            String subgraphId = generator.getSubgraphId(subgraphIds.size());
+            assertTrue(remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, subgraphId, BASE_IRI_TEST, file.getPath()));
+            subgraphIds.add(subgraphId);
+        }
+        loadedFile = new File("target/soak/loaded.rdf");
+        try (OutputStream output = new FileOutputStream(loadedFile)) {
+            generator.write(0, output, RDFFormat.RDFXML);
+        }
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        if (container != null) {
+            remoteService.deleteRepository(REPOSITORY_ID_TEST);
+            container.close();
+        }
+        System.clearProperty(GateNosqlConfiguration.SYSTEM_PREFIX + "backend");
+    }
+
+
+
+    /**
+     * We test that concurrent clients get no errors and leave no connection open.
+     */
+    @Test
+    public void testSoak() throws Exception {
+        System.out.println("soak");
+        LoadHarness harness = new LoadHarness(new LoadHarness.Target() {
+            @Override
+            public boolean execute(LoadHarness.Operation operation, int client, long sequence) {
+                switch (operation) {
+                    case LOAD:
+                        return remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, generator.getNamespace() + "loaded" + client,
+                                                                  BASE_IRI_TEST, loadedFile.getPath());
+                    case QUERY:
+                        return remoteService.querySubgraphs(REPOSITORY_ID_TEST, subgraphIds, QUERY_TEST) != null;
+                    case INFERENCED_QUERY:
+                        return remoteService.queryInferencedSubgraphs(REPOSITORY_ID_TEST, subgraphIds, QUERY_TEST) != null;
+                    default:
+                        return remoteService.exportSubgraphs(REPOSITORY_ID_TEST, subgraphIds) != null;
+                }
+            }
+
+            @Override
+            public long getOpenConnections() throws Exception {
+                return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(
+                        new ObjectName(OperationMonitor.DOMAIN + ":type=Connections"), "Open");
+            }
+        });
+        String mix = backend.equals("allegrograph") ? "load=1,query=6,inferenced_query=2,export=1" : "load=1,query=8,export=1";
+        LoadHarness.Report report = harness.clients(Integer.getInteger("soak.clients", 8))
+                                           .mix(System.getProperty("soak.mix", mix))
+                                           .duration(Long.getLong("soak.duration"), TimeUnit.SECONDS)
+                                           .run();
+        System.out.print(report);
+        assertEquals(0, report.getErrors());
+        assertEquals(0, report.getLeakedConnections());
+    }
+}
@@ -10,6 +10,7 @@ package cz.muni.fi.gate;
 
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.ejb.embeddable.EJBContainer;
@@ -222,6 +223,8 @@ public class GateNosqlBeanTest {
         for (String index : returnDefaultIndexes()) {
             assertTrue(currentIndexes.contains(index));
         }
+        // Overload of the default catalog gives the same indexes
+        assertEquals(currentIndexes, remoteService.getCurrentIndexes("java-catalog", REPOSITORY_ID_TEST));
         
         // Clean database after test
         remoteService.deleteRepository(REPOSITORY_ID_TEST);
@@ -357,6 +360,84 @@ public class GateNosqlBeanTest {
     }
     
     
+    /**
+     * Test of createRepository with profile and finishBulkLoad methods, of class GateNosqlBean.
+     * We test that the bulk loaded repository has only primary indexes until the loading is finished
+     * and it has indexes of the requested profile afterwards.
+     */
+    @Test
+    public void testFinishBulkLoad() throws Exception {
+        System.out.println("finishBulkLoad");
+        // Null arguments
+        try {
+            remoteService.finishBulkLoad(REPOSITORY_ID_TEST, null);
+            fail("IllegalArgumentException expected");
+        } catch (Exception ex) {
+            if (ex.getCause() instanceof IllegalArgumentException)
+                ;
+            // OK
+        }
+
+        // Creation of repository "gate-test" in bulk mode succeeds
+        assertTrue(remoteService.createRepository(REPOSITORY_ID_TEST, RepositoryProfile.BULK_LOAD));
+        ArrayList<String> currentIndexes = remoteService.getCurrentIndexes(REPOSITORY_ID_TEST);
+        assertEquals(RepositoryProfile.BULK_LOAD.getIndexes().size(), currentIndexes.size());
+
+        assertTrue(remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, FILE_PATH_ONTOLOGY_TEST_1));
+
+        // Indexes of read optimised profile are built
+        assertTrue(remoteService.finishBulkLoad(REPOSITORY_ID_TEST, RepositoryProfile.READ_OPTIMISED));
+        currentIndexes = remoteService.getCurrentIndexes(REPOSITORY_ID_TEST);
+        assertEquals(RepositoryProfile.READ_OPTIMISED.getIndexes().size(), currentIndexes.size());
+        for (String index : RepositoryProfile.READ_OPTIMISED.getIndexes()) {
+            assertTrue(currentIndexes.contains(index));
+        }
+
+        // Overload of the default catalog finishes a bulk load too
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+        assertTrue(remoteService.createRepository("java-catalog", REPOSITORY_ID_TEST, RepositoryProfile.BULK_LOAD));
+        assertTrue(remoteService.finishBulkLoad("java-catalog", REPOSITORY_ID_TEST, RepositoryProfile.READ_OPTIMISED));
+        assertEquals(RepositoryProfile.READ_OPTIMISED.getIndexes().size(), remoteService.getCurrentIndexes("java-catalog", REPOSITORY_ID_TEST).size());
+
+        // Clean database after test
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+    }
+
+
+    /**
+     * Test of optimizeIndexes and getIndexOptimizations methods, of class GateNosqlBean.
+     * We test that the optimisation of indexes of the loaded repository is reported.
+     */
+    @Test
+    public void testOptimizeIndexes() throws Exception {
+        System.out.println("optimizeIndexes");
+        // Null arguments
+        try {
+            remoteService.optimizeIndexes(null, 2);
+            fail("IllegalArgumentException expected");
+        } catch (Exception ex) {
+            if (ex.getCause() instanceof IllegalArgumentException)
+                ;
+            // OK
+        }
+
+        assertTrue(remoteService.createRepository(REPOSITORY_ID_TEST));
+        assertTrue(remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, FILE_PATH_ONTOLOGY_TEST_1));
+
+        IndexOptimization result = remoteService.optimizeIndexes(REPOSITORY_ID_TEST, 2);
+        assertNotNull(result);
+        assertEquals(REPOSITORY_ID_TEST, result.getRepositoryId());
+        assertTrue(result.getDuration() >= 0);
+
+        ArrayList<IndexOptimization> optimizations = remoteService.getIndexOptimizations(REPOSITORY_ID_TEST);
+        assertEquals(1, optimizations.size());
+
+        // Clean database after test
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+        assertTrue(remoteService.getIndexOptimizations(REPOSITORY_ID_TEST).isEmpty());
+    }
+
+
     /**
      * Test of loadOntology method, of class GateNosqlBean.
      * We test that the method returns IllegalArgumentException if any of arguments is null. Afterwards, we test
@@ -511,6 +592,45 @@ public class GateNosqlBeanTest {
         remoteService.deleteRepository(REPOSITORY_ID_TEST);
     }
     
+    /**
+     * Test of moveSubgraph and rebalanceShards methods, of class GateNosqlBean.
+     * We test that the methods return IllegalArgumentException if any of arguments is null and that they fail
+     * without the sharded backend (see ShardedBackendTest for moves between shards).
+     */
+    @Test
+    public void testMoveSubgraph() {
+        System.out.println("moveSubgraph");
+        // Null arguments
+        try {
+            remoteService.moveSubgraph(null, SUBGRAPH_ID_TEST_1, 0);
+            fail("IllegalArgumentException expected");
+        } catch (Exception ex) {
+            if (ex.getCause() instanceof IllegalArgumentException)
+                ;
+            // OK
+        }
+        try {
+            remoteService.moveSubgraph(REPOSITORY_ID_TEST, null, 0);
+            fail("IllegalArgumentException expected");
+        } catch (Exception ex) {
+            if (ex.getCause() instanceof IllegalArgumentException)
+                ;
+            // OK
+        }
+        try {
+            remoteService.rebalanceShards(null);
+            fail("IllegalArgumentException expected");
+        } catch (Exception ex) {
+            if (ex.getCause() instanceof IllegalArgumentException)
+                ;
+            // OK
+        }
+
+        // AllegroGraph has no shards
+        assertFalse(remoteService.moveSubgraph(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, 0));
+        assertEquals(-1, remoteService.rebalanceShards(REPOSITORY_ID_TEST));
+    }
+
     /**
      * Test of deleteSubgraph method, of class GateNosqlBean.
      * We test that the method returns IllegalArgumentException if any of arguments is null. Afterwards, we test
@@ -817,6 +937,59 @@ public class GateNosqlBeanTest {
         remoteService.deleteRepository(REPOSITORY_ID_TEST);
     }
     
+    /**
+     * Test of queryInferencedSubgraphs method with raw subgraphs, of class GateNosqlBean.
+     * We test that the reasoning is used just for inferenced subgraphs while one query is evaluated
+     * over both groups.
+     */
+    @Test
+    public void testQueryInferencedAndRawSubgraphs() {
+        System.out.println("queryInferencedAndRawSubgraphs");
+        // Erasure
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+        
+        // Creation of repository "gate-test" succeeds
+        assertTrue(remoteService.createRepository(REPOSITORY_ID_TEST));
+        assertTrue(remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, FILE_PATH_ONTOLOGY_TEST_1));
+        assertTrue(remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2, BASE_IRI_TEST, FILE_PATH_ONTOLOGY_TEST_2));
+        ArrayList<String> first = new ArrayList<>();
+        first.add(SUBGRAPH_ID_TEST_1);
+        ArrayList<String> second = new ArrayList<>();
+        second.add(SUBGRAPH_ID_TEST_2);
+        
+        // owl:sameAs of the first subgraph is used, so bob and employee are fathers
+        ArrayList<String> currentResult = remoteService.queryInferencedSubgraphs(REPOSITORY_ID_TEST, first, second, QUERY_TEST, ReasoningProfile.RDFS_PLUS_PLUS);
+        assertEquals(3, currentResult.size());
+        assertTrue(currentResult.contains("{http://example.org/people/employee null http://example.org/people/bobby}"));
+        assertTrue(currentResult.contains("{http://example.org/people/paul null http://example.org/people/paula}"));
+        
+        // The first subgraph is raw, so employee is not a father
+        currentResult = remoteService.queryInferencedSubgraphs(REPOSITORY_ID_TEST, second, first, QUERY_TEST, ReasoningProfile.RDFS_PLUS_PLUS);
+        assertEquals(2, currentResult.size());
+        assertFalse(currentResult.contains("{http://example.org/people/employee null http://example.org/people/bobby}"));
+        
+        // Patterns of one query are matched across both groups
+        String join = "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/fatherOf> ?o . ?x <http://example.org/ontology/fatherOf> <http://example.org/people/paula> .}";
+        currentResult = remoteService.queryInferencedSubgraphs(REPOSITORY_ID_TEST, first, second, join, ReasoningProfile.RDFS_PLUS_PLUS);
+        assertEquals(3, currentResult.size());
+
+        // Overload of the default catalog gives the same result
+        assertEquals(currentResult, remoteService.queryInferencedSubgraphs("java-catalog", REPOSITORY_ID_TEST, first, second, join,
+                                                                           ReasoningProfile.RDFS_PLUS_PLUS, new QueryOptions()));
+
+        // Copy of the subgraphs larger than maxRows fails at once
+        try {
+            remoteService.queryInferencedSubgraphs(REPOSITORY_ID_TEST, first, second, QUERY_TEST, ReasoningProfile.RDFS_PLUS_PLUS,
+                                                   new QueryOptions(QueryOptions.NO_LIMIT, 0, 5));
+            fail("ResultTooLargeException expected");
+        } catch (ResultTooLargeException ex) {
+            assertEquals(5, ex.getMaxRows());
+        }
+
+        // Clean database after test
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+    }
+    
     /**
      * Test of queryAllSubgraphs method, of class GateNosqlBean.
      * We test that the method returns IllegalArgumentException if any of arguments is null.
@@ -1232,6 +1405,227 @@ public class GateNosqlBeanTest {
         remoteService.deleteRepository(REPOSITORY_ID_TEST);
     }
     
+    /**
+     * Test of cancelQuery method, of class GateNosqlBean.
+     * We test that the method returns IllegalArgumentException if the argument is null. Afterwards, we test
+     * that cancellation of not running query fails and that a query with options returns the same result
+     * as the query without them.
+     */
+    @Test
+    public void testCancelQuery() {
+        System.out.println("cancelQuery");
+        // Null arguments
+        try {
+            remoteService.cancelQuery(null);
+            fail("IllegalArgumentException expected");
+        } catch (Exception ex) {
+            if (ex.getCause() instanceof IllegalArgumentException)
+                ;
+            // OK
+        }
+        
+        // Cancellation of not running query fails
+        assertFalse(remoteService.cancelQuery("query-not-running"));
+        
+        // Erasure
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+        
+        // Creation of repository "gate-test" succeeds
+        assertTrue(remoteService.createRepository(REPOSITORY_ID_TEST));
+        
+        // Load first correct ontology
+        assertTrue(remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, FILE_PATH_ONTOLOGY_TEST_1));
+        
+        ArrayList<String> expectedResult = remoteService.querySubgraph(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, QUERY_TEST);
+        ArrayList<String> currentResult = remoteService.querySubgraph(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, QUERY_TEST,
+                                                                      new QueryOptions("query-test", 10000));
+        // Query with timeout returns the same result
+        assertEquals(expectedResult, currentResult);
+        
+        // Finished query can not be cancelled
+        assertFalse(remoteService.cancelQuery("query-test"));
+
+        // Clean database after test
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+    }
+
+
+    /**
+     * Test of pinSubgraph and unpinSubgraph methods, of class GateNosqlBean.
+     * We test that the methods return IllegalArgumentException if an argument is null. Afterwards, we test
+     * that pinning fails while the near-cache is disabled (subgraph_cache_memory = 0) and that
+     * the overloads of the default catalog behave the same way.
+     */
+    @Test
+    public void testPinSubgraph() {
+        System.out.println("pinSubgraph");
+        // Null arguments
+        try {
+            remoteService.pinSubgraph(null, REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1);
+            fail("IllegalArgumentException expected");
+        } catch (Exception ex) {
+            if (ex.getCause() instanceof IllegalArgumentException)
+                ;
+            // OK
+        }
+        
+        // Erasure
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+        
+        // Creation of repository "gate-test" succeeds
+        assertTrue(remoteService.createRepository(REPOSITORY_ID_TEST));
+        
+        // Load first correct ontology
+        assertTrue(remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, FILE_PATH_ONTOLOGY_TEST_1));
+        
+        // The near-cache is disabled by default
+        assertFalse(remoteService.pinSubgraph(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+        assertFalse(remoteService.pinSubgraph("java-catalog", REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+        assertFalse(remoteService.unpinSubgraph("java-catalog", REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+
+        // Clean database after test
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+    }
+
+
+    /**
+     * Test of cancelQuery method, of class GateNosqlBean.
+     * We test that cancellation stops a query which is being evaluated by the server.
+     */
+    @Test
+    public void testCancelRunningQuery() throws Exception {
+        System.out.println("cancelRunningQuery");
+        // Erasure
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+        assertTrue(remoteService.createRepository(REPOSITORY_ID_TEST));
+        assertTrue(remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, FILE_PATH_ONTOLOGY_TEST_1));
+
+        // Count of a cross join of all triples takes far longer than the test, it returns no rows until it is done
+        final String heavyQuery = "SELECT (COUNT(*) AS ?n) WHERE {?a ?b ?c . ?d ?e ?f . ?g ?h ?i . ?j ?k ?l . ?m ?n2 ?o .}";
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread query = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    remoteService.querySubgraph(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, heavyQuery,
+                                                new QueryOptions("query-heavy", QueryOptions.NO_TIMEOUT));
+                } catch (Exception ex) {
+                    failure.set(ex);
+                }
+            }
+        });
+        query.start();
+
+        // The query is cancelled while the server evaluates it
+        long deadline = System.currentTimeMillis() + 10000;
+        boolean cancelled = false;
+        while (!cancelled && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            cancelled = remoteService.cancelQuery("query-heavy");
+        }
+        assertTrue(cancelled);
+        long start = System.currentTimeMillis();
+        query.join(10000);
+
+        // The caller is released at once and gets the cancellation
+        assertFalse(query.isAlive());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertNotNull(failure.get());
+
+        // Clean database after test
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+    }
+    
+    
+    /**
+     * Test of queryBatch method, of class GateNosqlBean.
+     * We test that every query of the batch has the same result as a separate query, both sequentially
+     * and in parallel, and that a query on a not existing subgraph fails alone.
+     */
+    @Test
+    public void testQueryBatch() {
+        System.out.println("queryBatch");
+        // Null arguments
+        try {
+            remoteService.queryBatch(REPOSITORY_ID_TEST, null);
+            fail("IllegalArgumentException expected");
+        } catch (Exception ex) {
+            if (ex.getCause() instanceof IllegalArgumentException)
+                ;
+            // OK
+        }
+        
+        assertTrue(remoteService.createRepository(REPOSITORY_ID_TEST));
+        assertTrue(remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, FILE_PATH_ONTOLOGY_TEST_1));
+        
+        ArrayList<String> subgraphs = new ArrayList<>();
+        subgraphs.add(SUBGRAPH_ID_TEST_1);
+        ArrayList<String> notExistingSubgraphs = new ArrayList<>();
+        notExistingSubgraphs.add(SUBGRAPH_ID_TEST_2);
+        ArrayList<QuerySpec> specs = new ArrayList<>();
+        specs.add(new QuerySpec(subgraphs, QUERY_TEST, false));
+        specs.add(new QuerySpec(subgraphs, QUERY_TEST, true));
+        specs.add(new QuerySpec(notExistingSubgraphs, QUERY_TEST, false));
+        specs.add(new QuerySpec(subgraphs, QUERY_TEST, ReasoningProfile.RDFS_SUBCLASS));
+        
+        for (boolean parallel : new boolean[]{false, true}) {
+            ArrayList<ArrayList<String>> results = remoteService.queryBatch(REPOSITORY_ID_TEST, specs, parallel);
+            assertEquals(specs.size(), results.size());
+            assertEquals(remoteService.querySubgraph(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, QUERY_TEST), results.get(0));
+            assertEquals(remoteService.queryInferencedSubgraph(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, QUERY_TEST).size(),
+                         results.get(1).size());
+            assertNull(results.get(2));
+            assertEquals(remoteService.querySubgraphs(REPOSITORY_ID_TEST, subgraphs, QUERY_TEST).size(), results.get(3).size());
+        }
+        
+        // Clean database after test
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+    }
+    
+    
+    /**
+     * Test of askSubgraphs, countSubgraphs and constructSubgraphs methods, of class GateNosqlBean.
+     * We test that the answers correspond to the result of the same SELECT query.
+     */
+    @Test
+    public void testAskCountConstruct() {
+        System.out.println("askCountConstruct");
+        // Erasure
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+        
+        assertTrue(remoteService.createRepository(REPOSITORY_ID_TEST));
+        assertTrue(remoteService.loadOntologyFromFile(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, FILE_PATH_ONTOLOGY_TEST_1));
+        
+        ArrayList<String> subgraphs = new ArrayList<>();
+        subgraphs.add(SUBGRAPH_ID_TEST_1);
+        QueryOptions options = new QueryOptions();
+        assertEquals(Boolean.TRUE, remoteService.askSubgraphs(REPOSITORY_ID_TEST, subgraphs,
+                "ASK {?s <http://example.org/ontology/fatherOf> ?o .}", ReasoningProfile.NONE, options));
+        assertEquals(Boolean.FALSE, remoteService.askSubgraphs(REPOSITORY_ID_TEST, subgraphs,
+                "ASK {?s <http://example.org/ontology/motherOf> ?o .}", ReasoningProfile.NONE, options));
+        assertEquals(1, remoteService.countSubgraphs(REPOSITORY_ID_TEST, subgraphs, QUERY_TEST, ReasoningProfile.NONE, options));
+        
+        String construct = "CONSTRUCT {?s <http://example.org/ontology/fatherOf> ?o .} WHERE {?s <http://example.org/ontology/fatherOf> ?o .}";
+        String triples = remoteService.constructSubgraphs(REPOSITORY_ID_TEST, subgraphs, construct, ReasoningProfile.NONE, options);
+        assertNotNull(triples);
+        assertFalse(triples.isEmpty());
+        assertEquals("<http://example.org/people/bob> <http://example.org/ontology/fatherOf> <http://example.org/people/bobby> .\n", triples);
+        
+        // owl:sameAs makes employee a father too
+        triples = remoteService.constructSubgraphs(REPOSITORY_ID_TEST, subgraphs, construct, ReasoningProfile.RDFS_PLUS_PLUS, options);
+        assertNotNull(triples);
+        assertTrue(triples.contains("<http://example.org/people/employee> <http://example.org/ontology/fatherOf> <http://example.org/people/bobby> .\n"));
+        
+        // Overloads of the default catalog give the same answers
+        assertEquals(Boolean.TRUE, remoteService.askSubgraphs("java-catalog", REPOSITORY_ID_TEST, subgraphs,
+                "ASK {?s <http://example.org/ontology/fatherOf> ?o .}", ReasoningProfile.NONE, options));
+        assertEquals(1, remoteService.countSubgraphs("java-catalog", REPOSITORY_ID_TEST, subgraphs, QUERY_TEST, ReasoningProfile.NONE, options));
+        assertFalse(remoteService.constructSubgraphs("java-catalog", REPOSITORY_ID_TEST, subgraphs, construct, ReasoningProfile.NONE, options).isEmpty());
+        
+        // Clean database after test
+        remoteService.deleteRepository(REPOSITORY_ID_TEST);
+    }
+    
     
     
     private ArrayList<String> returnDefaultIndexes() {
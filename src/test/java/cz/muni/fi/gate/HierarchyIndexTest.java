@@ -0,0 +1,113 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      HierarchyIndexTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class HierarchyIndexTest is used for testing of the in-memory hierarchy closure.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class HierarchyIndexTest {
+
+
+    private static final String THING = "http://example.org/ontology/Thing";
+
+    private static final String AGENT = "http://example.org/ontology/Agent";
+
+    private static final String PERSON = "http://example.org/ontology/Person";
+
+    private static final String HUMAN = "http://example.org/ontology/Human";
+
+    private static final String FATHER = "http://example.org/ontology/Father";
+
+    private static final String ROCK = "http://example.org/ontology/Rock";
+
+
+
+    /**
+     * We test that superclasses contain all transitive ancestors (also through equivalence)
+     * and not the class itself.
+     */
+    @Test
+    public void testGetSuperTerms() {
+        System.out.println("getSuperTerms");
+        HierarchyIndex index = createIndex();
+
+        ArrayList<String> result = index.getSuperTerms(FATHER);
+        assertEquals(4, result.size());
+        assertTrue(result.contains(PERSON));
+        assertTrue(result.contains(HUMAN));
+        assertTrue(result.contains(AGENT));
+        assertTrue(result.contains(THING));
+
+        // Equivalent classes are superclasses of each other
+        result = index.getSuperTerms(HUMAN);
+        assertTrue(result.contains(PERSON));
+        assertFalse(result.contains(HUMAN));
+
+        // Unknown class has no superclasses
+        assertTrue(index.getSuperTerms("http://example.org/ontology/Unknown").isEmpty());
+    }
+
+
+    /**
+     * We test that subclasses contain all transitive descendants.
+     */
+    @Test
+    public void testGetSubTerms() {
+        System.out.println("getSubTerms");
+        HierarchyIndex index = createIndex();
+
+        ArrayList<String> result = index.getSubTerms(THING);
+        assertEquals(5, result.size());
+        assertTrue(result.contains(ROCK));
+        assertTrue(result.contains(FATHER));
+
+        assertTrue(index.getSubTerms(FATHER).isEmpty());
+    }
+
+
+    /**
+     * We test subsumption checks including reflexivity and unrelated classes.
+     */
+    @Test
+    public void testIsSubTermOf() {
+        System.out.println("isSubTermOf");
+        HierarchyIndex index = createIndex();
+
+        assertTrue(index.isSubTermOf(FATHER, THING));
+        assertTrue(index.isSubTermOf(PERSON, HUMAN));
+        assertTrue(index.isSubTermOf(ROCK, ROCK));
+        assertFalse(index.isSubTermOf(THING, FATHER));
+        assertFalse(index.isSubTermOf(ROCK, AGENT));
+        assertFalse(index.isSubTermOf("http://example.org/ontology/Unknown", THING));
+        assertEquals(6, index.size());
+    }
+
+
+
+    private HierarchyIndex createIndex() {
+        return new HierarchyIndex.Builder()
+                .addSubsumption(FATHER, PERSON)
+                .addSubsumption(PERSON, AGENT)
+                .addSubsumption(AGENT, THING)
+                .addSubsumption(ROCK, THING)
+                .addEquivalence(PERSON, HUMAN)
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      IndexAdvisorTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class IndexAdvisorTest is used for testing of recording of query shapes and index recommendation.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class IndexAdvisorTest {
+
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+
+
+    /**
+     * We test that shapes of the query are recorded, a variable of a previous pattern counts as bound.
+     */
+    @Test
+    public void testRecord() {
+        System.out.println("record");
+        IndexAdvisor advisor = new IndexAdvisor();
+        advisor.record(REPOSITORY_ID_TEST, "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/fatherOf> ?o .}");
+        advisor.record(REPOSITORY_ID_TEST, "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/fatherOf> ?o .}");
+        advisor.record(REPOSITORY_ID_TEST, "SELECT ?s ?n WHERE {?s a <http://example.org/ontology/Person> . "
+                                           + "?s <http://example.org/ontology/name> ?n .}");
+
+        LinkedHashMap<String, Long> counts = advisor.getPatternCounts(REPOSITORY_ID_TEST);
+        assertEquals(Long.valueOf(2), counts.get("?p?g"));
+        assertEquals(Long.valueOf(1), counts.get("?pog"));
+        assertEquals(Long.valueOf(1), counts.get("sp?g"));
+        assertEquals(3, counts.size());
+
+        advisor.reset(REPOSITORY_ID_TEST);
+        assertTrue(advisor.getPatternCounts(REPOSITORY_ID_TEST).isEmpty());
+    }
+
+
+    /**
+     * We test that probe lookups are divided among the observed shapes by their counts.
+     */
+    @Test
+    public void testProbeShapes() {
+        System.out.println("probeShapes");
+        IndexAdvisor advisor = new IndexAdvisor();
+        // Without observed queries whole subgraphs are probed
+        assertArrayEquals(new int[]{IndexAdvisor.GRAPH, IndexAdvisor.GRAPH}, advisor.getProbeShapes(REPOSITORY_ID_TEST, 2));
+
+        for (int i = 0; i < 3; i++) {
+            advisor.record(REPOSITORY_ID_TEST, "SELECT ?s ?o WHERE {?s <http://example.org/ontology/fatherOf> ?o .}");
+        }
+        advisor.record(REPOSITORY_ID_TEST, "SELECT ?s WHERE {?s a <http://example.org/ontology/Person> .}");
+        int[] shapes = advisor.getProbeShapes(REPOSITORY_ID_TEST, 8);
+        int predicate = IndexAdvisor.fromPattern("?p?g");
+        int predicateObject = IndexAdvisor.fromPattern("?pog");
+        int predicateCount = 0;
+        for (int shape : shapes) {
+            assertTrue(shape == predicate || shape == predicateObject);
+            predicateCount += shape == predicate ? 1 : 0;
+        }
+        assertEquals(8, shapes.length);
+        assertEquals(6, predicateCount);
+
+        // A rare shape is probed at least once
+        assertEquals(2, advisor.getProbeShapes(REPOSITORY_ID_TEST, 1).length);
+    }
+
+
+    /**
+     * We test that nested shapes share one index and incomparable shapes need separate indexes.
+     */
+    @Test
+    public void testRecommend() {
+        System.out.println("recommend");
+        ArrayList<String> result = IndexAdvisor.recommend(new LinkedHashSet<>(Arrays.asList("?p?g", "?pog", "spog", "s??g")));
+        assertEquals(3, result.size());
+        assertTrue(result.contains("gposi"));
+        assertTrue(result.contains("gspoi"));
+        assertTrue(result.contains("i"));
+
+        // Every shape is a prefix of some recommended index
+        result = IndexAdvisor.recommend(new LinkedHashSet<>(Arrays.asList("?p?g", "s??g", "??og", "sp?g", "?pog", "s?og")));
+        assertEquals(4, result.size());
+        for (String pattern : Arrays.asList("?p?g", "s??g", "??og", "sp?g", "?pog", "s?og")) {
+            int shape = IndexAdvisor.fromPattern(pattern);
+            boolean covered = false;
+            for (String index : result) {
+                int length = Integer.bitCount(shape);
+                covered |= index.length() > length && IndexAdvisor.fromPattern(index.substring(0, length)) == shape;
+            }
+            assertTrue(pattern, covered);
+        }
+
+        // No shape needs just "i" index
+        assertEquals(Arrays.asList("i"), IndexAdvisor.recommend(new LinkedHashSet<>(Arrays.asList("????"))));
+    }
+}
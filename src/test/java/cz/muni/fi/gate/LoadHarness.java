@@ -0,0 +1,289 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      LoadHarness.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+
+/**
+ * Class LoadHarness drives a mix of operations from concurrent clients for a given duration
+ * and reports throughput, latency percentiles, errors and leaked connections.
+ * Every client picks its operations from the mix by its own seeded random generator,
+ * so runs with the same settings issue the same sequences of operations.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+final class LoadHarness {
+
+
+    /**
+     * Enum Operation lists kinds of driven operations
+     */
+    enum Operation {
+        LOAD, QUERY, INFERENCED_QUERY, EXPORT
+    }
+
+
+    /**
+     * Interface Target executes operations against the tested service.
+     */
+    interface Target {
+
+        /**
+         * Executes the operation.
+         * @param operation Operation
+         * @param client int number of the client
+         * @param sequence long number of the operation of the client
+         * @return true if the operation succeeded
+         * @throws Exception if the operation failed
+         */
+        boolean execute(Operation operation, int client, long sequence) throws Exception;
+
+        /**
+         * Returns the number of connections which are open now.
+         * @return number of open connections
+         */
+        long getOpenConnections() throws Exception;
+    }
+
+
+
+    private final Target target;
+
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+    private int clients = 4;
+
+    private long durationMillis = 10000;
+
+    private long seed = 42;
+
+
+
+    LoadHarness(Target target) {
+        this.target = target;
+    }
+
+    /**
+     * Sets the weight of the operation in the mix, operations without weights are not driven.
+     */
+    LoadHarness weight(Operation operation, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Argument weight can not be negative.");
+        }
+        mix.put(operation, weight);
+        return this;
+    }
+
+    /**
+     * Sets weights by a string like "load=1,query=6,inferenced_query=2,export=1".
+     */
+    LoadHarness mix(String weights) {
+        for (String weight : weights.split(",")) {
+            String[] pair = weight.trim().split("=");
+            weight(Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(pair[1].trim()));
+        }
+        return this;
+    }
+
+    LoadHarness clients(int clients) {
+        if (clients < 1) {
+            throw new IllegalArgumentException("Argument clients has to be positive.");
+        }
+        this.clients = clients;
+        return this;
+    }
+
+    LoadHarness duration(long duration, TimeUnit unit) {
+        this.durationMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    LoadHarness seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Runs the clients for the duration and waits for their last operations.
+     * @return report of the run
+     * @throws Exception if the connections can not be counted or a client is interrupted
+     */
+    Report run() throws Exception {
+        final List<Operation> operations = new ArrayList<>();
+        final List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            if (entry.getValue() > 0) {
+                total += entry.getValue();
+                operations.add(entry.getKey());
+                cumulative.add(total);
+            }
+        }
+        if (total == 0) {
+            throw new IllegalStateException("The mix of operations is empty.");
+        }
+        final int weights = total;
+        final Report report = new Report(clients);
+        long openBefore = target.getOpenConnections();
+        final long deadline = System.nanoTime() + durationMillis * 1000000L;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            final int client = i;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed + client);
+                    for (long sequence = 0; System.nanoTime() < deadline; sequence++) {
+                        int pick = random.nextInt(weights);
+                        int index = 0;
+                        while (cumulative.get(index) <= pick) {
+                            index++;
+                        }
+                        Operation operation = operations.get(index);
+                        long started = System.nanoTime();
+                        boolean succeeded;
+                        try {
+                            succeeded = target.execute(operation, client, sequence);
+                        } catch (Exception ex) {
+                            succeeded = false;
+                        }
+                        report.record(operation, System.nanoTime() - started, succeeded);
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        report.leakedConnections = target.getOpenConnections() - openBefore;
+        return report;
+    }
+
+
+
+    /**
+     * Class Report holds results of one run.
+     */
+    static final class Report {
+
+        private final int clients;
+
+        private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+
+        private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+
+        private long elapsedNanos;
+
+        private long leakedConnections;
+
+        private Report(int clients) {
+            this.clients = clients;
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new LatencyHistogram());
+                errors.put(operation, new AtomicLong());
+            }
+        }
+
+        private void record(Operation operation, long nanos, boolean succeeded) {
+            latencies.get(operation).record(nanos);
+            if (!succeeded) {
+                errors.get(operation).incrementAndGet();
+            }
+        }
+
+        long getCount(Operation operation) {
+            return latencies.get(operation).getCount();
+        }
+
+        long getCount() {
+            long count = 0;
+            for (Operation operation : Operation.values()) {
+                count += getCount(operation);
+            }
+            return count;
+        }
+
+        long getErrors(Operation operation) {
+            return errors.get(operation).get();
+        }
+
+        long getErrors() {
+            long count = 0;
+            for (Operation operation : Operation.values()) {
+                count += getErrors(operation);
+            }
+            return count;
+        }
+
+        /**
+         * Returns operations per second of all clients.
+         */
+        double getThroughput(Operation operation) {
+            return getCount(operation) * 1e9 / elapsedNanos;
+        }
+
+        double getThroughput() {
+            return getCount() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the latency percentile in milliseconds.
+         */
+        double getPercentile(Operation operation, double percentile) {
+            return latencies.get(operation).getPercentile(percentile) / 1e6;
+        }
+
+        double getMax(Operation operation) {
+            return latencies.get(operation).getMax() / 1e6;
+        }
+
+        /**
+         * Returns connections opened during the run and not closed after it.
+         */
+        long getLeakedConnections() {
+            return leakedConnections;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.ROOT, "%d clients, %.1f s, %d operations, %.1f ops/s, %d errors, %d leaked connections%n",
+                                      clients, elapsedNanos / 1e9, getCount(), getThroughput(), getErrors(), leakedConnections));
+            text.append(String.format(Locale.ROOT, "%-18s %10s %8s %10s %10s %10s %10s %10s%n",
+                                      "operation", "count", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+            for (Operation operation : Operation.values()) {
+                if (getCount(operation) > 0) {
+                    text.append(String.format(Locale.ROOT, "%-18s %10d %8d %10.1f %10.3f %10.3f %10.3f %10.3f%n",
+                                              operation.name().toLowerCase(Locale.ROOT), getCount(operation), getErrors(operation),
+                                              getThroughput(operation), getPercentile(operation, 50), getPercentile(operation, 95),
+                                              getPercentile(operation, 99), getMax(operation)));
+                }
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      LoadHarnessTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.rio.RDFFormat;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class LoadHarnessTest is used for testing of the load-test harness against an in-memory store.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class LoadHarnessTest {
+
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s <http://example.org/lubm/property1> ?o .}";
+
+    private MemoryBackend backend;
+
+    private byte[] ontology;
+
+    private List<String> subgraphIds;
+
+    /**
+     * AtomicLong open counts connections opened by the target and not closed
+     */
+    private final AtomicLong open = new AtomicLong();
+
+
+
+    @Before
+    public void setUp() throws Exception {
+        OntologyGenerator generator = new OntologyGenerator();
+        generator.setIndividuals(20);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        generator.write(0, output, RDFFormat.NTRIPLES);
+        ontology = output.toByteArray();
+        backend = new MemoryBackend();
+        backend.createRepository(REPOSITORY_ID_TEST);
+        subgraphIds = Arrays.asList("http://example.org#gate-context1", "http://example.org#gate-context2");
+        for (String subgraphId : subgraphIds) {
+            load(subgraphId);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        backend.shutDown();
+    }
+
+
+
+    /**
+     * We test that the mix is followed and that every operation is reported.
+     */
+    @Test
+    public void testMix() throws Exception {
+        System.out.println("mix");
+        LoadHarness.Report report = new LoadHarness(new MemoryTarget(false)).clients(4).mix("load=1, query=6, export=3")
+                .duration(1, TimeUnit.SECONDS).run();
+        System.out.print(report);
+        assertEquals(0, report.getCount(LoadHarness.Operation.INFERENCED_QUERY));
+        assertTrue(report.getCount(LoadHarness.Operation.EXPORT) > 0);
+        assertTrue(report.getCount(LoadHarness.Operation.QUERY) > report.getCount(LoadHarness.Operation.LOAD));
+        assertEquals(report.getCount(), report.getCount(LoadHarness.Operation.LOAD) + report.getCount(LoadHarness.Operation.QUERY)
+                                        + report.getCount(LoadHarness.Operation.EXPORT));
+        assertTrue(report.getThroughput() > 0);
+        assertEquals(0, report.getErrors());
+        assertEquals(0, report.getLeakedConnections());
+        assertTrue(report.getPercentile(LoadHarness.Operation.QUERY, 50) <= report.getPercentile(LoadHarness.Operation.QUERY, 99));
+        assertTrue(report.getPercentile(LoadHarness.Operation.QUERY, 99) <= report.getMax(LoadHarness.Operation.QUERY));
+    }
+
+
+    /**
+     * We test that failed operations and connections left open are reported.
+     */
+    @Test
+    public void testLeaks() throws Exception {
+        System.out.println("leaks");
+        LoadHarness.Report report = new LoadHarness(new MemoryTarget(true)).clients(2).weight(LoadHarness.Operation.QUERY, 1)
+                .weight(LoadHarness.Operation.INFERENCED_QUERY, 1).duration(200, TimeUnit.MILLISECONDS).run();
+        assertEquals(report.getCount(LoadHarness.Operation.INFERENCED_QUERY), report.getErrors());
+        assertEquals(report.getCount(LoadHarness.Operation.QUERY), report.getLeakedConnections());
+        assertTrue(report.getLeakedConnections() > 0);
+    }
+
+
+
+    private void load(String subgraphId) throws Exception {
+        backend.loadOntology(REPOSITORY_ID_TEST, subgraphId, "http://example.org/lubm/", new ByteArrayInputStream(ontology), RDFFormat.NTRIPLES);
+    }
+
+
+    /**
+     * Class MemoryTarget drives the in-memory store and counts a connection for every query,
+     * its leaking variant does not count connections of queries as closed and fails inferenced queries.
+     */
+    private final class MemoryTarget implements LoadHarness.Target {
+
+        private final boolean leaking;
+
+        MemoryTarget(boolean leaking) {
+            this.leaking = leaking;
+        }
+
+        @Override
+        public boolean execute(LoadHarness.Operation operation, int client, long sequence) throws Exception {
+            switch (operation) {
+                case LOAD:
+                    load("http://example.org#loaded" + client);
+                    return true;
+                case QUERY:
+                    open.incrementAndGet();
+                    try {
+                        return backend.query(REPOSITORY_ID_TEST, subgraphIds, QUERY_TEST).size() > 0;
+                    } finally {
+                        if (!leaking) {
+                            open.decrementAndGet();
+                        }
+                    }
+                case INFERENCED_QUERY:
+                    if (leaking) {
+                        throw new IllegalStateException("Inference is not supported.");
+                    }
+                    return backend.query(REPOSITORY_ID_TEST, subgraphIds, QUERY_TEST) != null;
+                default:
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    backend.export(REPOSITORY_ID_TEST, subgraphIds, output, RDFFormat.NTRIPLES);
+                    return output.size() > 0;
+            }
+        }
+
+        @Override
+        public long getOpenConnections() {
+            return open.get();
+        }
+    }
+}
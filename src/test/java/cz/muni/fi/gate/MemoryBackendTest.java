@@ -0,0 +1,108 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      MemoryBackendTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.rio.RDFFormat;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class MemoryBackendTest is used for testing of the in-memory storage backend.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class MemoryBackendTest {
+
+
+    private static final String FILE_PATH_ONTOLOGY_TEST_1 = "src/test/resources/test_ontology1.rdf";
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+    private static final String SUBGRAPH_ID_TEST_1 = "http://example.org#gate-context1";
+
+    private static final String SUBGRAPH_ID_TEST_2 = "http://example.org#gate-context2";
+
+    private static final String BASE_IRI_TEST = "http://example.org/example/local";
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/fatherOf> ?o .}";
+
+    private StorageBackend backend;
+
+
+
+    @Before
+    public void setUp() throws Exception {
+        backend = new MemoryBackend();
+        backend.createRepository(REPOSITORY_ID_TEST);
+    }
+
+    @After
+    public void tearDown() {
+        backend.shutDown();
+    }
+
+
+
+    /**
+     * We test creation and erasure of repositories.
+     */
+    @Test
+    public void testRepositories() throws Exception {
+        System.out.println("repositories");
+        assertEquals(Arrays.asList(REPOSITORY_ID_TEST), backend.getAllRepositories());
+        try {
+            backend.createRepository(REPOSITORY_ID_TEST);
+            fail("RepositoryException expected");
+        } catch (RepositoryException ex) {
+            // OK
+        }
+        backend.deleteRepository(REPOSITORY_ID_TEST);
+        assertTrue(backend.getAllRepositories().isEmpty());
+    }
+
+
+    /**
+     * We test that the loaded ontology is queried in the same format as by GateNosqlBean
+     * and that only queried subgraphs are evaluated.
+     */
+    @Test
+    public void testLoadAndQuery() throws Exception {
+        System.out.println("loadAndQuery");
+        try (InputStream input = new FileInputStream(FILE_PATH_ONTOLOGY_TEST_1)) {
+            backend.loadOntology(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, input, RDFFormat.RDFXML);
+        }
+        assertEquals(Arrays.asList(SUBGRAPH_ID_TEST_1), backend.getAllSubgraphs(REPOSITORY_ID_TEST));
+
+        RDFNodeTable result = backend.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), QUERY_TEST);
+        assertEquals(1, result.size());
+        assertEquals("{http://example.org/people/bob null http://example.org/people/bobby}", result.getRow(0).toString());
+        assertEquals(0, backend.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_2), QUERY_TEST).size());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        backend.export(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), output, RDFFormat.NTRIPLES);
+        assertTrue(output.toString("UTF-8").contains(
+                "<http://example.org/people/bob> <http://example.org/ontology/fatherOf> <http://example.org/people/bobby> ."));
+
+        backend.deleteSubgraph(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1);
+        assertEquals(Collections.emptyList(), backend.getAllSubgraphs(REPOSITORY_ID_TEST));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      NativeBackendTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.rio.RDFFormat;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class NativeBackendTest is used for testing of the embedded NativeStore backend.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class NativeBackendTest {
+
+
+    private static final String FILE_PATH_ONTOLOGY_TEST_1 = "src/test/resources/test_ontology1.rdf";
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+    private static final String SUBGRAPH_ID_TEST_1 = "http://example.org#gate-context1";
+
+    private static final String BASE_IRI_TEST = "http://example.org/example/local";
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/fatherOf> ?o .}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StorageBackend backend;
+
+
+
+    @Before
+    public void setUp() throws Exception {
+        backend = new NativeBackend(folder.getRoot(), Collections.<String>emptyList());
+        backend.createRepository(REPOSITORY_ID_TEST);
+    }
+
+    @After
+    public void tearDown() {
+        backend.shutDown();
+    }
+
+
+
+    /**
+     * We test that indexes are mapped to triple indexes of NativeStore and back.
+     */
+    @Test
+    public void testIndexMapping() throws Exception {
+        System.out.println("indexMapping");
+        assertEquals("cspo,cpos", NativeBackend.toTripleIndexes(Arrays.asList("i", "gspoi", "gposi")));
+        assertEquals(Arrays.asList("gspoi", "posgi"), NativeBackend.fromTripleIndexes("cspo,posc"));
+        try {
+            NativeBackend.toTripleIndexes(Arrays.asList("gspi"));
+            fail("RepositoryException expected");
+        } catch (RepositoryException ex) {
+            // OK
+        }
+    }
+
+
+    /**
+     * We test that data and changed indexes survive reopening of the backend.
+     */
+    @Test
+    public void testIndexesAndPersistence() throws Exception {
+        System.out.println("indexesAndPersistence");
+        assertEquals(Arrays.asList("gspoi", "gsopi", "gpsoi", "gposi", "gospi", "gopsi"), backend.getIndexes(REPOSITORY_ID_TEST));
+        try (InputStream input = new FileInputStream(FILE_PATH_ONTOLOGY_TEST_1)) {
+            backend.loadOntology(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, input, RDFFormat.RDFXML);
+        }
+
+        backend.addIndexes(REPOSITORY_ID_TEST, Arrays.asList("spogi"));
+        backend.dropIndexes(REPOSITORY_ID_TEST, Arrays.asList("gsopi", "gpsoi", "gospi", "gopsi"));
+        assertEquals(Arrays.asList("gspoi", "gposi", "spogi"), backend.getIndexes(REPOSITORY_ID_TEST));
+        assertEquals(1, backend.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), QUERY_TEST).size());
+
+        backend.shutDown();
+        backend = new NativeBackend(folder.getRoot(), Collections.<String>emptyList());
+        assertEquals(Arrays.asList(REPOSITORY_ID_TEST), backend.getAllRepositories());
+        assertEquals(Arrays.asList("gspoi", "gposi", "spogi"), backend.getIndexes(REPOSITORY_ID_TEST));
+        assertEquals(Arrays.asList(SUBGRAPH_ID_TEST_1), backend.getAllSubgraphs(REPOSITORY_ID_TEST));
+        assertEquals(1, backend.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), QUERY_TEST).size());
+
+        backend.deleteRepository(REPOSITORY_ID_TEST);
+        assertTrue(backend.getAllRepositories().isEmpty());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OffHeapGraphTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.ResultSetFormatter;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.shared.AddDeniedException;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class OffHeapGraphTest is used for testing of the off-heap copy of a graph.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class OffHeapGraphTest {
+
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/p1> ?o . ?o ?p ?x .} ORDER BY ?s ?p ?o";
+
+
+
+    /**
+     * We test that every triple pattern returns the same triples as the original graph.
+     */
+    @Test
+    public void testFind() {
+        System.out.println("find");
+        Model model = createModel(3000);
+        Graph original = model.getGraph();
+        OffHeapGraph copy = OffHeapGraph.copyOf(original);
+        assertEquals(original.size(), copy.size());
+        assertTrue(copy.getMemory() > 0);
+
+        Random random = new Random(7);
+        Triple[] triples = original.find(Node.ANY, Node.ANY, Node.ANY).toList().toArray(new Triple[0]);
+        for (int i = 0; i < 200; i++) {
+            Triple triple = triples[random.nextInt(triples.length)];
+            for (int shape = 0; shape < 8; shape++) {
+                Node s = (shape & 1) != 0 ? triple.getSubject() : Node.ANY;
+                Node p = (shape & 2) != 0 ? triple.getPredicate() : Node.ANY;
+                Node o = (shape & 4) != 0 ? triple.getObject() : Node.ANY;
+                assertEquals(original.find(s, p, o).toSet(), copy.find(s, p, o).toSet());
+            }
+        }
+        assertFalse(copy.find(Node.createURI("http://example.org/unknown"), Node.ANY, Node.ANY).hasNext());
+        try {
+            copy.add(triples[0]);
+            fail("AddDeniedException expected");
+        } catch (AddDeniedException ex) {
+            // OK
+        }
+    }
+
+
+    /**
+     * We test that ARQ evaluates a query on the copy with the same result.
+     */
+    @Test
+    public void testQuery() {
+        System.out.println("query");
+        Model model = createModel(1000);
+        Model copy = ModelFactory.createModelForGraph(OffHeapGraph.copyOf(model.getGraph()));
+        assertEquals(select(model), select(copy));
+    }
+
+
+    /**
+     * We test that the index of a pattern starts with all its bound positions.
+     */
+    @Test
+    public void testChooseOrder() {
+        System.out.println("chooseOrder");
+        assertEquals(0, OffHeapGraph.chooseOrder(new boolean[]{true, true, false}));
+        assertEquals(2, OffHeapGraph.chooseOrder(new boolean[]{true, false, true}));
+        assertEquals(1, OffHeapGraph.chooseOrder(new boolean[]{false, true, true}));
+        assertEquals(2, OffHeapGraph.chooseOrder(new boolean[]{false, false, true}));
+        assertEquals(0, OffHeapGraph.chooseOrder(new boolean[]{false, false, false}));
+    }
+
+
+
+    private static String select(Model model) {
+        QueryExecution qe = QueryExecutionFactory.create(QUERY_TEST, model);
+        try {
+            return ResultSetFormatter.asText(qe.execSelect());
+        } finally {
+            qe.close();
+        }
+    }
+
+    private static Model createModel(int size) {
+        Random random = new Random(42);
+        Model model = ModelFactory.createDefaultModel();
+        for (int i = 0; i < size; i++) {
+            Node s = random.nextInt(10) == 0 ? Node.createAnon(new AnonId("b" + random.nextInt(50)))
+                                             : Node.createURI("http://example.org/people/person" + random.nextInt(300));
+            Node p = Node.createURI("http://example.org/ontology/p" + random.nextInt(8));
+            Node o;
+            switch (random.nextInt(4)) {
+                case 0:
+                    o = Node.createLiteral("name " + random.nextInt(100), "en", null);
+                    break;
+                case 1:
+                    o = Node.createLiteral(String.valueOf(random.nextInt(100)), "", XSDDatatype.XSDint);
+                    break;
+                default:
+                    o = Node.createURI("http://example.org/people/person" + random.nextInt(300));
+            }
+            model.getGraph().add(Triple.create(s, p, o));
+        }
+        return model;
+    }
+}
@@ -0,0 +1,459 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OntologyGenerator.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.openrdf.rio.RDFFormat;
+
+
+
+/**
+ * Class OntologyGenerator generates synthetic OWL ontologies in the style of LUBM
+ * for tests and benchmarks at a chosen scale. Every subgraph holds the schema
+ * (a hierarchy of classes with the given depth, object and datatype properties with
+ * subproperties, domains and ranges) and its share of individuals. Every individual has
+ * a class, a label and the given number of property assertions about individuals of the same subgraph.
+ * The output depends only on the settings and the seed, subgraphs can be generated
+ * independently of each other. Triples are written as they are generated, so the size
+ * of an ontology is not limited by memory.
+ * A subgraph has about 3 * classes + 4 * properties + individuals / subgraphs * (2 + assertions) triples.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class OntologyGenerator {
+
+
+    private static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+
+    private static final String RDFS = "http://www.w3.org/2000/01/rdf-schema#";
+
+    private static final String OWL = "http://www.w3.org/2002/07/owl#";
+
+    private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private int classes = 50;
+
+    private int depth = 4;
+
+    private int properties = 20;
+
+    private long individuals = 10000;
+
+    private int assertions = 4;
+
+    private int subgraphs = 1;
+
+    private long seed = 42;
+
+    private String namespace = "http://example.org/lubm/";
+
+
+
+    public int getClasses() {
+        return classes;
+    }
+
+    public void setClasses(int classes) {
+        if (classes < 1) {
+            throw new IllegalArgumentException("Argument classes has to be positive.");
+        }
+        this.classes = classes;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Sets the number of levels of the class hierarchy, classes are spread over levels evenly.
+     * @param depth int
+     */
+    public void setDepth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Argument depth has to be positive.");
+        }
+        this.depth = depth;
+    }
+
+    public int getProperties() {
+        return properties;
+    }
+
+    /**
+     * Sets the number of properties, every fourth property is a datatype property.
+     * @param properties int
+     */
+    public void setProperties(int properties) {
+        if (properties < 1) {
+            throw new IllegalArgumentException("Argument properties has to be positive.");
+        }
+        this.properties = properties;
+    }
+
+    public long getIndividuals() {
+        return individuals;
+    }
+
+    /**
+     * Sets the number of individuals of all subgraphs.
+     * @param individuals long
+     */
+    public void setIndividuals(long individuals) {
+        if (individuals < 0) {
+            throw new IllegalArgumentException("Argument individuals can not be negative.");
+        }
+        this.individuals = individuals;
+    }
+
+    public int getAssertions() {
+        return assertions;
+    }
+
+    /**
+     * Sets the number of property assertions of every individual.
+     * @param assertions int
+     */
+    public void setAssertions(int assertions) {
+        if (assertions < 0) {
+            throw new IllegalArgumentException("Argument assertions can not be negative.");
+        }
+        this.assertions = assertions;
+    }
+
+    public int getSubgraphs() {
+        return subgraphs;
+    }
+
+    public void setSubgraphs(int subgraphs) {
+        if (subgraphs < 1) {
+            throw new IllegalArgumentException("Argument subgraphs has to be positive.");
+        }
+        this.subgraphs = subgraphs;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Sets the namespace of generated classes, properties, individuals and subgraphs.
+     * @param namespace String ending with / or #
+     */
+    public void setNamespace(String namespace) {
+        if (namespace == null) {
+            throw new IllegalArgumentException("Argument namespace can not be null.");
+        }
+        if (!namespace.endsWith("/") && !namespace.endsWith("#")) {
+            throw new IllegalArgumentException("Argument namespace has to end with / or #.");
+        }
+        this.namespace = namespace;
+    }
+
+    /**
+     * Returns the id of the given subgraph.
+     * @param subgraph int
+     * @return id of the subgraph
+     */
+    public String getSubgraphId(int subgraph) {
+        return namespace + "subgraph" + subgraph;
+    }
+
+    /**
+     * Returns the URI of the given class.
+     * @param index int
+     * @return URI of the class
+     */
+    public String getClassUri(int index) {
+        return namespace + "Class" + index;
+    }
+
+    /**
+     * Returns the URI of the given property.
+     * @param index int
+     * @return URI of the property
+     */
+    public String getPropertyUri(int index) {
+        return namespace + "property" + index;
+    }
+
+    /**
+     * Tests if the given property is a datatype property.
+     * @param index int
+     * @return true for a datatype property, false for an object property
+     */
+    public boolean isDatatypeProperty(int index) {
+        return index % 4 == 3;
+    }
+
+    /**
+     * Returns the number of individuals of the given subgraph.
+     * @param subgraph int
+     * @return number of individuals
+     */
+    public long getIndividuals(int subgraph) {
+        return individuals / subgraphs + (subgraph < individuals % subgraphs ? 1 : 0);
+    }
+
+    /**
+     * Writes the given subgraph to the output. The output is not closed.
+     * @param subgraph int
+     * @param output OutputStream
+     * @param format RDFFormat RDFXML or NTRIPLES
+     * @return number of written triples
+     * @throws IOException if the output can not be written
+     */
+    public long write(int subgraph, OutputStream output, RDFFormat format) throws IOException {
+        if (subgraph < 0 || subgraph >= subgraphs) {
+            throw new IllegalArgumentException("Subgraph: " + subgraph + " does not exist.");
+        }
+        if (output == null) {
+            throw new IllegalArgumentException("Argument output can not be null.");
+        }
+        TripleWriter writer;
+        if (RDFFormat.NTRIPLES.equals(format)) {
+            writer = new NTriplesWriter(output);
+        }
+        else if (RDFFormat.RDFXML.equals(format)) {
+            writer = new RDFXMLWriter(output, namespace);
+        }
+        else {
+            throw new IllegalArgumentException("Format: " + format + " is not supported.");
+        }
+        writeSchema(writer);
+        writeIndividuals(subgraph, writer);
+        writer.finish();
+        return writer.triples;
+    }
+
+    /**
+     * Writes every subgraph to its file subgraph&lt;n&gt;.rdf or subgraph&lt;n&gt;.nt in the given directory.
+     * @param directory File
+     * @param format RDFFormat RDFXML or NTRIPLES
+     * @return written files in order of subgraphs
+     * @throws IOException if a file can not be written
+     */
+    public List<File> writeFiles(File directory, RDFFormat format) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Argument directory can not be null.");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Directory: " + directory + " can not be created.");
+        }
+        List<File> files = new ArrayList<>();
+        for (int subgraph = 0; subgraph < subgraphs; subgraph++) {
+            File file = new File(directory, "subgraph" + subgraph + "." + format.getDefaultFileExtension());
+            try (OutputStream output = new FileOutputStream(file)) {
+                write(subgraph, output, format);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+
+
+    private void writeSchema(TripleWriter writer) throws IOException {
+        Random random = new Random(seed);
+        for (int i = 0; i < classes; i++) {
+            String uri = getClassUri(i);
+            writer.resource(uri, RDF + "type", OWL + "Class");
+            writer.literal(uri, RDFS + "label", "Class " + i, null);
+            // Class i is at level i % depth, its parent is an earlier class of the level above
+            int level = i % depth;
+            if (level > 0) {
+                int parent = i - 1 - depth * random.nextInt(i / depth + 1);
+                writer.resource(uri, RDFS + "subClassOf", getClassUri(parent));
+            }
+        }
+        for (int i = 0; i < properties; i++) {
+            String uri = getPropertyUri(i);
+            boolean datatype = isDatatypeProperty(i);
+            writer.resource(uri, RDF + "type", OWL + (datatype ? "DatatypeProperty" : "ObjectProperty"));
+            writer.resource(uri, RDFS + "domain", getClassUri(random.nextInt(classes)));
+            writer.resource(uri, RDFS + "range", datatype ? XSD + (i % 8 == 3 ? "string" : "int")
+                                                          : getClassUri(random.nextInt(classes)));
+            // Subproperties are chosen among earlier properties of the same kind
+            if (i >= 4 && random.nextInt(3) == 0) {
+                writer.resource(uri, RDFS + "subPropertyOf", getPropertyUri(i - 4 * (1 + random.nextInt(i / 4))));
+            }
+        }
+    }
+
+    private void writeIndividuals(int subgraph, TripleWriter writer) throws IOException {
+        Random random = new Random(seed ^ (0x9E3779B97F4A7C15L * (subgraph + 1)));
+        long count = getIndividuals(subgraph);
+        for (long i = 0; i < count; i++) {
+            String uri = getIndividualUri(subgraph, i);
+            writer.resource(uri, RDF + "type", getClassUri(random.nextInt(classes)));
+            writer.literal(uri, RDFS + "label", "Individual " + subgraph + "-" + i, null);
+            for (int j = 0; j < assertions; j++) {
+                int property = random.nextInt(properties);
+                if (!isDatatypeProperty(property)) {
+                    writer.resource(uri, getPropertyUri(property), getIndividualUri(subgraph, (long) (random.nextDouble() * count)));
+                }
+                else if (property % 8 == 3) {
+                    writer.literal(uri, getPropertyUri(property), "value " + random.nextInt(1000), null);
+                }
+                else {
+                    writer.literal(uri, getPropertyUri(property), String.valueOf(random.nextInt(1000)), XSD + "int");
+                }
+            }
+        }
+    }
+
+    private String getIndividualUri(int subgraph, long index) {
+        return namespace + "s" + subgraph + "/individual" + index;
+    }
+
+
+
+    /**
+     * Class TripleWriter writes triples of one subgraph, triples of one subject are written consecutively.
+     */
+    private abstract static class TripleWriter {
+
+        protected final Writer writer;
+
+        private long triples;
+
+        TripleWriter(OutputStream output) {
+            writer = new BufferedWriter(new OutputStreamWriter(output, CHARSET), 1 << 16);
+        }
+
+        void resource(String subject, String predicate, String object) throws IOException {
+            writeResource(subject, predicate, object);
+            triples++;
+        }
+
+        void literal(String subject, String predicate, String value, String datatype) throws IOException {
+            writeLiteral(subject, predicate, value, datatype);
+            triples++;
+        }
+
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+        abstract void writeResource(String subject, String predicate, String object) throws IOException;
+
+        abstract void writeLiteral(String subject, String predicate, String value, String datatype) throws IOException;
+    }
+
+
+    private static final class NTriplesWriter extends TripleWriter {
+
+        NTriplesWriter(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        void writeResource(String subject, String predicate, String object) throws IOException {
+            writer.write("<" + subject + "> <" + predicate + "> <" + object + "> .\n");
+        }
+
+        @Override
+        void writeLiteral(String subject, String predicate, String value, String datatype) throws IOException {
+            // Generated values contain no characters escaped by N-Triples
+            writer.write("<" + subject + "> <" + predicate + "> \"" + value + "\"");
+            if (datatype != null) {
+                writer.write("^^<" + datatype + ">");
+            }
+            writer.write(" .\n");
+        }
+    }
+
+
+    private static final class RDFXMLWriter extends TripleWriter {
+
+        private final String namespace;
+
+        private String subject;
+
+        RDFXMLWriter(OutputStream output, String namespace) throws IOException {
+            super(output);
+            this.namespace = namespace;
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<rdf:RDF\n    xmlns:rdf=\"" + RDF + "\"\n    xmlns:rdfs=\"" + RDFS
+                    + "\"\n    xmlns:owl=\"" + OWL + "\"\n    xmlns:gen=\"" + escape(namespace) + "\">\n");
+        }
+
+        @Override
+        void writeResource(String subject, String predicate, String object) throws IOException {
+            startElement(subject, predicate);
+            writer.write(" rdf:resource=\"" + escape(object) + "\"/>\n");
+        }
+
+        @Override
+        void writeLiteral(String subject, String predicate, String value, String datatype) throws IOException {
+            startElement(subject, predicate);
+            if (datatype != null) {
+                writer.write(" rdf:datatype=\"" + escape(datatype) + "\"");
+            }
+            writer.write(">" + escape(value) + "</" + qname(predicate) + ">\n");
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (subject != null) {
+                writer.write("  </rdf:Description>\n");
+            }
+            writer.write("</rdf:RDF>\n");
+            super.finish();
+        }
+
+        private void startElement(String subject, String predicate) throws IOException {
+            if (!subject.equals(this.subject)) {
+                if (this.subject != null) {
+                    writer.write("  </rdf:Description>\n");
+                }
+                writer.write("  <rdf:Description rdf:about=\"" + escape(subject) + "\">\n");
+                this.subject = subject;
+            }
+            writer.write("    <" + qname(predicate));
+        }
+
+        private String qname(String predicate) {
+            if (predicate.startsWith(namespace)) {
+                return "gen:" + predicate.substring(namespace.length());
+            }
+            if (predicate.startsWith(RDF)) {
+                return "rdf:" + predicate.substring(RDF.length());
+            }
+            if (predicate.startsWith(RDFS)) {
+                return "rdfs:" + predicate.substring(RDFS.length());
+            }
+            return "owl:" + predicate.substring(OWL.length());
+        }
+
+        private static String escape(String text) {
+            return text.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+        }
+    }
+}
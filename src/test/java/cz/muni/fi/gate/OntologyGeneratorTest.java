@@ -0,0 +1,144 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OntologyGeneratorTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.rio.RDFFormat;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class OntologyGeneratorTest is used for testing of generated ontologies.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class OntologyGeneratorTest {
+
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+    private static final String QUERY_TEST_CLASSES = "SELECT ?s ?p ?o WHERE {?s ?p <http://www.w3.org/2002/07/owl#Class> .}";
+
+    private OntologyGenerator generator;
+
+
+
+    @Before
+    public void setUp() {
+        generator = new OntologyGenerator();
+        generator.setClasses(30);
+        generator.setDepth(5);
+        generator.setProperties(12);
+        generator.setIndividuals(1001);
+        generator.setAssertions(3);
+        generator.setSubgraphs(4);
+        generator.setSeed(7);
+    }
+
+
+
+    /**
+     * We test that the same settings give the same ontology and another seed gives another one.
+     */
+    @Test
+    public void testDeterminism() throws Exception {
+        System.out.println("determinism");
+        byte[] first = write(generator, 1, RDFFormat.NTRIPLES);
+        assertArrayEquals(first, write(generator, 1, RDFFormat.NTRIPLES));
+        assertFalse(Arrays.equals(first, write(generator, 2, RDFFormat.NTRIPLES)));
+        generator.setSeed(8);
+        assertFalse(Arrays.equals(first, write(generator, 1, RDFFormat.NTRIPLES)));
+    }
+
+
+    /**
+     * We test that both formats give the same model of the expected size and hierarchy.
+     */
+    @Test
+    public void testFormats() throws Exception {
+        System.out.println("formats");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long triples = generator.write(0, output, RDFFormat.NTRIPLES);
+        assertEquals(triples, output.toString("UTF-8").split("\n").length);
+        Model ntriples = read(output.toByteArray(), "N-TRIPLE");
+        Model rdfxml = read(write(generator, 0, RDFFormat.RDFXML), "RDF/XML");
+        assertTrue(ntriples.isIsomorphicWith(rdfxml));
+        assertEquals(251, generator.getIndividuals(0));
+        assertEquals(250, generator.getIndividuals(3));
+        assertEquals(30, ntriples.listSubjectsWithProperty(RDF.type, OWL.Class).toList().size());
+        assertEquals(30 + 251, ntriples.listStatements(null, RDFS.label, (String) null).toList().size());
+
+        // The longest chain of superclasses has depth classes
+        int deepest = 0;
+        for (int i = 0; i < generator.getClasses(); i++) {
+            int level = 1;
+            Resource current = ntriples.getResource(generator.getClassUri(i));
+            Statement parent;
+            while ((parent = current.getProperty(RDFS.subClassOf)) != null) {
+                current = parent.getResource();
+                level++;
+            }
+            deepest = Math.max(deepest, level);
+        }
+        assertEquals(generator.getDepth(), deepest);
+    }
+
+
+    /**
+     * We test that generated subgraphs can be loaded and queried.
+     */
+    @Test
+    public void testLoad() throws Exception {
+        System.out.println("load");
+        StorageBackend backend = new MemoryBackend();
+        try {
+            backend.createRepository(REPOSITORY_ID_TEST);
+            for (int i = 0; i < generator.getSubgraphs(); i++) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                generator.write(i, output, RDFFormat.RDFXML);
+                backend.loadOntology(REPOSITORY_ID_TEST, generator.getSubgraphId(i), generator.getNamespace(),
+                                     new ByteArrayInputStream(output.toByteArray()), RDFFormat.RDFXML);
+            }
+            assertEquals(generator.getSubgraphs(), backend.getAllSubgraphs(REPOSITORY_ID_TEST).size());
+            assertEquals(30, backend.query(REPOSITORY_ID_TEST, Arrays.asList(generator.getSubgraphId(2)), QUERY_TEST_CLASSES).size());
+        }
+        finally {
+            backend.shutDown();
+        }
+    }
+
+
+
+    private static byte[] write(OntologyGenerator generator, int subgraph, RDFFormat format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        generator.write(subgraph, output, format);
+        return output.toByteArray();
+    }
+
+    private static Model read(byte[] data, String lang) {
+        Model model = ModelFactory.createDefaultModel();
+        model.read(new ByteArrayInputStream(data), null, lang);
+        return model;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      OperationMetricsTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class OperationMetricsTest is used for testing of latency histograms and metrics of calls.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class OperationMetricsTest {
+
+
+    /**
+     * We test that percentiles are within the precision of buckets.
+     */
+    @Test
+    public void testPercentiles() {
+        System.out.println("percentiles");
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000000, histogram.getMax());
+        for (double percentile : new double[]{50, 95, 99}) {
+            long expected = (long) (percentile * 1000000);
+            long actual = histogram.getPercentile(percentile);
+            assertTrue(actual >= expected && actual <= expected + expected / 32);
+        }
+        assertEquals(histogram.getMax(), histogram.getPercentile(100));
+
+        // Every value falls into the bucket ending at its upper bound
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            long value = random.nextLong() >>> (22 + random.nextInt(40));
+            int index = LatencyHistogram.index(value);
+            assertTrue(value <= LatencyHistogram.upperBound(index));
+            assertTrue(index == 0 || value > LatencyHistogram.upperBound(index - 1));
+        }
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+
+    /**
+     * We test that failures, rows and bytes are recognised from results of methods.
+     */
+    @Test
+    public void testResults() throws Exception {
+        System.out.println("results");
+        Method create = GateNosqlRemote.class.getMethod("createRepository", String.class);
+        Method isSubClassOf = GateNosqlRemote.class.getMethod("isSubClassOf", String.class, String.class, String.class, String.class);
+        Method export = GateNosqlRemote.class.getMethod("exportAllSubgraphs", String.class);
+        assertTrue(OperationMetricsInterceptor.isFailure(create, false));
+        assertFalse(OperationMetricsInterceptor.isFailure(create, true));
+        assertFalse(OperationMetricsInterceptor.isFailure(isSubClassOf, false));
+        assertTrue(OperationMetricsInterceptor.isFailure(export, null));
+
+        ArrayList<String> rows = new ArrayList<>(Arrays.asList("a", "é", "€", "😀"));
+        assertEquals(4, OperationMetricsInterceptor.countRows(rows));
+        assertEquals(1 + 2 + 3 + 4, OperationMetricsInterceptor.countBytes(rows));
+        assertEquals(0, OperationMetricsInterceptor.countRows("text"));
+        assertEquals(4, OperationMetricsInterceptor.countBytes("text"));
+
+        // Long lists and strings are sampled and scaled
+        ArrayList<String> many = new ArrayList<>(Collections.nCopies(100000, "é€"));
+        assertEquals(100000 * 5, OperationMetricsInterceptor.countBytes(many));
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10 * OperationMetricsInterceptor.SAMPLE_CHARS; i++) {
+            text.append('é');
+        }
+        assertEquals(20 * OperationMetricsInterceptor.SAMPLE_CHARS, OperationMetricsInterceptor.countBytes(text));
+    }
+
+
+    /**
+     * We test that metrics are registered as MBeans and that recording does not allocate.
+     */
+    @Test
+    public void testMonitor() throws Exception {
+        System.out.println("monitor");
+        OperationMonitor monitor = new OperationMonitor();
+        monitor.register(Arrays.asList("querySubgraphs", "exportSubgraph"));
+        try {
+            OperationMetrics metrics = monitor.getMetrics("querySubgraphs");
+            metrics.record(2000000, false, 10, 100);
+            metrics.record(4000000, true, 0, 0);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = OperationMonitor.getObjectName("querySubgraphs");
+            assertEquals(2L, server.getAttribute(name, "Calls"));
+            assertEquals(1L, server.getAttribute(name, "Errors"));
+            assertEquals(5.0, (Double) server.getAttribute(name, "RowsPerCall"), 0);
+            assertEquals(4.0, (Double) server.getAttribute(name, "MaxMillis"), 0);
+            double p50 = (Double) server.getAttribute(name, "P50Millis");
+            assertTrue(p50 >= 2.0 && p50 <= 2.0 * 33 / 32);
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+                long id = Thread.currentThread().getId();
+                for (int i = 0; i < 100000; i++) {
+                    metrics.record(i, false, 1, 1);
+                }
+                long before = allocations.getThreadAllocatedBytes(id);
+                for (int i = 0; i < 100000; i++) {
+                    metrics.record(i * 31L, i % 7 == 0, 1, 8);
+                }
+                assertTrue(allocations.getThreadAllocatedBytes(id) - before < 10000);
+            }
+            metrics.reset();
+            assertEquals(0L, server.getAttribute(name, "Calls"));
+        }
+        finally {
+            monitor.shutDown();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(OperationMonitor.getObjectName("querySubgraphs")));
+    }
+}
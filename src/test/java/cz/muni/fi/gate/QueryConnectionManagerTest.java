@@ -0,0 +1,135 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      QueryConnectionManagerTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.franz.agraph.http.AGHTTPClient;
+import com.franz.agraph.jena.AGQuery;
+import com.franz.agraph.jena.AGQueryExecution;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.openrdf.query.QueryLanguage;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class QueryConnectionManagerTest is used for testing of cancellation of queries waiting for the server.
+ * A server which accepts requests and never replies stands for AllegroGraph evaluating a long query.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class QueryConnectionManagerTest {
+
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/fatherOf> ?o .}";
+
+
+
+    /**
+     * We test that cancelQuery of RunningQueries releases a thread waiting for the reply of the server
+     * and the request is not sent again.
+     */
+    @Test
+    public void testCancelRunningQuery() throws Exception {
+        System.out.println("cancelRunningQuery");
+        final ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        final AtomicInteger accepted = new AtomicInteger();
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final List<Socket> sockets = new ArrayList<>();
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        sockets.add(server.accept());
+                        accepted.incrementAndGet();
+                        waiting.countDown();
+                    }
+                } catch (IOException ex) {
+                    // Server closed
+                }
+            }
+        });
+        acceptor.start();
+
+        final String url = "http://127.0.0.1:" + server.getLocalPort();
+        final AGHTTPClient client = new AGHTTPClient(url, new QueryConnectionManager());
+        RunningQueries queries = new RunningQueries();
+        final RunningQuery running = queries.start("gate-test", new QueryOptions("query-test", QueryOptions.NO_TIMEOUT));
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread query = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                AGQueryExecution qe = new AGQueryExecution(new AGQuery(QueryLanguage.SPARQL, QUERY_TEST), null);
+                running.startExecution(qe);
+                try {
+                    client.getString(url + "/repositories/gate-test");
+                } catch (Exception ex) {
+                    failure.set(ex);
+                } finally {
+                    running.finishExecution(qe);
+                }
+            }
+        });
+        query.start();
+        try {
+            // The query waits for the reply
+            assertTrue(waiting.await(10, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            assertTrue(query.isAlive());
+
+            // Cancellation releases it at once
+            assertTrue(queries.cancel("query-test"));
+            query.join(5000);
+            assertFalse(query.isAlive());
+            assertNotNull(failure.get());
+            assertTrue(running.isCancelled());
+            assertEquals(1, accepted.get());
+        } finally {
+            server.close();
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+
+    /**
+     * We test that a query cancelled before its execution starts is aborted when it starts.
+     */
+    @Test
+    public void testCancelBeforeExecution() throws Exception {
+        System.out.println("cancelBeforeExecution");
+        RunningQuery running = new RunningQuery("query", "gate-test", QueryOptions.NO_TIMEOUT, QueryOptions.NO_LIMIT, 0, QueryOptions.NO_MAX_ROWS);
+        running.cancel();
+        AGQueryExecution qe = new AGQueryExecution(new AGQuery(QueryLanguage.SPARQL, QUERY_TEST), null);
+        // The thread holds no connection, nothing is closed
+        running.startExecution(qe);
+        running.finishExecution(qe);
+        assertFalse(QueryConnectionManager.abort(Thread.currentThread()));
+        try {
+            running.checkActive();
+            fail("RepositoryException expected");
+        } catch (org.openrdf.repository.RepositoryException ex) {
+            // OK
+        }
+    }
+}
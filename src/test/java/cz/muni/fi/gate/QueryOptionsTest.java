@@ -0,0 +1,118 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      QueryOptionsTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.franz.agraph.jena.AGQuery;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.Syntax;
+import org.junit.Test;
+import org.openrdf.query.QueryLanguage;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class QueryOptionsTest is used for testing of limit, offset and maxRows of queries.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class QueryOptionsTest {
+
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/fatherOf> ?o .}";
+
+
+
+    /**
+     * We test that the server returns one row more than maxRows and the exceeding row fails.
+     */
+    @Test
+    public void testMaxRows() throws Exception {
+        System.out.println("maxRows");
+        RunningQuery running = new RunningQuery("query", "gate-test", QueryOptions.NO_TIMEOUT, QueryOptions.NO_LIMIT, 5, 2);
+        AGQuery query = new AGQuery(QueryLanguage.SPARQL, QUERY_TEST);
+        running.prepareExecution(query);
+        assertEquals(3, query.getLimit());
+        assertEquals(5, query.getOffset());
+
+        running.checkRow();
+        running.checkRow();
+        assertEquals("rows", RunningQuery.getResult(running, "rows"));
+        try {
+            running.checkRow();
+            fail("ResultTooLargeException expected");
+        } catch (ResultTooLargeException ex) {
+            assertEquals(2, ex.getMaxRows());
+        }
+        // The exception is thrown again by the result discarded by finally blocks of query methods
+        try {
+            RunningQuery.getResult(running, "rows");
+            fail("ResultTooLargeException expected");
+        } catch (ResultTooLargeException ex) {
+            // OK
+        }
+
+        // Smaller limit is sent unchanged
+        running = new RunningQuery("query", "gate-test", QueryOptions.NO_TIMEOUT, 1, 0, 2);
+        query = new AGQuery(QueryLanguage.SPARQL, QUERY_TEST);
+        running.prepareExecution(query);
+        assertEquals(1, query.getLimit());
+    }
+
+
+    /**
+     * We test that a query of a storage backend gets the same limit and offset as a query of AllegroGraph.
+     */
+    @Test
+    public void testBackendQuery() throws Exception {
+        System.out.println("backendQuery");
+        RunningQuery running = new RunningQuery("query", "gate-test", 1000, QueryOptions.NO_LIMIT, 5, 2);
+        Query query = QueryFactory.create(running.prepareBackendQuery(QUERY_TEST), Syntax.syntaxSPARQL_11);
+        assertEquals(3, query.getLimit());
+        assertEquals(5, query.getOffset());
+        assertTrue(query.getPrefixMapping().getNsPrefixMap().isEmpty());
+    }
+
+
+    /**
+     * We test that triples copied into memory for a query are bounded by maxRows.
+     */
+    @Test
+    public void testCopyLimit() throws Exception {
+        System.out.println("copyLimit");
+        RunningQuery running = new RunningQuery("query", "gate-test", QueryOptions.NO_TIMEOUT, QueryOptions.NO_LIMIT, 0, 10);
+        // Every copy asks the server for one triple more than the rest of maxRows
+        assertEquals(11, running.getCopyLimit(0));
+        assertEquals(4, running.getCopyLimit(7));
+        assertEquals(1, running.getCopyLimit(10));
+        running.checkCopied(10);
+        assertEquals("rows", RunningQuery.getResult(running, "rows"));
+        try {
+            running.checkCopied(11);
+            fail("ResultTooLargeException expected");
+        } catch (ResultTooLargeException ex) {
+            assertEquals(10, ex.getMaxRows());
+        }
+        try {
+            RunningQuery.getResult(running, "rows");
+            fail("ResultTooLargeException expected");
+        } catch (ResultTooLargeException ex) {
+            // OK
+        }
+
+        // Copies of queries without maxRows are not limited
+        running = new RunningQuery("query", "gate-test", QueryOptions.NO_TIMEOUT, QueryOptions.NO_LIMIT, 0, QueryOptions.NO_MAX_ROWS);
+        assertEquals(QueryOptions.NO_LIMIT, running.getCopyLimit(1000));
+        running.checkCopied(1000);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      RDFNodeTableTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class RDFNodeTableTest is used for testing of the table of query results.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class RDFNodeTableTest {
+
+
+    private static final String ONTOLOGY = "http://example.org/ontology/";
+
+
+
+    /**
+     * We test that equal nodes are stored once and rows and the list view return the added nodes.
+     */
+    @Test
+    public void testRows() {
+        System.out.println("rows");
+        RDFNodeTable table = new RDFNodeTable();
+        RDFNode fatherOf = ResourceFactory.createProperty(ONTOLOGY + "fatherOf");
+        for (int i = 0; i < 100; i++) {
+            table.addRow(ResourceFactory.createResource(ONTOLOGY + "person" + (i % 10)),
+                         ResourceFactory.createProperty(ONTOLOGY + "fatherOf"),
+                         ResourceFactory.createPlainLiteral("child " + i));
+        }
+        table.addRow(null, fatherOf, null);
+        table.trimToSize();
+
+        assertEquals(101, table.size());
+        assertEquals(10 + 1 + 100, table.getNodeCount());
+        assertEquals(ResourceFactory.createResource(ONTOLOGY + "person3"), table.getSubject(13));
+        assertEquals(fatherOf, table.getRow(13).getPredicate());
+        assertEquals("child 13", table.getObject(13).asLiteral().getString());
+        assertNull(table.getRow(100).getSubject());
+
+        List<RDFNode> list = table.asList();
+        assertEquals(3 * 101, list.size());
+        assertEquals(table.getSubject(13), list.get(39));
+        assertEquals(table.getPredicate(13), list.get(40));
+        assertEquals(table.getObject(13), list.get(41));
+        try {
+            table.getRow(101);
+            fail("IndexOutOfBoundsException expected");
+        } catch (IndexOutOfBoundsException ex) {
+            // OK
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ReasoningProfileTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class ReasoningProfileTest is used for testing of query preparation of reasoning profiles.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class ReasoningProfileTest {
+
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s a <http://example.org/ontology/Person> . "
+            + "?s <http://example.org/ontology/fatherOf> ?o . }";
+
+
+
+    /**
+     * We test that profiles evaluated by AllegroGraph reasoner (or without reasoning) keep the query.
+     */
+    @Test
+    public void testPrepareQueryUnchanged() {
+        System.out.println("prepareQueryUnchanged");
+        assertEquals(QUERY_TEST, ReasoningProfile.NONE.prepareQuery(QUERY_TEST));
+        assertEquals(QUERY_TEST, ReasoningProfile.RDFS_PLUS_PLUS.prepareQuery(QUERY_TEST));
+        assertEquals(QUERY_TEST, ReasoningProfile.RESTRICTION.prepareQuery(QUERY_TEST));
+        assertNull(ReasoningProfile.NONE.getReasoner());
+        assertNotNull(ReasoningProfile.RDFS_PLUS_PLUS.getReasoner());
+    }
+
+
+    /**
+     * We test that RDFS_SUBCLASS profile rewrites just rdf:type and rdfs:subClassOf patterns.
+     */
+    @Test
+    public void testPrepareQuerySubClass() {
+        System.out.println("prepareQuerySubClass");
+        String result = ReasoningProfile.RDFS_SUBCLASS.prepareQuery(QUERY_TEST);
+        assertTrue(result.contains("<http://www.w3.org/1999/02/22-rdf-syntax-ns#type>/(<http://www.w3.org/2000/01/rdf-schema#subClassOf>)*"));
+        assertTrue(result.contains("?s <http://example.org/ontology/fatherOf> ?o"));
+
+        result = ReasoningProfile.RDFS_SUBCLASS.prepareQuery(
+                "SELECT ?s WHERE {?s <http://www.w3.org/2000/01/rdf-schema#subClassOf> <http://example.org/ontology/Agent>}");
+        assertTrue(result.contains("(<http://www.w3.org/2000/01/rdf-schema#subClassOf>)+"));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ReplicaPoolTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.rio.RDFFormat;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class ReplicaPoolTest is used for testing of routing of reads and writes to a primary
+ * and its replicas. In-memory stores stand in for AllegroGraph servers.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class ReplicaPoolTest {
+
+
+    private static final String FILE_PATH_ONTOLOGY_TEST_1 = "src/test/resources/test_ontology1.rdf";
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+    private static final String SUBGRAPH_ID_TEST_1 = "http://example.org#gate-context1";
+
+    private static final String BASE_IRI_TEST = "http://example.org/example/local";
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/fatherOf> ?o .}";
+
+    private StorageBackend primary;
+
+    private List<StorageBackend> replicas;
+
+    /**
+     * Set<StorageBackend> down holds stand-ins which fail their health check
+     */
+    private final Set<StorageBackend> down = new HashSet<>();
+
+    private final ReplicaPool.HealthCheck<StorageBackend> check = new ReplicaPool.HealthCheck<StorageBackend>() {
+        @Override
+        public boolean isHealthy(StorageBackend server) throws Exception {
+            if (down.contains(server)) {
+                throw new IllegalStateException("Server is down.");
+            }
+            return server.getAllRepositories().contains(REPOSITORY_ID_TEST);
+        }
+    };
+
+
+
+    @Before
+    public void setUp() throws Exception {
+        primary = new MemoryBackend();
+        replicas = Arrays.<StorageBackend>asList(new MemoryBackend(), new MemoryBackend(), new MemoryBackend());
+        for (StorageBackend store : Arrays.asList(primary, replicas.get(0), replicas.get(1), replicas.get(2))) {
+            store.createRepository(REPOSITORY_ID_TEST);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        primary.shutDown();
+        for (StorageBackend replica : replicas) {
+            replica.shutDown();
+        }
+    }
+
+
+
+    /**
+     * We test that writes go to the primary and reads are answered by the least loaded replica.
+     */
+    @Test
+    public void testLeastOutstanding() throws Exception {
+        System.out.println("leastOutstanding");
+        ReplicaPool<StorageBackend> pool = new ReplicaPool<>(primary, replicas, Collections.<Integer>emptyList(),
+                                                             ReplicaPool.Policy.LEAST_OUTSTANDING);
+        ReplicaPool.Member<StorageBackend> write = pool.acquire(false);
+        assertSame(primary, write.getServer());
+        try (InputStream input = new FileInputStream(FILE_PATH_ONTOLOGY_TEST_1)) {
+            write.getServer().loadOntology(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, BASE_IRI_TEST, input, RDFFormat.RDFXML);
+        }
+        pool.release(write);
+
+        // Three reads in progress are spread over three replicas
+        ReplicaPool.Member<StorageBackend> first = pool.acquire(true);
+        ReplicaPool.Member<StorageBackend> second = pool.acquire(true);
+        ReplicaPool.Member<StorageBackend> third = pool.acquire(true);
+        assertEquals(new HashSet<>(replicas),
+                     new HashSet<>(Arrays.asList(first.getServer(), second.getServer(), third.getServer())));
+        pool.release(second);
+        assertSame(second, pool.acquire(true));
+
+        // Replicas are not replicated by the stand-ins, so the read sees only data loaded into the replica
+        assertEquals(0, first.getServer().query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), QUERY_TEST).size());
+        assertEquals(0, pool.getPrimary().getOutstanding());
+    }
+
+
+    /**
+     * We test that replicas are chosen in proportion to their weights.
+     */
+    @Test
+    public void testWeightedRoundRobin() {
+        System.out.println("weightedRoundRobin");
+        ReplicaPool<StorageBackend> pool = new ReplicaPool<>(primary, replicas, Arrays.asList(3, 1, 1),
+                                                             ReplicaPool.Policy.WEIGHTED_ROUND_ROBIN);
+        int[] counts = new int[replicas.size()];
+        for (int i = 0; i < 50; i++) {
+            ReplicaPool.Member<StorageBackend> member = pool.acquire(true);
+            counts[replicas.indexOf(member.getServer())]++;
+            pool.release(member);
+        }
+        assertArrayEquals(new int[]{30, 10, 10}, counts);
+    }
+
+
+    /**
+     * We test that failed replicas are out of rotation until they pass a health check
+     * and that reads fall back to the primary.
+     */
+    @Test
+    public void testHealth() {
+        System.out.println("health");
+        ReplicaPool<StorageBackend> pool = new ReplicaPool<>(primary, replicas.subList(0, 2), Collections.<Integer>emptyList(),
+                                                             ReplicaPool.Policy.WEIGHTED_ROUND_ROBIN);
+        down.add(replicas.get(0));
+        pool.checkHealth(check);
+        assertFalse(pool.getReplicas().get(0).isHealthy());
+        for (int i = 0; i < 4; i++) {
+            ReplicaPool.Member<StorageBackend> member = pool.acquire(true);
+            assertSame(replicas.get(1), member.getServer());
+            pool.release(member);
+        }
+
+        pool.markFailed(pool.getReplicas().get(1));
+        ReplicaPool.Member<StorageBackend> member = pool.acquire(true);
+        assertTrue(member.isPrimary());
+        pool.release(member);
+        pool.markFailed(member);
+        assertTrue(member.isHealthy());
+
+        down.clear();
+        pool.checkHealth(check);
+        assertTrue(pool.getReplicas().get(0).isHealthy());
+        assertTrue(pool.getReplicas().get(1).isHealthy());
+        assertFalse(pool.acquire(true).isPrimary());
+    }
+}
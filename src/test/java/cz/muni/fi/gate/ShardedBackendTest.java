@@ -0,0 +1,225 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      ShardedBackendTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.query.MalformedQueryException;
+import org.openrdf.rio.RDFFormat;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class ShardedBackendTest is used for testing of placement of subgraphs in shards and
+ * of scatter-gather queries. In-memory stores stand in for AllegroGraph servers.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class ShardedBackendTest {
+
+
+    private static final String FILE_PATH_ONTOLOGY_TEST_1 = "src/test/resources/test_ontology1.rdf";
+
+    private static final String FILE_PATH_ONTOLOGY_TEST_2 = "src/test/resources/test_ontology2.rdf";
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+    private static final String SUBGRAPH_ID_TEST_1 = "http://example.org#gate-context1";
+
+    private static final String SUBGRAPH_ID_TEST_2 = "http://example.org#gate-context2";
+
+    private static final String SUBGRAPH_ID_TEST_3 = "http://example.org#gate-context3";
+
+    private static final String BASE_IRI_TEST = "http://example.org/example/local";
+
+    private static final String QUERY_TEST_FATHER = "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/fatherOf> ?o .}";
+
+    private static final String QUERY_TEST_PERSON = "SELECT ?s ?p ?o WHERE {?s ?p <http://example.org/ontology/Person> .}";
+
+    private List<StorageBackend> shards;
+
+    private ShardedBackend backend;
+
+
+
+    @Before
+    public void setUp() throws Exception {
+        shards = Arrays.<StorageBackend>asList(new MemoryBackend(), new MemoryBackend(), new MemoryBackend());
+        Map<String, Integer> placement = new HashMap<>();
+        placement.put(SUBGRAPH_ID_TEST_1, 0);
+        placement.put(SUBGRAPH_ID_TEST_2, 2);
+        placement.put(SUBGRAPH_ID_TEST_3, 1);
+        backend = new ShardedBackend(shards, placement);
+        backend.createRepository(REPOSITORY_ID_TEST);
+        load(backend, SUBGRAPH_ID_TEST_1, FILE_PATH_ONTOLOGY_TEST_1);
+        load(backend, SUBGRAPH_ID_TEST_2, FILE_PATH_ONTOLOGY_TEST_2);
+    }
+
+    @After
+    public void tearDown() {
+        backend.shutDown();
+    }
+
+
+
+    /**
+     * We test that subgraphs are stored in their shards and listed together.
+     */
+    @Test
+    public void testPlacement() throws Exception {
+        System.out.println("placement");
+        assertEquals(Arrays.asList(REPOSITORY_ID_TEST), backend.getAllRepositories());
+        for (StorageBackend shard : shards) {
+            assertTrue(shard.getAllRepositories().contains(REPOSITORY_ID_TEST));
+        }
+        assertEquals(Arrays.asList(SUBGRAPH_ID_TEST_1), shards.get(0).getAllSubgraphs(REPOSITORY_ID_TEST));
+        assertTrue(shards.get(1).getAllSubgraphs(REPOSITORY_ID_TEST).isEmpty());
+        assertEquals(Arrays.asList(SUBGRAPH_ID_TEST_2), shards.get(2).getAllSubgraphs(REPOSITORY_ID_TEST));
+        assertEquals(new HashSet<>(Arrays.asList(SUBGRAPH_ID_TEST_1, SUBGRAPH_ID_TEST_2)),
+                     new HashSet<>(backend.getAllSubgraphs(REPOSITORY_ID_TEST)));
+
+        backend.deleteSubgraph(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2);
+        assertEquals(Arrays.asList(SUBGRAPH_ID_TEST_1), backend.getAllSubgraphs(REPOSITORY_ID_TEST));
+    }
+
+
+    /**
+     * We test that rows of shards are merged like rows of one backend and that export writes one document.
+     */
+    @Test
+    public void testScatterGather() throws Exception {
+        System.out.println("scatterGather");
+        List<String> subgraphs = Arrays.asList(SUBGRAPH_ID_TEST_1, SUBGRAPH_ID_TEST_2);
+        assertEquals(2, backend.query(REPOSITORY_ID_TEST, subgraphs, QUERY_TEST_FATHER).size());
+        assertEquals(1, backend.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_2), QUERY_TEST_FATHER).size());
+
+        // The same triples in two shards are matched in each of them, DISTINCT merges them
+        load(backend, SUBGRAPH_ID_TEST_3, FILE_PATH_ONTOLOGY_TEST_1);
+        List<String> all = Arrays.asList(SUBGRAPH_ID_TEST_1, SUBGRAPH_ID_TEST_2, SUBGRAPH_ID_TEST_3);
+        int first = backend.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), QUERY_TEST_PERSON).size();
+        RDFNodeTable table = backend.query(REPOSITORY_ID_TEST, all, QUERY_TEST_PERSON);
+        assertEquals(first * 2 + backend.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_2), QUERY_TEST_PERSON).size(),
+                     table.size());
+        String distinct = QUERY_TEST_PERSON.replace("SELECT", "SELECT DISTINCT");
+        assertEquals(5, backend.query(REPOSITORY_ID_TEST, all, distinct).size());
+
+        // Duplicate rows of one shard are kept like in the shard itself
+        String joined = "SELECT ?s ?p ?o WHERE {?s ?p <http://example.org/ontology/Person> . ?x ?y ?z .}";
+        assertEquals(shards.get(0).query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), joined).size(),
+                     backend.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), joined).size());
+        assertTrue(backend.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), joined).size() > first);
+
+        // Offset and limit apply to the merged rows
+        RDFNodeTable page = backend.query(REPOSITORY_ID_TEST, all, distinct + " OFFSET 1 LIMIT 3");
+        RDFNodeTable rows = backend.query(REPOSITORY_ID_TEST, all, distinct);
+        assertEquals(3, page.size());
+        assertEquals(rows.getRow(1).toString(), page.getRow(0).toString());
+
+        // ORDER BY gives the global order, also with offset and limit
+        String ordered = distinct + " ORDER BY DESC(?s)";
+        RDFNodeTable sorted = backend.query(REPOSITORY_ID_TEST, all, ordered);
+        assertEquals(5, sorted.size());
+        for (int row = 1; row < sorted.size(); row++) {
+            assertTrue(sorted.getSubject(row - 1).toString().compareTo(sorted.getSubject(row).toString()) >= 0);
+        }
+        page = backend.query(REPOSITORY_ID_TEST, all, ordered + " OFFSET 1 LIMIT 2");
+        assertEquals(2, page.size());
+        assertEquals(sorted.getRow(1).toString(), page.getRow(0).toString());
+        assertEquals(sorted.getRow(2).toString(), page.getRow(1).toString());
+
+        // ORDER BY over variables which are not returned can not be merged
+        try {
+            backend.query(REPOSITORY_ID_TEST, all, QUERY_TEST_PERSON + " ORDER BY ?x");
+            fail("MalformedQueryException expected");
+        } catch (MalformedQueryException ex) {
+            // OK
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        backend.export(REPOSITORY_ID_TEST, subgraphs, output, RDFFormat.NTRIPLES);
+        assertEquals(13, output.toString("UTF-8").trim().split("\n").length);
+        output.reset();
+        backend.export(REPOSITORY_ID_TEST, subgraphs, output, RDFFormat.RDFXML);
+        assertTrue(output.toString("UTF-8").contains("http://example.org/people/paula"));
+    }
+
+
+    /**
+     * We test that a moved subgraph is found by a new backend and that rebalance moves it home.
+     */
+    @Test
+    public void testMoveAndRebalance() throws Exception {
+        System.out.println("moveAndRebalance");
+        backend.moveSubgraph(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, 1);
+        assertEquals(1, backend.getShard(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+        assertTrue(shards.get(0).getAllSubgraphs(REPOSITORY_ID_TEST).isEmpty());
+        assertEquals(1, backend.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), QUERY_TEST_FATHER).size());
+
+        Map<String, Integer> placement = new HashMap<>();
+        placement.put(SUBGRAPH_ID_TEST_1, 0);
+        placement.put(SUBGRAPH_ID_TEST_2, 2);
+        ShardedBackend restarted = new ShardedBackend(shards, placement);
+        assertEquals(1, restarted.getShard(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+        assertEquals(0, restarted.getHomeShard(SUBGRAPH_ID_TEST_1));
+        assertEquals(1, restarted.rebalance(REPOSITORY_ID_TEST));
+        assertEquals(0, restarted.getShard(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+        assertEquals(0, restarted.rebalance(REPOSITORY_ID_TEST));
+        assertEquals(Arrays.asList(SUBGRAPH_ID_TEST_1), shards.get(0).getAllSubgraphs(REPOSITORY_ID_TEST));
+        assertEquals(1, restarted.query(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1), QUERY_TEST_FATHER).size());
+    }
+
+
+    /**
+     * We test that keys are spread over shards and that a new shard takes only its share of keys.
+     */
+    @Test
+    public void testRing() {
+        System.out.println("ring");
+        ShardRing four = new ShardRing(4);
+        ShardRing five = new ShardRing(5);
+        int keys = 10000;
+        int[] counts = new int[4];
+        int moved = 0;
+        for (int i = 0; i < keys; i++) {
+            String key = "http://example.org#subgraph" + i;
+            int shard = four.getShard(key);
+            counts[shard]++;
+            if (five.getShard(key) != shard) {
+                assertEquals(4, five.getShard(key));
+                moved++;
+            }
+            assertEquals(shard, four.getShard(key));
+        }
+        for (int count : counts) {
+            assertTrue(count > keys / 4 * 0.7 && count < keys / 4 * 1.3);
+        }
+        assertTrue(moved > keys / 5 * 0.7 && moved < keys / 5 * 1.3);
+    }
+
+
+
+    private static void load(StorageBackend backend, String subgraphId, String path) throws Exception {
+        try (InputStream input = new FileInputStream(path)) {
+            backend.loadOntology(REPOSITORY_ID_TEST, subgraphId, BASE_IRI_TEST, input, RDFFormat.RDFXML);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      SlowQueryLogTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class SlowQueryLogTest is used for testing of phases of queries and of entries of the slow-query log.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class SlowQueryLogTest {
+
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/age> ?o .\n"
+            + "  FILTER (?o > 42 && ?s != <http://example.org/people/1> && str(?o) != \"forty \\\"two\\\"\")} LIMIT 10";
+
+
+
+    /**
+     * We test that literals are replaced and IRIs, variables and keywords are kept.
+     */
+    @Test
+    public void testNormalize() {
+        System.out.println("normalize");
+        assertEquals("SELECT ?s ?p ?o WHERE {?s <http://example.org/ontology/age> ?o . FILTER (?o > ? && ?s != <http://example.org/people/1>"
+                     + " && str(?o) != ?)} LIMIT ?", SlowQueryLog.normalize(QUERY_TEST));
+        assertEquals("SELECT ?x1 WHERE {?x1 ?p ?@en}", SlowQueryLog.normalize("SELECT ?x1  WHERE {?x1 ?p 'forty two'@en}"));
+        assertEquals("?s ?p ?", SlowQueryLog.normalize("?s ?p -1.5e3"));
+    }
+
+
+    /**
+     * We test that phases add up and that only queries over the threshold are written.
+     */
+    @Test
+    public void testLog() throws Exception {
+        System.out.println("log");
+        QueryTrace trace = new QueryTrace("querySubgraphs");
+        for (QueryTrace.Phase phase : QueryTrace.Phase.values()) {
+            Thread.sleep(2);
+            trace.mark(phase);
+        }
+        long phases = 0;
+        for (QueryTrace.Phase phase : QueryTrace.Phase.values()) {
+            assertTrue(trace.getNanos(phase) >= 2000000);
+            phases += trace.getNanos(phase);
+        }
+        assertTrue(phases <= trace.getElapsedNanos());
+
+        File file = File.createTempFile("slow-query", ".log");
+        SlowQueryLog log = new SlowQueryLog();
+        assertFalse(log.isEnabled());
+        log.record(REPOSITORY_ID_TEST, 2, null, QUERY_TEST, 5, trace);
+        log.open(10, file.getPath(), 1, 1);
+        try {
+            assertTrue(log.isEnabled());
+            log.record(REPOSITORY_ID_TEST, 2, ReasoningProfile.RDFS_PLUS_PLUS, QUERY_TEST, 5, trace);
+            log.record(REPOSITORY_ID_TEST, 1, null, QUERY_TEST, -1, new QueryTrace("querySubgraph"));
+        }
+        finally {
+            log.close();
+        }
+        List<String> lines = Files.readAllLines(file.toPath(), Charset.forName("UTF-8"));
+        assertEquals(1, lines.size());
+        String[] fields = lines.get(0).split("\t");
+        assertEquals(13, fields.length);
+        assertEquals("querySubgraphs", fields[1]);
+        assertEquals(REPOSITORY_ID_TEST, fields[2]);
+        assertEquals("2", fields[3]);
+        assertEquals("RDFS_PLUS_PLUS", fields[4]);
+        assertEquals("5", fields[5]);
+        assertTrue(Double.parseDouble(fields[6]) >= 10);
+        assertTrue(fields[7].startsWith("connection="));
+        assertTrue(fields[11].startsWith("materialisation="));
+        assertEquals(SlowQueryLog.normalize(QUERY_TEST), fields[12]);
+        assertEquals(0, log.getDropped());
+        file.delete();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      SubgraphCacheTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class SubgraphCacheTest is used for testing of the near-cache of subgraphs.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class SubgraphCacheTest {
+
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+    private static final String SUBGRAPH_ID_TEST_1 = "http://example.org#gate-context1";
+
+    private static final String SUBGRAPH_ID_TEST_2 = "http://example.org#gate-context2";
+
+    private static final String SUBGRAPH_ID_TEST_3 = "http://example.org#gate-context3";
+
+
+
+    /**
+     * We test that small subgraphs are accepted and big ones are remembered as oversized until written.
+     */
+    @Test
+    public void testThreshold() {
+        System.out.println("threshold");
+        SubgraphCache cache = new SubgraphCache(1024 * 1024, 10, false);
+        assertTrue(cache.isCandidate(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+        assertTrue(cache.accepts(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, 10));
+        assertFalse(cache.accepts(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2, 11));
+        assertFalse(cache.isCandidate(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2));
+
+        cache.invalidate(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2);
+        assertTrue(cache.isCandidate(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2));
+
+        cache.pin(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2);
+        assertTrue(cache.accepts(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2, 1000));
+
+        assertFalse(new SubgraphCache(0, 10, false).isCandidate(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+        assertFalse(new SubgraphCache(1024, 0, false).isCandidate(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+    }
+
+
+    /**
+     * We test that the least recently used model which is not pinned is evicted to keep the budget.
+     */
+    @Test
+    public void testEviction() {
+        System.out.println("eviction");
+        Model model = createModel(0);
+        long size = SubgraphCache.estimate(model);
+        SubgraphCache cache = new SubgraphCache(2 * size, 10, false);
+
+        cache.pin(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1);
+        assertTrue(cache.put(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, model, cache.getVersion()));
+        assertTrue(cache.put(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2, createModel(1), cache.getVersion()));
+        assertEquals(2 * size, cache.getUsedMemory());
+
+        // The pinned subgraph is older, but only the second one can be evicted
+        assertTrue(cache.put(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_3, createModel(2), cache.getVersion()));
+        assertSame(model, cache.get(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+        assertNull(cache.get(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2));
+        assertNotNull(cache.get(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_3));
+        assertEquals(2 * size, cache.getUsedMemory());
+
+        // A model bigger than the budget is not cached
+        Model big = createModel(3);
+        big.add(createModel(4));
+        big.add(createModel(5));
+        assertFalse(cache.put(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2, big, cache.getVersion()));
+        assertTrue(cache.unpin(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+    }
+
+
+    /**
+     * We test that writes drop models and that a model loaded during a write is not cached.
+     */
+    @Test
+    public void testInvalidation() {
+        System.out.println("invalidation");
+        SubgraphCache cache = new SubgraphCache(1024 * 1024, 10, false);
+        cache.pin(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1);
+        assertTrue(cache.put(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, createModel(0), cache.getVersion()));
+
+        long version = cache.getVersion();
+        cache.invalidate(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1);
+        assertNull(cache.get(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+        assertEquals(0, cache.getUsedMemory());
+        assertFalse(cache.put(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1, createModel(0), version));
+        assertTrue(cache.isCandidate(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+
+        assertTrue(cache.put(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2, createModel(1), cache.getVersion()));
+        cache.invalidateRepository(REPOSITORY_ID_TEST);
+        assertNull(cache.get(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_2));
+        assertFalse(cache.unpin(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1));
+        assertEquals(0, cache.getUsedMemory());
+    }
+
+
+
+    private static Model createModel(int id) {
+        Model model = ModelFactory.createDefaultModel();
+        model.add(model.createResource("http://example.org/people/person" + id),
+                  model.createProperty("http://example.org/ontology/name"),
+                  "Person " + id);
+        return model;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      SubgraphLocksLoadTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.rio.RDFFormat;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class SubgraphLocksLoadTest measures concurrent loads and queries of the memory backend (backend = memory)
+ * with the locks GateNosqlBean takes: a load holds the exclusive lock of its subgraph, a query holds no lock.
+ * With locks.shared_queries = true queries hold shared locks of their subgraphs, as they did before,
+ * so the two settings can be compared. Loads go to the queried subgraphs, so they contend with queries.
+ * It runs only if locks.duration (in seconds) is given, e.g.
+ * mvn test -Dtest=SubgraphLocksLoadTest -Dlocks.duration=10 -Dlocks.shared_queries=true.
+ * The number of clients is given by locks.clients (8) and the mix by locks.mix (load=1,query=8).
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class SubgraphLocksLoadTest {
+
+
+    private static final String REPOSITORY_ID_TEST = "gate-locks";
+
+    private static final String BASE_IRI_TEST = "http://example.org/example/local";
+
+    private static final String QUERY_TEST = "SELECT ?s ?p ?o WHERE {?s <http://example.org/lubm/property1> ?o .}";
+
+    private static final int SUBGRAPHS = 8;
+
+    private StorageBackend backend;
+
+    private SubgraphLocks locks;
+
+    private List<String> subgraphIds;
+
+    private List<byte[]> files;
+
+
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(System.getProperty("locks.duration") != null);
+        backend = new MemoryBackend();
+        backend.createRepository(REPOSITORY_ID_TEST);
+        locks = new SubgraphLocks(SubgraphLocks.STRIPES, 30000);
+        OntologyGenerator generator = new OntologyGenerator();
+        generator.setIndividuals(SUBGRAPHS * 1000);
+        generator.setSubgraphs(SUBGRAPHS);
+        subgraphIds = new ArrayList<>();
+        files = new ArrayList<>();
+        for (int i = 0; i < SUBGRAPHS; i++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            generator.write(i, output, RDFFormat.RDFXML);
+            files.add(output.toByteArray());
+            subgraphIds.add(generator.getSubgraphId(i));
+            backend.loadOntology(REPOSITORY_ID_TEST, subgraphIds.get(i), BASE_IRI_TEST,
+                                 new ByteArrayInputStream(files.get(i)), RDFFormat.RDFXML);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (backend != null) {
+            backend.shutDown();
+        }
+    }
+
+
+
+    /**
+     * We measure throughput and latencies of loads and queries, no operation may fail.
+     */
+    @Test
+    public void testLoadsAndQueries() throws Exception {
+        System.out.println("loadsAndQueries");
+        final boolean sharedQueries = Boolean.getBoolean("locks.shared_queries");
+        final ConnectionMetrics connections = new ConnectionMetrics();
+        backend.setConnections(connections);
+        LoadHarness harness = new LoadHarness(new LoadHarness.Target() {
+            @Override
+            public boolean execute(LoadHarness.Operation operation, int client, long sequence) throws Exception {
+                if (operation == LoadHarness.Operation.LOAD) {
+                    int subgraph = (int) ((client + sequence) % SUBGRAPHS);
+                    SubgraphLocks.Hold hold = locks.lockExclusive(REPOSITORY_ID_TEST, subgraphIds.get(subgraph));
+                    if (hold == null) {
+                        return false;
+                    }
+                    try {
+                        backend.loadOntology(REPOSITORY_ID_TEST, subgraphIds.get(subgraph), BASE_IRI_TEST,
+                                             new ByteArrayInputStream(files.get(subgraph)), RDFFormat.RDFXML);
+                    } finally {
+                        locks.release(hold);
+                    }
+                    return true;
+                }
+                SubgraphLocks.Hold hold = null;
+                if (sharedQueries) {
+                    hold = locks.lockShared(REPOSITORY_ID_TEST, subgraphIds);
+                    if (hold == null) {
+                        return false;
+                    }
+                }
+                try {
+                    return backend.query(REPOSITORY_ID_TEST, subgraphIds, QUERY_TEST).size() > 0;
+                } finally {
+                    if (hold != null) {
+                        locks.release(hold);
+                    }
+                }
+            }
+
+            @Override
+            public long getOpenConnections() {
+                return connections.getOpen();
+            }
+        });
+        LoadHarness.Report report = harness.clients(Integer.getInteger("locks.clients", 8))
+                                           .mix(System.getProperty("locks.mix", "load=1,query=8"))
+                                           .duration(Long.getLong("locks.duration"), TimeUnit.SECONDS)
+                                           .run();
+        System.out.println("shared_queries = " + sharedQueries);
+        System.out.print(report);
+        assertEquals(0, report.getErrors());
+        assertEquals(0, report.getLeakedConnections());
+        assertEquals(0, locks.getTimeouts());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+* Project :       Master's Thesis - NoSQL Database for Storing OWL Data
+* Document :      SubgraphLocksTest.java
+* Author :        Bc. Jakub Mareček  <xmarecek@mail.muni.cz>
+* Organization: : FI MUNI <http://www.fi.muni.cz>
+*/
+
+
+package cz.muni.fi.gate;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+
+
+/**
+ * Class SubgraphLocksTest is used for testing of locks of subgraphs.
+ * It does not need AllegroGraph database.
+ *
+ * @author Jakub Mareček (404364)
+ */
+
+
+public class SubgraphLocksTest {
+
+
+    private static final String REPOSITORY_ID_TEST = "gate-test";
+
+    private static final String SUBGRAPH_ID_TEST_1 = "http://example.org#gate-context1";
+
+    private static final String SUBGRAPH_ID_TEST_2 = "http://example.org#gate-context2";
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+
+
+    /**
+     * We test that readers share the lock and that a writer waits for them.
+     */
+    @Test
+    public void testShared() throws Exception {
+        System.out.println("shared");
+        SubgraphLocks locks = new SubgraphLocks(SubgraphLocks.STRIPES, 100);
+        SubgraphLocks.Hold first = locks.lockShared(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1);
+        assertNotNull(first);
+        assertTrue(inOtherThread(locks, SUBGRAPH_ID_TEST_1, false));
+        assertFalse(inOtherThread(locks, SUBGRAPH_ID_TEST_1, true));
+        assertEquals(1, locks.getTimeouts());
+        locks.release(first);
+        assertTrue(inOtherThread(locks, SUBGRAPH_ID_TEST_1, true));
+        assertEquals(0, locks.size());
+    }
+
+
+    /**
+     * We test that a writer excludes readers and writers of its subgraph only,
+     * even if all subgraphs fall into one stripe.
+     */
+    @Test
+    public void testExclusive() throws Exception {
+        System.out.println("exclusive");
+        final SubgraphLocks locks = new SubgraphLocks(1, 100);
+        SubgraphLocks.Hold hold = locks.lockExclusive(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1);
+        assertNotNull(hold);
+        assertFalse(inOtherThread(locks, SUBGRAPH_ID_TEST_1, false));
+        assertFalse(inOtherThread(locks, SUBGRAPH_ID_TEST_1, true));
+        assertTrue(inOtherThread(locks, SUBGRAPH_ID_TEST_2, true));
+        assertFalse(executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                SubgraphLocks.Hold both = locks.lockShared(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_2, SUBGRAPH_ID_TEST_1));
+                locks.release(both);
+                return both != null;
+            }
+        }).get());
+        assertEquals(3, locks.getTimeouts());
+        assertEquals(1, locks.size());
+        locks.release(hold);
+        assertEquals(0, locks.size());
+    }
+
+
+    /**
+     * We test that holders of several subgraphs listed in different orders do not deadlock.
+     */
+    @Test
+    public void testOrder() throws Exception {
+        System.out.println("order");
+        final SubgraphLocks locks = new SubgraphLocks(SubgraphLocks.STRIPES, 10000);
+        Future<?> future = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10000; i++) {
+                    locks.release(locks.lockShared(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_2, SUBGRAPH_ID_TEST_1)));
+                }
+            }
+        });
+        for (int i = 0; i < 10000; i++) {
+            SubgraphLocks.Hold first = locks.lockExclusive(REPOSITORY_ID_TEST, SUBGRAPH_ID_TEST_1);
+            locks.release(first);
+            SubgraphLocks.Hold both = locks.lockShared(REPOSITORY_ID_TEST, Arrays.asList(SUBGRAPH_ID_TEST_1, SUBGRAPH_ID_TEST_2));
+            assertNotNull(both);
+            locks.release(both);
+        }
+        future.get();
+        assertEquals(0, locks.getTimeouts());
+        assertEquals(0, locks.size());
+    }
+
+
+
+    private boolean inOtherThread(final SubgraphLocks locks, final String subgraphId, final boolean exclusive) throws Exception {
+        return executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                SubgraphLocks.Hold hold = exclusive ? locks.lockExclusive(REPOSITORY_ID_TEST, subgraphId)
+                                                    : locks.lockShared(REPOSITORY_ID_TEST, subgraphId);
+                locks.release(hold);
+                return hold != null;
+            }
+        }).get();
+    }
+}